@@ -53,6 +53,7 @@ class Cql3ParsingRuleSet(CqlParsingRuleSet):
         ('memtable_flush_period_in_ms', None),
         ('cdc', None),
         ('read_repair', None),
+        ('filter_type', None),
     )
 
     columnfamily_layout_map_options = (
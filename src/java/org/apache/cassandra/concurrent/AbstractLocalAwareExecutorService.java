@@ -131,7 +131,10 @@ public abstract class AbstractLocalAwareExecutorService implements LocalAwareExe
             ExecutorLocals.set(locals);
             try
             {
-                super.run();
+                if (locals.resourceAccountingState != null)
+                    locals.resourceAccountingState.run(super::run);
+                else
+                    super.run();
             }
             finally
             {
@@ -145,6 +148,8 @@ public abstract class AbstractLocalAwareExecutorService implements LocalAwareExe
         private boolean failure;
         private Object result = this;
         private final Callable<T> callable;
+        // the time at which the task was queued, for the executors that measure how long tasks wait in their queue
+        long queuedAtNanos;
 
         public FutureTask(Callable<T> callable)
         {
@@ -19,11 +19,12 @@
 package org.apache.cassandra.concurrent;
 
 import org.apache.cassandra.service.ClientWarn;
+import org.apache.cassandra.service.ResourceAccounting;
 import org.apache.cassandra.tracing.Tracing;
 
 public interface ExecutorLocal<T>
 {
-    ExecutorLocal[] all = { Tracing.instance, ClientWarn.instance };
+    ExecutorLocal[] all = { Tracing.instance, ClientWarn.instance, ResourceAccounting.instance };
 
     /**
      * This is called when scheduling the task, and also before calling {@link #set(Object)} when running on a
@@ -21,11 +21,12 @@ package org.apache.cassandra.concurrent;
 import java.util.Arrays;
 
 import org.apache.cassandra.service.ClientWarn;
+import org.apache.cassandra.service.ResourceAccounting;
 import org.apache.cassandra.tracing.TraceState;
 import org.apache.cassandra.tracing.Tracing;
 
 /*
- * This class only knows about Tracing and ClientWarn, so if any different executor locals are added, it must be
+ * This class only knows about Tracing, ClientWarn and ResourceAccounting, so if any different executor locals are added, it must be
  * updated.
  *
  * We don't enumerate the ExecutorLocal.all array each time because it would be much slower.
@@ -34,27 +35,30 @@ public class ExecutorLocals
 {
     private static final ExecutorLocal<TraceState> tracing = Tracing.instance;
     private static final ExecutorLocal<ClientWarn.State> clientWarn = ClientWarn.instance;
+    private static final ExecutorLocal<ResourceAccounting.State> resourceAccounting = ResourceAccounting.instance;
 
     public final TraceState traceState;
     public final ClientWarn.State clientWarnState;
+    public final ResourceAccounting.State resourceAccountingState;
 
-    private ExecutorLocals(TraceState traceState, ClientWarn.State clientWarnState)
+    private ExecutorLocals(TraceState traceState, ClientWarn.State clientWarnState, ResourceAccounting.State resourceAccountingState)
     {
         this.traceState = traceState;
         this.clientWarnState = clientWarnState;
+        this.resourceAccountingState = resourceAccountingState;
     }
 
     static
     {
-        assert Arrays.equals(ExecutorLocal.all, new ExecutorLocal[]{ tracing, clientWarn })
+        assert Arrays.equals(ExecutorLocal.all, new ExecutorLocal[]{ tracing, clientWarn, resourceAccounting })
         : "ExecutorLocals has not been updated to reflect new ExecutorLocal.all";
     }
 
     /**
      * This creates a new ExecutorLocals object based on what is already set.
      *
-     * @return an ExecutorLocals object which has the trace state and client warn state captured if either has been set,
-     *         or null if both are unset. The null result short-circuits logic in
+     * @return an ExecutorLocals object which has the trace state, client warn state and resource accounting state
+     *         captured if any has been set, or null if they are all unset. The null result short-circuits logic in
      *         {@link AbstractLocalAwareExecutorService#newTaskFor(Runnable, Object, ExecutorLocals)}, preventing
      *         unnecessarily calling {@link ExecutorLocals#set(ExecutorLocals)}.
      */
@@ -62,23 +66,27 @@ public class ExecutorLocals
     {
         TraceState traceState = tracing.get();
         ClientWarn.State clientWarnState = clientWarn.get();
-        if (traceState == null && clientWarnState == null)
+        ResourceAccounting.State resourceAccountingState = resourceAccounting.get();
+        if (traceState == null && clientWarnState == null && resourceAccountingState == null)
             return null;
         else
-            return new ExecutorLocals(traceState, clientWarnState);
+            return new ExecutorLocals(traceState, clientWarnState, resourceAccountingState);
     }
 
     public static ExecutorLocals create(TraceState traceState)
     {
         ClientWarn.State clientWarnState = clientWarn.get();
-        return new ExecutorLocals(traceState, clientWarnState);
+        ResourceAccounting.State resourceAccountingState = resourceAccounting.get();
+        return new ExecutorLocals(traceState, clientWarnState, resourceAccountingState);
     }
 
     public static void set(ExecutorLocals locals)
     {
         TraceState traceState = locals == null ? null : locals.traceState;
         ClientWarn.State clientWarnState = locals == null ? null : locals.clientWarnState;
+        ResourceAccounting.State resourceAccountingState = locals == null ? null : locals.resourceAccountingState;
         tracing.set(traceState);
         clientWarn.set(clientWarnState);
+        resourceAccounting.set(resourceAccountingState);
     }
 }
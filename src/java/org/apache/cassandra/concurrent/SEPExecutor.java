@@ -32,6 +32,8 @@ import static org.apache.cassandra.concurrent.SEPWorker.Work;
 public class SEPExecutor extends AbstractLocalAwareExecutorService
 {
     private final SharedExecutorPool pool;
+    // the group of workers that preferably run the tasks of this executor
+    final SharedExecutorPool.WorkerGroup group;
 
     public final int maxWorkers;
     public final String name;
@@ -53,9 +55,10 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
     // TODO: see if other queue implementations might improve throughput
     protected final ConcurrentLinkedQueue<FutureTask<?>> tasks = new ConcurrentLinkedQueue<>();
 
-    SEPExecutor(SharedExecutorPool pool, int maxWorkers, int maxTasksQueued, String jmxPath, String name)
+    SEPExecutor(SharedExecutorPool pool, SharedExecutorPool.WorkerGroup group, int maxWorkers, int maxTasksQueued, String jmxPath, String name)
     {
         this.pool = pool;
+        this.group = group;
         this.name = name;
         this.maxWorkers = maxWorkers;
         this.maxTasksQueued = maxTasksQueued;
@@ -74,14 +77,14 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
         return maxTasksQueued;
     }
 
-    // schedules another worker for this pool if there is work outstanding and there are no spinning threads that
-    // will self-assign to it in the immediate future
+    // schedules another worker for this pool if there is work outstanding and there are no spinning threads of its group
+    // that will self-assign to it in the immediate future
     boolean maybeSchedule()
     {
-        if (pool.spinningCount.get() > 0 || !takeWorkPermit(true))
+        if (group.spinningCount.get() > 0 || !takeWorkPermit(true))
             return false;
 
-        pool.schedule(new Work(this));
+        pool.schedule(new Work(this), group);
         return true;
     }
 
@@ -89,6 +92,7 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
     {
         // we add to the queue first, so that when a worker takes a task permit it can be certain there is a task available
         // this permits us to schedule threads non-spuriously; it also means work is serviced fairly
+        task.queuedAtNanos = System.nanoTime();
         tasks.add(task);
         int taskPermits;
         while (true)
@@ -108,7 +112,7 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
             // spawned helper workers that would have either exhausted the available tasks or are still being spawned.
             // to avoid incurring any unnecessary signalling penalties we also do not take any work to hand to the new
             // worker, we simply start a worker in a spinning state
-            pool.maybeStartSpinningWorker();
+            pool.maybeStartSpinningWorker(group);
         }
         else if (taskPermits >= maxTasksQueued)
         {
@@ -123,7 +127,7 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
             {
                 // if we're blocking, we might as well directly schedule a worker if we aren't already at max
                 if (takeWorkPermit(true))
-                    pool.schedule(new Work(this));
+                    pool.schedule(new Work(this), group);
 
                 metrics.totalBlocked.inc();
                 metrics.currentBlocked.inc();
@@ -135,6 +139,21 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
         }
     }
 
+    // runs a task taken from the queue, recording how long it waited in the queue and how long it ran
+    void run(FutureTask<?> task)
+    {
+        long start = System.nanoTime();
+        metrics.queueWaitLatency.update(start - task.queuedAtNanos, TimeUnit.NANOSECONDS);
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            metrics.taskRunLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
     // takes permission to perform a task, if any are available; once taken it is guaranteed
     // that a proceeding call to tasks.poll() will return some work
     boolean takeTaskPermit()
@@ -197,7 +216,9 @@ public class SEPExecutor extends AbstractLocalAwareExecutorService
         {
             try
             {
-                ft.run();
+                // the task is run without being queued
+                ft.queuedAtNanos = System.nanoTime();
+                run(ft);
             }
             finally
             {
@@ -36,6 +36,7 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
     final Long workerId;
     final Thread thread;
     final SharedExecutorPool pool;
+    final SharedExecutorPool.WorkerGroup group;
 
     // prevStopCheck stores the value of pool.stopCheck after we last incremented it; if it hasn't changed,
     // we know nobody else was spinning in the interval, so we increment our soleSpinnerSpinTime accordingly,
@@ -44,24 +45,27 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
     long prevStopCheck = 0;
     long soleSpinnerSpinTime = 0;
 
-    SEPWorker(Long workerId, Work initialState, SharedExecutorPool pool)
+    SEPWorker(Long workerId, Work initialState, SharedExecutorPool pool, SharedExecutorPool.WorkerGroup group)
     {
         this.pool = pool;
+        this.group = group;
         this.workerId = workerId;
-        thread = new FastThreadLocalThread(this, pool.poolName + "-Worker-" + workerId);
+        String name = pool.groups.length > 1 ? pool.poolName + "-Group" + group.id : pool.poolName;
+        thread = new FastThreadLocalThread(this, name + "-Worker-" + workerId);
         thread.setDaemon(true);
         set(initialState);
         thread.start();
+        pool.metrics.workersStarted.inc();
     }
 
     public void run()
     {
         /**
          * we maintain two important invariants:
-         * 1)   after exiting spinning phase, we ensure at least one more task on _each_ queue will be processed
-         *      promptly after we begin, assuming any are outstanding on any pools. this is to permit producers to
-         *      avoid signalling if there are _any_ spinning threads. we achieve this by simply calling maybeSchedule()
-         *      on each queue if on decrementing the spin counter we hit zero.
+         * 1)   after exiting spinning phase, we ensure at least one more task on _each_ queue of our group will be
+         *      processed promptly after we begin, assuming any are outstanding on any pools. this is to permit producers
+         *      to avoid signalling if there are _any_ spinning threads in the group of their executor. we achieve this by
+         *      simply calling maybeSchedule() on each queue of our group if on decrementing its spin counter we hit zero.
          * 2)   before processing a task on a given queue, we attempt to assign another worker to the _same queue only_;
          *      this allows a producer to skip signalling work if the task queue is currently non-empty, and in conjunction
          *      with invariant (1) ensures that if any thread was spinning when a task was added to any executor, that
@@ -69,7 +73,7 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
          */
 
         SEPExecutor assigned = null;
-        Runnable task = null;
+        AbstractLocalAwareExecutorService.FutureTask<?> task = null;
         try
         {
             while (true)
@@ -84,8 +88,11 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
                 // whenever we receive it - though we don't apply this constraint to producers, who may reschedule us before
                 // we go to sleep)
                 if (stop())
+                {
+                    pool.metrics.parks.inc();
                     while (isStopped())
                         LockSupport.park();
+                }
 
                 // we can be assigned any state from STOPPED, so loop if we don't actually have any tasks assigned
                 assigned = get().assigned;
@@ -107,7 +114,7 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
                     assigned.maybeSchedule();
 
                     // we know there is work waiting, as we have a work permit, so poll() will always succeed
-                    task.run();
+                    assigned.run(task);
                     task = null;
 
                     // if we're shutting down, or we fail to take a permit, we don't perform any more work
@@ -169,12 +176,15 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
 
             // if we're being descheduled, place ourselves in the descheduled collection
             if (work.isStop())
-                pool.descheduled.put(workerId, this);
+                group.descheduled.put(workerId, this);
 
             // if we're currently stopped, and the new state is not a stop signal
             // (which we can immediately convert to stopped), unpark the worker
             if (state.isStopped() && (!work.isStop() || !stop()))
+            {
+                pool.metrics.unparks.inc();
                 LockSupport.unpark(thread);
+            }
             return true;
         }
         return false;
@@ -186,16 +196,32 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
         // if we aren't permitted to assign in this state, fail
         if (!get().canAssign(true))
             return false;
+        // the executors of our group are tried first, and those of the other groups only if they have no work
+        if (selfAssign(true))
+            return true;
+        if (pool.groups.length > 1 && selfAssign(false))
+        {
+            pool.metrics.crossGroupAssignments.inc();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean selfAssign(boolean ownGroup)
+    {
         for (SEPExecutor exec : pool.executors)
         {
-            if (exec.takeWorkPermit(true))
+            // the work of another group is only taken if none of its workers is spinning, i.e. about to take it
+            if ((exec.group == group) == ownGroup
+                && (ownGroup || exec.group.spinningCount.get() == 0)
+                && exec.takeWorkPermit(true))
             {
                 Work work = new Work(exec);
                 // we successfully started work on this executor, so we must either assign it to ourselves or ...
                 if (assign(work, true))
                     return true;
                 // ... if we fail, schedule it to another worker
-                pool.schedule(work);
+                pool.schedule(work, exec.group);
                 // and return success as we must have already been assigned a task
                 assert get().assigned != null;
                 return true;
@@ -211,16 +237,20 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
     {
         assert get() == Work.WORKING;
         pool.spinningCount.incrementAndGet();
+        group.spinningCount.incrementAndGet();
         set(Work.SPINNING);
     }
 
-    // exit the spinning state; if there are no remaining spinners, we immediately try and schedule work for all executors
-    // so that any producer is safe to not spin up a worker when they see a spinning thread (invariant (1) above)
+    // exit the spinning state; if there are no remaining spinners in our group, we immediately try and schedule work for
+    // all its executors so that any producer is safe to not spin up a worker when they see a spinning thread of the group
+    // of their executor (invariant (1) above)
     private void stopSpinning()
     {
-        if (pool.spinningCount.decrementAndGet() == 0)
+        pool.spinningCount.decrementAndGet();
+        if (group.spinningCount.decrementAndGet() == 0)
             for (SEPExecutor executor : pool.executors)
-                executor.maybeSchedule();
+                if (executor.group == group)
+                    executor.maybeSchedule();
         prevStopCheck = soleSpinnerSpinTime = 0;
     }
 
@@ -238,16 +268,18 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
 
         // place ourselves in the spinning collection; if we clash with another thread just exit
         Long target = start + sleep;
-        if (pool.spinning.putIfAbsent(target, this) != null)
+        if (group.spinning.putIfAbsent(target, this) != null)
             return;
         LockSupport.parkNanos(sleep);
 
         // remove ourselves (if haven't been already) - we should be at or near the front, so should be cheap-ish
-        pool.spinning.remove(target, this);
+        group.spinning.remove(target, this);
 
         // finish timing and grab spinningTime (before we finish timing so it is under rather than overestimated)
         long end = System.nanoTime();
         long spin = end - start;
+        pool.metrics.spins.inc();
+        pool.metrics.spinTime.inc(TimeUnit.NANOSECONDS.toMicros(spin));
         long stopCheck = pool.stopCheck.addAndGet(spin);
         maybeStop(stopCheck, end);
         if (prevStopCheck + spin == stopCheck)
@@ -275,7 +307,7 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
                 // try and stop ourselves;
                 // if we've already been assigned work stop another worker
                 if (!assign(Work.STOP_SIGNALLED, true))
-                    pool.schedule(Work.STOP_SIGNALLED);
+                    pool.schedule(Work.STOP_SIGNALLED, group);
             }
         }
         else if (soleSpinnerSpinTime > stopCheckInterval && pool.spinningCount.get() == 1)
@@ -316,16 +348,16 @@ final class SEPWorker extends AtomicReference<SEPWorker.Work> implements Runnabl
      *
      * STOPPED:         indicates the worker is descheduled, and whilst accepts work in this state (causing it to
      *                  be rescheduled) it will generally not be considered for work until all other worker threads are busy.
-     *                  In this state we should be present in the pool.descheduled collection, and should be parked
+     *                  In this state we should be present in the group.descheduled collection, and should be parked
      * -> (ASSIGNED)|SPINNING
      * STOP_SIGNALLED:  the worker has been asked to deschedule itself, but has not yet done so; only entered from a SPINNING
      *                  state, and generally communicated to itself, but maybe set from any worker. this state may be preempted
      *                  and replaced with (ASSIGNED) or SPINNING
-     *                  In this state we should be present in the pool.descheduled collection
+     *                  In this state we should be present in the group.descheduled collection
      * -> (ASSIGNED)|STOPPED|SPINNING
      * SPINNING:        indicates the worker has no work to perform, so is performing a friendly wait-based-spinning
      *                  until it either is (ASSIGNED) some work (by itself or another thread), or sent STOP_SIGNALLED
-     *                  In this state we _may_ be in the pool.spinning collection (but only if we are in the middle of a sleep)
+     *                  In this state we _may_ be in the group.spinning collection (but only if we are in the middle of a sleep)
      * -> (ASSIGNED)|STOP_SIGNALLED|SPINNING
      * (ASSIGNED):      asks the worker to perform some work against the specified executor, and preassigns a task permit
      *                  from that executor so that in this state there is always work to perform.
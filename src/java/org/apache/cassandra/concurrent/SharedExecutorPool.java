@@ -24,6 +24,10 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.base.Preconditions;
+
+import org.apache.cassandra.metrics.SharedExecutorPoolMetrics;
+
 import static org.apache.cassandra.concurrent.SEPWorker.Work;
 
 /**
@@ -50,9 +54,19 @@ import static org.apache.cassandra.concurrent.SEPWorker.Work;
  * In order to prevent this executor pool acting like a noisy neighbour to other processes on the system, workers also deschedule
  * themselves when it is detected that there are too many for the current rate of operation arrival. This is decided as a function
  * of the total time spent spinning by all workers in an interval; as more workers spin, workers are descheduled more rapidly.
+ *
+ * On large multi-socket machines, the workers can be partitioned in several groups, typically one per NUMA node, with the
+ * cassandra.sep_worker_groups system property. Each executor then has a home group: its work is preferably handed to the
+ * workers of that group, and these workers look for work on the executors of their group first, only taking work from
+ * the executors of other groups when there is none left in theirs and the workers of these groups are all busy. The
+ * workers spinning are counted per group, so that producers only wake up workers when their home group has none
+ * about to take their work. This keeps each executor served by the same subset of
+ * threads, and their data in the same caches, as long as the load is balanced between the groups.
  */
 public class SharedExecutorPool
 {
+    private static final String WORKER_GROUPS_PROPERTY = "cassandra.sep_worker_groups";
+    private static final int DEFAULT_WORKER_GROUPS = Integer.getInteger(WORKER_GROUPS_PROPERTY, 1);
 
     public static final SharedExecutorPool SHARED = new SharedExecutorPool("SharedPool");
 
@@ -62,50 +76,107 @@ public class SharedExecutorPool
 
     // the collection of executors serviced by this pool; periodically ordered by traffic volume
     final List<SEPExecutor> executors = new CopyOnWriteArrayList<>();
+    private long executorCount;
 
-    // the number of workers currently in a spinning state
+    // the number of workers currently in a spinning state, in all groups
     final AtomicInteger spinningCount = new AtomicInteger();
     // see SEPWorker.maybeStop() - used to self coordinate stopping of threads
     final AtomicLong stopCheck = new AtomicLong();
-    // the collection of threads that are (most likely) in a spinning state - new workers are scheduled from here first
-    // TODO: consider using a queue partially-ordered by scheduled wake-up time
-    // (a full-fledged correctly ordered SkipList is overkill)
-    final ConcurrentSkipListMap<Long, SEPWorker> spinning = new ConcurrentSkipListMap<>();
-    // the collection of threads that have been asked to stop/deschedule - new workers are scheduled from here last
-    final ConcurrentSkipListMap<Long, SEPWorker> descheduled = new ConcurrentSkipListMap<>();
+    // the groups the workers are partitioned in; the executors are spread over them
+    final WorkerGroup[] groups;
+
+    final SharedExecutorPoolMetrics metrics;
 
     public SharedExecutorPool(String poolName)
     {
+        this(poolName, DEFAULT_WORKER_GROUPS);
+    }
+
+    public SharedExecutorPool(String poolName, int workerGroups)
+    {
+        Preconditions.checkArgument(workerGroups > 0,
+                                    "The number of worker groups (%s) must be positive, but was %s",
+                                    WORKER_GROUPS_PROPERTY, workerGroups);
         this.poolName = poolName;
+        this.groups = new WorkerGroup[workerGroups];
+        for (int i = 0; i < workerGroups; i++)
+            groups[i] = new WorkerGroup(i);
+        this.metrics = new SharedExecutorPoolMetrics(poolName, spinningCount);
     }
 
-    void schedule(Work work)
+    /**
+     * The workers of a group, spinning or descheduled, that work can be handed to.
+     */
+    static final class WorkerGroup
     {
-        // we try to hand-off our work to the spinning queue before the descheduled queue, even though we expect it to be empty
-        // all we're doing here is hoping to find a worker without work to do, but it doesn't matter too much what we find;
-        // we atomically set the task so even if this were a collection of all workers it would be safe, and if they are both
-        // empty we schedule a new thread
-        Map.Entry<Long, SEPWorker> e;
-        while (null != (e = spinning.pollFirstEntry()) || null != (e = descheduled.pollFirstEntry()))
-            if (e.getValue().assign(work, false))
+        final int id;
+        // the collection of threads that are (most likely) in a spinning state - new workers are scheduled from here first
+        // TODO: consider using a queue partially-ordered by scheduled wake-up time
+        // (a full-fledged correctly ordered SkipList is overkill)
+        final ConcurrentSkipListMap<Long, SEPWorker> spinning = new ConcurrentSkipListMap<>();
+        // the collection of threads that have been asked to stop/deschedule - new workers are scheduled from here last
+        final ConcurrentSkipListMap<Long, SEPWorker> descheduled = new ConcurrentSkipListMap<>();
+        // the number of workers of the group currently in a spinning state; the producers of the executors of the group
+        // only schedule work when there are none, as these workers self-assign the work of their group first
+        final AtomicInteger spinningCount = new AtomicInteger();
+
+        private WorkerGroup(int id)
+        {
+            this.id = id;
+        }
+
+        private boolean assign(Work work)
+        {
+            // we try to hand-off our work to the spinning queue before the descheduled queue, even though we expect it to be empty
+            // all we're doing here is hoping to find a worker without work to do, but it doesn't matter too much what we find;
+            // we atomically set the task so even if this were a collection of all workers it would be safe
+            Map.Entry<Long, SEPWorker> e;
+            while (null != (e = spinning.pollFirstEntry()) || null != (e = descheduled.pollFirstEntry()))
+                if (e.getValue().assign(work, false))
+                    return true;
+            return false;
+        }
+    }
+
+    void schedule(Work work, WorkerGroup group)
+    {
+        // the workers of the given group are tried first, then those of the other groups, and if they are all busy we
+        // schedule a new thread in the given group
+        if (group.assign(work))
+            return;
+
+        // a spinning worker is accounted to the group whose spinning count was incremented for it
+        for (int i = 1; i < groups.length && !work.isSpinning(); i++)
+        {
+            if (groups[(group.id + i) % groups.length].assign(work))
+            {
+                if (work.isAssigned())
+                    metrics.crossGroupAssignments.inc();
                 return;
+            }
+        }
 
         if (!work.isStop())
-            new SEPWorker(workerId.incrementAndGet(), work, this);
+            new SEPWorker(workerId.incrementAndGet(), work, this, group);
     }
 
-    void maybeStartSpinningWorker()
+    void maybeStartSpinningWorker(WorkerGroup group)
     {
-        // in general the workers manage spinningCount directly; however if it is zero, we increment it atomically
-        // ourselves to avoid starting a worker unless we have to
-        int current = spinningCount.get();
-        if (current == 0 && spinningCount.compareAndSet(0, 1))
-            schedule(Work.SPINNING);
+        // in general the workers manage spinningCount directly; however if it is zero for the group, we increment it
+        // atomically ourselves to avoid starting a worker unless we have to
+        int current = group.spinningCount.get();
+        if (current == 0 && group.spinningCount.compareAndSet(0, 1))
+        {
+            spinningCount.incrementAndGet();
+            schedule(Work.SPINNING, group);
+        }
     }
 
-    public LocalAwareExecutorService newExecutor(int maxConcurrency, int maxQueuedTasks, String jmxPath, String name)
+    public synchronized LocalAwareExecutorService newExecutor(int maxConcurrency, int maxQueuedTasks, String jmxPath, String name)
     {
-        SEPExecutor executor = new SEPExecutor(this, maxConcurrency, maxQueuedTasks, jmxPath, name);
+        // executors are spread over the worker groups in turn
+        WorkerGroup group = groups[(int) (executorCount++ % groups.length)];
+        SEPExecutor executor = new SEPExecutor(this, group, maxConcurrency, maxQueuedTasks, jmxPath, name);
         executors.add(executor);
         return executor;
     }
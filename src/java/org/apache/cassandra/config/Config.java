@@ -117,9 +117,12 @@ public class Config
     public Integer concurrent_replicates = null;
 
     public int memtable_flush_writers = 0;
+    public int memtable_flush_shards = 1;
     public Integer memtable_heap_space_in_mb;
     public Integer memtable_offheap_space_in_mb;
     public Float memtable_cleanup_threshold = null;
+    public MemtableCleanupStrategy memtable_cleanup_strategy = MemtableCleanupStrategy.largest;
+    public boolean memtable_pack_dense_rows = false;
 
     public int storage_port = 7000;
     public int ssl_storage_port = 7001;
@@ -174,7 +177,11 @@ public class Config
     public Integer unlogged_batch_across_partitions_warn_threshold = 10;
     public volatile Integer concurrent_compactors;
     public volatile int compaction_throughput_mb_per_sec = 16;
+    public volatile int compaction_throughput_per_disk_mb_per_sec = 0;
+    public volatile int compaction_pause_for_flush_in_ms = 0;
     public volatile int compaction_large_partition_warning_threshold_mb = 100;
+    public volatile boolean compaction_partition_copy_enabled = false;
+    public volatile boolean compaction_cursor_merge_enabled = false;
     public int min_free_space_per_drive_in_mb = 50;
 
     public volatile int concurrent_validations = Integer.MAX_VALUE;
@@ -195,6 +202,8 @@ public class Config
 
     // Commit Log
     public String commitlog_directory;
+    public String[] commitlog_stripe_directories = new String[0];
+    public int commitlog_stripes = 1;
     public Integer commitlog_total_space_in_mb;
     public CommitLogSync commitlog_sync;
 
@@ -203,6 +212,8 @@ public class Config
      */
     public double commitlog_sync_batch_window_in_ms = Double.NaN;
     public double commitlog_sync_group_window_in_ms = Double.NaN;
+    public boolean commitlog_sync_group_adaptive_window = false;
+    public int commitlog_sync_group_max_pending_in_kb = 0;
     public int commitlog_sync_period_in_ms;
     public int commitlog_segment_size_in_mb = 32;
     public ParameterizedClass commitlog_compression;
@@ -235,7 +246,11 @@ public class Config
     public int hinted_handoff_throttle_in_kb = 1024;
     public int batchlog_replay_throttle_in_kb = 1024;
     public int max_hints_delivery_threads = 2;
+    public int max_hints_files_dispatched_per_host = 1;
+    public int hints_dispatch_batch_size = 1;
+    public volatile boolean hinted_handoff_adaptive_throttle_enabled = false;
     public int hints_flush_period_in_ms = 10000;
+    public int max_hints_flush_threads = 1;
     public int max_hints_file_size_in_mb = 128;
     public ParameterizedClass hints_compression;
     public int sstable_preemptive_open_interval_in_mb = 50;
@@ -289,6 +304,9 @@ public class Config
 
     public volatile Long index_summary_capacity_in_mb;
     public volatile int index_summary_resize_interval_in_minutes = 60;
+    public volatile IndexSummaryLayout index_summary_layout = IndexSummaryLayout.binary_search;
+
+    public volatile SSTableFilterType sstable_filter_type = SSTableFilterType.bloom;
 
     public int gc_log_threshold_in_ms = 200;
     public int gc_warn_threshold_in_ms = 1000;
@@ -378,6 +396,12 @@ public class Config
 
     public RepairCommandPoolFullStrategy repair_command_pool_full_strategy = RepairCommandPoolFullStrategy.queue;
     public int repair_command_pool_size = concurrent_validations;
+    /**
+     * When greater than 0, full repairs involving the coordinator compare per-partition digests of the ranges
+     * found out of sync and only exchange the partitions that differ, as long as neither replica holds more than
+     * this many partitions in those ranges. Otherwise the ranges are streamed.
+     */
+    public volatile int repair_row_level_sync_max_partitions = 0;
 
     public String full_query_log_dir = null;
 
@@ -394,6 +418,11 @@ public class Config
 
     public volatile boolean diagnostic_events_enabled = false;
 
+    public volatile boolean request_resource_accounting_enabled = false;
+
+    public volatile boolean continuous_sampling_enabled = false;
+    public volatile long continuous_sampling_window_in_ms = 60000L;
+
     /**
      * flags for enabling tracking repaired state of data during reads
      * separate flags for range & single partition reads as single partition reads are only tracked
@@ -441,6 +470,19 @@ public class Config
         batch,
         group
     }
+    public enum IndexSummaryLayout
+    {
+        binary_search,
+        eytzinger
+    }
+
+    public enum SSTableFilterType
+    {
+        bloom,
+        blocked_bloom,
+        xor
+    }
+
     public enum InternodeCompression
     {
         all, none, dc
@@ -454,12 +496,19 @@ public class Config
         standard,
     }
 
+    public enum MemtableCleanupStrategy
+    {
+        largest,
+        weighted
+    }
+
     public enum MemtableAllocationType
     {
         unslabbed_heap_buffers,
         heap_buffers,
         offheap_buffers,
-        offheap_objects
+        offheap_objects,
+        offheap_rows
     }
 
     public enum DiskFailurePolicy
@@ -367,6 +367,10 @@ public class DatabaseDescriptor
             {
                 throw new ConfigurationException("Group sync specified, but commitlog_sync_period_in_ms found. Only specify commitlog_sync_group_window_in_ms when using group sync", false);
             }
+            else if (conf.commitlog_sync_group_max_pending_in_kb < 0)
+            {
+                throw new ConfigurationException("commitlog_sync_group_max_pending_in_kb must not be negative, but was " + conf.commitlog_sync_group_max_pending_in_kb, false);
+            }
             logger.debug("Syncing log with a group window of {}", conf.commitlog_sync_period_in_ms);
         }
         else
@@ -382,6 +386,13 @@ public class DatabaseDescriptor
             logger.debug("Syncing log with a period of {}", conf.commitlog_sync_period_in_ms);
         }
 
+        if (conf.commitlog_stripes < 1)
+            throw new ConfigurationException("commitlog_stripes must be at least 1, but was " + conf.commitlog_stripes, false);
+        if (conf.commitlog_stripes > 1 && conf.cdc_enabled)
+            throw new ConfigurationException("commitlog_stripes must be 1 when cdc_enabled is true", false);
+        if (conf.commitlog_stripe_directories == null)
+            conf.commitlog_stripe_directories = new String[0];
+
         /* evaluate the DiskAccessMode Config directive, which also affects indexAccessMode selection */
         if (conf.disk_access_mode == Config.DiskAccessMode.auto)
         {
@@ -576,6 +587,16 @@ public class DatabaseDescriptor
             logger.warn("Only {} free across all data volumes. Consider adding more capacity to your cluster or removing obsolete snapshots",
                         FBUtilities.prettyPrintMemory(dataFreeBytes));
 
+        for (String stripedir : conf.commitlog_stripe_directories)
+        {
+            if (stripedir == null)
+                throw new ConfigurationException("commitlog_stripe_directories must not contain empty entry", false);
+            if (stripedir.equals(conf.commitlog_directory))
+                throw new ConfigurationException("commitlog_stripe_directories must not contain the commitlog_directory", false);
+            if (Arrays.asList(conf.data_file_directories).contains(stripedir))
+                throw new ConfigurationException("commitlog_stripe_directories must not contain any data_file_directories", false);
+        }
+
         if (conf.commitlog_directory.equals(conf.saved_caches_directory))
             throw new ConfigurationException("saved_caches_directory must not be the same as the commitlog_directory", false);
         if (conf.commitlog_directory.equals(conf.hints_directory))
@@ -583,6 +604,15 @@ public class DatabaseDescriptor
         if (conf.hints_directory.equals(conf.saved_caches_directory))
             throw new ConfigurationException("saved_caches_directory must not be the same as the hints_directory", false);
 
+        if (conf.max_hints_flush_threads < 1)
+            throw new ConfigurationException("max_hints_flush_threads must be at least 1, but was " + conf.max_hints_flush_threads, false);
+
+        if (conf.max_hints_files_dispatched_per_host < 1)
+            throw new ConfigurationException("max_hints_files_dispatched_per_host must be at least 1, but was " + conf.max_hints_files_dispatched_per_host, false);
+
+        if (conf.hints_dispatch_batch_size < 1)
+            throw new ConfigurationException("hints_dispatch_batch_size must be at least 1, but was " + conf.hints_dispatch_batch_size, false);
+
         if (conf.memtable_flush_writers == 0)
         {
             conf.memtable_flush_writers = conf.data_file_directories.length == 1 ? 2 : 1;
@@ -591,6 +621,9 @@ public class DatabaseDescriptor
         if (conf.memtable_flush_writers < 1)
             throw new ConfigurationException("memtable_flush_writers must be at least 1, but was " + conf.memtable_flush_writers, false);
 
+        if (conf.memtable_flush_shards < 1)
+            throw new ConfigurationException("memtable_flush_shards must be at least 1, but was " + conf.memtable_flush_shards, false);
+
         if (conf.memtable_cleanup_threshold == null)
         {
             conf.memtable_cleanup_threshold = (float) (1.0 / (1 + conf.memtable_flush_writers));
@@ -1226,6 +1259,8 @@ public class DatabaseDescriptor
             if (conf.commitlog_directory == null)
                 throw new ConfigurationException("commitlog_directory must be specified", false);
             FileUtils.createDirectory(conf.commitlog_directory);
+            for (String stripeDirectory : conf.commitlog_stripe_directories)
+                FileUtils.createDirectory(stripeDirectory);
 
             if (conf.hints_directory == null)
                 throw new ConfigurationException("hints_directory must be specified", false);
@@ -1487,6 +1522,11 @@ public class DatabaseDescriptor
         return conf.slow_query_log_timeout_in_ms;
     }
 
+    public static void setSlowQueryTimeout(long timeOutInMillis)
+    {
+        conf.slow_query_log_timeout_in_ms = timeOutInMillis;
+    }
+
     /**
      * @return the minimum configured {read, write, range, truncate, misc} timeout
      */
@@ -1540,6 +1580,17 @@ public class DatabaseDescriptor
             return conf.memtable_flush_writers;
     }
 
+    public static int getFlushShards()
+    {
+        return conf.memtable_flush_shards;
+    }
+
+    @VisibleForTesting
+    public static void setFlushShards(int flushShards)
+    {
+        conf.memtable_flush_shards = flushShards;
+    }
+
     public static int getConcurrentCompactors()
     {
         return conf.concurrent_compactors;
@@ -1560,8 +1611,48 @@ public class DatabaseDescriptor
         conf.compaction_throughput_mb_per_sec = value;
     }
 
+    public static int getCompactionThroughputPerDiskMbPerSec()
+    {
+        return conf.compaction_throughput_per_disk_mb_per_sec;
+    }
+
+    public static void setCompactionThroughputPerDiskMbPerSec(int value)
+    {
+        conf.compaction_throughput_per_disk_mb_per_sec = value;
+    }
+
+    public static long getCompactionPauseForFlush()
+    {
+        return conf.compaction_pause_for_flush_in_ms;
+    }
+
+    public static void setCompactionPauseForFlush(int pauseInMillis)
+    {
+        conf.compaction_pause_for_flush_in_ms = pauseInMillis;
+    }
+
     public static long getCompactionLargePartitionWarningThreshold() { return conf.compaction_large_partition_warning_threshold_mb * 1024L * 1024L; }
 
+    public static boolean isCompactionPartitionCopyEnabled()
+    {
+        return conf.compaction_partition_copy_enabled;
+    }
+
+    public static void setCompactionPartitionCopyEnabled(boolean enabled)
+    {
+        conf.compaction_partition_copy_enabled = enabled;
+    }
+
+    public static boolean isCompactionCursorMergeEnabled()
+    {
+        return conf.compaction_cursor_merge_enabled;
+    }
+
+    public static void setCompactionCursorMergeEnabled(boolean enabled)
+    {
+        conf.compaction_cursor_merge_enabled = enabled;
+    }
+
     public static int getConcurrentValidations()
     {
         return conf.concurrent_validations;
@@ -1629,6 +1720,28 @@ public class DatabaseDescriptor
         conf.commitlog_directory = value;
     }
 
+    /**
+     * @return the directories the commit log stripes are spread across, the first one being the commitlog_directory
+     */
+    public static String[] getCommitLogStripeLocations()
+    {
+        String[] locations = new String[conf.commitlog_stripe_directories.length + 1];
+        locations[0] = conf.commitlog_directory;
+        System.arraycopy(conf.commitlog_stripe_directories, 0, locations, 1, conf.commitlog_stripe_directories.length);
+        return locations;
+    }
+
+    public static int getCommitLogStripes()
+    {
+        return conf.commitlog_stripes;
+    }
+
+    @VisibleForTesting
+    public static void setCommitLogStripes(int stripes)
+    {
+        conf.commitlog_stripes = stripes;
+    }
+
     public static ParameterizedClass getCommitLogCompression()
     {
         return conf.commitlog_compression;
@@ -1893,6 +2006,21 @@ public class DatabaseDescriptor
         conf.commitlog_sync_group_window_in_ms = windowMillis;
     }
 
+    public static boolean getCommitLogSyncGroupAdaptiveWindow()
+    {
+        return conf.commitlog_sync_group_adaptive_window;
+    }
+
+    public static void setCommitLogSyncGroupAdaptiveWindow(boolean adaptiveWindow)
+    {
+        conf.commitlog_sync_group_adaptive_window = adaptiveWindow;
+    }
+
+    public static long getCommitLogSyncGroupMaxPendingBytes()
+    {
+        return conf.commitlog_sync_group_max_pending_in_kb * 1024L;
+    }
+
     public static int getCommitLogSyncPeriod()
     {
         return conf.commitlog_sync_period_in_ms;
@@ -2106,11 +2234,36 @@ public class DatabaseDescriptor
         return conf.max_hints_delivery_threads;
     }
 
+    public static int getMaxHintsFilesDispatchedPerHost()
+    {
+        return conf.max_hints_files_dispatched_per_host;
+    }
+
+    public static int getHintsDispatchBatchSize()
+    {
+        return conf.hints_dispatch_batch_size;
+    }
+
+    public static boolean getHintedHandoffAdaptiveThrottleEnabled()
+    {
+        return conf.hinted_handoff_adaptive_throttle_enabled;
+    }
+
+    public static void setHintedHandoffAdaptiveThrottleEnabled(boolean enabled)
+    {
+        conf.hinted_handoff_adaptive_throttle_enabled = enabled;
+    }
+
     public static int getHintsFlushPeriodInMS()
     {
         return conf.hints_flush_period_in_ms;
     }
 
+    public static int getMaxHintsFlushThreads()
+    {
+        return conf.max_hints_flush_threads;
+    }
+
     public static long getMaxHintsFileSize()
     {
         return conf.max_hints_file_size_in_mb * 1024L * 1024L;
@@ -2350,11 +2503,47 @@ public class DatabaseDescriptor
         return conf.memtable_cleanup_threshold;
     }
 
+    public static Config.MemtableCleanupStrategy getMemtableCleanupStrategy()
+    {
+        return conf.memtable_cleanup_strategy;
+    }
+
+    public static boolean getMemtablePackDenseRows()
+    {
+        return conf.memtable_pack_dense_rows;
+    }
+
+    @VisibleForTesting
+    public static void setMemtablePackDenseRows(boolean packDenseRows)
+    {
+        conf.memtable_pack_dense_rows = packDenseRows;
+    }
+
     public static int getIndexSummaryResizeIntervalInMinutes()
     {
         return conf.index_summary_resize_interval_in_minutes;
     }
 
+    public static Config.IndexSummaryLayout getIndexSummaryLayout()
+    {
+        return conf.index_summary_layout;
+    }
+
+    public static void setIndexSummaryLayout(Config.IndexSummaryLayout layout)
+    {
+        conf.index_summary_layout = layout;
+    }
+
+    public static Config.SSTableFilterType getSSTableFilterType()
+    {
+        return conf.sstable_filter_type;
+    }
+
+    public static void setSSTableFilterType(Config.SSTableFilterType filterType)
+    {
+        conf.sstable_filter_type = filterType;
+    }
+
     public static boolean hasLargeAddressSpace()
     {
         // currently we just check if it's a 64bit arch, but any we only really care if the address space is large
@@ -2573,6 +2762,36 @@ public class DatabaseDescriptor
         conf.diagnostic_events_enabled = enabled;
     }
 
+    public static boolean isRequestResourceAccountingEnabled()
+    {
+        return conf.request_resource_accounting_enabled;
+    }
+
+    public static void setRequestResourceAccountingEnabled(boolean enabled)
+    {
+        conf.request_resource_accounting_enabled = enabled;
+    }
+
+    public static boolean isContinuousSamplingEnabled()
+    {
+        return conf.continuous_sampling_enabled;
+    }
+
+    public static void setContinuousSamplingEnabled(boolean enabled)
+    {
+        conf.continuous_sampling_enabled = enabled;
+    }
+
+    public static long getContinuousSamplingWindow()
+    {
+        return conf.continuous_sampling_window_in_ms;
+    }
+
+    public static void setContinuousSamplingWindow(long windowInMillis)
+    {
+        conf.continuous_sampling_window_in_ms = windowInMillis;
+    }
+
     @VisibleForTesting
     public static void setBackPressureStrategy(BackPressureStrategy strategy)
     {
@@ -2604,6 +2823,16 @@ public class DatabaseDescriptor
         return conf.repair_command_pool_full_strategy;
     }
 
+    public static int getRepairRowLevelSyncMaxPartitions()
+    {
+        return conf.repair_row_level_sync_max_partitions;
+    }
+
+    public static void setRepairRowLevelSyncMaxPartitions(int maxPartitions)
+    {
+        conf.repair_row_level_sync_max_partitions = maxPartitions;
+    }
+
     public static String getFullQueryLogPath()
     {
         return  conf.full_query_log_dir;
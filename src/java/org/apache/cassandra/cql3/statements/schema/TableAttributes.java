@@ -140,6 +140,9 @@ public final class TableAttributes extends PropertyDefinitions
         if (hasOption(Option.READ_REPAIR))
             builder.readRepair(ReadRepairStrategy.fromString(getString(Option.READ_REPAIR)));
 
+        if (hasOption(Option.FILTER_TYPE))
+            builder.filterType(TableParams.parseFilterType(getString(Option.FILTER_TYPE)));
+
         return builder.build();
     }
 
@@ -382,6 +382,28 @@ public interface ClusteringPrefix extends IMeasurableMemory, Clusterable
             return values;
         }
 
+        /**
+         * Deserializes the values of a clustering of {@code values.length} elements into {@code values}, reusing the
+         * buffers it holds when possible, see {@link AbstractType#readValue(DataInputPlus, int, ByteBuffer)}.
+         */
+        public void deserializeValuesInto(DataInputPlus in, ByteBuffer[] values, int version, List<AbstractType<?>> types) throws IOException
+        {
+            int size = values.length;
+            int offset = 0;
+            while (offset < size)
+            {
+                long header = in.readUnsignedVInt();
+                int limit = Math.min(size, offset + 32);
+                while (offset < limit)
+                {
+                    values[offset] = isNull(header, offset)
+                                   ? null
+                                   : (isEmpty(header, offset) ? ByteBufferUtil.EMPTY_BYTE_BUFFER : types.get(offset).readValue(in, DatabaseDescriptor.getMaxValueSize(), values[offset]));
+                    offset++;
+                }
+            }
+        }
+
         void skipValuesWithoutSize(DataInputPlus in, int size, int version, List<AbstractType<?>> types) throws IOException
         {
             // Callers of this method should handle the case where size = 0 (in all case we want to return a special value anyway).
@@ -73,6 +73,7 @@ import org.apache.cassandra.io.sstable.format.*;
 import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.metrics.ContinuousSampler;
 import org.apache.cassandra.metrics.Sampler;
 import org.apache.cassandra.metrics.Sampler.Sample;
 import org.apache.cassandra.metrics.Sampler.SamplerType;
@@ -87,6 +88,7 @@ import org.apache.cassandra.utils.*;
 import org.apache.cassandra.utils.concurrent.OpOrder;
 import org.apache.cassandra.utils.concurrent.Refs;
 import org.apache.cassandra.utils.memory.MemtableAllocator;
+import org.apache.cassandra.utils.memory.MemtablePool;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -97,12 +99,13 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     private static final Logger logger = LoggerFactory.getLogger(ColumnFamilyStore.class);
 
     /*
-    We keep a pool of threads for each data directory, size of each pool is memtable_flush_writers.
+    We keep a pool of threads for each data directory, size of each pool is memtable_flush_writers * memtable_flush_shards.
     When flushing we start a Flush runnable in the flushExecutor. Flush calculates how to split the
-    memtable ranges over the existing data directories and creates a FlushRunnable for each of the directories.
-    The FlushRunnables are executed in the perDiskflushExecutors and the Flush will block until all FlushRunnables
-    are finished. By having flushExecutor size the same size as each of the perDiskflushExecutors we make sure we can
-    have that many flushes going at the same time.
+    memtable ranges over the existing data directories, and the range of each directory in memtable_flush_shards, and
+    creates a FlushRunnable for each of the shards. The FlushRunnables are executed in the perDiskflushExecutors and
+    the Flush will block until all FlushRunnables are finished. By having flushExecutor size the same size as each of
+    the perDiskflushExecutors divided by the number of shards we make sure we can have that many flushes going at the
+    same time.
     */
     private static final ExecutorService flushExecutor = new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getFlushWriters(),
                                                                                           StageManager.KEEPALIVE,
@@ -117,7 +120,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     {
         for (int i = 0; i < DatabaseDescriptor.getAllDataFileLocations().length; i++)
         {
-            perDiskflushExecutors[i] = new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getFlushWriters(),
+            perDiskflushExecutors[i] = new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getFlushWriters() * DatabaseDescriptor.getFlushShards(),
                                                                         StageManager.KEEPALIVE,
                                                                         TimeUnit.SECONDS,
                                                                         new LinkedBlockingQueue<Runnable>(),
@@ -391,7 +394,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         // Create Memtable only on online
         Memtable initialMemtable = null;
         if (DatabaseDescriptor.isDaemonInitialized())
-            initialMemtable = new Memtable(new AtomicReference<>(CommitLog.instance.getCurrentPosition()), this);
+            initialMemtable = new Memtable(new AtomicReference<>(CommitLog.instance.getCurrentPosition(keyspace.getName())), this);
         data = new Tracker(initialMemtable, loadSSTables);
 
         // scan for sstables corresponding to this cf and load them
@@ -1005,7 +1008,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
 
             // we then ensure an atomic decision is made about the upper bound of the continuous range of commit log
             // records owned by this memtable
-            setCommitLogUpperBound(commitLogUpperBound);
+            setCommitLogUpperBound(keyspace.getName(), commitLogUpperBound);
 
             // we then issue the barrier; this lets us wait for all operations started prior to the barrier to complete;
             // since this happens after wiring up the commitLogUpperBound, we also know all operations with earlier
@@ -1068,8 +1071,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                     // flush the memtable
                     flushRunnables = memtable.flushRunnables(txn);
 
-                    for (int i = 0; i < flushRunnables.size(); i++)
-                        futures.add(perDiskflushExecutors[i].submit(flushRunnables.get(i)));
+                    for (Memtable.FlushRunnable flushRunnable : flushRunnables)
+                        futures.add(perDiskflushExecutors[flushRunnable.disk].submit(flushRunnable));
 
                     /**
                      * we can flush 2is as soon as the barrier completes, as they will be consistent with (or ahead of) the
@@ -1168,7 +1171,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     }
 
     // atomically set the upper bound for the commit log
-    private static void setCommitLogUpperBound(AtomicReference<CommitLogPosition> commitLogUpperBound)
+    private static void setCommitLogUpperBound(String keyspace, AtomicReference<CommitLogPosition> commitLogUpperBound)
     {
         // we attempt to set the holder to the current commit log context. at the same time all writes to the memtables are
         // also maintaining this value, so if somebody sneaks ahead of us somehow (should be rare) we simply retry,
@@ -1176,7 +1179,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         CommitLogPosition lastReplayPosition;
         while (true)
         {
-            lastReplayPosition = new Memtable.LastCommitLogPosition((CommitLog.instance.getCurrentPosition()));
+            lastReplayPosition = new Memtable.LastCommitLogPosition((CommitLog.instance.getCurrentPosition(keyspace)));
             CommitLogPosition currentLast = commitLogUpperBound.get();
             if ((currentLast == null || currentLast.compareTo(lastReplayPosition) <= 0)
                 && commitLogUpperBound.compareAndSet(currentLast, lastReplayPosition))
@@ -1242,6 +1245,126 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         }
     }
 
+    /**
+     * Flushes as many memtables as needed to get the memory used by memtables back under the cleanup threshold, at
+     * most one per flush writer so that they are flushed concurrently, rather than only the largest one.
+     *
+     * The memtables are picked by decreasing {@link #flushWeight}, which favours the memtables that free the most
+     * memory and release the most commit log segments, and penalizes those of tables that are heavily written to, as
+     * they will fill up again right away and flushing them early only creates more small sstables to compact, and
+     * those of tables that are already behind on compactions. If a memtable selected is flushed before this completes,
+     * no work is done for it.
+     */
+    public static class FlushWeightedColumnFamilies implements Runnable
+    {
+        public void run()
+        {
+            Map<TableId, Integer> dirtySegments = CommitLog.instance.getDirtySegmentCounts();
+            float activeSegments = Math.max(1, CommitLog.instance.getActiveSegmentCount());
+            long now = System.nanoTime();
+
+            List<FlushCandidate> candidates = new ArrayList<>();
+            float totalWriteRate = 0f;
+            for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+            {
+                // see FlushLargestColumnFamily
+                Memtable current = cfs.getTracker().getView().getCurrentMemtable();
+                float onHeap = current.getAllocator().onHeap().ownershipRatio();
+                float offHeap = current.getAllocator().offHeap().ownershipRatio();
+                for (ColumnFamilyStore indexCfs : cfs.indexManager.getAllIndexColumnFamilyStores())
+                {
+                    MemtableAllocator allocator = indexCfs.getTracker().getView().getCurrentMemtable().getAllocator();
+                    onHeap += allocator.onHeap().ownershipRatio();
+                    offHeap += allocator.offHeap().ownershipRatio();
+                }
+                if (onHeap == 0 && offHeap == 0)
+                    continue;
+
+                // the rate at which the memtable filled up, as a share of the memtable space per second
+                float ageInSeconds = Math.max(1f, (now - current.getCreationNano()) / 1e9f);
+                FlushCandidate candidate = new FlushCandidate(current, onHeap, offHeap, Math.max(onHeap, offHeap) / ageInSeconds);
+                totalWriteRate += candidate.writeRate;
+                candidates.add(candidate);
+            }
+
+            for (FlushCandidate candidate : candidates)
+            {
+                ColumnFamilyStore cfs = candidate.memtable.cfs;
+                candidate.weight = flushWeight(Math.max(candidate.onHeap, candidate.offHeap),
+                                               dirtySegments.getOrDefault(cfs.metadata.id, 0) / activeSegments,
+                                               cfs.getCompactionStrategyManager().getEstimatedRemainingTasks(),
+                                               totalWriteRate == 0 ? 0 : candidate.writeRate / totalWriteRate);
+            }
+            candidates.sort((c1, c2) -> Double.compare(c2.weight, c1.weight));
+
+            float excessOnHeap = excess(Memtable.MEMORY_POOL.onHeap);
+            float excessOffHeap = excess(Memtable.MEMORY_POOL.offHeap);
+            int maxFlushes = Math.max(1, DatabaseDescriptor.getFlushWriters());
+            int flushes = 0;
+            for (FlushCandidate candidate : candidates)
+            {
+                if (flushes == maxFlushes || (flushes > 0 && excessOnHeap <= 0 && excessOffHeap <= 0))
+                    break;
+
+                logger.debug("Flushing {} to free up room (weight {}). Used total: {}, flushing: {}, this: {}",
+                             candidate.memtable.cfs, String.format("%.3f", candidate.weight),
+                             ratio(Memtable.MEMORY_POOL.onHeap.usedRatio(), Memtable.MEMORY_POOL.offHeap.usedRatio()),
+                             ratio(Memtable.MEMORY_POOL.onHeap.reclaimingRatio(), Memtable.MEMORY_POOL.offHeap.reclaimingRatio()),
+                             ratio(candidate.onHeap, candidate.offHeap));
+                candidate.memtable.cfs.switchMemtableIfCurrent(candidate.memtable);
+                excessOnHeap -= candidate.onHeap;
+                excessOffHeap -= candidate.offHeap;
+                flushes++;
+            }
+        }
+
+        /**
+         * @return the share of the pool used by memtables that aren't being flushed yet above the cleanup threshold
+         */
+        private static float excess(MemtablePool.SubPool pool)
+        {
+            return pool.usedRatio() - pool.reclaimingRatio() - pool.cleanThreshold;
+        }
+    }
+
+    // the number of pending compactions from which a table is considered as far behind as it gets
+    private static final int MAX_PENDING_COMPACTIONS_PENALTY = 32;
+
+    /**
+     * The size of a memtable dominates its weight: the commit log segments it pins and the penalties for being heavily
+     * written to or behind on compactions only reorder memtables less than twice as large as each other, so that small
+     * cold memtables aren't flushed in place of the ones that actually use the memory.
+     *
+     * @param ratio the share of the memtable space that flushing the memtable would free
+     * @param pinnedSegments the share of the active commit log segments that can't be recycled until it is flushed
+     * @param pendingCompactions the estimated number of compactions its table is behind on
+     * @param writeShare the share of the memtable writes that go to it
+     * @return how much flushing the memtable is worth, relative to other memtables
+     */
+    @VisibleForTesting
+    static double flushWeight(float ratio, float pinnedSegments, int pendingCompactions, float writeShare)
+    {
+        double behind = Math.min(1, Math.log1p(pendingCompactions) / Math.log1p(MAX_PENDING_COMPACTIONS_PENALTY));
+        return ratio * (1 + 0.5 * pinnedSegments) * (1 - 0.125 * writeShare) * (1 - 0.125 * behind);
+    }
+
+    private static class FlushCandidate
+    {
+        final Memtable memtable;
+        final float onHeap;
+        final float offHeap;
+        final float writeRate;
+        double weight;
+
+        FlushCandidate(Memtable memtable, float onHeap, float offHeap, float writeRate)
+        {
+            this.memtable = memtable;
+            this.onHeap = onHeap;
+            this.offHeap = offHeap;
+            this.writeRate = writeRate;
+        }
+    }
+
     private static String ratio(float onHeap, float offHeap)
     {
         return String.format("%.2f/%.2f", onHeap, offHeap);
@@ -1265,8 +1388,15 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             DecoratedKey key = update.partitionKey();
             invalidateCachedPartition(key);
             metric.topWritePartitionFrequency.addSample(key.getKey(), 1);
-            if (metric.topWritePartitionSize.isEnabled()) // dont compute datasize if not needed
-                metric.topWritePartitionSize.addSample(key.getKey(), update.dataSize());
+            metric.hotWritePartitions.addSample(key.getKey(), 1);
+            boolean continuousSampling = ContinuousSampler.isEnabled();
+            if (metric.topWritePartitionSize.isEnabled() || continuousSampling) // dont compute datasize if not needed
+            {
+                int dataSize = update.dataSize();
+                metric.topWritePartitionSize.addSample(key.getKey(), dataSize);
+                if (continuousSampling)
+                    metric.largestWritePartitions.addSample(key.getKey(), dataSize);
+            }
             StorageHook.instance.reportWrite(metadata.id, update);
             metric.writeLatency.addNano(System.nanoTime() - start);
             // CASSANDRA-11117 - certain resolution paths on memtable put can result in very
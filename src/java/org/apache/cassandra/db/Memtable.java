@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.db;
 
+import java.io.File;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -31,9 +32,11 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.schema.ColumnMetadata;
 import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.schema.SchemaConstants;
 import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.compaction.DiskIOScheduler;
 import org.apache.cassandra.db.commitlog.CommitLogPosition;
 import org.apache.cassandra.db.commitlog.IntervalSet;
 import org.apache.cassandra.db.filter.ClusteringIndexFilter;
@@ -70,16 +73,21 @@ public class Memtable implements Comparable<Memtable>
     {
         long heapLimit = DatabaseDescriptor.getMemtableHeapSpaceInMb() << 20;
         long offHeapLimit = DatabaseDescriptor.getMemtableOffheapSpaceInMb() << 20;
+        Runnable cleaner = DatabaseDescriptor.getMemtableCleanupStrategy() == Config.MemtableCleanupStrategy.weighted
+                         ? new ColumnFamilyStore.FlushWeightedColumnFamilies()
+                         : new ColumnFamilyStore.FlushLargestColumnFamily();
         switch (DatabaseDescriptor.getMemtableAllocationType())
         {
             case unslabbed_heap_buffers:
-                return new HeapPool(heapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), new ColumnFamilyStore.FlushLargestColumnFamily());
+                return new HeapPool(heapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), cleaner);
             case heap_buffers:
-                return new SlabPool(heapLimit, 0, DatabaseDescriptor.getMemtableCleanupThreshold(), new ColumnFamilyStore.FlushLargestColumnFamily());
+                return new SlabPool(heapLimit, 0, DatabaseDescriptor.getMemtableCleanupThreshold(), cleaner);
             case offheap_buffers:
-                return new SlabPool(heapLimit, offHeapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), new ColumnFamilyStore.FlushLargestColumnFamily());
+                return new SlabPool(heapLimit, offHeapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), cleaner);
             case offheap_objects:
-                return new NativePool(heapLimit, offHeapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), new ColumnFamilyStore.FlushLargestColumnFamily());
+                return new NativePool(heapLimit, offHeapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), cleaner);
+            case offheap_rows:
+                return new NativePool(heapLimit, offHeapLimit, DatabaseDescriptor.getMemtableCleanupThreshold(), cleaner, true);
             default:
                 throw new AssertionError();
         }
@@ -100,7 +108,7 @@ public class Memtable implements Comparable<Memtable>
 
     // The approximate lower bound by this memtable; must be <= commitLogLowerBound once our predecessor
     // has been finalised, and this is enforced in the ColumnFamilyStore.setCommitLogUpperBound
-    private final CommitLogPosition approximateCommitLogLowerBound = CommitLog.instance.getCurrentPosition();
+    private final CommitLogPosition approximateCommitLogLowerBound;
 
     public int compareTo(Memtable that)
     {
@@ -135,10 +143,18 @@ public class Memtable implements Comparable<Memtable>
 
     // only to be used by init(), to setup the very first memtable for the cfs
     public Memtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs)
+    {
+        this(commitLogLowerBound, cfs, MEMORY_POOL.newAllocator());
+    }
+
+    // ONLY to be used for testing, to create a Memtable allocating from another pool than the configured one
+    @VisibleForTesting
+    public Memtable(AtomicReference<CommitLogPosition> commitLogLowerBound, ColumnFamilyStore cfs, MemtableAllocator allocator)
     {
         this.cfs = cfs;
+        this.approximateCommitLogLowerBound = CommitLog.instance.getCurrentPosition(cfs.keyspace.getName());
         this.commitLogLowerBound = commitLogLowerBound;
-        this.allocator = MEMORY_POOL.newAllocator();
+        this.allocator = allocator;
         this.initialComparator = cfs.metadata().comparator;
         this.cfs.scheduleFlush();
         this.columnsCollector = new ColumnsCollector(cfs.metadata().regularAndStaticColumns());
@@ -150,6 +166,7 @@ public class Memtable implements Comparable<Memtable>
     {
         this.initialComparator = metadata.comparator;
         this.cfs = null;
+        this.approximateCommitLogLowerBound = CommitLog.instance.getCurrentPosition(metadata.keyspace);
         this.allocator = null;
         this.columnsCollector = new ColumnsCollector(metadata.regularAndStaticColumns());
     }
@@ -169,6 +186,11 @@ public class Memtable implements Comparable<Memtable>
         return currentOperations.get();
     }
 
+    long getCreationNano()
+    {
+        return creationNano;
+    }
+
     @VisibleForTesting
     public void setDiscarding(OpOrder.Barrier writeBarrier, AtomicReference<CommitLogPosition> commitLogUpperBound)
     {
@@ -299,17 +321,24 @@ public class Memtable implements Comparable<Memtable>
         DiskBoundaries diskBoundaries = cfs.getDiskBoundaries();
         List<PartitionPosition> boundaries = diskBoundaries.positions;
         List<Directories.DataDirectory> locations = diskBoundaries.directories;
-        if (boundaries == null)
+        int shards = DatabaseDescriptor.getFlushShards();
+        if (boundaries == null && shards == 1)
             return Collections.singletonList(new FlushRunnable(txn));
 
-        List<FlushRunnable> runnables = new ArrayList<>(boundaries.size());
-        PartitionPosition rangeStart = cfs.getPartitioner().getMinimumToken().minKeyBound();
+        List<FlushRunnable> runnables = new ArrayList<>(boundaries == null ? shards : boundaries.size() * shards);
         try
         {
+            if (boundaries == null)
+            {
+                addShardRunnables(runnables, partitions, null, null, null, shards, txn);
+                return runnables;
+            }
+
+            PartitionPosition rangeStart = cfs.getPartitioner().getMinimumToken().minKeyBound();
             for (int i = 0; i < boundaries.size(); i++)
             {
                 PartitionPosition t = boundaries.get(i);
-                runnables.add(new FlushRunnable(rangeStart, t, locations.get(i), txn));
+                addShardRunnables(runnables, partitions.subMap(rangeStart, t), locations.get(i), rangeStart, t, shards, txn);
                 rangeStart = t;
             }
             return runnables;
@@ -320,6 +349,54 @@ public class Memtable implements Comparable<Memtable>
         }
     }
 
+    /**
+     * Splits the given range of the memtable, flushed to a single data directory, into shards holding about the same
+     * number of partitions, each flushed by its own runnable.
+     */
+    private void addShardRunnables(List<FlushRunnable> runnables,
+                                   ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> range,
+                                   Directories.DataDirectory flushLocation,
+                                   PartitionPosition from,
+                                   PartitionPosition to,
+                                   int shards,
+                                   LifecycleTransaction txn)
+    {
+        int size = shards > 1 ? range.size() : 0;
+        if (size > 1)
+        {
+            Iterator<PartitionPosition> keys = range.keySet().iterator();
+            int index = 0;
+            PartitionPosition shardStart = null;
+            for (int shard = 1; shard < shards; shard++)
+            {
+                // the first key of the shard, at the index after shard / shards of the partitions
+                int shardStartIndex = (int) ((long) size * shard / shards);
+                PartitionPosition key = null;
+                while (index <= shardStartIndex)
+                {
+                    key = keys.next();
+                    index++;
+                }
+                // with fewer partitions than shards, some shards would be empty
+                if (key == null || shardStartIndex == 0)
+                    continue;
+
+                ConcurrentNavigableMap<PartitionPosition, AtomicBTreePartition> toFlush = shardStart == null
+                                                                                          ? range.headMap(key)
+                                                                                          : range.subMap(shardStart, key);
+                runnables.add(new FlushRunnable(toFlush, flushLocation, shardStart == null ? from : shardStart, key, txn));
+                shardStart = key;
+            }
+
+            if (shardStart != null)
+            {
+                runnables.add(new FlushRunnable(range.tailMap(shardStart), flushLocation, shardStart, to, txn));
+                return;
+            }
+        }
+        runnables.add(new FlushRunnable(range, flushLocation, from, to, txn));
+    }
+
     public Throwable abortRunnables(List<FlushRunnable> runnables, Throwable t)
     {
         if (runnables != null)
@@ -401,15 +478,14 @@ public class Memtable implements Comparable<Memtable>
 
         private final boolean isBatchLogTable;
         private final SSTableMultiWriter writer;
+        // the data directory written to, whose compactions flushing has priority over
+        private final Directories.DataDirectory dataDirectory;
 
         // keeping these to be able to log what we are actually flushing
         private final PartitionPosition from;
         private final PartitionPosition to;
-
-        FlushRunnable(PartitionPosition from, PartitionPosition to, Directories.DataDirectory flushLocation, LifecycleTransaction txn)
-        {
-            this(partitions.subMap(from, to), flushLocation, from, to, txn);
-        }
+        // the index of the data directory written to, among all the data directories, whose flush executor runs this
+        final int disk;
 
         FlushRunnable(LifecycleTransaction txn)
         {
@@ -435,10 +511,14 @@ public class Memtable implements Comparable<Memtable>
 
             this.isBatchLogTable = cfs.name.equals(SystemKeyspace.BATCHES) && cfs.keyspace.getName().equals(SchemaConstants.SYSTEM_KEYSPACE_NAME);
 
-            if (flushLocation == null)
-                writer = createFlushWriter(txn, cfs.newSSTableDescriptor(getDirectories().getWriteableLocationAsFile(estimatedSize)), columnsCollector.get(), statsCollector.get());
-            else
-                writer = createFlushWriter(txn, cfs.newSSTableDescriptor(getDirectories().getLocationForDisk(flushLocation)), columnsCollector.get(), statsCollector.get());
+            File location = flushLocation == null
+                          ? getDirectories().getWriteableLocationAsFile(estimatedSize)
+                          : getDirectories().getLocationForDisk(flushLocation);
+            dataDirectory = getDirectories().getDataDirectoryForFile(location);
+            // the shards of a memtable without disk boundaries are each written to the directory chosen for them, whose
+            // executor they have to run on so that the flushes of a disk don't wait for the ones of another
+            disk = Math.max(0, Arrays.asList(Directories.dataDirectories).indexOf(dataDirectory));
+            writer = createFlushWriter(txn, cfs.newSSTableDescriptor(location), columnsCollector.get(), statsCollector.get());
 
         }
 
@@ -511,7 +591,17 @@ public class Memtable implements Comparable<Memtable>
         @Override
         public SSTableMultiWriter call()
         {
-            writeSortedContents();
+            DiskIOScheduler.instance.flushStarted(dataDirectory);
+            long start = System.nanoTime();
+            try
+            {
+                writeSortedContents();
+            }
+            finally
+            {
+                DiskIOScheduler.instance.flushFinished(dataDirectory, writer.getFilePointer());
+            }
+            cfs.metric.flushShardTime.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             return writer;
         }
     }
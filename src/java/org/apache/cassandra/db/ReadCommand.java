@@ -508,14 +508,23 @@ public abstract class ReadCommand extends AbstractReadQuery
             private int tombstones = 0;
 
             private DecoratedKey currentKey;
+            // the tombstones scanned before the current partition
+            private int partitionStartTombstones = 0;
 
             @Override
             public UnfilteredRowIterator applyToPartition(UnfilteredRowIterator iter)
             {
                 currentKey = iter.partitionKey();
+                partitionStartTombstones = tombstones;
                 return Transformation.apply(iter, this);
             }
 
+            @Override
+            protected void onPartitionClose()
+            {
+                metric.tombstonePartitions.addSample(currentKey.getKey(), tombstones - partitionStartTombstones);
+            }
+
             @Override
             public Row applyToStatic(Row row)
             {
@@ -19,7 +19,9 @@ package org.apache.cassandra.db;
 
 import java.util.concurrent.TimeUnit;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.index.Index;
+import org.apache.cassandra.metrics.ContinuousSampler;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.utils.Clock;
 import org.apache.cassandra.utils.concurrent.OpOrder;
@@ -93,7 +95,9 @@ public class ReadExecutionController implements AutoCloseable
         ColumnFamilyStore baseCfs = Keyspace.openAndGetStore(command.metadata());
         ColumnFamilyStore indexCfs = maybeGetIndexCfs(baseCfs, command);
 
-        long createdAtNanos = baseCfs.metric.topLocalReadQueryTime.isEnabled() ? clock.nanoTime() : NO_SAMPLING;
+        long createdAtNanos = baseCfs.metric.topLocalReadQueryTime.isEnabled() || ContinuousSampler.isEnabled()
+                              ? clock.nanoTime()
+                              : NO_SAMPLING;
 
         if (indexCfs == null)
             return new ReadExecutionController(command, baseCfs.readOrdering.start(), baseCfs.metadata(), null, null, createdAtNanos);
@@ -171,10 +175,19 @@ public class ReadExecutionController implements AutoCloseable
 
     private void addSample()
     {
-        String cql = command.toCQLString();
-        int timeMicros = (int) Math.min(TimeUnit.NANOSECONDS.toMicros(clock.nanoTime() - createdAtNanos), Integer.MAX_VALUE);
+        long timeNanos = clock.nanoTime() - createdAtNanos;
         ColumnFamilyStore cfs = ColumnFamilyStore.getIfExists(baseMetadata.id);
-        if (cfs != null)
-            cfs.metric.topLocalReadQueryTime.addSample(cql, timeMicros);
+        if (cfs == null)
+            return;
+
+        int timeMicros = (int) Math.min(TimeUnit.NANOSECONDS.toMicros(timeNanos), Integer.MAX_VALUE);
+        boolean slow = ContinuousSampler.isEnabled() && timeNanos > TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getSlowQueryTimeout());
+        if (!cfs.metric.topLocalReadQueryTime.isEnabled() && !slow)
+            return;
+
+        String cql = command.toCQLString();
+        cfs.metric.topLocalReadQueryTime.addSample(cql, timeMicros);
+        if (slow)
+            cfs.metric.slowestQueries.addSample(cql, timeMicros);
     }
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.filter.ColumnFilter;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.TypeParser;
@@ -83,6 +84,11 @@ public class SerializationHeader
         // Note however that to avoid seeing our accuracy degrade through successive compactions, we don't base
         // our stats merging on the compacted files headers, which as we just said can be somewhat inaccurate,
         // but rather on their stats stored in StatsMetadata that are fully accurate.
+        // The exception is when compaction copies partitions as is, which requires the result to have the same header
+        // than the sstable they come from: we then also merge the stats of the headers, so that the headers of
+        // sstables compacted together converge rather than differing by their stats, at the price of these stats
+        // being less accurate.
+        boolean mergeHeaderStats = DatabaseDescriptor.isCompactionPartitionCopyEnabled();
         EncodingStats.Collector stats = new EncodingStats.Collector();
         RegularAndStaticColumns.Builder columns = RegularAndStaticColumns.builder();
         // We need to order the SSTables by descending generation to be sure that we use latest column metadata.
@@ -91,6 +97,13 @@ public class SerializationHeader
             stats.updateTimestamp(sstable.getMinTimestamp());
             stats.updateLocalDeletionTime(sstable.getMinLocalDeletionTime());
             stats.updateTTL(sstable.getMinTTL());
+            if (mergeHeaderStats)
+            {
+                EncodingStats headerStats = sstable.header.stats();
+                stats.updateTimestamp(headerStats.minTimestamp);
+                stats.updateLocalDeletionTime(headerStats.minLocalDeletionTime);
+                stats.updateTTL(headerStats.minTTL);
+            }
             columns.addAll(sstable.header.columns());
         }
         return new SerializationHeader(true, metadata, columns.build(), stats.get());
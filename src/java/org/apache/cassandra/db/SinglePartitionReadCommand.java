@@ -627,6 +627,7 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
              * in one pass, and minimize the number of sstables for which we read a partition tombstone.
              */
             int nonIntersectingSSTables = 0;
+            int nonIntersectingPartitions = 0;
             List<SSTableReader> skippedSSTablesWithTombstones = null;
             SSTableReadMetricsCollector metricsCollector = new SSTableReadMetricsCollector();
 
@@ -659,6 +660,12 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
                     continue;
                 }
 
+                if (!mayIntersectPartition(sstable))
+                {
+                    nonIntersectingPartitions++;
+                    continue;
+                }
+
                 minTimestamp = Math.min(minTimestamp, sstable.getMinTimestamp());
 
                 @SuppressWarnings("resource") // 'iter' is added to iterators which is closed on exception,
@@ -681,6 +688,13 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
                     if (sstable.getMaxTimestamp() <= minTimestamp)
                         continue;
 
+                    // the row index of the partition also covers its range tombstones, and tells if it is deleted
+                    if (!mayIntersectPartition(sstable))
+                    {
+                        nonIntersectingPartitions++;
+                        continue;
+                    }
+
                     @SuppressWarnings("resource") // 'iter' is added to iterators which is close on exception,
                                                   // or through the closing of the final merged iterator
                     UnfilteredRowIteratorWithLowerBound iter = makeIterator(cfs, sstable, metricsCollector);
@@ -694,6 +708,8 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
             if (Tracing.isTracing())
                 Tracing.trace("Skipped {}/{} non-slice-intersecting sstables, included {} due to tombstones",
                                nonIntersectingSSTables, view.sstables.size(), includedDueToTombstones);
+            if (nonIntersectingPartitions > 0)
+                Tracing.trace("Skipped {} sstables whose partition row index doesn't intersect the slices", nonIntersectingPartitions);
 
             if (inputCollector.isEmpty())
                 return EmptyIterators.unfilteredRow(cfs.metadata(), partitionKey(), filter.isReversed());
@@ -727,6 +743,29 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
         return clusteringIndexFilter().shouldInclude(sstable);
     }
 
+    /**
+     * Whether the partition may have data selected by the slices in the given sstable, according to the bounds of
+     * its row index (see {@link SSTableReader#mayContainDataInSlices}).
+     * <p>
+     * This only relies on index entries that are already in the key cache: any read of the partition caches the
+     * entries of all the sstables containing it, so repeated slice queries on a wide partition, like the latest
+     * entries of a time series, end up reading only the sstables that have data in the slices, without any extra
+     * lookup in the partition index.
+     */
+    private boolean mayIntersectPartition(SSTableReader sstable)
+    {
+        ClusteringIndexFilter filter = clusteringIndexFilter();
+        if (filter.kind() != ClusteringIndexFilter.Kind.SLICE || filter.selectsAllPartition())
+            return true;
+
+        // the row index doesn't cover the static row
+        if (!columnFilter().fetchedColumns().statics.isEmpty())
+            return true;
+
+        RowIndexEntry<?> indexEntry = sstable.getCachedPosition(partitionKey(), false);
+        return indexEntry == null || sstable.mayContainDataInSlices(indexEntry, filter.getSlices(metadata()));
+    }
+
     private UnfilteredRowIteratorWithLowerBound makeIterator(ColumnFamilyStore cfs,
                                                              SSTableReader sstable,
                                                              SSTableReadsListener listener)
@@ -757,6 +796,7 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
         {
             DecoratedKey key = merged.partitionKey();
             metrics.topReadPartitionFrequency.addSample(key.getKey(), 1);
+            metrics.hotReadPartitions.addSample(key.getKey(), 1);
         }
 
         class UpdateSstablesIterated extends Transformation
@@ -881,6 +921,7 @@ public class SinglePartitionReadCommand extends ReadCommand implements SinglePar
 
         DecoratedKey key = result.partitionKey();
         cfs.metric.topReadPartitionFrequency.addSample(key.getKey(), 1);
+        cfs.metric.hotReadPartitions.addSample(key.getKey(), 1);
         StorageHook.instance.reportRead(cfs.metadata.id, partitionKey());
 
         // "hoist up" the requested data into a more recent sstable
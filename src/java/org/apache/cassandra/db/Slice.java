@@ -259,6 +259,21 @@ public class Slice
         return true;
     }
 
+    /**
+     * Whether this slice intersects the range of clusterings between the two given prefixes, both inclusive, like
+     * the first and last clusterings of a partition in a sstable.
+     *
+     * @param comparator the comparator for the table this is a slice of.
+     * @param first the smallest clustering of the range.
+     * @param last the biggest clustering of the range.
+     *
+     * @return whether the slice might select data between {@code first} and {@code last}.
+     */
+    public boolean intersects(ClusteringComparator comparator, ClusteringPrefix first, ClusteringPrefix last)
+    {
+        return comparator.compare(start, last) <= 0 && comparator.compare(first, end) <= 0;
+    }
+
     public String toString(ClusteringComparator comparator)
     {
         StringBuilder sb = new StringBuilder();
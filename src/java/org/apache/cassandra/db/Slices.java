@@ -140,6 +140,26 @@ public abstract class Slices implements Iterable<Slice>
      */
     public abstract boolean intersects(List<ByteBuffer> minClusteringValues, List<ByteBuffer> maxClusteringValues);
 
+    /**
+     * Given the first and last clustering of a partition, like the bounds of its row index, whether or not
+     * these slices potentially intersects that partition.
+     *
+     * @param comparator the comparator for the table this is a slice of.
+     * @param first the smallest clustering of the partition.
+     * @param last the biggest clustering of the partition.
+     *
+     * @return whether the slices might select data between {@code first} and {@code last}.
+     */
+    public boolean intersects(ClusteringComparator comparator, ClusteringPrefix first, ClusteringPrefix last)
+    {
+        for (Slice slice : this)
+        {
+            if (slice.intersects(comparator, first, last))
+                return true;
+        }
+        return false;
+    }
+
     public abstract String toCQLString(TableMetadata metadata);
 
     /**
@@ -316,6 +316,8 @@ public class TableCQLHelper
         builder.append("\n\tAND compaction = ").append(toCQL(tableParams.compaction.asMap()));
         builder.append("\n\tAND compression = ").append(toCQL(tableParams.compression.asMap()));
         builder.append("\n\tAND cdc = ").append(tableParams.cdc);
+        if (tableParams.filterType != null)
+            builder.append("\n\tAND filter_type = '").append(tableParams.filterType).append("'");
 
         builder.append("\n\tAND extensions = { ");
         for (Map.Entry<String, ByteBuffer> entry : tableParams.extensions.entrySet())
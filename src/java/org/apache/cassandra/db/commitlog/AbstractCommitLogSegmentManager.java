@@ -356,7 +356,8 @@ public abstract class AbstractCommitLogSegmentManager
 
     private long unusedCapacity()
     {
-        long total = DatabaseDescriptor.getTotalCommitlogSpaceInMB() * 1024 * 1024;
+        // the commit log space is shared evenly between the stripes
+        long total = DatabaseDescriptor.getTotalCommitlogSpaceInMB() * 1024 * 1024 / commitLog.segmentManagers.size();
         long currentSize = size.get();
         logger.trace("Total active commitlog segment space used is {} out of {}", currentSize, total);
         return total - currentSize;
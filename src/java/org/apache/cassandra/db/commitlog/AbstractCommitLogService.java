@@ -52,6 +52,9 @@ public abstract class AbstractCommitLogService
     private final AtomicLong written = new AtomicLong(0);
     protected final AtomicLong pending = new AtomicLong(0);
 
+    // bytes written since the last sync to disk started
+    private final AtomicLong unsyncedBytes = new AtomicLong(0);
+
     // signal that writers can wait on to be notified of a completed sync
     protected final WaitQueue syncComplete = new WaitQueue();
 
@@ -170,11 +173,14 @@ public abstract class AbstractCommitLogService
             {
                 // sync and signal
                 long pollStarted = clock.nanoTime();
-                boolean flushToDisk = lastSyncedAt + syncIntervalNanos <= pollStarted || shutdownRequested || syncRequested;
+                long intervalNanos = nextSyncIntervalNanos();
+                boolean flushToDisk = lastSyncedAt + intervalNanos <= pollStarted || shutdownRequested || syncRequested;
+                long syncedBytes = 0;
                 if (flushToDisk)
                 {
                     // in this branch, we want to flush the commit log to disk
                     syncRequested = false;
+                    syncedBytes = unsyncedBytes.getAndSet(0);
                     commitLog.sync(true);
                     lastSyncedAt = pollStarted;
                     syncComplete.signalAll();
@@ -188,12 +194,15 @@ public abstract class AbstractCommitLogService
 
                 long now = clock.nanoTime();
                 if (flushToDisk)
+                {
                     maybeLogFlushLag(pollStarted, now);
+                    syncCompleted(now - pollStarted, syncedBytes);
+                }
 
                 if (shutdownRequested)
                     return false;
 
-                long wakeUpAt = pollStarted + markerIntervalNanos;
+                long wakeUpAt = pollStarted + Math.min(markerIntervalNanos, intervalNanos);
                 if (wakeUpAt > now)
                     LockSupport.parkNanos(wakeUpAt - now);
             }
@@ -265,12 +274,50 @@ public abstract class AbstractCommitLogService
      */
     public void finishWriteFor(Allocation alloc)
     {
+        unsyncedBytes.addAndGet(alloc.size());
         maybeWaitForSync(alloc);
         written.incrementAndGet();
     }
 
     protected abstract void maybeWaitForSync(Allocation alloc);
 
+    /**
+     * The duration to wait for, after the previous sync started, before the next sync to disk. Defaults to
+     * {@link #syncIntervalNanos}, but may vary for services adapting to the load.
+     */
+    protected long nextSyncIntervalNanos()
+    {
+        return syncIntervalNanos;
+    }
+
+    /**
+     * Called by the sync thread once a sync to disk completed.
+     *
+     * @param durationNanos the time taken by the sync
+     * @param bytes the bytes written since the previous sync
+     */
+    protected void syncCompleted(long durationNanos, long bytes)
+    {
+        commitLog.metrics.syncTime.update(durationNanos, TimeUnit.NANOSECONDS);
+        commitLog.metrics.syncedBytes.update(bytes);
+    }
+
+    /**
+     * Returns the number of bytes written since the last sync to disk started.
+     */
+    protected long getUnsyncedBytes()
+    {
+        return unsyncedBytes.get();
+    }
+
+    /**
+     * Wake up the sync thread so that it re-evaluates when to sync next, without forcing a sync.
+     */
+    protected void wakeUpSyncThread()
+    {
+        LockSupport.unpark(thread);
+    }
+
     /**
      * Request an additional sync cycle without blocking.
      */
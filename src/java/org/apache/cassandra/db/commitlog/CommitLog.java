@@ -21,15 +21,22 @@ import java.io.*;
 import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.ParameterizedClass;
@@ -72,6 +79,17 @@ public class CommitLog implements CommitLogMBean
 
     final public AbstractCommitLogSegmentManager segmentManager;
 
+    /**
+     * The stripes of the commit log, each with its own segments, allocation and sync; {@link #segmentManager} is the
+     * first of them. A keyspace is bound to a single stripe for the lifetime of the process, so that the positions
+     * of the writes of any table are always increasing, which the memtable commit log bounds and replay rely on.
+     */
+    final List<AbstractCommitLogSegmentManager> segmentManagers;
+    private final Map<String, AbstractCommitLogSegmentManager> keyspaceStripes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    // syncs all but the first stripe, which is synced by the calling thread; null with a single stripe
+    private final ExecutorService stripeSyncExecutor;
+
     public final CommitLogArchiver archiver;
     final CommitLogMetrics metrics;
     final AbstractCommitLogService executor;
@@ -119,21 +137,45 @@ public class CommitLog implements CommitLogMBean
                 throw new IllegalArgumentException("Unknown commitlog service type: " + DatabaseDescriptor.getCommitLogSync());
         }
 
-        segmentManager = DatabaseDescriptor.isCDCEnabled()
-                         ? new CommitLogSegmentManagerCDC(this, DatabaseDescriptor.getCommitLogLocation())
-                         : new CommitLogSegmentManagerStandard(this, DatabaseDescriptor.getCommitLogLocation());
+        if (DatabaseDescriptor.isCDCEnabled())
+        {
+            segmentManagers = Collections.singletonList(new CommitLogSegmentManagerCDC(this, DatabaseDescriptor.getCommitLogLocation()));
+        }
+        else
+        {
+            String[] locations = DatabaseDescriptor.getCommitLogStripeLocations();
+            List<AbstractCommitLogSegmentManager> managers = new ArrayList<>(DatabaseDescriptor.getCommitLogStripes());
+            for (int i = 0; i < DatabaseDescriptor.getCommitLogStripes(); i++)
+                managers.add(new CommitLogSegmentManagerStandard(this, locations[i % locations.length]));
+            segmentManagers = Collections.unmodifiableList(managers);
+        }
+        segmentManager = segmentManagers.get(0);
+        stripeSyncExecutor = segmentManagers.size() > 1
+                             ? DebuggableThreadPoolExecutor.createWithFixedPoolSize("CommitLogStripeSync", segmentManagers.size() - 1)
+                             : null;
 
         // register metrics
-        metrics.attach(executor, segmentManager);
+        metrics.attach(executor, this);
     }
 
     CommitLog start()
     {
-        segmentManager.start();
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            manager.start();
         executor.start();
         return this;
     }
 
+    /**
+     * @return the stripe the mutations of the provided keyspace are written to
+     */
+    AbstractCommitLogSegmentManager segmentManagerFor(String keyspace)
+    {
+        if (segmentManagers.size() == 1)
+            return segmentManager;
+        return keyspaceStripes.computeIfAbsent(keyspace, k -> segmentManagers.get(nextStripe.getAndIncrement() % segmentManagers.size()));
+    }
+
     /**
      * Perform recovery on commit logs located in the directory specified by the config file.
      *
@@ -147,7 +189,7 @@ public class CommitLog implements CommitLogMBean
         // submit all files for this segment manager for archiving prior to recovery - CASSANDRA-6904
         // The files may have already been archived by normal CommitLog operation. This may cause errors in this
         // archiving pass, which we should not treat as serious.
-        for (File file : new File(segmentManager.storageDirectory).listFiles(unmanagedFilesFilter))
+        for (File file : listSegmentFiles(unmanagedFilesFilter))
         {
             archiver.maybeArchive(file.getPath(), file.getName());
             archiver.maybeWaitForArchiving(file.getName());
@@ -157,7 +199,9 @@ public class CommitLog implements CommitLogMBean
         archiver.maybeRestoreArchive();
 
         // List the files again as archiver may have added segments.
-        File[] files = new File(segmentManager.storageDirectory).listFiles(unmanagedFilesFilter);
+        // The segments of all the stripes are replayed together, in segment id order: the positions of the writes of
+        // a table are only ever increasing within the stripe it is bound to, so this keeps them in order per table.
+        File[] files = listSegmentFiles(unmanagedFilesFilter);
         int replayed = 0;
         if (files.length == 0)
         {
@@ -177,6 +221,25 @@ public class CommitLog implements CommitLogMBean
         return replayed;
     }
 
+    /**
+     * Lists the segment files of all the directories the stripes may have been written to, including the ones no
+     * longer in use because the number of stripes has been reduced.
+     */
+    private File[] listSegmentFiles(FilenameFilter filter)
+    {
+        List<File> files = new ArrayList<>();
+        String[] locations = DatabaseDescriptor.isCDCEnabled()
+                             ? new String[]{ segmentManager.storageDirectory }
+                             : DatabaseDescriptor.getCommitLogStripeLocations();
+        for (String location : locations)
+        {
+            File[] listed = new File(location).listFiles(filter);
+            if (listed != null)
+                files.addAll(Arrays.asList(listed));
+        }
+        return files.toArray(new File[0]);
+    }
+
     /**
      * Perform recovery on a list of commit log files.
      *
@@ -214,12 +277,22 @@ public class CommitLog implements CommitLogMBean
         return segmentManager.getCurrentPosition();
     }
 
+    /**
+     * @return a CommitLogPosition which, if {@code >= one} returned from add() for a mutation of the provided keyspace,
+     * implies add() was started (but not necessarily finished) prior to this call
+     */
+    public CommitLogPosition getCurrentPosition(String keyspace)
+    {
+        return segmentManagerFor(keyspace).getCurrentPosition();
+    }
+
     /**
      * Flushes all dirty CFs, waiting for them to free and recycle any segments they were retaining
      */
     public void forceRecycleAllSegments(Iterable<TableId> droppedTables)
     {
-        segmentManager.forceRecycleAll(droppedTables);
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            manager.forceRecycleAll(droppedTables);
     }
 
     /**
@@ -227,15 +300,43 @@ public class CommitLog implements CommitLogMBean
      */
     public void forceRecycleAllSegments()
     {
-        segmentManager.forceRecycleAll(Collections.emptyList());
+        forceRecycleAllSegments(Collections.emptyList());
     }
 
     /**
      * Forces a disk flush on the commit log files that need it.  Blocking.
+     *
+     * The stripes are synced in parallel, as they usually sit on different disks.
      */
     public void sync(boolean flush) throws IOException
     {
+        if (stripeSyncExecutor == null)
+        {
+            segmentManager.sync(flush);
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(segmentManagers.size() - 1);
+        for (AbstractCommitLogSegmentManager manager : segmentManagers.subList(1, segmentManagers.size()))
+            futures.add(stripeSyncExecutor.submit(() -> { manager.sync(flush); return null; }));
+
         segmentManager.sync(flush);
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+            catch (ExecutionException e)
+            {
+                Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+                throw Throwables.propagate(e.getCause());
+            }
+        }
     }
 
     /**
@@ -269,7 +370,7 @@ public class CommitLog implements CommitLogMBean
                                                                  FBUtilities.prettyPrintMemory(MAX_MUTATION_SIZE)));
             }
 
-            Allocation alloc = segmentManager.allocate(mutation, totalSize);
+            Allocation alloc = segmentManagerFor(mutation.getKeyspaceName()).allocate(mutation, totalSize);
 
             CRC32 checksum = new CRC32();
             final ByteBuffer buffer = alloc.getBuffer();
@@ -299,7 +400,7 @@ public class CommitLog implements CommitLogMBean
         }
         catch (IOException e)
         {
-            throw new FSWriteError(e, segmentManager.allocatingFrom().getPath());
+            throw new FSWriteError(e, segmentManagerFor(mutation.getKeyspaceName()).allocatingFrom().getPath());
         }
     }
 
@@ -315,6 +416,14 @@ public class CommitLog implements CommitLogMBean
     {
         logger.trace("discard completed log segments for {}-{}, table {}", lowerBound, upperBound, id);
 
+        // The table may have been bound to a different stripe before a restart, so all of them are looked at;
+        // marking clean is a no-op on the segments the table has no writes in.
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            discardCompletedSegments(manager, id, lowerBound, upperBound);
+    }
+
+    private void discardCompletedSegments(AbstractCommitLogSegmentManager segmentManager, final TableId id, final CommitLogPosition lowerBound, final CommitLogPosition upperBound)
+    {
         // Go thru the active segment files, which are ordered oldest to newest, marking the
         // flushed CF as clean, until we reach the segment file containing the CommitLogPosition passed
         // in the arguments. Any segments that become unused after they are marked clean will be
@@ -375,13 +484,46 @@ public class CommitLog implements CommitLogMBean
 
     public List<String> getActiveSegmentNames()
     {
-        Collection<CommitLogSegment> segments = segmentManager.getActiveSegments();
-        List<String> segmentNames = new ArrayList<>(segments.size());
-        for (CommitLogSegment seg : segments)
+        List<String> segmentNames = new ArrayList<>();
+        for (CommitLogSegment seg : getActiveSegments())
             segmentNames.add(seg.getName());
         return segmentNames;
     }
 
+    /**
+     * @return the active segments of all the stripes
+     */
+    Collection<CommitLogSegment> getActiveSegments()
+    {
+        if (segmentManagers.size() == 1)
+            return segmentManager.getActiveSegments();
+
+        List<CommitLogSegment> segments = new ArrayList<>();
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            segments.addAll(manager.getActiveSegments());
+        return segments;
+    }
+
+    /**
+     * @return the number of active segments that each table has unflushed data in, i.e. that it keeps from being
+     * recycled
+     */
+    public Map<TableId, Integer> getDirtySegmentCounts()
+    {
+        Map<TableId, Integer> counts = new HashMap<>();
+        for (CommitLogSegment seg : getActiveSegments())
+        {
+            for (TableId tableId : seg.getDirtyTableIds())
+                counts.merge(tableId, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    public int getActiveSegmentCount()
+    {
+        return getActiveSegments().size();
+    }
+
     public List<String> getArchivingSegmentNames()
     {
         return new ArrayList<>(archiver.archivePending.keySet());
@@ -391,7 +533,7 @@ public class CommitLog implements CommitLogMBean
     public long getActiveContentSize()
     {
         long size = 0;
-        for (CommitLogSegment seg : segmentManager.getActiveSegments())
+        for (CommitLogSegment seg : getActiveSegments())
             size += seg.contentSize();
         return size;
     }
@@ -399,14 +541,17 @@ public class CommitLog implements CommitLogMBean
     @Override
     public long getActiveOnDiskSize()
     {
-        return segmentManager.onDiskSize();
+        long size = 0;
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            size += manager.onDiskSize();
+        return size;
     }
 
     @Override
     public Map<String, Double> getActiveSegmentCompressionRatios()
     {
         Map<String, Double> segmentRatios = new TreeMap<>();
-        for (CommitLogSegment seg : segmentManager.getActiveSegments())
+        for (CommitLogSegment seg : getActiveSegments())
             segmentRatios.put(seg.getName(), 1.0 * seg.onDiskSize() / seg.contentSize());
         return segmentRatios;
     }
@@ -418,8 +563,10 @@ public class CommitLog implements CommitLogMBean
     {
         executor.shutdown();
         executor.awaitTermination();
-        segmentManager.shutdown();
-        segmentManager.awaitTermination();
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            manager.shutdown();
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            manager.awaitTermination();
     }
 
     /**
@@ -456,7 +603,8 @@ public class CommitLog implements CommitLogMBean
         {
             throw new RuntimeException(e);
         }
-        segmentManager.stopUnsafe(deleteSegments);
+        for (AbstractCommitLogSegmentManager manager : segmentManagers)
+            manager.stopUnsafe(deleteSegments);
         CommitLogSegment.resetReplayLimit();
         if (DatabaseDescriptor.isCDCEnabled() && deleteSegments)
             for (File f : new File(DatabaseDescriptor.getCDCLogLocation()).listFiles())
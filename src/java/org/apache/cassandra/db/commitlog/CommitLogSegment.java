@@ -733,6 +733,14 @@ public abstract class CommitLogSegment
             return buffer;
         }
 
+        /**
+         * Returns the size of this allocation, in bytes.
+         */
+        int size()
+        {
+            return buffer.limit() - position;
+        }
+
         // markWritten() MUST be called once we are done with the segment or the CL will never flush
         // but must not be called more than once
         void markWritten()
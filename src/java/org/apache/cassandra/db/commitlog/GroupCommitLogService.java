@@ -18,26 +18,63 @@
 
 package org.apache.cassandra.db.commitlog;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.cassandra.config.DatabaseDescriptor;
 
 /**
  * A commitlog service that will block returning an ACK back to the a coordinator/client
  * for a minimum amount of time as we wait until the the commit log segment is flushed.
+ *
+ * With {@code commitlog_sync_group_adaptive_window} enabled, the window shrinks to the average duration of a sync
+ * while writes are waiting for one: writes arriving during a sync are grouped into the next one, so syncing more
+ * often than that can't group more writes, and waiting any longer only adds latency. A sync is also requested as soon
+ * as {@code commitlog_sync_group_max_pending_in_kb} have been written since the previous one.
  */
 public class GroupCommitLogService extends AbstractCommitLogService
 {
+    // shortest window when adapting to the disk, so that very fast disks don't keep the sync thread spinning
+    private static final long MIN_ADAPTIVE_WINDOW_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final boolean adaptiveWindow;
+    private final long maxPendingBytes;
+
+    // moving average of the duration of the syncs, only updated by the sync thread
+    private volatile long averageSyncNanos;
+
     public GroupCommitLogService(CommitLog commitLog)
     {
         super(commitLog, "GROUP-COMMIT-LOG-WRITER", (int) DatabaseDescriptor.getCommitLogSyncGroupWindow());
+        this.adaptiveWindow = DatabaseDescriptor.getCommitLogSyncGroupAdaptiveWindow();
+        this.maxPendingBytes = DatabaseDescriptor.getCommitLogSyncGroupMaxPendingBytes();
     }
 
     protected void maybeWaitForSync(CommitLogSegment.Allocation alloc)
     {
         // wait until record has been safely persisted to disk
-        pending.incrementAndGet();
+        long waiting = pending.incrementAndGet();
+        if (maxPendingBytes > 0 && getUnsyncedBytes() >= maxPendingBytes)
+            requestExtraSync();
+        else if (adaptiveWindow && waiting == 1)
+            wakeUpSyncThread(); // the sync thread may be waiting for the whole window, as nothing was waiting so far
         // wait for commitlog_sync_group_window_in_ms
         alloc.awaitDiskSync(commitLog.metrics.waitingOnCommit);
         pending.decrementAndGet();
     }
-}
 
+    @Override
+    protected long nextSyncIntervalNanos()
+    {
+        if (!adaptiveWindow || pending.get() == 0)
+            return syncIntervalNanos;
+
+        return Math.min(syncIntervalNanos, Math.max(MIN_ADAPTIVE_WINDOW_NANOS, averageSyncNanos));
+    }
+
+    @Override
+    protected void syncCompleted(long durationNanos, long bytes)
+    {
+        super.syncCompleted(durationNanos, bytes);
+        averageSyncNanos += (durationNanos - averageSyncNanos) / 8;
+    }
+}
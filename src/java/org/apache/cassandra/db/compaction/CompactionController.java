@@ -22,6 +22,7 @@ import java.util.function.LongPredicate;
 import java.util.function.Predicate;
 
 import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.Memtable;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
 
@@ -33,7 +34,9 @@ import org.apache.cassandra.db.partitions.Partition;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.FileDataInput;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.schema.ColumnMetadata;
 import org.apache.cassandra.schema.CompactionParams.TombstoneOption;
+import org.apache.cassandra.schema.TableMetadata;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -305,6 +308,39 @@ public class CompactionController implements AutoCloseable
         }
     }
 
+    /**
+     * @return whether the partitions of the given compacted sstable that are in no other compacted sstable can be
+     * written as is to the result of the compaction, copying their serialized form rather than deserializing them (see
+     * {@link org.apache.cassandra.io.sstable.CopyablePartition}). This requires that the compaction would leave them
+     * unchanged: nothing in the sstable is old enough to be purged, and it has no data of dropped columns.
+     */
+    public boolean canCopyPartitionsOf(SSTableReader sstable)
+    {
+        if (!DatabaseDescriptor.isCompactionPartitionCopyEnabled()
+            || provideTombstoneSources()
+            || cfs.indexManager.hasIndexes()
+            || cfs.metadata().enforceStrictLiveness()
+            || sstable.getMinLocalDeletionTime() < gcBefore)
+            return false;
+
+        TableMetadata metadata = cfs.metadata();
+        for (ColumnMetadata column : sstable.header.columns())
+        {
+            if (metadata.droppedColumns.containsKey(column.name.bytes))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the partitions of the compacted sstables can be merged with a {@link CursorPartitionMerger},
+     * which doesn't support the row merge listener needed to update secondary indexes
+     */
+    public boolean canMergeWithCursors()
+    {
+        return DatabaseDescriptor.isCompactionCursorMergeEnabled() && !cfs.indexManager.hasIndexes();
+    }
+
     public void close()
     {
         if (overlappingSSTables != null)
@@ -17,6 +17,8 @@
  */
 package org.apache.cassandra.db.compaction;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.function.LongPredicate;
 
@@ -31,7 +33,10 @@ import org.apache.cassandra.db.partitions.UnfilteredPartitionIterators;
 import org.apache.cassandra.db.rows.*;
 import org.apache.cassandra.db.transform.Transformation;
 import org.apache.cassandra.index.transactions.CompactionTransaction;
+import org.apache.cassandra.io.sstable.CopyablePartition;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.metrics.CompactionMetrics;
 import org.apache.cassandra.schema.CompactionParams.TombstoneOption;
 
@@ -49,6 +54,8 @@ import org.apache.cassandra.schema.CompactionParams.TombstoneOption;
  *   <li>invalidate cached partitions that are empty post-compaction. This avoids keeping partitions with
  *       only purgable tombstones in the row cache.</li>
  *   <li>keep tracks of the compaction progress.</li>
+ *   <li>let the writer copy as is the partitions that are in a single sstable and wouldn't be changed by the
+ *       compaction (see {@link CopyablePartition}).</li>
  * </ul>
  */
 public class CompactionIterator extends CompactionInfo.Holder implements UnfilteredPartitionIterator
@@ -75,6 +82,19 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
     private final UnfilteredPartitionIterator compacted;
     private final CompactionMetrics metrics;
 
+    // whether the partitions of an sstable can be copied as is when in no other sstable, see CompactionController.canCopyPartitionsOf()
+    private final Map<SSTableReader, Boolean> copyableSSTables = new IdentityHashMap<>();
+    // the partition last merged, if it is in a single sstable and can be copied as is
+    private CopyablePartition copyablePartition;
+    private long copyablePartitions;
+    private long copiedPartitions;
+
+    private final GarbageSkipper garbageSkipper;
+
+    // merges the partitions in several sstables if the controller allows it, see CompactionController.canMergeWithCursors()
+    private final CursorPartitionMerger cursorMerger;
+    private long cursorMergedPartitions;
+
     public CompactionIterator(OperationType type, List<ISSTableScanner> scanners, CompactionController controller, int nowInSec, UUID compactionId)
     {
         this(type, scanners, controller, nowInSec, compactionId, null);
@@ -100,10 +120,15 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
         if (metrics != null)
             metrics.beginCompaction(this);
 
+        this.cursorMerger = type == OperationType.COMPACTION && controller.canMergeWithCursors()
+                          ? new CursorPartitionMerger(controller.cfs.metadata())
+                          : null;
+
         UnfilteredPartitionIterator merged = scanners.isEmpty()
                                            ? EmptyIterators.unfilteredPartition(controller.cfs.metadata())
                                            : UnfilteredPartitionIterators.merge(scanners, listener());
-        merged = Transformation.apply(merged, new GarbageSkipper(controller));
+        garbageSkipper = new GarbageSkipper(controller);
+        merged = Transformation.apply(merged, garbageSkipper);
         merged = Transformation.apply(merged, new Purger(controller, nowInSec));
         compacted = Transformation.apply(merged, new AbortableUnfilteredPartitionTransformation(this));
     }
@@ -138,6 +163,40 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
         return totalSourceCQLRows;
     }
 
+    /**
+     * @return the number of partitions that were returned as {@link CopyablePartition}, for the writer to copy as is
+     */
+    public long getCopyablePartitions()
+    {
+        return copyablePartitions;
+    }
+
+    /**
+     * @return the number of partitions that the writer actually copied as is, which can be less than the copyable ones
+     * when the writer can't copy from the sstables of the partitions
+     */
+    public long getCopiedPartitions()
+    {
+        return copiedPartitions;
+    }
+
+    /**
+     * @return the number of partitions that were merged by the {@link CursorPartitionMerger}
+     */
+    public long getCursorMergedPartitions()
+    {
+        return cursorMergedPartitions;
+    }
+
+    /**
+     * @return the number of rows that were dropped because they were shadowed by the data of sstables overlapping the
+     * compaction, which is only looked at if the table provides overlapping tombstones (see {@link TombstoneOption})
+     */
+    public long getGarbageCollectedRows()
+    {
+        return garbageSkipper.garbageCollectedRows;
+    }
+
     private UnfilteredPartitionIterators.MergeListener listener()
     {
         return new UnfilteredPartitionIterators.MergeListener()
@@ -145,16 +204,22 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
             public UnfilteredRowIterators.MergeListener getRowMergeListener(DecoratedKey partitionKey, List<UnfilteredRowIterator> versions)
             {
                 int merged = 0;
+                UnfilteredRowIterator single = null;
                 for (UnfilteredRowIterator iter : versions)
                 {
                     if (iter != null)
+                    {
                         merged++;
+                        single = iter;
+                    }
                 }
 
                 assert merged > 0;
 
                 CompactionIterator.this.updateCounterFor(merged);
 
+                copyablePartition = merged == 1 && type == OperationType.COMPACTION ? copyable(single) : null;
+
                 if (type != OperationType.COMPACTION || !controller.cfs.indexManager.hasIndexes())
                     return null;
 
@@ -209,12 +274,33 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
                 };
             }
 
+            public UnfilteredRowIterator mergePartition(DecoratedKey partitionKey, List<UnfilteredRowIterator> versions)
+            {
+                // a partition that is going to be copied as is must not be read
+                if (cursorMerger == null || copyablePartition != null)
+                    return null;
+
+                UnfilteredRowIterator merged = cursorMerger.merge(versions);
+                if (merged != null)
+                    cursorMergedPartitions++;
+                return merged;
+            }
+
             public void close()
             {
             }
         };
     }
 
+    private CopyablePartition copyable(UnfilteredRowIterator partition)
+    {
+        if (!(partition instanceof CopyablePartition))
+            return null;
+
+        CopyablePartition copyable = (CopyablePartition) partition;
+        return copyableSSTables.computeIfAbsent(copyable.sstable(), controller::canCopyPartitionsOf) ? copyable : null;
+    }
+
     private void updateBytesRead()
     {
         long n = 0;
@@ -230,7 +316,16 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
 
     public UnfilteredRowIterator next()
     {
-        return compacted.next();
+        UnfilteredRowIterator partition = compacted.next();
+        CopyablePartition source = copyablePartition;
+        copyablePartition = null;
+        if (source == null || !partition.partitionKey().equals(((UnfilteredRowIterator) source).partitionKey()))
+            return partition;
+
+        // none of the content of the partition is going to be read, so progress is updated here rather than by the purger
+        copyablePartitions++;
+        updateBytesRead();
+        return new CopyableUnfilteredRowIterator(partition, source);
     }
 
     public void remove()
@@ -311,6 +406,37 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
         }
     }
 
+    /**
+     * A compacted partition that is the unchanged partition of a single sstable, and that can thus be written by
+     * copying it from that sstable.
+     */
+    private class CopyableUnfilteredRowIterator extends WrappingUnfilteredRowIterator implements CopyablePartition
+    {
+        private final CopyablePartition source;
+
+        private CopyableUnfilteredRowIterator(UnfilteredRowIterator wrapped, CopyablePartition source)
+        {
+            super(wrapped);
+            this.source = source;
+        }
+
+        public SSTableReader sstable()
+        {
+            return source.sstable();
+        }
+
+        public void copyData(DataOutputPlus out) throws IOException
+        {
+            source.copyData(out);
+            copiedPartitions++;
+        }
+
+        public ByteBuffer serializedIndex() throws IOException
+        {
+            return source.serializedIndex();
+        }
+    }
+
     /**
      * Unfiltered row iterator that removes deleted data as provided by a "tombstone source" for the partition.
      * The result produced by this iterator is such that when merged with tombSource it produces the same output
@@ -324,6 +450,7 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
         final ColumnFilter cf;
         final TableMetadata metadata;
         final boolean cellLevelGC;
+        final GarbageSkipper skipper;
 
         DeletionTime tombOpenDeletionTime = DeletionTime.LIVE;
         DeletionTime dataOpenDeletionTime = DeletionTime.LIVE;
@@ -341,12 +468,14 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
          * @param tombSource Tombstone source, i.e. iterator used to identify deleted data in the input row.
          * @param cellLevelGC If false, the iterator will only look at row-level deletion times and tombstones.
          *                    If true, deleted or overwritten cells within a surviving row will also be removed.
+         * @param skipper The transformation counting the rows removed.
          */
-        protected GarbageSkippingUnfilteredRowIterator(UnfilteredRowIterator dataSource, UnfilteredRowIterator tombSource, boolean cellLevelGC)
+        protected GarbageSkippingUnfilteredRowIterator(UnfilteredRowIterator dataSource, UnfilteredRowIterator tombSource, boolean cellLevelGC, GarbageSkipper skipper)
         {
             super(dataSource);
             this.tombSource = tombSource;
             this.cellLevelGC = cellLevelGC;
+            this.skipper = skipper;
             metadata = dataSource.metadata();
             cf = ColumnFilter.all(metadata);
 
@@ -401,7 +530,11 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
                 if (cmp < 0)
                 {
                     if (dataNext.isRow())
+                    {
                         next = ((Row) dataNext).filter(cf, activeDeletionTime, false, metadata);
+                        if (next == null)
+                            skipper.garbageCollectedRows++;
+                    }
                     else
                         next = processDataMarker();
                 }
@@ -410,6 +543,8 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
                     if (dataNext.isRow())
                     {
                         next = garbageFilterRow((Row) dataNext, (Row) tombNext);
+                        if (next == null)
+                            skipper.garbageCollectedRows++;
                     }
                     else
                     {
@@ -511,6 +646,7 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
     {
         final CompactionController controller;
         final boolean cellLevelGC;
+        long garbageCollectedRows;
 
         private GarbageSkipper(CompactionController controller)
         {
@@ -535,7 +671,7 @@ public class CompactionIterator extends CompactionInfo.Holder implements Unfilte
             if (iters.isEmpty())
                 return partition;
 
-            return new GarbageSkippingUnfilteredRowIterator(partition, UnfilteredRowIterators.merge(iters), cellLevelGC);
+            return new GarbageSkippingUnfilteredRowIterator(partition, UnfilteredRowIterators.merge(iters), cellLevelGC, this);
         }
     }
 
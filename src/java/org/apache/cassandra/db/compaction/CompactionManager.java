@@ -1197,6 +1197,7 @@ public class CompactionManager implements CompactionManagerMBean
 
         File compactionFileLocation = sstable.descriptor.directory;
         RateLimiter limiter = getRateLimiter();
+        Directories.DataDirectory dataDirectory = cfs.getDirectories().getDataDirectoryForFile(compactionFileLocation);
         double compressionRatio = sstable.getCompressionRatio();
         if (compressionRatio == MetadataCollector.NO_COMPRESSION_RATIO)
             compressionRatio = 1.0;
@@ -1227,7 +1228,7 @@ public class CompactionManager implements CompactionManagerMBean
 
                     long bytesScanned = scanner.getBytesScanned();
 
-                    compactionRateLimiterAcquire(limiter, bytesScanned, lastBytesScanned, compressionRatio);
+                    compactionRateLimiterAcquire(limiter, dataDirectory, bytesScanned, lastBytesScanned, compressionRatio);
 
                     lastBytesScanned = bytesScanned;
                 }
@@ -1254,9 +1255,13 @@ public class CompactionManager implements CompactionManagerMBean
 
     }
 
-    static void compactionRateLimiterAcquire(RateLimiter limiter, long bytesScanned, long lastBytesScanned, double compressionRatio)
+    /**
+     * Rate limits a compaction with the global limiter, then with the budget of the data directory it is on, if known.
+     */
+    static void compactionRateLimiterAcquire(RateLimiter limiter, Directories.DataDirectory directory, long bytesScanned, long lastBytesScanned, double compressionRatio)
     {
         long lengthRead = (long) ((bytesScanned - lastBytesScanned) * compressionRatio) + 1;
+        DiskIOScheduler.instance.acquireForCompaction(directory, lengthRead);
         while (lengthRead >= Integer.MAX_VALUE)
         {
             limiter.acquire(Integer.MAX_VALUE);
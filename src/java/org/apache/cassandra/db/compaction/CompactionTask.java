@@ -168,6 +168,8 @@ public class CompactionTask extends AbstractCompactionTask
 
             long[] mergedRowCounts;
             long totalSourceCQLRows;
+            long copiedPartitions;
+            long garbageCollectedRows;
 
             // SSTableScanners need to be closed before markCompactedSSTablesReplaced call as scanners contain references
             // to both ifile and dfile and SSTR will throw deletion errors on Windows if it tries to delete before scanner is closed.
@@ -184,6 +186,7 @@ public class CompactionTask extends AbstractCompactionTask
                     compressionRatio = 1.0;
 
                 long lastBytesScanned = 0;
+                Directories.DataDirectory dataDirectory = DiskIOScheduler.compactionDirectory(cfs, actuallyCompact);
 
                 if (!controller.cfs.getCompactionStrategyManager().isActive())
                     throw new CompactionInterruptedException(ci.getCompactionInfo());
@@ -203,7 +206,7 @@ public class CompactionTask extends AbstractCompactionTask
                         long bytesScanned = scanners.getTotalBytesScanned();
 
                         //Rate limit the scanners, and account for compression
-                        CompactionManager.compactionRateLimiterAcquire(limiter, bytesScanned, lastBytesScanned, compressionRatio);
+                        CompactionManager.compactionRateLimiterAcquire(limiter, dataDirectory, bytesScanned, lastBytesScanned, compressionRatio);
 
                         lastBytesScanned = bytesScanned;
 
@@ -225,6 +228,8 @@ public class CompactionTask extends AbstractCompactionTask
                     mergedRowCounts = ci.getMergedRowCounts();
 
                     totalSourceCQLRows = ci.getTotalSourceCQLRows();
+                    copiedPartitions = ci.getCopiedPartitions();
+                    garbageCollectedRows = ci.getGarbageCollectedRows();
                 }
             }
 
@@ -252,7 +257,7 @@ public class CompactionTask extends AbstractCompactionTask
                 String mergeSummary = updateCompactionHistory(cfs.keyspace.getName(), cfs.getTableName(), mergedRowCounts, startsize, endsize);
 
                 if (logger.isDebugEnabled())
-                    logger.debug(String.format("Compacted (%s) %d sstables to [%s] to level=%d.  %s to %s (~%d%% of original) in %,dms.  Read Throughput = %s, Write Throughput = %s, Row Throughput = ~%,d/s.  %,d total partitions merged to %,d.  Partition merge counts were {%s}",
+                    logger.debug(String.format("Compacted (%s) %d sstables to [%s] to level=%d.  %s to %s (~%d%% of original) in %,dms.  Read Throughput = %s, Write Throughput = %s, Row Throughput = ~%,d/s.  %,d total partitions merged to %,d (%,d copied as is), %,d rows shadowed by overlapping sstables dropped.  Partition merge counts were {%s}",
                                                taskId,
                                                transaction.originals().size(),
                                                newSSTableNames.toString(),
@@ -266,6 +271,8 @@ public class CompactionTask extends AbstractCompactionTask
                                                (int) totalSourceCQLRows / (TimeUnit.NANOSECONDS.toSeconds(durationInNano) + 1),
                                                totalSourceRows,
                                                totalKeysWritten,
+                                               copiedPartitions,
+                                               garbageCollectedRows,
                                                mergeSummary));
                 if (logger.isTraceEnabled())
                 {
@@ -276,10 +283,21 @@ public class CompactionTask extends AbstractCompactionTask
 
                 // update the metrics
                 cfs.metric.compactionBytesWritten.inc(endsize);
+                compacted(startsize, endsize);
             }
         }
     }
 
+    /**
+     * Called once a compaction that wasn't offline has completed.
+     *
+     * @param inputSize the on disk size of the compacted sstables, excluding the fully expired ones that were dropped
+     * @param outputSize the on disk size of the new sstables
+     */
+    protected void compacted(long inputSize, long outputSize)
+    {
+    }
+
     @Override
     public CompactionAwareWriter getCompactionAwareWriter(ColumnFamilyStore cfs,
                                                           Directories directories,
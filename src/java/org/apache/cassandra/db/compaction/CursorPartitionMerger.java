@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.rows.*;
+import org.apache.cassandra.io.sstable.CorruptSSTableException;
+import org.apache.cassandra.io.sstable.SerializedPartition;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+
+/**
+ * Merges the versions of a partition found in the compacted sstables by reading their rows with {@link
+ * UnfilteredCursor}s, rather than with {@link UnfilteredRowIterators#merge}.
+ *
+ * The latter deserializes every version of a row into a {@link Row} of {@link Cell}s, goes through a merge iterator,
+ * and then builds the merged row from the versions with a {@link Row.Merger}. This instead builds the merged row
+ * directly from the cells read by the cursors, so that a single row is built per clustering whatever the number of
+ * versions, and the rows of a single version, which are the majority in most compactions, are built straight from
+ * their serialized form. Range tombstone markers are comparatively rare and are merged as usual.
+ *
+ * This only replaces the merge of the rows: the merged partition then goes through the same purging and garbage
+ * skipping as any other compacted partition.
+ *
+ * There is no per-row merge listener, so this can't be used if the table has secondary indexes.
+ */
+final class CursorPartitionMerger
+{
+    private final TableMetadata metadata;
+    // the cursors are reused from one partition to the next, as an sstable is only read one partition at a time
+    private final Map<SSTableReader, UnfilteredCursor> cursors = new IdentityHashMap<>();
+
+    CursorPartitionMerger(TableMetadata metadata)
+    {
+        this.metadata = metadata;
+    }
+
+    /**
+     * @param versions the versions of the partition, {@code null} for the sstables that don't have it
+     * @return the merged partition, or {@code null} if some of the versions can't be read with cursors
+     */
+    UnfilteredRowIterator merge(List<UnfilteredRowIterator> versions)
+    {
+        List<UnfilteredRowIterator> toMerge = new ArrayList<>(versions.size());
+        for (UnfilteredRowIterator version : versions)
+        {
+            if (version == null)
+                continue;
+            if (!(version instanceof SerializedPartition))
+                return null;
+            toMerge.add(version);
+        }
+        return toMerge.isEmpty() ? null : new MergedPartition(toMerge);
+    }
+
+    private UnfilteredCursor cursor(SSTableReader sstable)
+    {
+        return cursors.computeIfAbsent(sstable, s -> new UnfilteredCursor(s.header,
+                                                                          new SerializationHelper(metadata,
+                                                                                                  s.descriptor.version.correspondingMessagingVersion(),
+                                                                                                  SerializationHelper.Flag.LOCAL)));
+    }
+
+    private class MergedPartition extends AbstractUnfilteredRowIterator
+    {
+        private final List<UnfilteredRowIterator> versions;
+        private final UnfilteredCursor[] sources;
+        private final SSTableReader[] sstables;
+        // the indexes of the sources positioned on the unfiltered being merged
+        private final int[] merged;
+
+        private final RangeTombstoneMarker.Merger markerMerger;
+        private final Row.Builder sortedBuilder = BTreeRow.sortedBuilder();
+        private final Row.Builder unsortedBuilder = BTreeRow.unsortedBuilder();
+        // the complex deletions of the row being merged, and the cells of its complex columns, that are only added to
+        // the row once the deletions of all the versions are known
+        private final Map<ColumnMetadata, DeletionTime> complexDeletions = new HashMap<>();
+        private final List<Cell> complexCells = new ArrayList<>();
+
+        private MergedPartition(List<UnfilteredRowIterator> versions)
+        {
+            super(CursorPartitionMerger.this.metadata,
+                  versions.get(0).partitionKey(),
+                  mergePartitionLevelDeletions(versions),
+                  CursorPartitionMerger.this.metadata.regularAndStaticColumns(),
+                  mergeStaticRows(versions, mergePartitionLevelDeletions(versions)),
+                  false,
+                  mergeStats(versions));
+            this.versions = versions;
+
+            int size = versions.size();
+            sources = new UnfilteredCursor[size];
+            sstables = new SSTableReader[size];
+            merged = new int[size];
+            markerMerger = new RangeTombstoneMarker.Merger(size, partitionLevelDeletion, false);
+            for (int i = 0; i < size; i++)
+            {
+                SerializedPartition partition = (SerializedPartition) versions.get(i);
+                sstables[i] = partition.sstable();
+                sources[i] = cursor(sstables[i]);
+                sources[i].reset(partition.unfilteredsInput());
+            }
+
+            for (int i = 0; i < size; i++)
+                advance(i);
+        }
+
+        private void advance(int i)
+        {
+            try
+            {
+                sources[i].advance();
+            }
+            catch (IOException e)
+            {
+                sstables[i].markSuspect();
+                throw new CorruptSSTableException(e, sstables[i].getFilename());
+            }
+        }
+
+        protected Unfiltered computeNext()
+        {
+            ClusteringComparator comparator = metadata.comparator;
+            while (true)
+            {
+                UnfilteredCursor next = null;
+                int count = 0;
+                for (int i = 0; i < sources.length; i++)
+                {
+                    UnfilteredCursor source = sources[i];
+                    if (source.kind() == null)
+                        continue;
+
+                    int cmp = next == null ? -1 : source.compareClustering(next, comparator);
+                    if (cmp < 0)
+                    {
+                        next = source;
+                        count = 0;
+                    }
+                    if (cmp <= 0)
+                        merged[count++] = i;
+                }
+
+                if (next == null)
+                    return endOfData();
+
+                Unfiltered unfiltered;
+                try
+                {
+                    unfiltered = next.kind() == Unfiltered.Kind.ROW ? mergeRows(count) : mergeMarkers(count);
+                }
+                catch (IOException e)
+                {
+                    // not knowing which of the sstables is corrupted, they are all suspect
+                    for (int j = 0; j < count; j++)
+                        sstables[merged[j]].markSuspect();
+                    throw new CorruptSSTableException(e, sstables[merged[0]].getFilename());
+                }
+
+                for (int j = 0; j < count; j++)
+                    advance(merged[j]);
+
+                if (unfiltered != null)
+                    return unfiltered;
+            }
+        }
+
+        private RangeTombstoneMarker mergeMarkers(int count)
+        {
+            markerMerger.clear();
+            for (int j = 0; j < count; j++)
+                markerMerger.add(merged[j], sources[merged[j]].marker());
+            return markerMerger.merge();
+        }
+
+        /**
+         * Builds the merged row the same way {@link Row.Merger#merge} would.
+         */
+        private Row mergeRows(int count) throws IOException
+        {
+            DeletionTime activeDeletion = markerMerger.activeDeletion();
+
+            LivenessInfo rowInfo = LivenessInfo.EMPTY;
+            Row.Deletion rowDeletion = Row.Deletion.LIVE;
+            for (int j = 0; j < count; j++)
+            {
+                UnfilteredCursor source = sources[merged[j]];
+                LivenessInfo info = source.rowLivenessInfo();
+                if (info.supersedes(rowInfo))
+                    rowInfo = info;
+                Row.Deletion deletion = source.rowDeletion();
+                if (deletion.supersedes(rowDeletion))
+                    rowDeletion = deletion;
+            }
+
+            if (rowDeletion.isShadowedBy(rowInfo))
+                rowDeletion = Row.Deletion.LIVE;
+
+            if (rowDeletion.supersedes(activeDeletion))
+                activeDeletion = rowDeletion.time();
+            else
+                rowDeletion = Row.Deletion.LIVE;
+
+            if (activeDeletion.deletes(rowInfo))
+                rowInfo = LivenessInfo.EMPTY;
+
+            // the cells of the different versions are interleaved, and have to be sorted and reconciled
+            Row.Builder builder = count == 1 ? sortedBuilder : unsortedBuilder;
+            builder.newRow(sources[merged[0]].copyClustering());
+            builder.addPrimaryKeyLivenessInfo(rowInfo);
+            builder.addRowDeletion(rowDeletion);
+            for (int j = 0; j < count; j++)
+            {
+                UnfilteredCursor source = sources[merged[j]];
+                while (source.advanceColumn())
+                {
+                    ColumnMetadata column = source.column();
+                    if (column.isSimple())
+                    {
+                        while (source.advanceCell())
+                        {
+                            if (!activeDeletion.deletes(source.timestamp()))
+                                builder.addCell(source.copyCell());
+                        }
+                        continue;
+                    }
+
+                    // as in Row.Merger.ColumnDataReducer, a complex deletion of any version deletes the cells of all
+                    // of them, ties included, so with several versions the cells are only filtered once all are known
+                    DeletionTime complexDeletion = source.complexDeletion();
+                    if (count > 1)
+                        complexDeletions.merge(column, complexDeletion, (d1, d2) -> d1.supersedes(d2) ? d1 : d2);
+                    else if (complexDeletion.supersedes(activeDeletion))
+                        builder.addComplexDeletion(column, complexDeletion);
+                    DeletionTime cellDeletion = count == 1 && complexDeletion.supersedes(activeDeletion) ? complexDeletion : activeDeletion;
+
+                    while (source.advanceCell())
+                    {
+                        if (cellDeletion.deletes(source.timestamp()))
+                            continue;
+                        if (count == 1)
+                            builder.addCell(source.copyCell());
+                        else
+                            complexCells.add(source.copyCell());
+                    }
+                }
+            }
+
+            if (!complexDeletions.isEmpty() || !complexCells.isEmpty())
+                addComplexData(builder, activeDeletion);
+
+            // the row may be empty because of the active deletion, or because all of its cells were of dropped columns
+            Row row = builder.build();
+            return row.isEmpty() ? null : row;
+        }
+
+        private void addComplexData(Row.Builder builder, DeletionTime activeDeletion)
+        {
+            for (Map.Entry<ColumnMetadata, DeletionTime> entry : complexDeletions.entrySet())
+            {
+                if (entry.getValue().supersedes(activeDeletion))
+                    builder.addComplexDeletion(entry.getKey(), entry.getValue());
+            }
+
+            for (Cell cell : complexCells)
+            {
+                DeletionTime complexDeletion = complexDeletions.get(cell.column());
+                if (complexDeletion == null || !complexDeletion.deletes(cell))
+                    builder.addCell(cell);
+            }
+            complexDeletions.clear();
+            complexCells.clear();
+        }
+
+        public void close()
+        {
+            // as UnfilteredRowIterators#merge does
+            for (UnfilteredRowIterator version : versions)
+                version.close();
+        }
+    }
+
+    private static DeletionTime mergePartitionLevelDeletions(List<UnfilteredRowIterator> versions)
+    {
+        DeletionTime deletion = DeletionTime.LIVE;
+        for (UnfilteredRowIterator version : versions)
+        {
+            if (!deletion.supersedes(version.partitionLevelDeletion()))
+                deletion = version.partitionLevelDeletion();
+        }
+        return deletion;
+    }
+
+    private static EncodingStats mergeStats(List<UnfilteredRowIterator> versions)
+    {
+        EncodingStats stats = EncodingStats.NO_STATS;
+        for (UnfilteredRowIterator version : versions)
+            stats = stats.mergeWith(version.stats());
+        return stats;
+    }
+
+    private static Row mergeStaticRows(List<UnfilteredRowIterator> versions, DeletionTime partitionDeletion)
+    {
+        Columns columns = versions.get(0).metadata().staticColumns();
+        if (columns.isEmpty() || versions.stream().allMatch(version -> version.staticRow().isEmpty()))
+            return Rows.EMPTY_STATIC_ROW;
+
+        Row.Merger merger = new Row.Merger(versions.size(), columns.hasComplex());
+        for (int i = 0; i < versions.size(); i++)
+            merger.add(i, versions.get(i).staticRow());
+
+        Row merged = merger.merge(partitionDeletion);
+        return merged == null ? Rows.EMPTY_STATIC_ROW : merged;
+    }
+}
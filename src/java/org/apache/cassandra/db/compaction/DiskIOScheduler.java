@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.RateLimiter;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Directories;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.metrics.DataDirectoryMetrics;
+import org.apache.cassandra.service.StorageService;
+
+/**
+ * Schedules the disk I/O of compactions per data directory, on top of the global compaction throughput:
+ * <ul>
+ *   <li>the compactions of each data directory share a throughput budget of
+ *   {@code compaction_throughput_per_disk_mb_per_sec}, so that compactions on a busy disk are throttled without
+ *   slowing down the ones on the others,</li>
+ *   <li>flushes have priority over compactions: the compactions of a data directory pause while a memtable is being
+ *   flushed to it, for at most {@code compaction_pause_for_flush_in_ms} per period during which flushes are running,
+ *   however many times they try to acquire their budget, so that they can't be starved.</li>
+ * </ul>
+ * Since compaction strategies are split per data directory, a compaction reads and writes (almost) all of its data on
+ * a single one, to which all of its I/O is accounted.
+ */
+public class DiskIOScheduler
+{
+    public static final DiskIOScheduler instance = new DiskIOScheduler(Directories.dataDirectories);
+
+    private final Map<Directories.DataDirectory, Disk> disks;
+
+    @VisibleForTesting
+    DiskIOScheduler(Directories.DataDirectory[] directories)
+    {
+        ImmutableMap.Builder<Directories.DataDirectory, Disk> builder = ImmutableMap.builder();
+        for (Directories.DataDirectory directory : directories)
+            builder.put(directory, new Disk(directory));
+        disks = builder.build();
+    }
+
+    /**
+     * @return the data directory holding most of the given sstables, that the I/O of their compaction is accounted to
+     */
+    public static Directories.DataDirectory compactionDirectory(ColumnFamilyStore cfs, Collection<SSTableReader> sstables)
+    {
+        Map<Directories.DataDirectory, Long> sizes = new HashMap<>();
+        Directories.DataDirectory largest = null;
+        long largestSize = -1;
+        for (SSTableReader sstable : sstables)
+        {
+            Directories.DataDirectory directory = cfs.getDirectories().getDataDirectoryForFile(sstable.descriptor.directory);
+            if (directory == null)
+                continue;
+
+            long size = sizes.merge(directory, sstable.onDiskLength(), Long::sum);
+            if (size > largestSize)
+            {
+                largest = directory;
+                largestSize = size;
+            }
+        }
+        return largest;
+    }
+
+    public void flushStarted(Directories.DataDirectory directory)
+    {
+        Disk disk = disk(directory);
+        if (disk != null)
+            disk.flushStarted(TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getCompactionPauseForFlush()));
+    }
+
+    public void flushFinished(Directories.DataDirectory directory, long bytesFlushed)
+    {
+        Disk disk = disk(directory);
+        if (disk != null)
+        {
+            disk.metrics.flushedBytes.mark(bytesFlushed);
+            disk.flushFinished();
+        }
+    }
+
+    /**
+     * Accounts bytes read by a compaction to the given data directory, after pausing while flushes are writing to it
+     * and waiting for its throughput budget.
+     */
+    public void acquireForCompaction(Directories.DataDirectory directory, long bytes)
+    {
+        Disk disk = disk(directory);
+        if (disk == null)
+            return;
+
+        disk.metrics.compactionBytes.mark(bytes);
+
+        if (disk.activeFlushes > 0)
+        {
+            long paused = disk.awaitFlushes();
+            if (paused > 0)
+                disk.metrics.compactionPausedForFlush.update(paused, TimeUnit.NANOSECONDS);
+        }
+
+        if (disk.updateRate(DatabaseDescriptor.getCompactionThroughputPerDiskMbPerSec()))
+        {
+            long start = System.nanoTime();
+            for (; bytes >= Integer.MAX_VALUE; bytes -= Integer.MAX_VALUE)
+                disk.limiter.acquire(Integer.MAX_VALUE);
+            if (bytes > 0)
+                disk.limiter.acquire((int) bytes);
+            disk.metrics.compactionThrottled.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @VisibleForTesting
+    int activeFlushes(Directories.DataDirectory directory)
+    {
+        Disk disk = disk(directory);
+        return disk == null ? 0 : disk.activeFlushes;
+    }
+
+    private Disk disk(Directories.DataDirectory directory)
+    {
+        return directory == null ? null : disks.get(directory);
+    }
+
+    private static class Disk
+    {
+        private final RateLimiter limiter = RateLimiter.create(Double.MAX_VALUE);
+        private final DataDirectoryMetrics metrics;
+        // only modified while holding the monitor, so that compactions waiting for it to reach 0 are notified
+        private volatile int activeFlushes;
+        // the time until which compactions pause for the running flushes, set when the first of them starts
+        private volatile long pauseDeadlineNanos;
+
+        private Disk(Directories.DataDirectory directory)
+        {
+            metrics = new DataDirectoryMetrics(directory.location.getAbsolutePath(), () -> activeFlushes);
+        }
+
+        private synchronized void flushStarted(long pauseNanos)
+        {
+            if (activeFlushes++ == 0)
+                pauseDeadlineNanos = System.nanoTime() + pauseNanos;
+        }
+
+        private synchronized void flushFinished()
+        {
+            if (--activeFlushes == 0)
+                notifyAll();
+        }
+
+        /**
+         * Waits until no flush is running, or until the pause deadline of the running flushes, so that compactions
+         * that were already paused for them don't pause again.
+         *
+         * @return the time waited, in nanoseconds
+         */
+        private synchronized long awaitFlushes()
+        {
+            long start = System.nanoTime();
+            long remaining = pauseDeadlineNanos - start;
+            if (remaining <= 0)
+                return 0;
+            try
+            {
+                while (activeFlushes > 0 && remaining > 0)
+                {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    remaining = pauseDeadlineNanos - System.nanoTime();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return System.nanoTime() - start;
+        }
+
+        /**
+         * Sets the rate of the limiter to the given throughput, in the same way as the global compaction throughput.
+         *
+         * @return whether the throughput is limited
+         */
+        private boolean updateRate(double throughputMbPerSec)
+        {
+            if (throughputMbPerSec == 0 || StorageService.instance.isBootstrapMode())
+                return false;
+
+            double throughput = throughputMbPerSec * 1024.0 * 1024.0;
+            if (limiter.getRate() != throughput)
+                limiter.setRate(throughput);
+            return true;
+        }
+    }
+}
@@ -106,6 +106,23 @@ public class SizeTieredCompactionStrategy extends AbstractCompactionStrategy
         return Collections.singletonList(Collections.max(sstablesWithTombstones, SSTableReader.sizeComparator));
     }
 
+    /**
+     * Plans a compaction of an sstable worth dropping tombstones together with the sstables it overlaps, which is only
+     * done if enabled and when nothing else is being compacted, as it may rewrite a lot of data.
+     */
+    private synchronized TombstoneCompactionPlanner.Plan getNextTombstoneCompaction(int gcBefore)
+    {
+        if (!sizeTieredOptions.overlappingTombstoneCompaction
+            || disableTombstoneCompactions
+            || CompactionController.NEVER_PURGE_TOMBSTONES
+            || cfs.getNeverPurgeTombstones()
+            || CompactionManager.instance.getActiveCompactions() > 0)
+            return null;
+
+        Iterable<SSTableReader> candidates = filterSuspectSSTables(filter(cfs.getUncompactingSSTables(), sstables::contains));
+        return TombstoneCompactionPlanner.plan(cfs, candidates, gcBefore, tombstoneThreshold, tombstoneCompactionInterval, cfs.getMaximumCompactionThreshold());
+    }
+
 
     /**
      * @param buckets list of buckets from which to return the most interesting, where "interesting" is the total hotness for reads
@@ -182,9 +199,15 @@ public class SizeTieredCompactionStrategy extends AbstractCompactionStrategy
         while (true)
         {
             List<SSTableReader> hottestBucket = getNextBackgroundSSTables(gcBefore);
+            TombstoneCompactionPlanner.Plan tombstoneCompaction = null;
 
             if (hottestBucket.isEmpty())
-                return null;
+            {
+                tombstoneCompaction = getNextTombstoneCompaction(gcBefore);
+                if (tombstoneCompaction == null)
+                    return null;
+                hottestBucket = tombstoneCompaction.sstables;
+            }
 
             // Already tried acquiring references without success. It means there is a race with
             // the tracker but candidate SSTables were not yet replaced in the compaction strategy manager
@@ -198,7 +221,11 @@ public class SizeTieredCompactionStrategy extends AbstractCompactionStrategy
 
             LifecycleTransaction transaction = cfs.getTracker().tryModify(hottestBucket, OperationType.COMPACTION);
             if (transaction != null)
-                return new CompactionTask(cfs, transaction, gcBefore);
+            {
+                return tombstoneCompaction == null
+                       ? new CompactionTask(cfs, transaction, gcBefore)
+                       : new TombstoneCompactionTask(cfs, transaction, gcBefore, tombstoneCompaction.expectedPurgedBytes);
+            }
             previousCandidate = hottestBucket;
         }
     }
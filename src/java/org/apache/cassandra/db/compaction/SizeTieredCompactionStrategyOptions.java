@@ -26,13 +26,16 @@ public final class SizeTieredCompactionStrategyOptions
     protected static final long DEFAULT_MIN_SSTABLE_SIZE = 50L * 1024L * 1024L;
     protected static final double DEFAULT_BUCKET_LOW = 0.5;
     protected static final double DEFAULT_BUCKET_HIGH = 1.5;
+    protected static final boolean DEFAULT_OVERLAPPING_TOMBSTONE_COMPACTION = false;
     protected static final String MIN_SSTABLE_SIZE_KEY = "min_sstable_size";
     protected static final String BUCKET_LOW_KEY = "bucket_low";
     protected static final String BUCKET_HIGH_KEY = "bucket_high";
+    protected static final String OVERLAPPING_TOMBSTONE_COMPACTION_KEY = "overlapping_tombstone_compaction";
 
     protected long minSSTableSize;
     protected double bucketLow;
     protected double bucketHigh;
+    protected boolean overlappingTombstoneCompaction;
 
     public SizeTieredCompactionStrategyOptions(Map<String, String> options)
     {
@@ -42,6 +45,8 @@ public final class SizeTieredCompactionStrategyOptions
         bucketLow = optionValue == null ? DEFAULT_BUCKET_LOW : Double.parseDouble(optionValue);
         optionValue = options.get(BUCKET_HIGH_KEY);
         bucketHigh = optionValue == null ? DEFAULT_BUCKET_HIGH : Double.parseDouble(optionValue);
+        optionValue = options.get(OVERLAPPING_TOMBSTONE_COMPACTION_KEY);
+        overlappingTombstoneCompaction = optionValue == null ? DEFAULT_OVERLAPPING_TOMBSTONE_COMPACTION : Boolean.parseBoolean(optionValue);
     }
 
     public SizeTieredCompactionStrategyOptions()
@@ -49,6 +54,7 @@ public final class SizeTieredCompactionStrategyOptions
         minSSTableSize = DEFAULT_MIN_SSTABLE_SIZE;
         bucketLow = DEFAULT_BUCKET_LOW;
         bucketHigh = DEFAULT_BUCKET_HIGH;
+        overlappingTombstoneCompaction = DEFAULT_OVERLAPPING_TOMBSTONE_COMPACTION;
     }
 
     private static double parseDouble(Map<String, String> options, String key, double defaultValue) throws ConfigurationException
@@ -88,9 +94,17 @@ public final class SizeTieredCompactionStrategyOptions
                                                            BUCKET_HIGH_KEY, bucketHigh, BUCKET_LOW_KEY, bucketLow));
         }
 
+        optionValue = options.get(OVERLAPPING_TOMBSTONE_COMPACTION_KEY);
+        if (optionValue != null && !optionValue.equalsIgnoreCase("true") && !optionValue.equalsIgnoreCase("false"))
+        {
+            throw new ConfigurationException(String.format("'%s' should be either 'true' or 'false', not '%s'",
+                                                           OVERLAPPING_TOMBSTONE_COMPACTION_KEY, optionValue));
+        }
+
         uncheckedOptions.remove(MIN_SSTABLE_SIZE_KEY);
         uncheckedOptions.remove(BUCKET_LOW_KEY);
         uncheckedOptions.remove(BUCKET_HIGH_KEY);
+        uncheckedOptions.remove(OVERLAPPING_TOMBSTONE_COMPACTION_KEY);
 
         return uncheckedOptions;
     }
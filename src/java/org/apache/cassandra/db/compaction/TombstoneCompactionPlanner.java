@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Iterables;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.lifecycle.SSTableIntervalTree;
+import org.apache.cassandra.db.lifecycle.View;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+
+/**
+ * Plans compactions of sstables with many droppable tombstones together with the sstables they overlap.
+ *
+ * The tombstones of an sstable can only be purged if the data they shadow is compacted along, so a single sstable
+ * compaction (see {@link AbstractCompactionStrategy#worthDroppingTombstones}) is often unable to purge anything when
+ * the sstable overlaps others, which is typical of queue-like tables. Rather than giving up, each sstable worth dropping
+ * tombstones is grouped with all the sstables it overlaps, and the group with the highest density of purgeable
+ * tombstones, i.e. the most bytes expected to be purged for the bytes to compact, is picked.
+ *
+ * As for single sstable tombstone compactions, the expected purged bytes are estimates derived from the droppable
+ * tombstone histograms of the sstables.
+ */
+final class TombstoneCompactionPlanner
+{
+    private TombstoneCompactionPlanner()
+    {
+    }
+
+    /**
+     * @param candidates the sstables that can be compacted together
+     * @param maxThreshold the maximum number of sstables to compact at once
+     * @return the group of candidates with the highest density of purgeable tombstones, if above the threshold and
+     * made of at least 2 sstables, or null
+     */
+    static Plan plan(ColumnFamilyStore cfs,
+                     Iterable<SSTableReader> candidates,
+                     int gcBefore,
+                     float tombstoneThreshold,
+                     long tombstoneCompactionInterval,
+                     int maxThreshold)
+    {
+        Set<SSTableReader> compactable = new HashSet<>();
+        Iterables.addAll(compactable, candidates);
+        if (compactable.size() < 2)
+            return null;
+
+        SSTableIntervalTree tree = SSTableIntervalTree.build(cfs.getLiveSSTables());
+        long now = System.currentTimeMillis();
+        Plan best = null;
+        for (SSTableReader sstable : compactable)
+        {
+            // same safeguards against compacting the same sstables again and again as single sstable compactions
+            if (now < sstable.getCreationTimeFor(Component.DATA) + tombstoneCompactionInterval * 1000)
+                continue;
+            if (sstable.getEstimatedDroppableTombstoneRatio(gcBefore) <= tombstoneThreshold)
+                continue;
+
+            // the tombstones can't be purged if any of the overlapping sstables can't be compacted with the sstable
+            List<SSTableReader> group = View.sstablesInBounds(sstable.first, sstable.last, tree);
+            if (group.size() < 2 || group.size() > maxThreshold || !compactable.containsAll(group))
+                continue;
+
+            Plan plan = new Plan(group, tree, gcBefore);
+            if (plan.density() > tombstoneThreshold && (best == null || plan.density() > best.density()))
+                best = plan;
+        }
+        return best;
+    }
+
+    static final class Plan
+    {
+        final List<SSTableReader> sstables;
+        final long expectedPurgedBytes;
+        final long totalBytes;
+
+        private Plan(List<SSTableReader> sstables, SSTableIntervalTree tree, int gcBefore)
+        {
+            this.sstables = new ArrayList<>(sstables);
+            Set<SSTableReader> group = new HashSet<>(sstables);
+            long expected = 0;
+            long total = 0;
+            for (SSTableReader sstable : sstables)
+            {
+                total += sstable.onDiskLength();
+                // other sstables of the group may overlap sstables outside of it, which keep their tombstones alive
+                if (group.containsAll(View.sstablesInBounds(sstable.first, sstable.last, tree)))
+                    expected += (long) (Math.min(1, sstable.getEstimatedDroppableTombstoneRatio(gcBefore)) * sstable.onDiskLength());
+            }
+            expectedPurgedBytes = expected;
+            totalBytes = total;
+        }
+
+        double density()
+        {
+            return totalBytes == 0 ? 0 : (double) expectedPurgedBytes / totalBytes;
+        }
+    }
+}
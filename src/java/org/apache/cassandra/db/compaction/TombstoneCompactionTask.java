@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.metrics.CompactionMetrics;
+import org.apache.cassandra.utils.FBUtilities;
+
+/**
+ * Compaction of sstables planned by {@link TombstoneCompactionPlanner}, which reports how many bytes it was expected
+ * to purge and how many it actually did, so that operators can tell whether these compactions are worth their cost.
+ */
+public class TombstoneCompactionTask extends CompactionTask
+{
+    private final long expectedPurgedBytes;
+
+    public TombstoneCompactionTask(ColumnFamilyStore cfs, LifecycleTransaction txn, int gcBefore, long expectedPurgedBytes)
+    {
+        super(cfs, txn, gcBefore);
+        this.expectedPurgedBytes = expectedPurgedBytes;
+    }
+
+    @Override
+    protected void compacted(long inputSize, long outputSize)
+    {
+        // fully expired sstables are dropped without being compacted, but their bytes are purged all the same
+        long purgedBytes = Math.max(0, SSTableReader.getTotalBytes(transaction.originals()) - outputSize);
+        CompactionMetrics metrics = CompactionManager.instance.getMetrics();
+        metrics.tombstoneCompactionsExpectedPurgedBytes.inc(expectedPurgedBytes);
+        metrics.tombstoneCompactionsPurgedBytes.inc(purgedBytes);
+        logger.debug("Tombstone compaction ({}) of {} sstables of {}.{} was expected to purge ~{}, purged {}",
+                     transaction.opId(),
+                     transaction.originals().size(),
+                     cfs.keyspace.getName(),
+                     cfs.getTableName(),
+                     FBUtilities.prettyPrintMemory(expectedPurgedBytes),
+                     FBUtilities.prettyPrintMemory(purgedBytes));
+    }
+}
@@ -428,23 +428,34 @@ public abstract class AbstractType<T> implements Comparator<ByteBuffer>, Assignm
 
     public ByteBuffer readValue(DataInputPlus in, int maxValueSize) throws IOException
     {
-        int length = valueLengthIfFixed();
+        return ByteBufferUtil.read(in, readValueLength(in, maxValueSize));
+    }
+
+    /**
+     * Reads a value like {@link #readValue(DataInputPlus, int)}, but reusing the provided buffer if it is large enough,
+     * see {@link ByteBufferUtil#read(java.io.DataInput, int, ByteBuffer)}.
+     */
+    public ByteBuffer readValue(DataInputPlus in, int maxValueSize, ByteBuffer reusable) throws IOException
+    {
+        return ByteBufferUtil.read(in, readValueLength(in, maxValueSize), reusable);
+    }
 
+    private int readValueLength(DataInputPlus in, int maxValueSize) throws IOException
+    {
+        int length = valueLengthIfFixed();
         if (length >= 0)
-            return ByteBufferUtil.read(in, length);
-        else
-        {
-            int l = (int)in.readUnsignedVInt();
-            if (l < 0)
-                throw new IOException("Corrupt (negative) value length encountered");
+            return length;
 
-            if (l > maxValueSize)
-                throw new IOException(String.format("Corrupt value length %d encountered, as it exceeds the maximum of %d, " +
-                                                    "which is set via max_value_size_in_mb in cassandra.yaml",
-                                                    l, maxValueSize));
+        int l = (int)in.readUnsignedVInt();
+        if (l < 0)
+            throw new IOException("Corrupt (negative) value length encountered");
 
-            return ByteBufferUtil.read(in, l);
-        }
+        if (l > maxValueSize)
+            throw new IOException(String.format("Corrupt value length %d encountered, as it exceeds the maximum of %d, " +
+                                                "which is set via max_value_size_in_mb in cassandra.yaml",
+                                                l, maxValueSize));
+
+        return l;
     }
 
     public void skipValue(DataInputPlus in) throws IOException
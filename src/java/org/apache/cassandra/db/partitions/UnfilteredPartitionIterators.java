@@ -48,6 +48,18 @@ public abstract class UnfilteredPartitionIterators
     public interface MergeListener
     {
         public UnfilteredRowIterators.MergeListener getRowMergeListener(DecoratedKey partitionKey, List<UnfilteredRowIterator> versions);
+
+        /**
+         * Called after {@link #getRowMergeListener}, to let the listener merge the versions of the partition itself.
+         *
+         * @param versions the versions of the partition, {@code null} for the iterators that don't have it
+         * @return the merged partition, or {@code null} to merge the versions with {@link UnfilteredRowIterators#merge}
+         */
+        public default UnfilteredRowIterator mergePartition(DecoratedKey partitionKey, List<UnfilteredRowIterator> versions)
+        {
+            return null;
+        }
+
         public void close();
 
         public static MergeListener NOOP = new MergeListener()
@@ -140,6 +152,9 @@ public abstract class UnfilteredPartitionIterators
             protected UnfilteredRowIterator getReduced()
             {
                 UnfilteredRowIterators.MergeListener rowListener = listener.getRowMergeListener(partitionKey, toMerge);
+                UnfilteredRowIterator merged = listener.mergePartition(partitionKey, toMerge);
+                if (merged != null)
+                    return merged;
 
                 // Make a single empty iterator object to merge, we don't need toMerge.size() copiess
                 UnfilteredRowIterator empty = null;
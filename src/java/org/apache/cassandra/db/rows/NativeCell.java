@@ -69,10 +69,40 @@ public class NativeCell extends AbstractCell
                       CellPath path)
     {
         super(column);
+        this.peer = allocate(allocator, writeOp, timestamp, ttl, localDeletionTime, value, path);
+    }
+
+    /**
+     * Wraps a cell previously written off-heap by {@link #allocate(NativeAllocator, OpOrder.Group, Cell)}.
+     */
+    NativeCell(ColumnMetadata column, long peer)
+    {
+        super(column);
+        this.peer = peer;
+    }
+
+    /**
+     * Writes the given cell off-heap, without creating a flyweight for it.
+     *
+     * @return the address of the written cell
+     */
+    static long allocate(NativeAllocator allocator, OpOrder.Group writeOp, Cell cell)
+    {
+        assert cell.column().isComplex() == (cell.path() != null);
+        return allocate(allocator, writeOp, cell.timestamp(), cell.ttl(), cell.localDeletionTime(), cell.value(), cell.path());
+    }
+
+    private static long allocate(NativeAllocator allocator,
+                                 OpOrder.Group writeOp,
+                                 long timestamp,
+                                 int ttl,
+                                 int localDeletionTime,
+                                 ByteBuffer value,
+                                 CellPath path)
+    {
         long size = simpleSize(value.remaining());
 
         assert value.order() == ByteOrder.BIG_ENDIAN;
-        assert column.isComplex() == (path != null);
         if (path != null)
         {
             assert path.size() == 1;
@@ -83,7 +113,7 @@ public class NativeCell extends AbstractCell
             throw new IllegalStateException();
 
         // cellpath? : timestamp : ttl : localDeletionTime : length : <data> : [cell path length] : [<cell path data>]
-        peer = allocator.allocate((int) size, writeOp);
+        long peer = allocator.allocate((int) size, writeOp);
         MemoryUtil.setByte(peer + HAS_CELLPATH, (byte)(path == null ? 0 : 1));
         MemoryUtil.setLong(peer + TIMESTAMP, timestamp);
         MemoryUtil.setInt(peer + TTL, ttl);
@@ -100,6 +130,7 @@ public class NativeCell extends AbstractCell
             MemoryUtil.setInt(offset, pathbuffer.remaining());
             MemoryUtil.setBytes(offset + 4, pathbuffer);
         }
+        return peer;
     }
 
     private static long simpleSize(int length)
@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.rows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.filter.ColumnFilter;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.SearchIterator;
+import org.apache.cassandra.utils.btree.BTree;
+import org.apache.cassandra.utils.btree.UpdateFunction;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.memory.MemoryUtil;
+import org.apache.cassandra.utils.memory.NativeAllocator;
+
+/**
+ * A row whose structure, and not only its values, lives off-heap.
+ *
+ * A {@link BTreeRow} cloned by a {@link NativeAllocator} keeps its values off-heap, but still references a btree of
+ * {@link NativeCell}, a {@link LivenessInfo} and a {@link Row.Deletion} on heap, i.e. a few objects per cell that
+ * live as long as the memtable. A native row instead writes the liveness info, the deletion, and the column and cell
+ * peers of the row into a single off-heap block, so that only the row itself and its {@link NativeClustering} remain on
+ * heap. The accessors that can be answered from the block directly do so, such as the lookups and the iteration of
+ * cells, the others materialize a short-lived {@link BTreeRow} of {@link NativeCell} flyweights over the same off-heap
+ * cells.
+ *
+ * The columns are stored as ids of a {@link ColumnRegistry}, that is shared by all the rows of a memtable.
+ */
+public class NativeRow extends AbstractRow
+{
+    private static final long EMPTY_SIZE = ObjectSizes.measure(new NativeRow(Clustering.STATIC_CLUSTERING, null, 0));
+
+    // liveness timestamp : ttl : local expiration time : deletion time : local deletion time : shadowable :
+    // min local deletion time : data size : column count : <columns>
+    private static final long TIMESTAMP = 0;
+    private static final long TTL = 8;
+    private static final long EXPIRATION = 12;
+    private static final long MARKED_FOR_DELETE_AT = 16;
+    private static final long LOCAL_DELETION_TIME = 24;
+    private static final long SHADOWABLE = 28;
+    private static final long MIN_LOCAL_DELETION_TIME = 29;
+    private static final long DATA_SIZE = 33;
+    private static final long COUNT = 37;
+    private static final long COLUMNS = 41;
+
+    // a simple column is stored as column id : cell peer,
+    // a complex one as column id : deletion time : local deletion time : cell count : <cell peers>
+    private static final int SIMPLE_SIZE = 12;
+    private static final int COMPLEX_HEADER_SIZE = 20;
+
+    private final Clustering clustering;
+    private final ColumnRegistry registry;
+    private final long peer;
+
+    private NativeRow(Clustering clustering, ColumnRegistry registry, long peer)
+    {
+        this.clustering = clustering;
+        this.registry = registry;
+        this.peer = peer;
+    }
+
+    /**
+     * Copies the given row off-heap, values included.
+     */
+    public static NativeRow create(NativeAllocator allocator, OpOrder.Group writeOp, ColumnRegistry registry, BTreeRow row)
+    {
+        Clustering clustering = row.clustering();
+        if (clustering != Clustering.STATIC_CLUSTERING)
+            clustering = new NativeClustering(allocator, writeOp, clustering);
+
+        long size = COLUMNS;
+        for (ColumnData cd : row)
+            size += cd.column().isSimple() ? SIMPLE_SIZE : COMPLEX_HEADER_SIZE + 8L * ((ComplexColumnData) cd).cellsCount();
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException();
+
+        long peer = allocator.allocate((int) size, writeOp);
+        LivenessInfo info = row.primaryKeyLivenessInfo();
+        Deletion deletion = row.deletion();
+        MemoryUtil.setLong(peer + TIMESTAMP, info.timestamp());
+        MemoryUtil.setInt(peer + TTL, info.ttl());
+        MemoryUtil.setInt(peer + EXPIRATION, info.localExpirationTime());
+        MemoryUtil.setLong(peer + MARKED_FOR_DELETE_AT, deletion.time().markedForDeleteAt());
+        MemoryUtil.setInt(peer + LOCAL_DELETION_TIME, deletion.time().localDeletionTime());
+        MemoryUtil.setByte(peer + SHADOWABLE, (byte) (deletion.isShadowable() ? 1 : 0));
+        MemoryUtil.setInt(peer + MIN_LOCAL_DELETION_TIME, row.minLocalDeletionTime());
+        MemoryUtil.setInt(peer + DATA_SIZE, row.dataSize());
+        MemoryUtil.setInt(peer + COUNT, row.size());
+
+        long offset = peer + COLUMNS;
+        for (ColumnData cd : row)
+        {
+            MemoryUtil.setInt(offset, registry.id(cd.column()));
+            if (cd.column().isSimple())
+            {
+                MemoryUtil.setLong(offset + 4, NativeCell.allocate(allocator, writeOp, (Cell) cd));
+                offset += SIMPLE_SIZE;
+            }
+            else
+            {
+                ComplexColumnData complex = (ComplexColumnData) cd;
+                MemoryUtil.setLong(offset + 4, complex.complexDeletion().markedForDeleteAt());
+                MemoryUtil.setInt(offset + 12, complex.complexDeletion().localDeletionTime());
+                MemoryUtil.setInt(offset + 16, complex.cellsCount());
+                offset += COMPLEX_HEADER_SIZE;
+                for (Cell cell : complex)
+                {
+                    MemoryUtil.setLong(offset, NativeCell.allocate(allocator, writeOp, cell));
+                    offset += 8;
+                }
+            }
+        }
+        return new NativeRow(clustering, registry, peer);
+    }
+
+    /**
+     * @return an equivalent {@link BTreeRow} of flyweights over the off-heap cells of this row
+     */
+    private BTreeRow materialize()
+    {
+        int count = size();
+        List<ColumnData> columns = new ArrayList<>(count);
+        long offset = peer + COLUMNS;
+        for (int i = 0; i < count; i++, offset = nextColumn(offset))
+            columns.add(columnData(offset));
+        return BTreeRow.create(clustering,
+                               primaryKeyLivenessInfo(),
+                               deletion(),
+                               BTree.build(columns, UpdateFunction.noOp()),
+                               MemoryUtil.getInt(peer + MIN_LOCAL_DELETION_TIME));
+    }
+
+    /**
+     * @return the column stored at the given offset of the block
+     */
+    private ColumnMetadata column(long offset)
+    {
+        return registry.column(MemoryUtil.getInt(offset));
+    }
+
+    /**
+     * @return the offset of the column following the one at the given offset of the block
+     */
+    private long nextColumn(long offset)
+    {
+        return column(offset).isSimple()
+               ? offset + SIMPLE_SIZE
+               : offset + COMPLEX_HEADER_SIZE + 8L * MemoryUtil.getInt(offset + 16);
+    }
+
+    /**
+     * @return the data of the column stored at the given offset of the block, as flyweights over the off-heap cells
+     */
+    private ColumnData columnData(long offset)
+    {
+        ColumnMetadata column = column(offset);
+        if (column.isSimple())
+            return new NativeCell(column, MemoryUtil.getLong(offset + 4));
+
+        int cellsCount = MemoryUtil.getInt(offset + 16);
+        List<Cell> cells = new ArrayList<>(cellsCount);
+        long cellOffset = offset + COMPLEX_HEADER_SIZE;
+        for (int j = 0; j < cellsCount; j++, cellOffset += 8)
+            cells.add(new NativeCell(column, MemoryUtil.getLong(cellOffset)));
+        return new ComplexColumnData(column, BTree.build(cells, UpdateFunction.noOp()), complexDeletion(offset));
+    }
+
+    private static DeletionTime complexDeletion(long offset)
+    {
+        return new DeletionTime(MemoryUtil.getLong(offset + 4), MemoryUtil.getInt(offset + 12));
+    }
+
+    /**
+     * @return the offset of the given column in the block, or -1 if the row has no data for it
+     */
+    private long find(ColumnMetadata c)
+    {
+        int id = registry.idIfRegistered(c);
+        if (id < 0)
+            return -1;
+
+        long offset = peer + COLUMNS;
+        for (int i = 0, count = size(); i < count; i++, offset = nextColumn(offset))
+        {
+            if (MemoryUtil.getInt(offset) == id)
+                return offset;
+            // simple columns sort before complex ones
+            if (c.isSimple() && column(offset).isComplex())
+                return -1;
+        }
+        return -1;
+    }
+
+    public Clustering clustering()
+    {
+        return clustering;
+    }
+
+    public LivenessInfo primaryKeyLivenessInfo()
+    {
+        long timestamp = MemoryUtil.getLong(peer + TIMESTAMP);
+        if (timestamp == LivenessInfo.NO_TIMESTAMP)
+            return LivenessInfo.EMPTY;
+        return LivenessInfo.withExpirationTime(timestamp, MemoryUtil.getInt(peer + TTL), MemoryUtil.getInt(peer + EXPIRATION));
+    }
+
+    public Deletion deletion()
+    {
+        DeletionTime time = new DeletionTime(MemoryUtil.getLong(peer + MARKED_FOR_DELETE_AT), MemoryUtil.getInt(peer + LOCAL_DELETION_TIME));
+        if (time.isLive())
+            return Deletion.LIVE;
+        return new Deletion(time, MemoryUtil.getByte(peer + SHADOWABLE) != 0);
+    }
+
+    public int size()
+    {
+        return MemoryUtil.getInt(peer + COUNT);
+    }
+
+    public boolean isEmpty()
+    {
+        return MemoryUtil.getLong(peer + TIMESTAMP) == LivenessInfo.NO_TIMESTAMP
+               && deletion().isLive()
+               && size() == 0;
+    }
+
+    public boolean hasDeletion(int nowInSec)
+    {
+        return nowInSec >= MemoryUtil.getInt(peer + MIN_LOCAL_DELETION_TIME);
+    }
+
+    public int dataSize()
+    {
+        return MemoryUtil.getInt(peer + DATA_SIZE);
+    }
+
+    public long unsharedHeapSizeExcludingData()
+    {
+        return EMPTY_SIZE + clustering.unsharedHeapSizeExcludingData();
+    }
+
+    public Collection<ColumnMetadata> columns()
+    {
+        int count = size();
+        List<ColumnMetadata> columns = new ArrayList<>(count);
+        long offset = peer + COLUMNS;
+        for (int i = 0; i < count; i++, offset = nextColumn(offset))
+            columns.add(column(offset));
+        return columns;
+    }
+
+    public Iterator<ColumnData> iterator()
+    {
+        return new AbstractIterator<ColumnData>()
+        {
+            private final int count = size();
+            private int index;
+            private long offset = peer + COLUMNS;
+
+            protected ColumnData computeNext()
+            {
+                if (index++ == count)
+                    return endOfData();
+
+                ColumnData data = columnData(offset);
+                offset = nextColumn(offset);
+                return data;
+            }
+        };
+    }
+
+    public Cell getCell(ColumnMetadata c)
+    {
+        assert !c.isComplex();
+        long offset = find(c);
+        return offset < 0 ? null : new NativeCell(column(offset), MemoryUtil.getLong(offset + 4));
+    }
+
+    public Cell getCell(ColumnMetadata c, CellPath path)
+    {
+        assert c.isComplex();
+        ComplexColumnData cd = getComplexColumnData(c);
+        return cd == null ? null : cd.getCell(path);
+    }
+
+    public ComplexColumnData getComplexColumnData(ColumnMetadata c)
+    {
+        assert c.isComplex();
+        long offset = find(c);
+        return offset < 0 ? null : (ComplexColumnData) columnData(offset);
+    }
+
+    public Iterable<Cell> cells()
+    {
+        return Iterables.concat(Iterables.transform(this, cd -> cd.column().isSimple()
+                                                                ? Collections.singleton((Cell) cd)
+                                                                : (ComplexColumnData) cd));
+    }
+
+    public Iterable<Cell> cellsInLegacyOrder(TableMetadata metadata, boolean reversed)
+    {
+        return materialize().cellsInLegacyOrder(metadata, reversed);
+    }
+
+    public boolean hasComplexDeletion()
+    {
+        long offset = peer + COLUMNS;
+        for (int i = 0, count = size(); i < count; i++, offset = nextColumn(offset))
+        {
+            if (column(offset).isComplex() && !complexDeletion(offset).isLive())
+                return true;
+        }
+        return false;
+    }
+
+    public boolean hasComplex()
+    {
+        // simple columns sort before complex ones, and are of fixed size
+        long offset = peer + COLUMNS;
+        for (int i = 0, count = size(); i < count; i++, offset += SIMPLE_SIZE)
+        {
+            if (column(offset).isComplex())
+                return true;
+        }
+        return false;
+    }
+
+    public SearchIterator<ColumnMetadata, ColumnData> searchIterator()
+    {
+        return materialize().searchIterator();
+    }
+
+    public Row filter(ColumnFilter filter, TableMetadata metadata)
+    {
+        return materialize().filter(filter, metadata);
+    }
+
+    public Row filter(ColumnFilter filter, DeletionTime activeDeletion, boolean setActiveDeletionToRow, TableMetadata metadata)
+    {
+        return materialize().filter(filter, activeDeletion, setActiveDeletionToRow, metadata);
+    }
+
+    public Row purge(DeletionPurger purger, int nowInSec, boolean enforceStrictLiveness)
+    {
+        if (!hasDeletion(nowInSec))
+            return this;
+        return materialize().purge(purger, nowInSec, enforceStrictLiveness);
+    }
+
+    public Row withOnlyQueriedData(ColumnFilter filter)
+    {
+        return materialize().withOnlyQueriedData(filter);
+    }
+
+    public Row markCounterLocalToBeCleared()
+    {
+        return materialize().markCounterLocalToBeCleared();
+    }
+
+    public Row updateAllTimestamp(long newTimestamp)
+    {
+        return materialize().updateAllTimestamp(newTimestamp);
+    }
+
+    public Row withRowDeletion(DeletionTime deletion)
+    {
+        return materialize().withRowDeletion(deletion);
+    }
+
+    public void apply(Consumer<ColumnData> function, boolean reverse)
+    {
+        materialize().apply(function, reverse);
+    }
+
+    public void apply(Consumer<ColumnData> function, Predicate<ColumnData> stopCondition, boolean reverse)
+    {
+        materialize().apply(function, stopCondition, reverse);
+    }
+
+    /**
+     * Assigns ids to the columns of the rows of a memtable, so that they can be referenced from off-heap memory.
+     * Columns are only ever added, and there are few of them, so reads don't need any synchronization.
+     */
+    public static class ColumnRegistry
+    {
+        private final Map<ColumnMetadata, Integer> ids = new ConcurrentHashMap<>();
+        private volatile ColumnMetadata[] columns = new ColumnMetadata[0];
+
+        int id(ColumnMetadata column)
+        {
+            Integer id = ids.get(column);
+            return id != null ? id : register(column);
+        }
+
+        int idIfRegistered(ColumnMetadata column)
+        {
+            Integer id = ids.get(column);
+            return id == null ? -1 : id;
+        }
+
+        private synchronized int register(ColumnMetadata column)
+        {
+            Integer id = ids.get(column);
+            if (id != null)
+                return id;
+
+            ColumnMetadata[] newColumns = Arrays.copyOf(columns, columns.length + 1);
+            newColumns[columns.length] = column;
+            // publish the column before its id, so that a row referencing it can't be read before it is registered
+            columns = newColumns;
+            ids.put(column, columns.length - 1);
+            return columns.length - 1;
+        }
+
+        ColumnMetadata column(int id)
+        {
+            return columns[id];
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.rows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.filter.ColumnFilter;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.SearchIterator;
+import org.apache.cassandra.utils.btree.BTree;
+import org.apache.cassandra.utils.btree.UpdateFunction;
+import org.apache.cassandra.utils.memory.AbstractAllocator;
+
+/**
+ * A compact representation of dense rows, i.e. of rows made only of simple, live cells that share the same
+ * timestamp, ttl and local deletion time, as is typical of rows inserted at once in tables with a fixed schema.
+ *
+ * A {@link BTreeRow} references a cell object and a buffer object per column, a packed row instead stores the values
+ * of all of its cells in a single buffer, along with their offsets, and their shared timestamp, ttl and local deletion
+ * time once. The columns of the row are referenced through an interned {@link Columns} shared by all the rows with
+ * the same columns.
+ *
+ * The accessors that can be answered from the packed values directly do so, including the iteration of the cells used
+ * to serialize the row, the others materialize a short-lived {@link BTreeRow} of {@link BufferCell} over the same
+ * values.
+ *
+ * Rows are only packed by the {@link Builder} that memtables use to copy the rows written to them, which checks
+ * whether the row is dense as its cells are added. Rows deserialized from sstables or from messages aren't packed:
+ * those that are written to a memtable are packed as they are copied into it, and the others are short-lived.
+ */
+public class PackedRow extends AbstractRow
+{
+    private static final long EMPTY_SIZE = ObjectSizes.measure(new PackedRow(Clustering.EMPTY, LivenessInfo.EMPTY, Columns.NONE, 0, 0, 0, null));
+
+    /** Rows with fewer cells aren't worth packing */
+    private static final int MIN_PACKED_CELLS = 2;
+
+    private static final Interner<Columns> columnsInterner = Interners.newWeakInterner();
+
+    private final Clustering clustering;
+    private final LivenessInfo primaryKeyLivenessInfo;
+    private final Columns columns;
+    private final long timestamp;
+    private final int ttl;
+    private final int localDeletionTime;
+    // the end offset of each value, relative to the first value : <values>
+    private final ByteBuffer values;
+
+    private PackedRow(Clustering clustering,
+                      LivenessInfo primaryKeyLivenessInfo,
+                      Columns columns,
+                      long timestamp,
+                      int ttl,
+                      int localDeletionTime,
+                      ByteBuffer values)
+    {
+        this.clustering = clustering;
+        this.primaryKeyLivenessInfo = primaryKeyLivenessInfo;
+        this.columns = columns;
+        this.timestamp = timestamp;
+        this.ttl = ttl;
+        this.localDeletionTime = localDeletionTime;
+        this.values = values;
+    }
+
+    /**
+     * Copies the given row into a packed row, using the given allocator for its clustering and values.
+     *
+     * @return the packed row, or null if the given row isn't dense
+     */
+    public static PackedRow tryPack(Row row, AbstractAllocator allocator)
+    {
+        if (!row.deletion().isLive() || row.size() < MIN_PACKED_CELLS)
+            return null;
+
+        List<Cell> cells = new ArrayList<>(row.size());
+        for (ColumnData cd : row)
+        {
+            if (cd.column().isComplex() || !canPack(cells, (Cell) cd))
+                return null;
+            cells.add((Cell) cd);
+        }
+        return pack(row.clustering(), row.primaryKeyLivenessInfo(), cells, allocator);
+    }
+
+    /**
+     * @return whether the given simple cell can be packed along with the given ones
+     */
+    private static boolean canPack(List<Cell> cells, Cell cell)
+    {
+        if (cell.column().isCounterColumn() || cell.isTombstone())
+            return false;
+
+        if (cells.isEmpty())
+            return true;
+
+        Cell first = cells.get(0);
+        return cell.timestamp() == first.timestamp() && cell.ttl() == first.ttl() && cell.localDeletionTime() == first.localDeletionTime();
+    }
+
+    /**
+     * Copies the given dense row, whose cells are sorted and can all be packed together, into a packed row.
+     */
+    private static PackedRow pack(Clustering clustering, LivenessInfo primaryKeyLivenessInfo, List<Cell> cells, AbstractAllocator allocator)
+    {
+        int count = cells.size();
+        int valuesSize = 0;
+        for (Cell cell : cells)
+            valuesSize += cell.value().remaining();
+
+        List<ColumnMetadata> columns = new ArrayList<>(count);
+        ByteBuffer values = allocator.allocate(4 * count + valuesSize);
+        int start = values.position();
+        int offset = 0;
+        for (int i = 0; i < count; i++)
+        {
+            Cell cell = cells.get(i);
+            ByteBuffer value = cell.value();
+            columns.add(cell.column());
+            offset += value.remaining();
+            values.putInt(start + 4 * i, offset);
+            ByteBuffer target = values.duplicate();
+            target.position(start + 4 * count + offset - value.remaining());
+            target.put(value.duplicate());
+        }
+
+        Cell first = cells.get(0);
+        return new PackedRow(clustering.copy(allocator),
+                             primaryKeyLivenessInfo,
+                             columnsInterner.intern(Columns.from(columns)),
+                             first.timestamp(),
+                             first.ttl(),
+                             first.localDeletionTime(),
+                             values);
+    }
+
+    private ByteBuffer value(int i)
+    {
+        int start = values.position();
+        int count = columns.size();
+        int from = i == 0 ? 0 : values.getInt(start + 4 * (i - 1));
+        int to = values.getInt(start + 4 * i);
+        ByteBuffer value = values.duplicate();
+        value.limit(start + 4 * count + to).position(start + 4 * count + from);
+        return value;
+    }
+
+    private Cell cell(int i)
+    {
+        return new BufferCell(columns.getSimple(i), timestamp, ttl, localDeletionTime, value(i), null);
+    }
+
+    /**
+     * @return an equivalent {@link BTreeRow} over the values of this row
+     */
+    private BTreeRow materialize()
+    {
+        int count = columns.size();
+        List<Cell> cells = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            cells.add(cell(i));
+        return BTreeRow.create(clustering, primaryKeyLivenessInfo, Deletion.LIVE, BTree.build(cells, UpdateFunction.noOp()), minLocalDeletionTime());
+    }
+
+    private int minLocalDeletionTime()
+    {
+        // cells are never tombstones
+        int min = primaryKeyLivenessInfo.isExpiring() ? primaryKeyLivenessInfo.localExpirationTime() : Integer.MAX_VALUE;
+        return Math.min(min, localDeletionTime);
+    }
+
+    public Clustering clustering()
+    {
+        return clustering;
+    }
+
+    public LivenessInfo primaryKeyLivenessInfo()
+    {
+        return primaryKeyLivenessInfo;
+    }
+
+    public Deletion deletion()
+    {
+        return Deletion.LIVE;
+    }
+
+    public int size()
+    {
+        return columns.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return false;
+    }
+
+    public boolean hasComplex()
+    {
+        return false;
+    }
+
+    public boolean hasComplexDeletion()
+    {
+        return false;
+    }
+
+    public boolean hasDeletion(int nowInSec)
+    {
+        return nowInSec >= minLocalDeletionTime();
+    }
+
+    public Collection<ColumnMetadata> columns()
+    {
+        return columns;
+    }
+
+    public Cell getCell(ColumnMetadata c)
+    {
+        int i = columns.simpleIdx(c);
+        return i < 0 ? null : cell(i);
+    }
+
+    public Cell getCell(ColumnMetadata c, CellPath path)
+    {
+        return null;
+    }
+
+    public ComplexColumnData getComplexColumnData(ColumnMetadata c)
+    {
+        return null;
+    }
+
+    public int dataSize()
+    {
+        int count = columns.size();
+        int cellSize = TypeSizes.sizeof(timestamp) + TypeSizes.sizeof(ttl) + TypeSizes.sizeof(localDeletionTime);
+        return clustering.dataSize()
+               + primaryKeyLivenessInfo.dataSize()
+               + Deletion.LIVE.dataSize()
+               + count * cellSize
+               + values.remaining() - 4 * count;
+    }
+
+    public long unsharedHeapSizeExcludingData()
+    {
+        return EMPTY_SIZE + clustering.unsharedHeapSizeExcludingData() + ObjectSizes.sizeOnHeapExcludingData(values);
+    }
+
+    public Iterator<ColumnData> iterator()
+    {
+        return new AbstractIterator<ColumnData>()
+        {
+            private int i;
+
+            protected ColumnData computeNext()
+            {
+                return i < columns.size() ? cell(i++) : endOfData();
+            }
+        };
+    }
+
+    public Iterable<Cell> cells()
+    {
+        // all the cells are simple
+        return Iterables.transform(this, cd -> (Cell) cd);
+    }
+
+    public Iterable<Cell> cellsInLegacyOrder(TableMetadata metadata, boolean reversed)
+    {
+        return materialize().cellsInLegacyOrder(metadata, reversed);
+    }
+
+    public SearchIterator<ColumnMetadata, ColumnData> searchIterator()
+    {
+        return materialize().searchIterator();
+    }
+
+    public Row filter(ColumnFilter filter, TableMetadata metadata)
+    {
+        return materialize().filter(filter, metadata);
+    }
+
+    public Row filter(ColumnFilter filter, DeletionTime activeDeletion, boolean setActiveDeletionToRow, TableMetadata metadata)
+    {
+        return materialize().filter(filter, activeDeletion, setActiveDeletionToRow, metadata);
+    }
+
+    public Row purge(DeletionPurger purger, int nowInSec, boolean enforceStrictLiveness)
+    {
+        if (!hasDeletion(nowInSec))
+            return this;
+        return materialize().purge(purger, nowInSec, enforceStrictLiveness);
+    }
+
+    public Row withOnlyQueriedData(ColumnFilter filter)
+    {
+        return materialize().withOnlyQueriedData(filter);
+    }
+
+    public Row markCounterLocalToBeCleared()
+    {
+        // counter columns are never packed
+        return this;
+    }
+
+    public Row updateAllTimestamp(long newTimestamp)
+    {
+        return materialize().updateAllTimestamp(newTimestamp);
+    }
+
+    public Row withRowDeletion(DeletionTime deletion)
+    {
+        return materialize().withRowDeletion(deletion);
+    }
+
+    public void apply(Consumer<ColumnData> function, boolean reverse)
+    {
+        int count = columns.size();
+        for (int i = 0; i < count; i++)
+            function.accept(cell(reverse ? count - 1 - i : i));
+    }
+
+    public void apply(Consumer<ColumnData> function, Predicate<ColumnData> stopCondition, boolean reverse)
+    {
+        int count = columns.size();
+        for (int i = 0; i < count; i++)
+        {
+            Cell cell = cell(reverse ? count - 1 - i : i);
+            if (stopCondition.apply(cell))
+                break;
+            function.accept(cell);
+        }
+    }
+
+    /**
+     * A sorted row builder copying the rows it builds with the given allocator, that packs them if they are dense.
+     *
+     * Whether the row is dense is checked as its cells are added: the cells are buffered as long as it is, and replayed
+     * into a cloning {@link BTreeRow.Builder} otherwise, to which the rest of the row is then added directly.
+     */
+    public static class Builder implements Row.Builder
+    {
+        private final AbstractAllocator allocator;
+        private final Row.Builder cloningBuilder;
+
+        private Clustering clustering;
+        private LivenessInfo primaryKeyLivenessInfo = LivenessInfo.EMPTY;
+        private final List<Cell> cells = new ArrayList<>();
+        // whether the row isn't dense, and is built by the cloning builder
+        private boolean cloning;
+
+        public Builder(AbstractAllocator allocator)
+        {
+            this.allocator = allocator;
+            this.cloningBuilder = allocator.cloningBTreeRowBuilder();
+        }
+
+        private Builder(Builder builder)
+        {
+            this.allocator = builder.allocator;
+            this.cloningBuilder = builder.cloningBuilder.copy();
+            this.clustering = builder.clustering;
+            this.primaryKeyLivenessInfo = builder.primaryKeyLivenessInfo;
+            this.cells.addAll(builder.cells);
+            this.cloning = builder.cloning;
+        }
+
+        public Builder copy()
+        {
+            return new Builder(this);
+        }
+
+        public boolean isSorted()
+        {
+            return true;
+        }
+
+        public void newRow(Clustering clustering)
+        {
+            this.clustering = clustering;
+        }
+
+        public Clustering clustering()
+        {
+            return clustering;
+        }
+
+        public void addPrimaryKeyLivenessInfo(LivenessInfo info)
+        {
+            if (cloning)
+                cloningBuilder.addPrimaryKeyLivenessInfo(info);
+            else
+                primaryKeyLivenessInfo = info;
+        }
+
+        public void addRowDeletion(Deletion deletion)
+        {
+            if (!deletion.isLive())
+                startCloning();
+            if (cloning)
+                cloningBuilder.addRowDeletion(deletion);
+        }
+
+        public void addCell(Cell cell)
+        {
+            if (!cloning && (cell.column().isComplex() || !canPack(cells, cell)))
+                startCloning();
+
+            if (cloning)
+                cloningBuilder.addCell(cell);
+            else
+                cells.add(cell);
+        }
+
+        public void addComplexDeletion(ColumnMetadata column, DeletionTime complexDeletion)
+        {
+            startCloning();
+            cloningBuilder.addComplexDeletion(column, complexDeletion);
+        }
+
+        /**
+         * Hands the row over to the cloning builder, as it can't be packed.
+         */
+        private void startCloning()
+        {
+            if (cloning)
+                return;
+
+            cloning = true;
+            cloningBuilder.newRow(clustering);
+            cloningBuilder.addPrimaryKeyLivenessInfo(primaryKeyLivenessInfo);
+            for (Cell cell : cells)
+                cloningBuilder.addCell(cell);
+            cells.clear();
+        }
+
+        public Row build()
+        {
+            if (!cloning && cells.size() < MIN_PACKED_CELLS)
+                startCloning();
+
+            Row row = cloning ? cloningBuilder.build() : pack(clustering, primaryKeyLivenessInfo, cells, allocator);
+            clustering = null;
+            primaryKeyLivenessInfo = LivenessInfo.EMPTY;
+            cells.clear();
+            cloning = false;
+            return row;
+        }
+    }
+}
@@ -127,17 +127,35 @@ public class SerializationHelper
     }
 
     public boolean isDropped(Cell cell, boolean isComplex)
+    {
+        return isDropped(cell.column(), cell.timestamp(), isComplex);
+    }
+
+    public boolean isDropped(ColumnMetadata column, long timestamp, boolean isComplex)
     {
         if (!hasDroppedColumns)
             return false;
 
-        DroppedColumn dropped = isComplex ? currentDroppedComplex : droppedColumns.get(cell.column().name.bytes);
-        return dropped != null && cell.timestamp() <= dropped.droppedTime;
+        DroppedColumn dropped = isComplex ? currentDroppedComplex : droppedColumns.get(column.name.bytes);
+        return dropped != null && timestamp <= dropped.droppedTime;
     }
 
     public boolean isDroppedComplexDeletion(DeletionTime complexDeletion)
     {
-        return currentDroppedComplex != null && complexDeletion.markedForDeleteAt() <= currentDroppedComplex.droppedTime;
+        return isDroppedComplexDeletion(complexDeletion.markedForDeleteAt());
+    }
+
+    public boolean isDroppedComplexDeletion(long markedForDeleteAt)
+    {
+        return currentDroppedComplex != null && markedForDeleteAt <= currentDroppedComplex.droppedTime;
+    }
+
+    /**
+     * @return whether all the columns are fetched, i.e. whether no column filter applies
+     */
+    public boolean fetchesAllColumns()
+    {
+        return columnsToFetch == null;
     }
 
     public ByteBuffer maybeClearCounterValue(ByteBuffer value)
@@ -0,0 +1,551 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.rows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.hash.Hasher;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.context.CounterContext;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.HashingUtils;
+
+import static org.apache.cassandra.db.rows.UnfilteredSerializer.*;
+
+/**
+ * A cursor over the serialized unfiltereds of a partition, i.e. over what follows the partition header and up to the
+ * end of partition marker, that exposes the clustering, liveness info, deletion and cells of the rows as they are read,
+ * without creating objects for them.
+ *
+ * {@link UnfilteredSerializer#deserialize} creates a {@link Row}, a {@link Clustering} and a {@link Cell} per cell for
+ * every row, which is wasteful for consumers that only inspect the data transiently, like digests. The cursor instead
+ * reads the values into buffers that it reuses from one row to the next, so that the values it exposes are only valid
+ * until it is advanced. It is used as follows:
+ * <pre>
+ *     cursor.reset(in);
+ *     Unfiltered.Kind kind;
+ *     while ((kind = cursor.advance()) != null)
+ *     {
+ *         if (kind == Unfiltered.Kind.RANGE_TOMBSTONE_MARKER)
+ *         {
+ *             // cursor.marker()
+ *             continue;
+ *         }
+ *
+ *         // cursor.clusteringValue(i), cursor.rowTimestamp(), ...
+ *         while (cursor.advanceColumn())
+ *             while (cursor.advanceCell())
+ *                 // cursor.column(), cursor.value(), ...
+ *     }
+ * </pre>
+ * The cells of a row that aren't consumed are skipped when advancing to the next column or unfiltered.
+ *
+ * Range tombstone markers are comparatively rare and are deserialized into {@link RangeTombstoneMarker} objects.
+ *
+ * Contrarily to {@link UnfilteredSerializer#deserialize}, the cursor doesn't support fetching a subset of the columns,
+ * and while it skips the cells of dropped columns, it doesn't skip the rows that are left empty by doing so.
+ *
+ * The cursor is only used by compaction, to merge partitions (see {@code CursorPartitionMerger}). Reads and repair
+ * validation still consume deserialized rows: they go through column filters and purging that the cursor doesn't
+ * support. {@link #digest} is therefore not used to build merkle trees. Using it would require the digest to be the
+ * same as the one of the purged, merged partition on every replica.
+ */
+public class UnfilteredCursor
+{
+    private final SerializationHeader header;
+    private final SerializationHelper helper;
+    private DataInputPlus in;
+
+    private Unfiltered.Kind kind;
+    private int flags;
+    private boolean isStatic;
+    private final ByteBuffer[] clustering;
+    private RangeTombstoneMarker marker;
+
+    private long rowTimestamp;
+    private int rowTTL;
+    private int rowLocalExpirationTime;
+    private long rowMarkedForDeleteAt;
+    private int rowLocalDeletionTime;
+    private boolean rowDeletionIsShadowable;
+
+    private Columns columns;
+    private int nextColumn;
+    private ColumnMetadata column;
+    private int remainingCells;
+    private long complexMarkedForDeleteAt;
+    private int complexLocalDeletionTime;
+
+    private long timestamp;
+    private int ttl;
+    private int localDeletionTime;
+    private boolean isTombstone;
+    private ByteBuffer value;
+    private ByteBuffer path;
+    private ByteBuffer valueBuffer;
+    private ByteBuffer pathBuffer;
+
+    public UnfilteredCursor(SerializationHeader header, SerializationHelper helper)
+    {
+        assert helper.fetchesAllColumns();
+        this.header = header;
+        this.helper = helper;
+        this.clustering = new ByteBuffer[header.clusteringTypes().size()];
+    }
+
+    /**
+     * Resets the cursor to read the unfiltereds of a new partition from the provided input, which should be positioned
+     * after the partition header, i.e. on the static row if the partition has one.
+     */
+    public void reset(DataInputPlus in)
+    {
+        this.in = in;
+        this.kind = null;
+        this.marker = null;
+        this.columns = null;
+        this.column = null;
+        this.remainingCells = 0;
+    }
+
+    /**
+     * Advances to the next unfiltered of the partition, skipping whatever wasn't consumed of the current one.
+     *
+     * @return the kind of the new current unfiltered, or {@code null} if the end of the partition has been reached
+     */
+    public Unfiltered.Kind advance() throws IOException
+    {
+        if (kind == Unfiltered.Kind.ROW)
+        {
+            while (advanceColumn())
+                continue;
+        }
+
+        flags = in.readUnsignedByte();
+        if (isEndOfPartition(flags))
+        {
+            kind = null;
+            return null;
+        }
+
+        int extendedFlags = readExtendedFlags(in, flags);
+        kind = UnfilteredSerializer.kind(flags);
+        if (kind == Unfiltered.Kind.RANGE_TOMBSTONE_MARKER)
+        {
+            ClusteringBoundOrBoundary bound = ClusteringBoundOrBoundary.serializer.deserialize(in, helper.version, header.clusteringTypes());
+            marker = serializer.deserializeMarkerBody(in, header, bound);
+            return kind;
+        }
+
+        marker = null;
+        isStatic = UnfilteredSerializer.isStatic(extendedFlags);
+        if (!isStatic)
+            ClusteringPrefix.serializer.deserializeValuesInto(in, clustering, helper.version, header.clusteringTypes());
+        readRowHeader(extendedFlags);
+        return kind;
+    }
+
+    private void readRowHeader(int extendedFlags) throws IOException
+    {
+        if (header.isForSSTable())
+        {
+            in.readUnsignedVInt(); // Skip row size
+            in.readUnsignedVInt(); // previous unfiltered size
+        }
+
+        rowTimestamp = LivenessInfo.NO_TIMESTAMP;
+        rowTTL = LivenessInfo.NO_TTL;
+        rowLocalExpirationTime = LivenessInfo.NO_EXPIRATION_TIME;
+        if ((flags & HAS_TIMESTAMP) != 0)
+        {
+            rowTimestamp = header.readTimestamp(in);
+            if ((flags & HAS_TTL) != 0)
+            {
+                rowTTL = header.readTTL(in);
+                rowLocalExpirationTime = header.readLocalDeletionTime(in);
+            }
+        }
+
+        rowMarkedForDeleteAt = DeletionTime.LIVE.markedForDeleteAt();
+        rowLocalDeletionTime = DeletionTime.LIVE.localDeletionTime();
+        rowDeletionIsShadowable = false;
+        if ((flags & HAS_DELETION) != 0)
+        {
+            rowMarkedForDeleteAt = header.readTimestamp(in);
+            rowLocalDeletionTime = header.readLocalDeletionTime(in);
+            rowDeletionIsShadowable = (extendedFlags & HAS_SHADOWABLE_DELETION) != 0;
+            // as for Row.Builder#build, see Row.Deletion#isShadowedBy
+            if (rowDeletionIsShadowable && rowTimestamp > rowMarkedForDeleteAt)
+            {
+                rowMarkedForDeleteAt = DeletionTime.LIVE.markedForDeleteAt();
+                rowLocalDeletionTime = DeletionTime.LIVE.localDeletionTime();
+                rowDeletionIsShadowable = false;
+            }
+        }
+
+        Columns headerColumns = header.columns(isStatic);
+        columns = (flags & HAS_ALL_COLUMNS) != 0 ? headerColumns : Columns.serializer.deserializeSubset(headerColumns, in);
+        nextColumn = 0;
+        column = null;
+        remainingCells = 0;
+    }
+
+    /**
+     * Advances to the next column of the current row, skipping the cells of the current column that weren't consumed.
+     *
+     * @return whether there is such a column
+     */
+    public boolean advanceColumn() throws IOException
+    {
+        assert kind == Unfiltered.Kind.ROW;
+
+        for (; remainingCells > 0; remainingCells--)
+            Cell.serializer.skip(in, column, header);
+
+        if (nextColumn == columns.size())
+        {
+            column = null;
+            return false;
+        }
+
+        int i = nextColumn++;
+        int simpleColumnCount = columns.simpleColumnCount();
+        column = i < simpleColumnCount ? columns.getSimple(i) : columns.getComplex(i - simpleColumnCount);
+        complexMarkedForDeleteAt = DeletionTime.LIVE.markedForDeleteAt();
+        complexLocalDeletionTime = DeletionTime.LIVE.localDeletionTime();
+        if (column.isSimple())
+        {
+            remainingCells = 1;
+            return true;
+        }
+
+        helper.startOfComplexColumn(column);
+        if ((flags & HAS_COMPLEX_DELETION) != 0)
+        {
+            long markedForDeleteAt = header.readTimestamp(in);
+            int localDeletionTime = header.readLocalDeletionTime(in);
+            if (!helper.isDroppedComplexDeletion(markedForDeleteAt))
+            {
+                complexMarkedForDeleteAt = markedForDeleteAt;
+                complexLocalDeletionTime = localDeletionTime;
+            }
+        }
+        remainingCells = (int) in.readUnsignedVInt();
+        return true;
+    }
+
+    /**
+     * Advances to the next cell of the current column, skipping the cells of dropped columns.
+     *
+     * @return whether there is such a cell
+     */
+    public boolean advanceCell() throws IOException
+    {
+        while (remainingCells > 0)
+        {
+            remainingCells--;
+            readCell();
+            if (!helper.isDropped(column, timestamp, column.isComplex()))
+                return true;
+        }
+        return false;
+    }
+
+    private void readCell() throws IOException
+    {
+        int cellFlags = in.readUnsignedByte();
+        boolean hasValue = (cellFlags & Cell.Serializer.HAS_EMPTY_VALUE_MASK) == 0;
+        boolean isDeleted = (cellFlags & Cell.Serializer.IS_DELETED_MASK) != 0;
+        boolean isExpiring = (cellFlags & Cell.Serializer.IS_EXPIRING_MASK) != 0;
+        boolean useRowTimestamp = (cellFlags & Cell.Serializer.USE_ROW_TIMESTAMP_MASK) != 0;
+        boolean useRowTTL = (cellFlags & Cell.Serializer.USE_ROW_TTL_MASK) != 0;
+
+        timestamp = useRowTimestamp ? rowTimestamp : header.readTimestamp(in);
+        localDeletionTime = useRowTTL
+                            ? rowLocalExpirationTime
+                            : (isDeleted || isExpiring ? header.readLocalDeletionTime(in) : Cell.NO_DELETION_TIME);
+        ttl = useRowTTL ? rowTTL : (isExpiring ? header.readTTL(in) : Cell.NO_TTL);
+        isTombstone = isDeleted;
+
+        // collections are our only complex columns, see ColumnMetadata#cellPathSerializer
+        path = null;
+        if (column.isComplex())
+            path = pathBuffer = ByteBufferUtil.read(in, (int) in.readUnsignedVInt(), pathBuffer);
+
+        value = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+        if (hasValue)
+        {
+            value = valueBuffer = header.getType(column).readValue(in, DatabaseDescriptor.getMaxValueSize(), valueBuffer);
+            if (localDeletionTime == Cell.NO_DELETION_TIME && column.type.isCounter())
+                value = helper.maybeClearCounterValue(value);
+        }
+    }
+
+    /**
+     * Adds the current unfiltered to the provided digest, consuming the cells of the current row if it is one. This is
+     * equivalent to {@link Unfiltered#digest}, provided the row isn't left empty by dropped columns.
+     */
+    public void digest(Hasher hasher) throws IOException
+    {
+        if (kind == Unfiltered.Kind.RANGE_TOMBSTONE_MARKER)
+        {
+            marker.digest(hasher);
+            return;
+        }
+
+        HashingUtils.updateWithByte(hasher, kind.ordinal());
+        for (int i = 0; !isStatic && i < clustering.length; i++)
+        {
+            if (clustering[i] != null)
+                HashingUtils.updateBytes(hasher, clustering[i].duplicate());
+        }
+        HashingUtils.updateWithByte(hasher, (isStatic ? ClusteringPrefix.Kind.STATIC_CLUSTERING : ClusteringPrefix.Kind.CLUSTERING).ordinal());
+
+        HashingUtils.updateWithLong(hasher, rowMarkedForDeleteAt);
+        HashingUtils.updateWithBoolean(hasher, rowDeletionIsShadowable);
+
+        HashingUtils.updateWithLong(hasher, rowTimestamp);
+        if (rowTTL != LivenessInfo.NO_TTL)
+        {
+            HashingUtils.updateWithInt(hasher, rowLocalExpirationTime);
+            HashingUtils.updateWithInt(hasher, rowTTL);
+        }
+
+        while (advanceColumn())
+        {
+            if (complexMarkedForDeleteAt != DeletionTime.LIVE.markedForDeleteAt())
+                HashingUtils.updateWithLong(hasher, complexMarkedForDeleteAt);
+
+            while (advanceCell())
+            {
+                boolean isCounterCell = !isTombstone && column.isCounterColumn();
+                if (isCounterCell)
+                    CounterContext.instance().updateDigest(hasher, value);
+                else
+                    HashingUtils.updateBytes(hasher, value.duplicate());
+
+                HashingUtils.updateWithLong(hasher, timestamp);
+                HashingUtils.updateWithInt(hasher, ttl);
+                HashingUtils.updateWithBoolean(hasher, isCounterCell);
+                if (path != null)
+                    HashingUtils.updateBytes(hasher, path.duplicate());
+            }
+        }
+    }
+
+    /**
+     * Compares the clustering of the current unfiltered of this cursor to the one of the provided cursor, as {@link
+     * ClusteringComparator#compare(ClusteringPrefix, ClusteringPrefix)} would. The static row sorts first.
+     */
+    public int compareClustering(UnfilteredCursor that, ClusteringComparator comparator)
+    {
+        if (isStaticRow() || that.isStaticRow())
+            return isStaticRow() ? (that.isStaticRow() ? 0 : -1) : 1;
+
+        int size = clusteringSize();
+        int thatSize = that.clusteringSize();
+        for (int i = 0; i < Math.min(size, thatSize); i++)
+        {
+            int cmp = comparator.compareComponent(i, clusteringValue(i), that.clusteringValue(i));
+            if (cmp != 0)
+                return cmp;
+        }
+
+        if (size == thatSize)
+            return ClusteringPrefix.Kind.compare(clusteringKind(), that.clusteringKind());
+
+        return size < thatSize ? clusteringKind().comparedToClustering : -that.clusteringKind().comparedToClustering;
+    }
+
+    private boolean isStaticRow()
+    {
+        return kind == Unfiltered.Kind.ROW && isStatic;
+    }
+
+    private ClusteringPrefix.Kind clusteringKind()
+    {
+        return kind == Unfiltered.Kind.ROW ? ClusteringPrefix.Kind.CLUSTERING : marker.clustering().kind();
+    }
+
+    public Unfiltered.Kind kind()
+    {
+        return kind;
+    }
+
+    public boolean isStatic()
+    {
+        return isStatic;
+    }
+
+    /**
+     * @return the number of values of the clustering of the current unfiltered, 0 for the static row
+     */
+    public int clusteringSize()
+    {
+        if (kind == Unfiltered.Kind.RANGE_TOMBSTONE_MARKER)
+            return marker.clustering().size();
+        return isStatic ? 0 : clustering.length;
+    }
+
+    /**
+     * @return the i-th value of the clustering of the current unfiltered, only valid until the cursor is advanced
+     */
+    public ByteBuffer clusteringValue(int i)
+    {
+        return kind == Unfiltered.Kind.RANGE_TOMBSTONE_MARKER ? marker.clustering().get(i) : clustering[i];
+    }
+
+    /**
+     * @return a copy of the clustering of the current row
+     */
+    public Clustering copyClustering()
+    {
+        if (isStatic)
+            return Clustering.STATIC_CLUSTERING;
+
+        ByteBuffer[] values = new ByteBuffer[clustering.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = clustering[i] == null ? null : ByteBufferUtil.clone(clustering[i]);
+        return Clustering.make(values);
+    }
+
+    public RangeTombstoneMarker marker()
+    {
+        return marker;
+    }
+
+    public long rowTimestamp()
+    {
+        return rowTimestamp;
+    }
+
+    public int rowTTL()
+    {
+        return rowTTL;
+    }
+
+    public int rowLocalExpirationTime()
+    {
+        return rowLocalExpirationTime;
+    }
+
+    public long rowMarkedForDeleteAt()
+    {
+        return rowMarkedForDeleteAt;
+    }
+
+    public int rowLocalDeletionTime()
+    {
+        return rowLocalDeletionTime;
+    }
+
+    public boolean rowDeletionIsShadowable()
+    {
+        return rowDeletionIsShadowable;
+    }
+
+    public LivenessInfo rowLivenessInfo()
+    {
+        return rowTimestamp == LivenessInfo.NO_TIMESTAMP
+               ? LivenessInfo.EMPTY
+               : LivenessInfo.withExpirationTime(rowTimestamp, rowTTL, rowLocalExpirationTime);
+    }
+
+    public Row.Deletion rowDeletion()
+    {
+        return rowMarkedForDeleteAt == DeletionTime.LIVE.markedForDeleteAt()
+               ? Row.Deletion.LIVE
+               : new Row.Deletion(new DeletionTime(rowMarkedForDeleteAt, rowLocalDeletionTime), rowDeletionIsShadowable);
+    }
+
+    public ColumnMetadata column()
+    {
+        return column;
+    }
+
+    public long complexMarkedForDeleteAt()
+    {
+        return complexMarkedForDeleteAt;
+    }
+
+    public int complexLocalDeletionTime()
+    {
+        return complexLocalDeletionTime;
+    }
+
+    public DeletionTime complexDeletion()
+    {
+        return complexMarkedForDeleteAt == DeletionTime.LIVE.markedForDeleteAt()
+               ? DeletionTime.LIVE
+               : new DeletionTime(complexMarkedForDeleteAt, complexLocalDeletionTime);
+    }
+
+    public long timestamp()
+    {
+        return timestamp;
+    }
+
+    public int ttl()
+    {
+        return ttl;
+    }
+
+    public int localDeletionTime()
+    {
+        return localDeletionTime;
+    }
+
+    public boolean isTombstone()
+    {
+        return isTombstone;
+    }
+
+    /**
+     * @return the value of the current cell, only valid until the cursor is advanced
+     */
+    public ByteBuffer value()
+    {
+        return value;
+    }
+
+    /**
+     * @return a copy of the current cell
+     */
+    public Cell copyCell()
+    {
+        return new BufferCell(column,
+                              timestamp,
+                              ttl,
+                              localDeletionTime,
+                              ByteBufferUtil.clone(value),
+                              path == null ? null : CellPath.create(ByteBufferUtil.clone(path)));
+    }
+
+    /**
+     * @return the cell path of the current cell of a complex column, only valid until the cursor is advanced, or
+     * {@code null} for simple columns
+     */
+    public ByteBuffer path()
+    {
+        return path;
+    }
+}
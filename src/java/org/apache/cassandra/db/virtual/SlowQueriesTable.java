@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.virtual;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.LocalPartitioner;
+import org.apache.cassandra.metrics.Sampler.Sample;
+import org.apache.cassandra.schema.TableMetadata;
+
+final class SlowQueriesTable extends AbstractVirtualTable
+{
+    private static final String KEYSPACE_NAME = "keyspace_name";
+    private static final String TABLE_NAME = "table_name";
+    private static final String RANK = "rank";
+    private static final String QUERY = "query";
+    private static final String TIME_MICROS = "time_micros";
+
+    SlowQueriesTable(String keyspace)
+    {
+        super(TableMetadata.builder(keyspace, "slow_queries")
+                           .comment("slowest local reads above slow_query_log_timeout_in_ms, when continuous sampling is enabled")
+                           .kind(TableMetadata.Kind.VIRTUAL)
+                           .partitioner(new LocalPartitioner(UTF8Type.instance))
+                           .addPartitionKeyColumn(KEYSPACE_NAME, UTF8Type.instance)
+                           .addClusteringColumn(TABLE_NAME, UTF8Type.instance)
+                           .addClusteringColumn(RANK, Int32Type.instance)
+                           .addRegularColumn(QUERY, UTF8Type.instance)
+                           .addRegularColumn(TIME_MICROS, LongType.instance)
+                           .build());
+    }
+
+    public DataSet data()
+    {
+        SimpleDataSet result = new SimpleDataSet(metadata());
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+        {
+            int rank = 1;
+            for (Sample<String> sample : cfs.metric.slowestQueries.top(TopPartitionsTable.TOP_COUNT))
+            {
+                result.row(cfs.keyspace.getName(), cfs.name, rank++)
+                      .column(QUERY, sample.value)
+                      .column(TIME_MICROS, sample.count);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.virtual;
+
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.LocalPartitioner;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.service.ResourceAccounting;
+
+final class StatementResourceUsageTable extends AbstractVirtualTable
+{
+    private static final String DIGEST = "digest";
+    private static final String STATEMENT = "statement";
+    private static final String KEYSPACE_NAME = "keyspace_name";
+    private static final String TABLE_NAME = "table_name";
+    private static final String REQUEST_COUNT = "request_count";
+    private static final String CPU_MICROS = "cpu_micros";
+    private static final String ALLOCATED_BYTES = "allocated_bytes";
+    private static final String MEAN_CPU_MICROS = "mean_cpu_micros";
+    private static final String MEAN_ALLOCATED_BYTES = "mean_allocated_bytes";
+
+    StatementResourceUsageTable(String keyspace)
+    {
+        super(TableMetadata.builder(keyspace, "statement_resource_usage")
+                           .comment("CPU time and allocations of the client requests, per statement")
+                           .kind(TableMetadata.Kind.VIRTUAL)
+                           .partitioner(new LocalPartitioner(UTF8Type.instance))
+                           .addPartitionKeyColumn(DIGEST, UTF8Type.instance)
+                           .addRegularColumn(STATEMENT, UTF8Type.instance)
+                           .addRegularColumn(KEYSPACE_NAME, UTF8Type.instance)
+                           .addRegularColumn(TABLE_NAME, UTF8Type.instance)
+                           .addRegularColumn(REQUEST_COUNT, LongType.instance)
+                           .addRegularColumn(CPU_MICROS, LongType.instance)
+                           .addRegularColumn(ALLOCATED_BYTES, LongType.instance)
+                           .addRegularColumn(MEAN_CPU_MICROS, LongType.instance)
+                           .addRegularColumn(MEAN_ALLOCATED_BYTES, LongType.instance)
+                           .build());
+    }
+
+    public DataSet data()
+    {
+        SimpleDataSet result = new SimpleDataSet(metadata());
+        for (ResourceAccounting.StatementUsage usage : ResourceAccounting.instance.statements())
+        {
+            long requests = usage.requests();
+            long cpuMicros = usage.cpuMicros();
+            long allocatedBytes = usage.allocatedBytes();
+            result.row(usage.digest.toString())
+                  .column(STATEMENT, usage.queryString)
+                  .column(KEYSPACE_NAME, usage.keyspace)
+                  .column(TABLE_NAME, usage.table)
+                  .column(REQUEST_COUNT, requests)
+                  .column(CPU_MICROS, cpuMicros)
+                  .column(ALLOCATED_BYTES, allocatedBytes)
+                  .column(MEAN_CPU_MICROS, requests == 0 ? 0L : cpuMicros / requests)
+                  .column(MEAN_ALLOCATED_BYTES, requests == 0 ? 0L : allocatedBytes / requests);
+        }
+        return result;
+    }
+}
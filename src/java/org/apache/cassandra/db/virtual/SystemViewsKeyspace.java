@@ -30,7 +30,10 @@ public final class SystemViewsKeyspace extends VirtualKeyspace
         super(NAME, ImmutableList.of(new CachesTable(NAME),
                                      new ClientsTable(NAME),
                                      new SettingsTable(NAME),
+                                     new SlowQueriesTable(NAME),
                                      new SSTableTasksTable(NAME),
-                                     new ThreadPoolsTable(NAME)));
+                                     new StatementResourceUsageTable(NAME),
+                                     new ThreadPoolsTable(NAME),
+                                     new TopPartitionsTable(NAME)));
     }
 }
@@ -17,6 +17,10 @@
  */
 package org.apache.cassandra.db.virtual;
 
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Snapshot;
+
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.marshal.LongType;
@@ -36,6 +40,10 @@ final class ThreadPoolsTable extends AbstractVirtualTable
     private static final String COMPLETED_TASKS = "completed_tasks";
     private static final String BLOCKED_TASKS = "blocked_tasks";
     private static final String BLOCKED_TASKS_ALL_TIME = "blocked_tasks_all_time";
+    private static final String QUEUE_WAIT_MEAN_MICROS = "queue_wait_mean_micros";
+    private static final String QUEUE_WAIT_P99_MICROS = "queue_wait_p99_micros";
+    private static final String TASK_RUN_MEAN_MICROS = "task_run_mean_micros";
+    private static final String TASK_RUN_P99_MICROS = "task_run_p99_micros";
 
     ThreadPoolsTable(String keyspace)
     {
@@ -49,6 +57,10 @@ final class ThreadPoolsTable extends AbstractVirtualTable
                            .addRegularColumn(COMPLETED_TASKS, LongType.instance)
                            .addRegularColumn(BLOCKED_TASKS, LongType.instance)
                            .addRegularColumn(BLOCKED_TASKS_ALL_TIME, LongType.instance)
+                           .addRegularColumn(QUEUE_WAIT_MEAN_MICROS, LongType.instance)
+                           .addRegularColumn(QUEUE_WAIT_P99_MICROS, LongType.instance)
+                           .addRegularColumn(TASK_RUN_MEAN_MICROS, LongType.instance)
+                           .addRegularColumn(TASK_RUN_P99_MICROS, LongType.instance)
                            .build());
     }
 
@@ -74,12 +86,23 @@ final class ThreadPoolsTable extends AbstractVirtualTable
 
     private void addRow(SimpleDataSet dataSet, ThreadPoolMetrics metrics)
     {
+        Snapshot queueWait = metrics.queueWaitLatency.getSnapshot();
+        Snapshot taskRun = metrics.taskRunLatency.getSnapshot();
         dataSet.row(metrics.poolName)
                .column(ACTIVE_TASKS, metrics.activeTasks.getValue())
                .column(ACTIVE_TASKS_LIMIT, metrics.maxPoolSize.getValue())
                .column(PENDING_TASKS, metrics.pendingTasks.getValue())
                .column(COMPLETED_TASKS, metrics.completedTasks.getValue())
                .column(BLOCKED_TASKS, metrics.currentBlocked.getCount())
-               .column(BLOCKED_TASKS_ALL_TIME, metrics.totalBlocked.getCount());
+               .column(BLOCKED_TASKS_ALL_TIME, metrics.totalBlocked.getCount())
+               .column(QUEUE_WAIT_MEAN_MICROS, toMicros(queueWait.getMean()))
+               .column(QUEUE_WAIT_P99_MICROS, toMicros(queueWait.get99thPercentile()))
+               .column(TASK_RUN_MEAN_MICROS, toMicros(taskRun.getMean()))
+               .column(TASK_RUN_P99_MICROS, toMicros(taskRun.get99thPercentile()));
+    }
+
+    private static long toMicros(double nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros((long) nanos);
     }
 }
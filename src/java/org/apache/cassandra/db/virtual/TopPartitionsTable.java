@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.virtual;
+
+import java.nio.ByteBuffer;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.dht.LocalPartitioner;
+import org.apache.cassandra.metrics.ContinuousSampler;
+import org.apache.cassandra.metrics.Sampler.Sample;
+import org.apache.cassandra.schema.TableMetadata;
+
+final class TopPartitionsTable extends AbstractVirtualTable
+{
+    static final int TOP_COUNT = 10;
+
+    private static final String KEYSPACE_NAME = "keyspace_name";
+    private static final String TABLE_NAME = "table_name";
+    private static final String SAMPLER = "sampler";
+    private static final String RANK = "rank";
+    private static final String PARTITION_KEY = "partition_key";
+    private static final String VALUE = "value";
+    private static final String ERROR = "error";
+
+    TopPartitionsTable(String keyspace)
+    {
+        super(TableMetadata.builder(keyspace, "top_partitions")
+                           .comment("most frequently read and written, largest written, and most tombstoned partitions, when continuous sampling is enabled")
+                           .kind(TableMetadata.Kind.VIRTUAL)
+                           .partitioner(new LocalPartitioner(UTF8Type.instance))
+                           .addPartitionKeyColumn(KEYSPACE_NAME, UTF8Type.instance)
+                           .addClusteringColumn(TABLE_NAME, UTF8Type.instance)
+                           .addClusteringColumn(SAMPLER, UTF8Type.instance)
+                           .addClusteringColumn(RANK, Int32Type.instance)
+                           .addRegularColumn(PARTITION_KEY, UTF8Type.instance)
+                           .addRegularColumn(VALUE, LongType.instance)
+                           .addRegularColumn(ERROR, LongType.instance)
+                           .build());
+    }
+
+    public DataSet data()
+    {
+        SimpleDataSet result = new SimpleDataSet(metadata());
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+        {
+            addSamples(result, cfs, "reads", cfs.metric.hotReadPartitions);
+            addSamples(result, cfs, "writes", cfs.metric.hotWritePartitions);
+            addSamples(result, cfs, "write_size", cfs.metric.largestWritePartitions);
+            addSamples(result, cfs, "tombstones", cfs.metric.tombstonePartitions);
+        }
+        return result;
+    }
+
+    private static void addSamples(SimpleDataSet result, ColumnFamilyStore cfs, String sampler, ContinuousSampler<ByteBuffer> samples)
+    {
+        int rank = 1;
+        for (Sample<ByteBuffer> sample : samples.top(TOP_COUNT))
+        {
+            result.row(cfs.keyspace.getName(), cfs.name, sampler, rank++)
+                  .column(PARTITION_KEY, samples.toString(sample.value))
+                  .column(VALUE, sample.count)
+                  .column(ERROR, sample.error);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.gms;
+
+import java.util.EnumSet;
+
+import com.google.common.base.Splitter;
+
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.utils.FBUtilities;
+
+/**
+ * Messages that other nodes may only send to a node once they know it handles them. Nodes on the same messaging
+ * version don't necessarily all know these messages, so they can't be told apart by their version during upgrades.
+ *
+ * Each node publishes the features it supports in its {@link ApplicationState#FEATURES} gossip state. A node that
+ * doesn't publish that state, or whose state isn't known yet, is assumed not to support any of them.
+ */
+public enum Feature
+{
+    /** The partition digests repair messages of row level repair syncs */
+    ROW_LEVEL_REPAIR_SYNC,
+    /** The HINT_BATCH messages, holding several hints */
+    HINT_BATCHES;
+
+    /**
+     * The features supported by this node, published in its gossip state.
+     */
+    public static EnumSet<Feature> local()
+    {
+        return EnumSet.allOf(Feature.class);
+    }
+
+    /**
+     * @return whether the given node is known to support this feature
+     */
+    public boolean isSupportedBy(InetAddressAndPort endpoint)
+    {
+        if (endpoint.equals(FBUtilities.getBroadcastAddressAndPort()))
+            return local().contains(this);
+
+        EndpointState state = Gossiper.instance.getEndpointStateForEndpoint(endpoint);
+        VersionedValue features = state == null ? null : state.getApplicationState(ApplicationState.FEATURES);
+        return features != null && Splitter.on(VersionedValue.DELIMITER).splitToList(features.value).contains(name());
+    }
+}
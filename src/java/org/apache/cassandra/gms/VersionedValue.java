@@ -270,6 +270,11 @@ public class VersionedValue implements Comparable<VersionedValue>
             return new VersionedValue(String.valueOf(MessagingService.current_version));
         }
 
+        public VersionedValue features(Collection<Feature> features)
+        {
+            return new VersionedValue(StringUtils.join(features, VersionedValue.DELIMITER));
+        }
+
         public VersionedValue internalIP(String private_ip)
         {
             return new VersionedValue(private_ip);
@@ -19,6 +19,7 @@
 package org.apache.cassandra.hints;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +64,16 @@ public final class HintVerbHandler implements IVerbHandler<HintMessage>
             return;
         }
 
+        apply(hostId, hint, address).thenAccept(o -> reply(id, message.from)).exceptionally(e -> {logger.debug("Failed to apply hint", e); return null;});
+    }
+
+    /**
+     * Validates the given hint, then either applies or stores it, depending on whether this node is its final destination.
+     *
+     * @return a future completed once the hint is applied or stored, or right away if it is invalid and has been skipped.
+     */
+    static CompletableFuture<?> apply(UUID hostId, Hint hint, InetAddressAndPort address)
+    {
         // We must perform validation before applying the hint, and there is no other place to do it other than here.
         try
         {
@@ -71,8 +82,7 @@ public final class HintVerbHandler implements IVerbHandler<HintMessage>
         catch (MarshalException e)
         {
             logger.warn("Failed to validate a hint for {}: {} - skipped", address, hostId);
-            reply(id, message.from);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         if (!hostId.equals(StorageService.instance.getLocalHostUUID()))
@@ -80,23 +90,23 @@ public final class HintVerbHandler implements IVerbHandler<HintMessage>
             // the node is not the final destination of the hint (must have gotten it from a decommissioning node),
             // so just store it locally, to be delivered later.
             HintsService.instance.write(hostId, hint);
-            reply(id, message.from);
+            return CompletableFuture.completedFuture(null);
         }
         else if (!StorageProxy.instance.appliesLocally(hint.mutation))
         {
             // the topology has changed, and we are no longer a replica of the mutation - since we don't know which node(s)
             // it has been handed over to, re-address the hint to all replicas; see CASSANDRA-5902.
             HintsService.instance.writeForAllReplicas(hint);
-            reply(id, message.from);
+            return CompletableFuture.completedFuture(null);
         }
         else
         {
             // the common path - the node is both the destination and a valid replica for the hint.
-            hint.applyFuture().thenAccept(o -> reply(id, message.from)).exceptionally(e -> {logger.debug("Failed to apply hint", e); return null;});
+            return hint.applyFuture();
         }
     }
 
-    private static void reply(int id, InetAddressAndPort to)
+    static void reply(int id, InetAddressAndPort to)
     {
         MessagingService.instance().sendReply(HintResponse.message, id, to);
     }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.primitives.Ints;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.exceptions.UnknownTableException;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.TrackedDataInputPlus;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.schema.TableId;
+import org.apache.cassandra.utils.UUIDSerializer;
+
+/**
+ * The message we use to dispatch several hints meant for the same host at once, see {@link HintMessage}.
+ *
+ * The receiving node responds once, after all the hints of the batch have been applied or stored. Each hint is
+ * serialized along with its size, so that hints of tables that had been dropped can be skipped individually.
+ */
+public final class HintsBatchMessage
+{
+    public static final IVersionedSerializer<HintsBatchMessage> serializer = new Serializer();
+
+    final UUID hostId;
+
+    final List<Hint> hints;
+
+    // will usually be empty, unless some hints deserialization fails due to an unknown table id
+    final List<TableId> unknownTableIDs;
+
+    HintsBatchMessage(UUID hostId, List<Hint> hints)
+    {
+        this(hostId, hints, Collections.emptyList());
+    }
+
+    private HintsBatchMessage(UUID hostId, List<Hint> hints, List<TableId> unknownTableIDs)
+    {
+        this.hostId = hostId;
+        this.hints = hints;
+        this.unknownTableIDs = unknownTableIDs;
+    }
+
+    public MessageOut<HintsBatchMessage> createMessageOut()
+    {
+        return new MessageOut<>(MessagingService.Verb.HINT_BATCH, this, serializer);
+    }
+
+    public static class Serializer implements IVersionedSerializer<HintsBatchMessage>
+    {
+        public long serializedSize(HintsBatchMessage message, int version)
+        {
+            long size = UUIDSerializer.serializer.serializedSize(message.hostId, version);
+            size += TypeSizes.sizeofUnsignedVInt(message.hints.size());
+            for (Hint hint : message.hints)
+            {
+                long hintSize = Hint.serializer.serializedSize(hint, version);
+                size += TypeSizes.sizeofUnsignedVInt(hintSize);
+                size += hintSize;
+            }
+            return size;
+        }
+
+        public void serialize(HintsBatchMessage message, DataOutputPlus out, int version) throws IOException
+        {
+            UUIDSerializer.serializer.serialize(message.hostId, out, version);
+            out.writeUnsignedVInt(message.hints.size());
+            for (Hint hint : message.hints)
+            {
+                out.writeUnsignedVInt(Hint.serializer.serializedSize(hint, version));
+                Hint.serializer.serialize(hint, out, version);
+            }
+        }
+
+        /*
+         * Same as for HintMessage, hints of tables that don't exist anymore are skipped instead of failing
+         * the whole batch.
+         */
+        public HintsBatchMessage deserialize(DataInputPlus in, int version) throws IOException
+        {
+            UUID hostId = UUIDSerializer.serializer.deserialize(in, version);
+
+            int count = Ints.checkedCast(in.readUnsignedVInt());
+            List<Hint> hints = new ArrayList<>(count);
+            List<TableId> unknownTableIDs = Collections.emptyList();
+            for (int i = 0; i < count; i++)
+            {
+                long hintSize = in.readUnsignedVInt();
+                TrackedDataInputPlus countingIn = new TrackedDataInputPlus(in);
+                try
+                {
+                    hints.add(Hint.serializer.deserialize(countingIn, version));
+                }
+                catch (UnknownTableException e)
+                {
+                    in.skipBytes(Ints.checkedCast(hintSize - countingIn.getBytesRead()));
+                    if (unknownTableIDs.isEmpty())
+                        unknownTableIDs = new ArrayList<>();
+                    unknownTableIDs.add(e.id);
+                }
+            }
+            return new HintsBatchMessage(hostId, hints, unknownTableIDs);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.net.IVerbHandler;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.service.StorageService;
+
+/**
+ * Verb handler for batches of hints, see {@link HintVerbHandler}.
+ *
+ * Every hint of the batch is handled the same way a single hint is, and a single response is sent once all of them
+ * have been applied or stored. If any of them fails to apply, no response is sent and the sender retries the whole batch.
+ */
+public final class HintsBatchVerbHandler implements IVerbHandler<HintsBatchMessage>
+{
+    private static final Logger logger = LoggerFactory.getLogger(HintsBatchVerbHandler.class);
+
+    public void doVerb(MessageIn<HintsBatchMessage> message, int id)
+    {
+        UUID hostId = message.payload.hostId;
+        InetAddressAndPort address = StorageService.instance.getEndpointForHostId(hostId);
+
+        // see HintVerbHandler: hints of tables that had been dropped are skipped
+        if (!message.payload.unknownTableIDs.isEmpty())
+        {
+            logger.trace("Failed to decode and apply {} hints for {}: {} - tables with ids {} are unknown",
+                         message.payload.unknownTableIDs.size(),
+                         address,
+                         hostId,
+                         message.payload.unknownTableIDs);
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[message.payload.hints.size()];
+        for (int i = 0; i < futures.length; i++)
+            futures[i] = HintVerbHandler.apply(hostId, message.payload.hints.get(i), address);
+
+        CompletableFuture.allOf(futures)
+                         .thenAccept(o -> HintVerbHandler.reply(id, message.from))
+                         .exceptionally(e -> {logger.debug("Failed to apply hints batch", e); return null;});
+    }
+}
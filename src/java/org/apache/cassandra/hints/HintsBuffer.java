@@ -31,6 +31,7 @@ import org.apache.cassandra.io.util.DataOutputBufferFixed;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.AbstractIterator;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.concurrent.OpOrder;
 
 import static org.apache.cassandra.utils.FBUtilities.updateChecksum;
@@ -43,10 +44,14 @@ import static org.apache.cassandra.utils.FBUtilities.updateChecksumInt;
  * - a ByteBuffer holding the serialized hints (length, length checksum and total checksum included)
  * - a pointer to the current allocation offset
  * - an {@link OpOrder} appendOrder for {@link HintsWriteExecutor} to wait on for all writes completion
- * - a map of (host id -> offset queue) for the hints written
+ * - a map of (host id -> striped offset queues) for the hints written
  *
  * It's possible to write a single hint for two or more hosts at the same time, in which case the same offset will be put
  * into two or more offset queues.
+ *
+ * Each host's offsets are spread over {@link #OFFSET_STRIPES} queues, chosen by writer thread, so that writers hinting
+ * the same (down) host don't all contend on the tail of a single queue. Hints for a host are therefore not flushed in
+ * the exact order they were written in, which is fine as they are applied as regular timestamped mutations on dispatch.
  */
 final class HintsBuffer
 {
@@ -54,10 +59,13 @@ final class HintsBuffer
     static final int ENTRY_OVERHEAD_SIZE = 12;
     static final int CLOSED = -1;
 
+    // number of offset queues per host, a power of two so that a writer's stripe can be picked with a mask
+    static final int OFFSET_STRIPES = Math.min(64, Integer.highestOneBit(FBUtilities.getAvailableProcessors() * 2 - 1));
+
     private final ByteBuffer slab; // the underlying backing ByteBuffer for all the serialized hints
     private final AtomicInteger position; // the position in the slab that we currently allocate from
 
-    private final ConcurrentMap<UUID, Queue<Integer>> offsets;
+    private final ConcurrentMap<UUID, Queue<Integer>[]> offsets;
     private final OpOrder appendOrder;
 
     private HintsBuffer(ByteBuffer slab)
@@ -119,7 +127,7 @@ final class HintsBuffer
      */
     Iterator<ByteBuffer> consumingHintsIterator(UUID hostId)
     {
-        final Queue<Integer> bufferOffsets = offsets.get(hostId);
+        final Queue<Integer>[] bufferOffsets = offsets.get(hostId);
 
         if (bufferOffsets == null)
             return Collections.emptyIterator();
@@ -127,10 +135,13 @@ final class HintsBuffer
         return new AbstractIterator<ByteBuffer>()
         {
             private final ByteBuffer flyweight = slab.duplicate();
+            private int stripe = 0;
 
             protected ByteBuffer computeNext()
             {
-                Integer offset = bufferOffsets.poll();
+                Integer offset = bufferOffsets[stripe].poll();
+                while (offset == null && ++stripe < bufferOffsets.length)
+                    offset = bufferOffsets[stripe].poll();
 
                 if (offset == null)
                     return endOfData();
@@ -198,14 +209,23 @@ final class HintsBuffer
         }
     }
 
-    private void put(UUID hostId, int offset)
+    private void put(UUID hostId, Integer offset)
     {
         // we intentionally don't just return offsets.computeIfAbsent() because it's expensive compared to simple get(),
         // and the method is on a really hot path
-        Queue<Integer> queue = offsets.get(hostId);
-        if (queue == null)
-            queue = offsets.computeIfAbsent(hostId, (id) -> new ConcurrentLinkedQueue<>());
-        queue.offer(offset);
+        Queue<Integer>[] queues = offsets.get(hostId);
+        if (queues == null)
+            queues = offsets.computeIfAbsent(hostId, (id) -> createOffsetQueues());
+        queues[(int) Thread.currentThread().getId() & (OFFSET_STRIPES - 1)].offer(offset);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<Integer>[] createOffsetQueues()
+    {
+        Queue<Integer>[] queues = new Queue[OFFSET_STRIPES];
+        for (int i = 0; i < queues.length; i++)
+            queues[i] = new ConcurrentLinkedQueue<>();
+        return queues;
     }
 
     /**
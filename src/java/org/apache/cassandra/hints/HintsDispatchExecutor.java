@@ -18,6 +18,8 @@
 package org.apache.cassandra.hints;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
@@ -26,8 +28,7 @@ import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
-import com.google.common.util.concurrent.RateLimiter;
-
+import com.google.common.base.Throwables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +50,9 @@ final class HintsDispatchExecutor
 
     private final File hintsDirectory;
     private final ExecutorService executor;
+    // dispatches the additional files of a host, when more than one file per host may be dispatched at once
+    private final ExecutorService filesExecutor;
+    private final int maxFilesPerHost;
     private final AtomicBoolean isPaused;
     private final Predicate<InetAddressAndPort> isAlive;
     private final Map<UUID, Future> scheduledDispatches;
@@ -64,6 +68,14 @@ final class HintsDispatchExecutor
                                                     new LinkedBlockingQueue<>(),
                                                     new NamedThreadFactory("HintsDispatcher", Thread.MIN_PRIORITY),
                                                     "internal");
+
+        maxFilesPerHost = DatabaseDescriptor.getMaxHintsFilesDispatchedPerHost();
+        filesExecutor = maxFilesPerHost > 1
+                      ? new JMXEnabledThreadPoolExecutor(maxThreads * (maxFilesPerHost - 1), 1, TimeUnit.MINUTES,
+                                                         new LinkedBlockingQueue<>(),
+                                                         new NamedThreadFactory("HintsFileDispatcher", Thread.MIN_PRIORITY),
+                                                         "internal")
+                      : null;
     }
 
     /*
@@ -73,9 +85,13 @@ final class HintsDispatchExecutor
     {
         scheduledDispatches.clear();
         executor.shutdownNow();
+        if (filesExecutor != null)
+            filesExecutor.shutdownNow();
         try
         {
             executor.awaitTermination(1, TimeUnit.MINUTES);
+            if (filesExecutor != null)
+                filesExecutor.awaitTermination(1, TimeUnit.MINUTES);
         }
         catch (InterruptedException e)
         {
@@ -96,13 +112,11 @@ final class HintsDispatchExecutor
     Future dispatch(HintsStore store, UUID hostId)
     {
         /*
-         * It is safe to perform dispatch for the same host id concurrently in two or more threads,
-         * however there is nothing to win from it - so we don't.
+         * Having just one dispatch task per host id ensures that we'll never violate our per-destination
+         * rate limit, and simplifies reasoning about dispatch sessions.
          *
-         * Additionally, having just one dispatch task per host id ensures that we'll never violate our per-destination
-         * rate limit, without having to share a ratelimiter between threads.
-         *
-         * It also simplifies reasoning about dispatch sessions.
+         * The task itself may dispatch several files of the host concurrently (max_hints_files_dispatched_per_host),
+         * all of them sharing the same throttle.
          */
         return scheduledDispatches.computeIfAbsent(hostId, uuid -> executor.submit(new DispatchHintsTask(store, hostId)));
     }
@@ -193,21 +207,13 @@ final class HintsDispatchExecutor
     {
         private final HintsStore store;
         private final UUID hostId;
-        private final RateLimiter rateLimiter;
+        private final HintsDispatchThrottle throttle;
 
         DispatchHintsTask(HintsStore store, UUID hostId)
         {
             this.store = store;
             this.hostId = hostId;
-
-            // rate limit is in bytes per second. Uses Double.MAX_VALUE if disabled (set to 0 in cassandra.yaml).
-            // max rate is scaled by the number of nodes in the cluster (CASSANDRA-5272).
-            // the goal is to bound maximum hints traffic going towards a particular node from the rest of the cluster,
-            // not total outgoing hints traffic from this node - this is why the rate limiter is not shared between
-            // all the dispatch tasks (as there will be at most one dispatch task for a particular host id at a time).
-            int nodesCount = Math.max(1, StorageService.instance.getTokenMetadata().getSizeOfAllEndpoints() - 1);
-            int throttleInKB = DatabaseDescriptor.getHintedHandoffThrottleInKB() / nodesCount;
-            this.rateLimiter = RateLimiter.create(throttleInKB == 0 ? Double.MAX_VALUE : throttleInKB * 1024);
+            this.throttle = HintsDispatchThrottle.create();
         }
 
         public void run()
@@ -223,6 +229,48 @@ final class HintsDispatchExecutor
         }
 
         private void dispatch()
+        {
+            if (filesExecutor == null)
+            {
+                dispatchFiles();
+                return;
+            }
+
+            // the files are polled from the store by every thread, so each of them is only dispatched once
+            List<Future<?>> futures = new ArrayList<>(maxFilesPerHost - 1);
+            for (int i = 1; i < maxFilesPerHost && store.hasFiles(); i++)
+                futures.add(filesExecutor.submit(this::dispatchFiles));
+
+            try
+            {
+                dispatchFiles();
+            }
+            finally
+            {
+                awaitFiles(futures);
+            }
+        }
+
+        private void awaitFiles(List<Future<?>> futures)
+        {
+            try
+            {
+                for (Future<?> future : futures)
+                    future.get();
+            }
+            catch (InterruptedException e)
+            {
+                // the dispatch has been interrupted, see interruptDispatch()
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e)
+            {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        private void dispatchFiles()
         {
             while (true)
             {
@@ -270,7 +318,7 @@ final class HintsDispatchExecutor
             InputPosition offset = store.getDispatchOffset(descriptor);
 
             BooleanSupplier shouldAbort = () -> !isAlive.test(address) || isPaused.get();
-            try (HintsDispatcher dispatcher = HintsDispatcher.create(file, rateLimiter, address, descriptor.hostId, shouldAbort))
+            try (HintsDispatcher dispatcher = HintsDispatcher.create(file, throttle, address, descriptor.hostId, shouldAbort))
             {
                 if (offset != null)
                     dispatcher.seek(offset);
@@ -297,7 +345,7 @@ final class HintsDispatchExecutor
         {
             File file = new File(hintsDirectory, descriptor.fileName());
 
-            try (HintsReader reader = HintsReader.open(file, rateLimiter))
+            try (HintsReader reader = HintsReader.open(file, throttle.rateLimiter()))
             {
                 reader.forEach(page -> page.hintsIterator().forEachRemaining(HintsService.instance::writeForAllReplicas));
                 store.delete(descriptor);
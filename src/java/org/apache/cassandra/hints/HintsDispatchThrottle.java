@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.service.StorageService;
+
+/**
+ * Throttles the dispatch of hints towards a single node, shared by all the files of that node being dispatched at once.
+ *
+ * The rate is in bytes per second, and is bounded by {@code hinted_handoff_throttle_in_kb}. When adaptive throttling is
+ * enabled, the rate also follows the latency of the responses of the target node: as long as the mean latency of a page
+ * of hints stays close to the lowest latency seen so far, the rate grows back towards its maximum; once the target starts
+ * falling behind - typically because its mutation stage is backed up - the rate is halved. Timeouts drop the rate to its
+ * minimum right away.
+ */
+final class HintsDispatchThrottle
+{
+    @VisibleForTesting
+    static final double INCREASE_FACTOR = 1.25;
+    @VisibleForTesting
+    static final double DECREASE_FACTOR = 0.5;
+
+    // mean page latency, relative to the baseline latency, above which the target is considered to be falling behind
+    private static final double LATENCY_THRESHOLD = 2.0;
+    // the adaptive rate never goes below this fraction of the maximum rate
+    private static final double MIN_RATE_RATIO = 1.0 / 16;
+    // minimum rate when throttling is disabled, in bytes per second
+    private static final double UNTHROTTLED_MIN_RATE = 1024 * 1024;
+
+    private final RateLimiter rateLimiter;
+    private final double maxRate;
+    private final double minRate;
+    private final boolean adaptive;
+
+    // kept apart from the rate limiter, which doesn't report back the exact rate it has been set to
+    private volatile double rate;
+    // lowest mean page latency seen so far, slowly drifting up so that a single fast page doesn't throttle us forever
+    private double baselineLatencyNanos = Double.MAX_VALUE;
+
+    @VisibleForTesting
+    HintsDispatchThrottle(double maxRate, boolean adaptive)
+    {
+        this.maxRate = maxRate;
+        this.minRate = maxRate == Double.MAX_VALUE ? UNTHROTTLED_MIN_RATE : maxRate * MIN_RATE_RATIO;
+        this.adaptive = adaptive;
+        this.rate = maxRate;
+        this.rateLimiter = RateLimiter.create(maxRate);
+    }
+
+    static HintsDispatchThrottle create()
+    {
+        // rate limit is in bytes per second. Uses Double.MAX_VALUE if disabled (set to 0 in cassandra.yaml).
+        // max rate is scaled by the number of nodes in the cluster (CASSANDRA-5272).
+        // the goal is to bound maximum hints traffic going towards a particular node from the rest of the cluster,
+        // not total outgoing hints traffic from this node - this is why the throttle is not shared between
+        // all the dispatch tasks (as there will be at most one dispatch task for a particular host id at a time).
+        int nodesCount = Math.max(1, StorageService.instance.getTokenMetadata().getSizeOfAllEndpoints() - 1);
+        int throttleInKB = DatabaseDescriptor.getHintedHandoffThrottleInKB() / nodesCount;
+        return new HintsDispatchThrottle(throttleInKB == 0 ? Double.MAX_VALUE : throttleInKB * 1024,
+                                         DatabaseDescriptor.getHintedHandoffAdaptiveThrottleEnabled());
+    }
+
+    RateLimiter rateLimiter()
+    {
+        return rateLimiter;
+    }
+
+    double rate()
+    {
+        return rate;
+    }
+
+    /**
+     * Adapts the rate to a successfully dispatched page of hints.
+     *
+     * @param bytes the size of the hints of the page
+     * @param elapsedNanos the time taken to dispatch the whole page
+     * @param meanLatencyNanos the mean latency of the responses to the hints of the page
+     */
+    synchronized void pageDispatched(long bytes, long elapsedNanos, long meanLatencyNanos)
+    {
+        if (!adaptive || meanLatencyNanos <= 0)
+            return;
+
+        if (meanLatencyNanos < baselineLatencyNanos)
+            baselineLatencyNanos = meanLatencyNanos;
+        else
+            baselineLatencyNanos += (meanLatencyNanos - baselineLatencyNanos) / 16;
+
+        if (meanLatencyNanos > baselineLatencyNanos * LATENCY_THRESHOLD)
+        {
+            // when unthrottled, back off from the throughput that was actually achieved
+            double current = rate == Double.MAX_VALUE && elapsedNanos > 0
+                           ? bytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos
+                           : rate;
+            setRate(current * DECREASE_FACTOR);
+        }
+        else if (rate < maxRate)
+        {
+            setRate(rate * INCREASE_FACTOR);
+        }
+    }
+
+    /**
+     * Adapts the rate to a page of hints that timed out.
+     */
+    synchronized void pageTimedOut()
+    {
+        if (adaptive)
+            setRate(minRate);
+    }
+
+    private void setRate(double newRate)
+    {
+        rate = Math.max(minRate, Math.min(maxRate, newRate));
+        rateLimiter.setRate(rate);
+    }
+}
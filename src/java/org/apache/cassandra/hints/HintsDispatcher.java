@@ -24,12 +24,15 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.monitoring.ApproximateTime;
 import org.apache.cassandra.exceptions.RequestFailureReason;
+import org.apache.cassandra.gms.Feature;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.metrics.HintsServiceMetrics;
 import org.apache.cassandra.net.IAsyncCallbackWithFailure;
@@ -41,7 +44,9 @@ import org.apache.cassandra.utils.concurrent.SimpleCondition;
  * Dispatches a single hints file to a specified node in a batched manner.
  *
  * Uses either {@link EncodedHintMessage} - when dispatching hints into a node with the same messaging version as the hints file,
- * or {@link HintMessage}, when conversion is required.
+ * or {@link HintMessage}, when conversion is required. If {@code hints_dispatch_batch_size} is greater than 1, and the
+ * target node advertises {@link Feature#HINT_BATCHES}, the hints of each page are grouped into
+ * {@link EncodedHintsBatchMessage} or {@link HintsBatchMessage} instead.
  */
 final class HintsDispatcher implements AutoCloseable
 {
@@ -54,10 +59,13 @@ final class HintsDispatcher implements AutoCloseable
     final InetAddressAndPort address;
     private final int messagingVersion;
     private final BooleanSupplier abortRequested;
+    private final HintsDispatchThrottle throttle;
+    private final int batchSize;
 
     private InputPosition currentPagePosition;
 
-    private HintsDispatcher(HintsReader reader, UUID hostId, InetAddressAndPort address, int messagingVersion, BooleanSupplier abortRequested)
+    private HintsDispatcher(HintsReader reader, UUID hostId, InetAddressAndPort address, int messagingVersion, BooleanSupplier abortRequested,
+                            HintsDispatchThrottle throttle, int batchSize)
     {
         currentPagePosition = null;
 
@@ -66,16 +74,29 @@ final class HintsDispatcher implements AutoCloseable
         this.address = address;
         this.messagingVersion = messagingVersion;
         this.abortRequested = abortRequested;
+        this.throttle = throttle;
+        this.batchSize = batchSize;
     }
 
-    static HintsDispatcher create(File file, RateLimiter rateLimiter, InetAddressAndPort address, UUID hostId, BooleanSupplier abortRequested)
+    static HintsDispatcher create(File file, HintsDispatchThrottle throttle, InetAddressAndPort address, UUID hostId, BooleanSupplier abortRequested)
     {
         int messagingVersion = MessagingService.instance().getVersion(address);
-        HintsDispatcher dispatcher = new HintsDispatcher(HintsReader.open(file, rateLimiter), hostId, address, messagingVersion, abortRequested);
+        HintsDispatcher dispatcher = new HintsDispatcher(HintsReader.open(file, throttle.rateLimiter()), hostId, address, messagingVersion, abortRequested,
+                                                         throttle, batchSize(address, DatabaseDescriptor.getHintsDispatchBatchSize()));
         HintDiagnostics.dispatcherCreated(dispatcher);
         return dispatcher;
     }
 
+    /**
+     * Nodes on the same messaging version may not know the HINT_BATCH verb, such as nodes not upgraded yet, and would
+     * drop the batches, so they are sent single hints unless they advertise support for batches.
+     */
+    @VisibleForTesting
+    static int batchSize(InetAddressAndPort address, int configuredBatchSize)
+    {
+        return configuredBatchSize > 1 && Feature.HINT_BATCHES.isSupportedBy(address) ? configuredBatchSize : 1;
+    }
+
     public void close()
     {
         HintDiagnostics.dispatcherClosed(this);
@@ -120,6 +141,7 @@ final class HintsDispatcher implements AutoCloseable
 
     private Action sendHintsAndAwait(HintsReader.Page page)
     {
+        long start = System.nanoTime();
         Collection<Callback> callbacks = new ArrayList<>();
 
         /*
@@ -129,24 +151,46 @@ final class HintsDispatcher implements AutoCloseable
          * If that is not the case, we'll need to perform conversion to a newer (or an older) format, and decoding the hint
          * is an unavoidable intermediate step.
          */
-        Action action = reader.descriptor().messagingVersion() == messagingVersion
-                      ? sendHints(page.buffersIterator(), callbacks, this::sendEncodedHint)
-                      : sendHints(page.hintsIterator(), callbacks, this::sendHint);
+        Action action;
+        if (reader.descriptor().messagingVersion() == messagingVersion)
+        {
+            action = batchSize > 1
+                   ? sendHints(Iterators.partition(page.buffersIterator(), batchSize), callbacks, this::sendEncodedHintsBatch)
+                   : sendHints(page.buffersIterator(), callbacks, this::sendEncodedHint);
+        }
+        else
+        {
+            action = batchSize > 1
+                   ? sendHints(Iterators.partition(page.hintsIterator(), batchSize), callbacks, this::sendHintsBatch)
+                   : sendHints(page.hintsIterator(), callbacks, this::sendHint);
+        }
 
         if (action == Action.ABORT)
             return action;
 
         long success = 0, failures = 0, timeouts = 0;
+        long bytes = 0, latencyNanos = 0, responses = 0;
         for (Callback cb : callbacks)
         {
             Callback.Outcome outcome = cb.await();
-            if (outcome == Callback.Outcome.SUCCESS) success++;
-            else if (outcome == Callback.Outcome.FAILURE) failures++;
-            else if (outcome == Callback.Outcome.TIMEOUT) timeouts++;
+            if (outcome == Callback.Outcome.SUCCESS)
+            {
+                success += cb.hints();
+                bytes += cb.bytes;
+                latencyNanos += cb.latencyNanos;
+                responses++;
+            }
+            else if (outcome == Callback.Outcome.FAILURE) failures += cb.hints();
+            else if (outcome == Callback.Outcome.TIMEOUT) timeouts += cb.hints();
         }
 
         updateMetrics(success, failures, timeouts);
 
+        if (timeouts > 0)
+            throttle.pageTimedOut();
+        else if (responses > 0)
+            throttle.pageDispatched(bytes, System.nanoTime() - start, latencyNanos / responses);
+
         if (failures > 0 || timeouts > 0)
         {
             HintDiagnostics.pageFailureResult(this, success, failures, timeouts);
@@ -186,8 +230,23 @@ final class HintsDispatcher implements AutoCloseable
 
     private Callback sendHint(Hint hint)
     {
-        Callback callback = new Callback(hint.creationTime);
         HintMessage message = new HintMessage(hostId, hint);
+        Callback callback = new Callback(new long[]{ hint.creationTime }, Hint.serializer.serializedSize(hint, messagingVersion));
+        MessagingService.instance().sendRRWithFailure(message.createMessageOut(), address, callback);
+        return callback;
+    }
+
+    private Callback sendHintsBatch(List<Hint> hints)
+    {
+        HintsBatchMessage message = new HintsBatchMessage(hostId, hints);
+        long[] creationTimes = new long[hints.size()];
+        long bytes = 0;
+        for (int i = 0; i < creationTimes.length; i++)
+        {
+            creationTimes[i] = hints.get(i).creationTime;
+            bytes += Hint.serializer.serializedSize(hints.get(i), messagingVersion);
+        }
+        Callback callback = new Callback(creationTimes, bytes);
         MessagingService.instance().sendRRWithFailure(message.createMessageOut(), address, callback);
         return callback;
     }
@@ -199,7 +258,18 @@ final class HintsDispatcher implements AutoCloseable
     private Callback sendEncodedHint(ByteBuffer hint)
     {
         EncodedHintMessage message = new EncodedHintMessage(hostId, hint, messagingVersion);
-        Callback callback = new Callback(message.getHintCreationTime());
+        Callback callback = new Callback(new long[]{ message.getHintCreationTime() }, hint.remaining());
+        MessagingService.instance().sendRRWithFailure(message.createMessageOut(), address, callback);
+        return callback;
+    }
+
+    private Callback sendEncodedHintsBatch(List<ByteBuffer> hints)
+    {
+        EncodedHintsBatchMessage message = new EncodedHintsBatchMessage(hostId, hints, messagingVersion);
+        long bytes = 0;
+        for (ByteBuffer hint : hints)
+            bytes += hint.remaining();
+        Callback callback = new Callback(message.getHintCreationTimes(), bytes);
         MessagingService.instance().sendRRWithFailure(message.createMessageOut(), address, callback);
         return callback;
     }
@@ -211,11 +281,19 @@ final class HintsDispatcher implements AutoCloseable
         private final long start = System.nanoTime();
         private final SimpleCondition condition = new SimpleCondition();
         private volatile Outcome outcome;
-        private final long hintCreationTime;
+        private final long[] hintCreationTimes;
+        private final long bytes;
+        private volatile long latencyNanos;
+
+        private Callback(long[] hintCreationTimes, long bytes)
+        {
+            this.hintCreationTimes = hintCreationTimes;
+            this.bytes = bytes;
+        }
 
-        private Callback(long hintCreationTime)
+        int hints()
         {
-            this.hintCreationTime = hintCreationTime;
+            return hintCreationTimes.length;
         }
 
         Outcome await()
@@ -244,7 +322,11 @@ final class HintsDispatcher implements AutoCloseable
 
         public void response(MessageIn msg)
         {
-            HintsServiceMetrics.updateDelayMetrics(msg.from, ApproximateTime.currentTimeMillis() - this.hintCreationTime);
+            latencyNanos = System.nanoTime() - start;
+            HintsServiceMetrics.hintsDispatchLatency.update(latencyNanos, TimeUnit.NANOSECONDS);
+            long now = ApproximateTime.currentTimeMillis();
+            for (long hintCreationTime : hintCreationTimes)
+                HintsServiceMetrics.updateDelayMetrics(msg.from, now - hintCreationTime);
             outcome = Outcome.SUCCESS;
             condition.signalAll();
         }
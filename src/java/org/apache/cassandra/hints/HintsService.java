@@ -47,6 +47,7 @@ import org.apache.cassandra.gms.IFailureDetector;
 import org.apache.cassandra.locator.EndpointsForToken;
 import org.apache.cassandra.locator.InetAddressAndPort;
 import org.apache.cassandra.metrics.HintedHandoffMetrics;
+import org.apache.cassandra.metrics.HintsServiceMetrics;
 import org.apache.cassandra.metrics.StorageMetrics;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.service.StorageProxy;
@@ -163,7 +164,9 @@ public final class HintsService implements HintsServiceMBean
         // we have to make sure that the HintsStore instances get properly initialized - otherwise dispatch will not trigger
         catalog.maybeLoadStores(hostIds);
 
+        long start = System.nanoTime();
         bufferPool.write(hostIds, hint);
+        HintsServiceMetrics.hintsAppendLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
         StorageMetrics.totalHints.inc(hostIds.size());
     }
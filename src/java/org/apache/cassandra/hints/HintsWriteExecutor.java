@@ -19,34 +19,56 @@ package org.apache.cassandra.hints;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.*;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
+
 import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.metrics.HintsServiceMetrics;
+import org.apache.cassandra.utils.FBUtilities;
 
 /**
  * A single threaded executor that exclusively writes all the hints and otherwise manipulate the writers.
  *
- * Flushing demultiplexes the provided {@link HintsBuffer} and sequentially writes to each {@link HintsWriter},
- * using the same shared write buffer. In the near future, when CASSANDRA-9428 (compression) is implemented,
- * will also share a compression buffer.
+ * Flushing demultiplexes the provided {@link HintsBuffer} and writes to each {@link HintsWriter}. With
+ * {@code max_hints_flush_threads} greater than 1, the writers of different hosts are written to in parallel by a
+ * dedicated flush pool, each flush thread using its own write buffer; the write executor still waits for the whole
+ * buffer to be flushed, so that a given writer is never accessed by two threads at the same time.
  */
 final class HintsWriteExecutor
 {
     static final int WRITE_BUFFER_SIZE = 256 << 10;
 
     private final HintsCatalog catalog;
-    private final ByteBuffer writeBuffer;
+    private final BlockingQueue<ByteBuffer> writeBuffers;
     private final ExecutorService executor;
+    private final ExecutorService flushExecutor; // null if flushing is single threaded
 
     HintsWriteExecutor(HintsCatalog catalog)
+    {
+        this(catalog, DatabaseDescriptor.getMaxHintsFlushThreads());
+    }
+
+    @VisibleForTesting
+    HintsWriteExecutor(HintsCatalog catalog, int flushThreads)
     {
         this.catalog = catalog;
 
-        writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        // one write buffer per thread that may be flushing at any given time
+        writeBuffers = new ArrayBlockingQueue<>(flushThreads);
+        for (int i = 0; i < flushThreads; i++)
+            writeBuffers.add(ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE));
+
         executor = DebuggableThreadPoolExecutor.createWithFixedPoolSize("HintsWriteExecutor", 1);
+        flushExecutor = flushThreads > 1
+                      ? DebuggableThreadPoolExecutor.createWithFixedPoolSize("HintsFlushExecutor", flushThreads)
+                      : null;
     }
 
     /*
@@ -58,6 +80,11 @@ final class HintsWriteExecutor
         try
         {
             executor.awaitTermination(1, TimeUnit.MINUTES);
+            if (flushExecutor != null)
+            {
+                flushExecutor.shutdown();
+                flushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            }
         }
         catch (InterruptedException e)
         {
@@ -170,7 +197,7 @@ final class HintsWriteExecutor
         {
             HintsBuffer buffer = bufferPool.currentBuffer();
             buffer.waitForModifications();
-            stores.forEach(store -> flush(buffer.consumingHintsIterator(store.hostId), store));
+            flush(buffer, stores);
         }
     }
 
@@ -192,7 +219,24 @@ final class HintsWriteExecutor
 
     private void flush(HintsBuffer buffer)
     {
-        buffer.hostIds().forEach(hostId -> flush(buffer.consumingHintsIterator(hostId), catalog.get(hostId)));
+        flush(buffer, Iterables.transform(buffer.hostIds(), catalog::get));
+    }
+
+    private void flush(HintsBuffer buffer, Iterable<HintsStore> stores)
+    {
+        long start = System.nanoTime();
+        if (flushExecutor == null)
+        {
+            stores.forEach(store -> flush(buffer.consumingHintsIterator(store.hostId), store));
+        }
+        else
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (HintsStore store : stores)
+                futures.add(flushExecutor.submit(() -> flush(buffer.consumingHintsIterator(store.hostId), store)));
+            FBUtilities.waitOnFutures(futures);
+        }
+        HintsServiceMetrics.hintsFlushLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
     private void flush(Iterator<ByteBuffer> iterator, HintsStore store)
@@ -218,6 +262,8 @@ final class HintsWriteExecutor
 
         HintsWriter writer = store.getOrOpenWriter();
 
+        // never empty, as there are as many write buffers as threads that may flush concurrently
+        ByteBuffer writeBuffer = writeBuffers.poll();
         try (HintsWriter.Session session = writer.newSession(writeBuffer))
         {
             while (iterator.hasNext())
@@ -231,5 +277,9 @@ final class HintsWriteExecutor
         {
             throw new FSWriteError(e, writer.descriptor().fileName());
         }
+        finally
+        {
+            writeBuffers.offer(writeBuffer);
+        }
     }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.DataOutputPlus;
+
+/**
+ * A partition of an sstable that can be written to another sstable by copying its serialized form as is, rather than
+ * deserializing and serializing back all of its rows.
+ *
+ * This is only correct if the destination uses the same format version and the same {@link
+ * org.apache.cassandra.db.SerializationHeader} as the source sstable, which is for the writer to check, and if nothing
+ * in the partition has to be changed, which is for whoever provides the partition to check (see {@link
+ * org.apache.cassandra.db.compaction.CompactionController#canCopyPartitionsOf}).
+ */
+public interface CopyablePartition
+{
+    /**
+     * @return the sstable the partition is copied from
+     */
+    public SSTableReader sstable();
+
+    /**
+     * Writes the serialized partition, from its key to its end, as found in the data file of {@link #sstable()}.
+     */
+    public void copyData(DataOutputPlus out) throws IOException;
+
+    /**
+     * @return the serialized row index entry of the partition, without the position of the partition in the data file
+     * it starts with. Everything that follows that position is relative to the start of the partition, and so is
+     * still valid wherever the partition is copied.
+     */
+    public ByteBuffer serializedIndex() throws IOException;
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.util.function.IntToLongFunction;
+
+import org.apache.cassandra.io.util.Memory;
+
+/**
+ * The (sorted) tokens of the entries of an {@link IndexSummary}, laid out in Eytzinger order: the entries are the
+ * nodes of an implicit complete binary search tree stored breadth-first, the children of the node at position k
+ * being at 2k and 2k + 1 (see "Array Layouts for Comparison-Based Searching", Khuong and Morin).
+ *
+ * A search walks down from the root, so the first levels of the tree are shared by all lookups and stay in the CPU
+ * caches, and the nodes of the next levels are next to each other, unlike the probes of a binary search over the
+ * sorted array which are spread all over it. Comparing plain tokens also saves hashing the key of the summary entry at
+ * each step.
+ *
+ * Layout of the Memory:
+ *  1. count + 1 tokens, the first one unused so that the root is at position 1.
+ *  2. count + 1 ints, giving for each position the index of its entry in the summary.
+ */
+final class EytzingerTokenIndex
+{
+    final Memory memory;
+    private final int count;
+    private final long ranksOffset;
+
+    private EytzingerTokenIndex(Memory memory, int count)
+    {
+        this.memory = memory;
+        this.count = count;
+        this.ranksOffset = (count + 1L) * 8;
+    }
+
+    /**
+     * @param count the number of tokens
+     * @param tokens the tokens, in increasing order; called once for each index, from 0 to count - 1
+     */
+    static EytzingerTokenIndex build(int count, IntToLongFunction tokens)
+    {
+        EytzingerTokenIndex index = new EytzingerTokenIndex(Memory.allocate(sizeFor(count)), count);
+        // an in-order walk of the tree visits the positions in the order of the tokens
+        long k = count == 0 ? 0 : first(1, count);
+        for (int i = 0; i < count; i++)
+        {
+            index.memory.setLong(k * 8, tokens.applyAsLong(i));
+            index.memory.setInt(index.ranksOffset + k * 4, i);
+            k = next(k, count);
+        }
+        assert k == 0;
+        return index;
+    }
+
+    /**
+     * @return the off-heap memory needed by an index over {@code count} tokens
+     */
+    static long sizeFor(int count)
+    {
+        return (count + 1L) * 12;
+    }
+
+    // the leftmost position of the subtree rooted at k
+    private static long first(long k, int count)
+    {
+        while (2 * k <= count)
+            k = 2 * k;
+        return k;
+    }
+
+    // the position following k in an in-order walk of the tree, or 0 once it's over
+    private static long next(long k, int count)
+    {
+        if (2 * k + 1 <= count)
+            return first(2 * k + 1, count);
+        // climb while coming from a right child, then once more to the parent of the left child
+        return k >> (Long.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * @return the index of the first token that is not smaller than {@code token}, or the number of tokens if there
+     * is none
+     */
+    int ceiling(long token)
+    {
+        long k = 1;
+        while (k <= count)
+            k = 2 * k + (memory.getLong(k * 8) < token ? 1 : 0);
+        // the search went left (appending a 0) at the last node not smaller than the token, and right (1) ever since:
+        // dropping these trailing ones and the 0 before them gets us back to that node
+        k >>= Long.numberOfTrailingZeros(~k) + 1;
+        return k == 0 ? count : memory.getInt(ranksOffset + k * 4);
+    }
+
+    long size()
+    {
+        return memory.size();
+    }
+}
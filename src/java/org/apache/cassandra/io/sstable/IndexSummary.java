@@ -22,12 +22,16 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.PartitionPosition;
 import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
 import org.apache.cassandra.io.util.*;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
@@ -47,6 +51,10 @@ import static org.apache.cassandra.io.sstable.Downsampling.BASE_SAMPLING_LEVEL;
  *     to find the position in the Memory to start reading the actual index summary entry.
  *     (This is necessary because keys can have different lengths.)
  *  2.  A sequence of (DecoratedKey, position) pairs, where position is the offset into the actual index file.
+ *
+ * With the eytzinger index_summary_layout, the tokens of the entries are also kept in a separate Memory, in the
+ * order of an EytzingerTokenIndex, to speed up binarySearch(). It isn't serialized, but rebuilt whenever a summary
+ * is created.
  */
 public class IndexSummary extends WrappedSharedCloseable
 {
@@ -70,6 +78,8 @@ public class IndexSummary extends WrappedSharedCloseable
     // entries is a list of (partition key, index file offset) pairs
     private final Memory entries;
     private final long entriesLength;
+    // null unless using the eytzinger layout
+    private final EytzingerTokenIndex tokenIndex;
 
     /**
      * A value between 1 and BASE_SAMPLING_LEVEL that represents how many of the original
@@ -82,7 +92,14 @@ public class IndexSummary extends WrappedSharedCloseable
     public IndexSummary(IPartitioner partitioner, Memory offsets, int offsetCount, Memory entries, long entriesLength,
                         int sizeAtFullSampling, int minIndexInterval, int samplingLevel)
     {
-        super(new Memory[] { offsets, entries });
+        this(partitioner, offsets, offsetCount, entries, entriesLength, sizeAtFullSampling, minIndexInterval, samplingLevel,
+             buildTokenIndex(partitioner, offsets, offsetCount, entries, entriesLength));
+    }
+
+    private IndexSummary(IPartitioner partitioner, Memory offsets, int offsetCount, Memory entries, long entriesLength,
+                         int sizeAtFullSampling, int minIndexInterval, int samplingLevel, EytzingerTokenIndex tokenIndex)
+    {
+        super(tokenIndex == null ? new Memory[] { offsets, entries } : new Memory[] { offsets, entries, tokenIndex.memory });
         assert offsets.getInt(0) == 0;
         this.partitioner = partitioner;
         this.minIndexInterval = minIndexInterval;
@@ -92,6 +109,7 @@ public class IndexSummary extends WrappedSharedCloseable
         this.offsets = offsets;
         this.entries = entries;
         this.samplingLevel = samplingLevel;
+        this.tokenIndex = tokenIndex;
         assert samplingLevel > 0;
     }
 
@@ -106,6 +124,23 @@ public class IndexSummary extends WrappedSharedCloseable
         this.offsets = copy.offsets;
         this.entries = copy.entries;
         this.samplingLevel = copy.samplingLevel;
+        this.tokenIndex = copy.tokenIndex;
+    }
+
+    private static EytzingerTokenIndex buildTokenIndex(IPartitioner partitioner, Memory offsets, int offsetCount, Memory entries, long entriesLength)
+    {
+        if (offsetCount == 0
+            || !(partitioner instanceof Murmur3Partitioner)
+            || DatabaseDescriptor.getIndexSummaryLayout() != Config.IndexSummaryLayout.eytzinger)
+            return null;
+
+        ByteBuffer hollow = MemoryUtil.getHollowDirectByteBuffer().order(ByteOrder.BIG_ENDIAN);
+        return EytzingerTokenIndex.build(offsetCount, index -> {
+            int start = offsets.getInt(index << 2);
+            long end = index == (offsetCount - 1) ? entriesLength : offsets.getInt((index + 1) << 2);
+            entries.setByteBuffer(hollow, start, (int) (end - start - 8L));
+            return ((Murmur3Partitioner.LongToken) partitioner.getToken(hollow)).token;
+        });
     }
 
     // binary search is notoriously more difficult to get right than it looks; this is lifted from
@@ -114,6 +149,9 @@ public class IndexSummary extends WrappedSharedCloseable
     {
         // We will be comparing non-native Keys, so use a buffer with appropriate byte order
         ByteBuffer hollow = MemoryUtil.getHollowDirectByteBuffer().order(ByteOrder.BIG_ENDIAN);
+        if (tokenIndex != null)
+            return tokenSearch(key, hollow);
+
         int low = 0, mid = offsetCount, high = mid - 1, result = -1;
         while (low <= high)
         {
@@ -137,6 +175,23 @@ public class IndexSummary extends WrappedSharedCloseable
         return -mid - (result < 0 ? 1 : 2);
     }
 
+    private int tokenSearch(PartitionPosition key, ByteBuffer hollow)
+    {
+        // all the entries before the first one with a token that isn't smaller than the one of the key sort before
+        // the key; only the few entries sharing its token, if any, need their key compared
+        int index = tokenIndex.ceiling(((Murmur3Partitioner.LongToken) key.getToken()).token);
+        for (; index < offsetCount; index++)
+        {
+            fillTemporaryKey(index, hollow);
+            int cmp = DecoratedKey.compareTo(partitioner, hollow, key);
+            if (cmp == 0)
+                return index;
+            if (cmp > 0)
+                break;
+        }
+        return -index - 1;
+    }
+
     /**
      * Gets the position of the actual index summary entry in our Memory attribute, 'bytes'.
      * @param index The index of the entry or key to get the position for
@@ -169,6 +224,8 @@ public class IndexSummary extends WrappedSharedCloseable
         super.addTo(identities);
         identities.add(offsets);
         identities.add(entries);
+        if (tokenIndex != null)
+            identities.add(tokenIndex.memory);
     }
 
     public long getPosition(int index)
@@ -243,10 +300,24 @@ public class IndexSummary extends WrappedSharedCloseable
     }
 
     public long getOffHeapSize()
+    {
+        return getSerializedDataSize() + (tokenIndex == null ? 0 : tokenIndex.size());
+    }
+
+    private long getSerializedDataSize()
     {
         return offsetCount * 4 + entriesLength;
     }
 
+    /**
+     * @return whether binarySearch() uses an EytzingerTokenIndex
+     */
+    @VisibleForTesting
+    boolean hasTokenIndex()
+    {
+        return tokenIndex != null;
+    }
+
     /**
      * Returns the number of primary (on-disk) index entries between the index summary entry at `index` and the next
      * index summary entry (assuming there is one).  Without any downsampling, this will always be equivalent to
@@ -272,7 +343,7 @@ public class IndexSummary extends WrappedSharedCloseable
         {
             out.writeInt(t.minIndexInterval);
             out.writeInt(t.offsetCount);
-            out.writeLong(t.getOffHeapSize());
+            out.writeLong(t.getSerializedDataSize());
             out.writeInt(t.samplingLevel);
             out.writeInt(t.sizeAtFullSampling);
             // our on-disk representation treats the offsets and the summary data as one contiguous structure,
@@ -31,6 +31,8 @@ import com.google.common.io.Files;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.BufferDecoratedKey;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowIndexEntry;
@@ -131,6 +133,16 @@ public abstract class SSTable
         return metadata.get();
     }
 
+    /**
+     * @return the type of the partition key filter for new sstables of the table: the one of the table if set,
+     * the node's default otherwise
+     */
+    public Config.SSTableFilterType filterType()
+    {
+        Config.SSTableFilterType type = metadata().params.filterType;
+        return type == null ? DatabaseDescriptor.getSSTableFilterType() : type;
+    }
+
     public IPartitioner getPartitioner()
     {
         return metadata().partitioner;
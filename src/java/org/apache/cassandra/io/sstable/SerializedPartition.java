@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.DataInputPlus;
+
+/**
+ * A full partition of an sstable whose unfiltereds can be read directly from the data file with an {@link
+ * org.apache.cassandra.db.rows.UnfilteredCursor}, rather than by iterating the partition.
+ */
+public interface SerializedPartition
+{
+    /**
+     * @return the sstable the partition is read from
+     */
+    public SSTableReader sstable();
+
+    /**
+     * Returns the data file of {@link #sstable()}, positioned on the first unfiltered of the partition, i.e. past its
+     * partition level deletion and static row.
+     *
+     * This must be called before the partition is iterated, and the partition must not be iterated afterwards. The
+     * returned input is only valid until the next partition of the sstable is read.
+     */
+    public DataInputPlus unfilteredsInput();
+}
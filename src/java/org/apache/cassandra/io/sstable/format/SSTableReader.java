@@ -844,7 +844,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                     : estimateRowsFromIndex(primaryIndex); // statistics is supposed to be optional
 
             if (recreateBloomFilter)
-                bf = FilterFactory.getFilter(estimatedKeys, metadata().params.bloomFilterFpChance);
+                bf = FilterFactory.getFilter(estimatedKeys, metadata().params.bloomFilterFpChance, filterType());
 
             try (IndexSummaryBuilder summaryBuilder = summaryLoaded ? null : new IndexSummaryBuilder(estimatedKeys, metadata().params.minIndexInterval, samplingLevel))
             {
@@ -869,6 +869,9 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                     }
                 }
 
+                if (recreateBloomFilter)
+                    bf = FilterFactory.complete(bf);
+
                 if (!summaryLoaded)
                     indexSummary = summaryBuilder.build(getPartitioner());
             }
@@ -972,7 +975,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         File filterFile = new File(descriptor.filenameFor(Component.FILTER));
         try (DataOutputStreamPlus stream = new BufferedDataOutputStreamPlus(new FileOutputStream(filterFile)))
         {
-            BloomFilterSerializer.serialize((BloomFilter) filter, stream);
+            BloomFilterSerializer.serialize(filter, stream);
             stream.flush();
         }
         catch (IOException e)
@@ -1978,6 +1981,32 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return getMinLocalDeletionTime() != Cell.NO_DELETION_TIME;
     }
 
+    /**
+     * Whether the partition of the given index entry may have data selected by the given slices.
+     * <p>
+     * The row index of a partition records the first and last clustering of each of its blocks, which are the
+     * bounds of all its rows and range tombstone markers. Only the static row and the partition level deletion are
+     * left out, so partitions with a partition level deletion are always considered intersecting, and so are
+     * partitions too small to have a row index.
+     */
+    public boolean mayContainDataInSlices(RowIndexEntry<?> indexEntry, Slices slices)
+    {
+        if (!indexEntry.isIndexed() || !indexEntry.deletionTime().isLive())
+            return true;
+
+        try (RowIndexEntry.IndexInfoRetriever retriever = indexEntry.openWithIndex(ifile))
+        {
+            ClusteringPrefix first = retriever.columnsIndex(0).firstName;
+            ClusteringPrefix last = retriever.columnsIndex(indexEntry.columnsIndexCount() - 1).lastName;
+            return slices.intersects(metadata().comparator, first, last);
+        }
+        catch (IOException e)
+        {
+            markSuspect();
+            throw new CorruptSSTableException(e, getIndexFilename());
+        }
+    }
+
     public int getMinTTL()
     {
         return sstableMetadata.minTTL;
@@ -18,6 +18,7 @@
 package org.apache.cassandra.io.sstable.format.big;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,11 +35,15 @@ import org.apache.cassandra.dht.AbstractBounds.Boundary;
 import org.apache.cassandra.dht.Bounds;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.CopyablePartition;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
 import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
+import org.apache.cassandra.io.sstable.SerializedPartition;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.SSTableReadsListener;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.io.util.RandomAccessReader;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -49,6 +54,8 @@ import static org.apache.cassandra.dht.AbstractBounds.minRight;
 
 public class BigTableScanner implements ISSTableScanner
 {
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
     private final AtomicBoolean isClosed = new AtomicBoolean(false);
     protected final RandomAccessReader dfile;
     protected final RandomAccessReader ifile;
@@ -63,6 +70,7 @@ public class BigTableScanner implements ISSTableScanner
     private final SSTableReadsListener listener;
     private long startScan = -1;
     private long bytesScanned = 0;
+    private byte[] copyBuffer;
 
     protected Iterator<UnfilteredRowIterator> iterator;
 
@@ -281,8 +289,15 @@ public class BigTableScanner implements ISSTableScanner
     {
         private DecoratedKey nextKey;
         private RowIndexEntry nextEntry;
+        private long nextEntryStart;
+        private long nextEntryEnd;
         private DecoratedKey currentKey;
         private RowIndexEntry currentEntry;
+        // the bounds of the serialized index entry of the current partition in the index file, and the end of the
+        // partition in the data file, for copying it as is
+        private long currentEntryStart;
+        private long currentEntryEnd;
+        private long currentDataEnd;
 
         protected UnfilteredRowIterator computeNext()
         {
@@ -307,7 +322,9 @@ public class BigTableScanner implements ISSTableScanner
                             return endOfData();
 
                         currentKey = sstable.decorateKey(ByteBufferUtil.readWithShortLength(ifile));
-                        currentEntry = rowIndexEntrySerializer.deserialize(ifile, ifile.getFilePointer());
+                        currentEntryStart = ifile.getFilePointer();
+                        currentEntry = rowIndexEntrySerializer.deserialize(ifile, currentEntryStart);
+                        currentEntryEnd = ifile.getFilePointer();
                     } while (!currentRange.contains(currentKey));
                 }
                 else
@@ -315,18 +332,24 @@ public class BigTableScanner implements ISSTableScanner
                     // we're in the middle of a range
                     currentKey = nextKey;
                     currentEntry = nextEntry;
+                    currentEntryStart = nextEntryStart;
+                    currentEntryEnd = nextEntryEnd;
                 }
 
                 if (ifile.isEOF())
                 {
                     nextEntry = null;
                     nextKey = null;
+                    currentDataEnd = dfile.length();
                 }
                 else
                 {
                     // we need the position of the start of the next key, regardless of whether it falls in the current range
                     nextKey = sstable.decorateKey(ByteBufferUtil.readWithShortLength(ifile));
-                    nextEntry = rowIndexEntrySerializer.deserialize(ifile, ifile.getFilePointer());
+                    nextEntryStart = ifile.getFilePointer();
+                    nextEntry = rowIndexEntrySerializer.deserialize(ifile, nextEntryStart);
+                    nextEntryEnd = ifile.getFilePointer();
+                    currentDataEnd = nextEntry.position;
 
                     if (!currentRange.contains(nextKey))
                     {
@@ -335,6 +358,10 @@ public class BigTableScanner implements ISSTableScanner
                     }
                 }
 
+                // full partitions can be copied as is by compaction
+                if (dataRange == null)
+                    return new FullPartitionIterator(currentKey, currentEntry, currentEntryStart, currentEntryEnd, currentDataEnd);
+
                 /*
                  * For a given partition key, we want to avoid hitting the data
                  * file unless we're explicitely asked to. This is important
@@ -350,22 +377,12 @@ public class BigTableScanner implements ISSTableScanner
 
                         try
                         {
-                            if (dataRange == null)
-                            {
-                                dfile.seek(currentEntry.position);
-                                startScan = dfile.getFilePointer();
-                                ByteBufferUtil.skipShortLength(dfile); // key
-                                return SSTableIdentityIterator.create(sstable, dfile, partitionKey());
-                            }
-                            else
-                            {
-                                startScan = dfile.getFilePointer();
-                            }
+                            startScan = dfile.getFilePointer();
 
                             ClusteringIndexFilter filter = dataRange.clusteringIndexFilter(partitionKey());
                             return sstable.iterator(dfile, partitionKey(), currentEntry, filter.getSlices(BigTableScanner.this.metadata()), columns, filter.isReversed());
                         }
-                        catch (CorruptSSTableException | IOException e)
+                        catch (CorruptSSTableException e)
                         {
                             sstable.markSuspect();
                             throw new CorruptSSTableException(e, sstable.getFilename());
@@ -381,6 +398,106 @@ public class BigTableScanner implements ISSTableScanner
         }
     }
 
+    /**
+     * A full partition of the scanned sstable, which is only read from the data file if iterated, or copied as is.
+     */
+    private class FullPartitionIterator extends LazilyInitializedUnfilteredRowIterator implements CopyablePartition, SerializedPartition
+    {
+        private final RowIndexEntry entry;
+        private final long entryStart;
+        private final long entryEnd;
+        private final long dataEnd;
+
+        private FullPartitionIterator(DecoratedKey key, RowIndexEntry entry, long entryStart, long entryEnd, long dataEnd)
+        {
+            super(key);
+            this.entry = entry;
+            this.entryStart = entryStart;
+            this.entryEnd = entryEnd;
+            this.dataEnd = dataEnd;
+        }
+
+        protected UnfilteredRowIterator initializeIterator()
+        {
+            if (startScan != -1)
+                bytesScanned += dfile.getFilePointer() - startScan;
+
+            try
+            {
+                dfile.seek(entry.position);
+                startScan = dfile.getFilePointer();
+                ByteBufferUtil.skipShortLength(dfile); // key
+                return SSTableIdentityIterator.create(sstable, dfile, partitionKey());
+            }
+            catch (CorruptSSTableException | IOException e)
+            {
+                sstable.markSuspect();
+                throw new CorruptSSTableException(e, sstable.getFilename());
+            }
+        }
+
+        public SSTableReader sstable()
+        {
+            return sstable;
+        }
+
+        public void copyData(DataOutputPlus out) throws IOException
+        {
+            long position = dfile.getFilePointer();
+            if (startScan != -1)
+                bytesScanned += position - startScan;
+            // what was read of the partition if it was initialized has just been accounted for
+            startScan = Math.max(entry.position, position);
+
+            dfile.seek(entry.position);
+            if (copyBuffer == null)
+                copyBuffer = new byte[COPY_BUFFER_SIZE];
+
+            for (long remaining = dataEnd - entry.position; remaining > 0; )
+            {
+                int length = (int) Math.min(remaining, copyBuffer.length);
+                try
+                {
+                    dfile.readFully(copyBuffer, 0, length);
+                }
+                catch (IOException e)
+                {
+                    sstable.markSuspect();
+                    throw new CorruptSSTableException(e, sstable.getFilename());
+                }
+                out.write(copyBuffer, 0, length);
+                remaining -= length;
+            }
+        }
+
+        public DataInputPlus unfilteredsInput()
+        {
+            // reading the partition level deletion and static row leaves the data file on the first unfiltered
+            maybeInit();
+            return dfile;
+        }
+
+        public ByteBuffer serializedIndex()
+        {
+            // the index file is already past this entry, so move back to it and then where we were
+            long position = ifile.getFilePointer();
+            try
+            {
+                ifile.seek(entryStart);
+                RowIndexEntry.Serializer.readPosition(ifile);
+                ByteBuffer buffer = ByteBuffer.allocate((int) (entryEnd - ifile.getFilePointer()));
+                ifile.readFully(buffer.array());
+                ifile.seek(position);
+                return buffer;
+            }
+            catch (IOException e)
+            {
+                sstable.markSuspect();
+                throw new CorruptSSTableException(e, sstable.getFilename());
+            }
+        }
+    }
+
     @Override
     public String toString()
     {
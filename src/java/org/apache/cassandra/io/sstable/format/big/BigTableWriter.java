@@ -57,6 +57,9 @@ public class BigTableWriter extends SSTableWriter
     private DecoratedKey lastWrittenKey;
     private DataPosition dataMark;
     private long lastEarlyOpenLength = 0;
+    // whether partitions can be copied as is from a given sstable, see canCopy()
+    private final Map<SSTableReader, Boolean> copyableSources = new IdentityHashMap<>();
+    private SerializationHeader.Component headerComponent;
     private final Optional<ChunkCache> chunkCache = Optional.ofNullable(ChunkCache.instance);
 
     private final SequentialWriterOption writerOption = SequentialWriterOption.newBuilder()
@@ -126,6 +129,12 @@ public class BigTableWriter extends SSTableWriter
     }
 
     private void afterAppend(DecoratedKey decoratedKey, long dataEnd, RowIndexEntry index, ByteBuffer indexInfo) throws IOException
+    {
+        updateLastWrittenKey(decoratedKey, dataEnd);
+        iwriter.append(decoratedKey, index, dataEnd, indexInfo);
+    }
+
+    private void updateLastWrittenKey(DecoratedKey decoratedKey, long dataEnd)
     {
         metadataCollector.addKey(decoratedKey.getKey());
         lastWrittenKey = decoratedKey;
@@ -135,7 +144,6 @@ public class BigTableWriter extends SSTableWriter
 
         if (logger.isTraceEnabled())
             logger.trace("wrote {} at {}", decoratedKey, dataEnd);
-        iwriter.append(decoratedKey, index, dataEnd, indexInfo);
     }
 
     /**
@@ -157,6 +165,9 @@ public class BigTableWriter extends SSTableWriter
             return null;
         }
 
+        if (iterator instanceof CopyablePartition && canCopy(((CopyablePartition) iterator).sstable()))
+            return copy(key, (CopyablePartition) iterator);
+
         if (iterator.isEmpty())
             return null;
 
@@ -196,6 +207,69 @@ public class BigTableWriter extends SSTableWriter
         }
     }
 
+    /**
+     * Whether the serialized partitions of the given sstable can be copied as is, which requires it to have the same
+     * format and serialization header as this writer.
+     */
+    private boolean canCopy(SSTableReader source)
+    {
+        if (!observers.isEmpty())
+            return false;
+
+        Boolean canCopy = copyableSources.get(source);
+        if (canCopy == null)
+        {
+            canCopy = source.descriptor.formatType == descriptor.formatType
+                      && source.descriptor.version.equals(descriptor.version)
+                      && source.header.toComponent().equals(headerComponent());
+            copyableSources.put(source, canCopy);
+        }
+        return canCopy;
+    }
+
+    private SerializationHeader.Component headerComponent()
+    {
+        if (headerComponent == null)
+            headerComponent = header.toComponent();
+        return headerComponent;
+    }
+
+    /**
+     * Appends a partition by copying its serialized form, without going through its content. The row index entry is
+     * copied too, only changing the position of the partition, and the stats are derived from the source sstable.
+     */
+    private RowIndexEntry copy(DecoratedKey key, CopyablePartition partition)
+    {
+        try (UnfilteredRowIterator ignored = (UnfilteredRowIterator) partition)
+        {
+            long startPosition = beforeAppend(key);
+            partition.copyData(dataFile);
+            long endPosition = dataFile.position();
+
+            DataOutputBuffer serializedEntry = new DataOutputBuffer();
+            serializedEntry.writeUnsignedVInt(startPosition);
+            serializedEntry.write(partition.serializedIndex());
+
+            long indexFilePosition = ByteBufferUtil.serializedSizeWithShortLength(key.getKey()) + iwriter.indexFile.position();
+            RowIndexEntry entry;
+            try (DataInputBuffer in = new DataInputBuffer(serializedEntry.buffer(), false))
+            {
+                entry = getRowIndexEntrySerializer().deserialize(in, indexFilePosition);
+            }
+
+            long rowSize = endPosition - startPosition;
+            maybeLogLargePartitionWarning(key, rowSize);
+            metadataCollector.updateCopiedPartition(partition.sstable().getSSTableMetadata(), rowSize);
+            updateLastWrittenKey(key, endPosition);
+            iwriter.appendSerialized(key, serializedEntry.buffer(), endPosition);
+            return entry;
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, dataFile.getPath());
+        }
+    }
+
     private RowIndexEntry.IndexSerializer<IndexInfo> getRowIndexEntrySerializer()
     {
         return (RowIndexEntry.IndexSerializer<IndexInfo>) rowIndexEntrySerializer;
@@ -339,7 +413,7 @@ public class BigTableWriter extends SSTableWriter
                                                            ifile,
                                                            dfile,
                                                            indexSummary,
-                                                           iwriter.bf.sharedCopy(),
+                                                           iwriter.completedFilter().sharedCopy(),
                                                            maxDataAge,
                                                            stats,
                                                            openReason,
@@ -431,7 +505,8 @@ public class BigTableWriter extends SSTableWriter
         private final SequentialWriter indexFile;
         public final FileHandle.Builder builder;
         public final IndexSummaryBuilder summary;
-        public final IFilter bf;
+        // replaced by the completed filter once all the keys have been appended, see completedFilter()
+        public IFilter bf;
         private DataPosition mark;
 
         IndexWriter(long keyCount)
@@ -440,7 +515,7 @@ public class BigTableWriter extends SSTableWriter
             builder = new FileHandle.Builder(descriptor.filenameFor(Component.PRIMARY_INDEX)).mmapped(DatabaseDescriptor.getIndexAccessMode() == Config.DiskAccessMode.mmap);
             chunkCache.ifPresent(builder::withChunkCache);
             summary = new IndexSummaryBuilder(keyCount, metadata().params.minIndexInterval, Downsampling.BASE_SAMPLING_LEVEL);
-            bf = FilterFactory.getFilter(keyCount, metadata().params.bloomFilterFpChance);
+            bf = FilterFactory.getFilter(keyCount, metadata().params.bloomFilterFpChance, filterType());
             // register listeners to be alerted when the data files are flushed
             indexFile.setPostFlushListener(() -> summary.markIndexSynced(indexFile.getLastFlushOffset()));
             dataFile.setPostFlushListener(() -> summary.markDataSynced(dataFile.getLastFlushOffset()));
@@ -473,6 +548,40 @@ public class BigTableWriter extends SSTableWriter
             summary.maybeAddEntry(key, indexStart, indexEnd, dataEnd);
         }
 
+        /**
+         * Appends an already serialized row index entry.
+         */
+        public void appendSerialized(DecoratedKey key, ByteBuffer serializedEntry, long dataEnd) throws IOException
+        {
+            bf.add(key);
+            long indexStart = indexFile.position();
+            try
+            {
+                ByteBufferUtil.writeWithShortLength(key.getKey(), indexFile);
+                indexFile.write(serializedEntry.duplicate());
+            }
+            catch (IOException e)
+            {
+                throw new FSWriteError(e, indexFile.getPath());
+            }
+            long indexEnd = indexFile.position();
+
+            if (logger.isTraceEnabled())
+                logger.trace("wrote copied index entry at {}", indexStart);
+
+            summary.maybeAddEntry(key, indexStart, indexEnd, dataEnd);
+        }
+
+        /**
+         * Completes the filter once all the keys have been appended: filters like xor filters are only built then,
+         * and let all keys through until that point.
+         */
+        IFilter completedFilter()
+        {
+            bf = FilterFactory.complete(bf);
+            return bf;
+        }
+
         /**
          * Closes the index and bloomfilter, making the public state of this writer valid for consumption.
          */
@@ -485,7 +594,7 @@ public class BigTableWriter extends SSTableWriter
                      DataOutputStreamPlus stream = new BufferedDataOutputStreamPlus(fos))
                 {
                     // bloom filter
-                    BloomFilterSerializer.serialize((BloomFilter) bf, stream);
+                    BloomFilterSerializer.serialize(completedFilter(), stream);
                     stream.flush();
                     SyncUtil.sync(fos);
                 }
@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -63,6 +64,11 @@ public class MetadataCollector implements PartitionStatisticsCollector
         return TombstoneHistogram.createDefault();
     }
 
+    private static StreamingTombstoneHistogramBuilder newTombstoneDropTimeBuilder()
+    {
+        return new StreamingTombstoneHistogramBuilder(SSTable.TOMBSTONE_HISTOGRAM_BIN_SIZE, SSTable.TOMBSTONE_HISTOGRAM_SPOOL_SIZE, SSTable.TOMBSTONE_HISTOGRAM_TTL_ROUND_SECONDS);
+    }
+
     public static StatsMetadata defaultStatsMetadata()
     {
         return new StatsMetadata(defaultPartitionSizeHistogram(),
@@ -95,13 +101,18 @@ public class MetadataCollector implements PartitionStatisticsCollector
     protected final MinMaxIntTracker localDeletionTimeTracker = new MinMaxIntTracker(Cell.NO_DELETION_TIME, Cell.NO_DELETION_TIME);
     protected final MinMaxIntTracker ttlTracker = new MinMaxIntTracker(Cell.NO_TTL, Cell.NO_TTL);
     protected double compressionRatio = NO_COMPRESSION_RATIO;
-    protected StreamingTombstoneHistogramBuilder estimatedTombstoneDropTime = new StreamingTombstoneHistogramBuilder(SSTable.TOMBSTONE_HISTOGRAM_BIN_SIZE, SSTable.TOMBSTONE_HISTOGRAM_SPOOL_SIZE, SSTable.TOMBSTONE_HISTOGRAM_TTL_ROUND_SECONDS);
+    protected StreamingTombstoneHistogramBuilder estimatedTombstoneDropTime = newTombstoneDropTimeBuilder();
     protected int sstableLevel;
     protected ByteBuffer[] minClusteringValues;
     protected ByteBuffer[] maxClusteringValues;
     protected boolean hasLegacyCounterShards = false;
     protected long totalColumnsSet;
     protected long totalRows;
+    // the number of clustering components the min and max values are known for, which is only less than the size of
+    // the comparator when they are taken from the stats of sstables partitions are copied from
+    protected int clusteringValuesLimit;
+    // the stats of the sstables partitions were copied from as is, with the number of partitions copied from each
+    protected final Map<StatsMetadata, long[]> copiedPartitionSources = new IdentityHashMap<>();
 
     /**
      * Default cardinality estimation method is to use HyperLogLog++.
@@ -118,6 +129,7 @@ public class MetadataCollector implements PartitionStatisticsCollector
 
         this.minClusteringValues = new ByteBuffer[comparator.size()];
         this.maxClusteringValues = new ByteBuffer[comparator.size()];
+        this.clusteringValuesLimit = comparator.size();
     }
 
     public MetadataCollector(Iterable<SSTableReader> sstables, ClusteringComparator comparator, int level)
@@ -273,8 +285,79 @@ public class MetadataCollector implements PartitionStatisticsCollector
         this.hasLegacyCounterShards = this.hasLegacyCounterShards || hasLegacyCounterShards;
     }
 
+    /**
+     * Collects the stats of a partition copied as is from another sstable, without going through its content: they are
+     * derived from the stats of that sstable. The min and max values of the sstable are used as is, so that they are
+     * still bounds, if not as tight. The totals are estimated from the share of the partitions of the sstable that are
+     * copied, and so is the number of cells of the partition.
+     */
+    public MetadataCollector updateCopiedPartition(StatsMetadata source, long partitionSize)
+    {
+        long[] copied = copiedPartitionSources.get(source);
+        if (copied == null)
+        {
+            copied = new long[1];
+            copiedPartitionSources.put(source, copied);
+            updateBounds(source);
+        }
+        copied[0]++;
+
+        addPartitionSizeInBytes(partitionSize);
+        if (!source.estimatedColumnCount.isOverflowed())
+            addCellPerPartitionCount(source.estimatedColumnCount.mean());
+        return this;
+    }
+
+    private void updateBounds(StatsMetadata source)
+    {
+        timestampTracker.update(source.minTimestamp);
+        timestampTracker.update(source.maxTimestamp);
+        localDeletionTimeTracker.update(source.minLocalDeletionTime);
+        localDeletionTimeTracker.update(source.maxLocalDeletionTime);
+        ttlTracker.update(source.minTTL);
+        ttlTracker.update(source.maxTTL);
+        updateHasLegacyCounterShards(source.hasLegacyCounterShards);
+
+        List<ByteBuffer> sourceMin = source.minClusteringValues;
+        List<ByteBuffer> sourceMax = source.maxClusteringValues;
+        // the values of the components past the shortest list are unknown
+        clusteringValuesLimit = Math.min(clusteringValuesLimit, Math.min(sourceMin.size(), sourceMax.size()));
+        for (int i = 0; i < clusteringValuesLimit; i++)
+        {
+            AbstractType<?> type = comparator.subtype(i);
+            minClusteringValues[i] = min(minClusteringValues[i], sourceMin.get(i), type);
+            maxClusteringValues[i] = max(maxClusteringValues[i], sourceMax.get(i), type);
+        }
+    }
+
+    private static double copiedShare(StatsMetadata source, long copiedPartitions)
+    {
+        long partitions = source.estimatedPartitionSize.count();
+        return partitions == 0 ? 1 : Math.min(1, (double) copiedPartitions / partitions);
+    }
+
     public Map<MetadataType, MetadataComponent> finalizeMetadata(String partitioner, double bloomFilterFPChance, long repairedAt, UUID pendingRepair, boolean isTransient, SerializationHeader header)
     {
+        long totalColumnsSet = this.totalColumnsSet;
+        long totalRows = this.totalRows;
+        TombstoneHistogram tombstoneDropTime = estimatedTombstoneDropTime.build();
+        if (!copiedPartitionSources.isEmpty())
+        {
+            // add the share of the copied partitions to the totals and the histogram, without altering the collected
+            // ones as the metadata can be finalized more than once (on early opening)
+            StreamingTombstoneHistogramBuilder builder = newTombstoneDropTimeBuilder();
+            tombstoneDropTime.forEach(builder::update);
+            for (Map.Entry<StatsMetadata, long[]> entry : copiedPartitionSources.entrySet())
+            {
+                StatsMetadata source = entry.getKey();
+                double share = copiedShare(source, entry.getValue()[0]);
+                totalColumnsSet += Math.round(source.totalColumnsSet * share);
+                totalRows += Math.round(source.totalRows * share);
+                source.estimatedTombstoneDropTime.forEach((point, value) -> builder.update(point, (int) Math.ceil(value * share)));
+            }
+            tombstoneDropTime = builder.build();
+        }
+
         Map<MetadataType, MetadataComponent> components = new EnumMap<>(MetadataType.class);
         components.put(MetadataType.VALIDATION, new ValidationMetadata(partitioner, bloomFilterFPChance));
         components.put(MetadataType.STATS, new StatsMetadata(estimatedPartitionSize,
@@ -287,10 +370,10 @@ public class MetadataCollector implements PartitionStatisticsCollector
                                                              ttlTracker.min(),
                                                              ttlTracker.max(),
                                                              compressionRatio,
-                                                             estimatedTombstoneDropTime.build(),
+                                                             tombstoneDropTime,
                                                              sstableLevel,
-                                                             makeList(minClusteringValues),
-                                                             makeList(maxClusteringValues),
+                                                             makeList(minClusteringValues, clusteringValuesLimit),
+                                                             makeList(maxClusteringValues, clusteringValuesLimit),
                                                              hasLegacyCounterShards,
                                                              repairedAt,
                                                              totalColumnsSet,
@@ -302,11 +385,11 @@ public class MetadataCollector implements PartitionStatisticsCollector
         return components;
     }
 
-    private static List<ByteBuffer> makeList(ByteBuffer[] values)
+    private static List<ByteBuffer> makeList(ByteBuffer[] values, int limit)
     {
         // In most case, l will be the same size than values, but it's possible for it to be smaller
-        List<ByteBuffer> l = new ArrayList<ByteBuffer>(values.length);
-        for (int i = 0; i < values.length; i++)
+        List<ByteBuffer> l = new ArrayList<ByteBuffer>(limit);
+        for (int i = 0; i < limit; i++)
             if (values[i] == null)
                 break;
             else
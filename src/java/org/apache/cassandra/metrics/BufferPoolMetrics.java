@@ -17,6 +17,8 @@
  */
 package org.apache.cassandra.metrics;
 
+import java.util.function.LongSupplier;
+
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import org.apache.cassandra.utils.memory.BufferPool;
@@ -45,4 +47,27 @@ public class BufferPoolMetrics
             }
         });
     }
+
+    /**
+     * Metrics of a size class of buffers larger than a chunk, which are pooled whole.
+     */
+    public static class SizeClassMetrics
+    {
+        /** Requests served by a free buffer of the size class */
+        public final Meter hits;
+
+        /** Requests that required allocating a new buffer, or allocating outside of the pool if it is exhausted */
+        public final Meter misses;
+
+        /** Total size of the buffers of the size class, free or in use, in bytes */
+        public final Gauge<Long> size;
+
+        public SizeClassMetrics(String sizeClass, LongSupplier size)
+        {
+            MetricNameFactory sizeClassFactory = new DefaultNameFactory("BufferPool", sizeClass);
+            hits = Metrics.meter(sizeClassFactory.createMetricName("Hits"));
+            misses = Metrics.meter(sizeClassFactory.createMetricName("Misses"));
+            this.size = Metrics.register(sizeClassFactory.createMetricName("Size"), size::getAsLong);
+        }
+    }
 }
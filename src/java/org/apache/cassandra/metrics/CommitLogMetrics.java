@@ -18,9 +18,10 @@
 package org.apache.cassandra.metrics;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
 import org.apache.cassandra.db.commitlog.AbstractCommitLogService;
-import org.apache.cassandra.db.commitlog.AbstractCommitLogSegmentManager;
+import org.apache.cassandra.db.commitlog.CommitLog;
 
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
 
@@ -41,14 +42,20 @@ public class CommitLogMetrics
     public final Timer waitingOnSegmentAllocation;
     /** The time spent waiting on CL sync; for Periodic this is only occurs when the sync is lagging its sync interval */
     public final Timer waitingOnCommit;
+    /** Time spent flushing the commit log to disk, for each sync */
+    public final Timer syncTime;
+    /** Bytes written to the commit log since the previous sync, for each sync */
+    public final Histogram syncedBytes;
 
     public CommitLogMetrics()
     {
         waitingOnSegmentAllocation = Metrics.timer(factory.createMetricName("WaitingOnSegmentAllocation"));
         waitingOnCommit = Metrics.timer(factory.createMetricName("WaitingOnCommit"));
+        syncTime = Metrics.timer(factory.createMetricName("SyncTime"));
+        syncedBytes = Metrics.histogram(factory.createMetricName("SyncedBytes"), false);
     }
 
-    public void attach(final AbstractCommitLogService service, final AbstractCommitLogSegmentManager segmentManager)
+    public void attach(final AbstractCommitLogService service, final CommitLog commitLog)
     {
         completedTasks = Metrics.register(factory.createMetricName("CompletedTasks"), new Gauge<Long>()
         {
@@ -68,7 +75,7 @@ public class CommitLogMetrics
         {
             public Long getValue()
             {
-                return segmentManager.onDiskSize();
+                return commitLog.getActiveOnDiskSize();
             }
         });
     }
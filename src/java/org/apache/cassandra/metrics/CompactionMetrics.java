@@ -65,6 +65,12 @@ public class CompactionMetrics implements CompactionManager.CompactionExecutorSt
     /** Total number of compactions which have outright failed due to lack of disk space */
     public final Counter compactionsAborted;
 
+    /** Total number of bytes that compactions of sstables with many droppable tombstones were expected to purge */
+    public final Counter tombstoneCompactionsExpectedPurgedBytes;
+
+    /** Total number of bytes that compactions of sstables with many droppable tombstones actually purged */
+    public final Counter tombstoneCompactionsPurgedBytes;
+
     public CompactionMetrics(final ThreadPoolExecutor... collectors)
     {
         pendingTasks = Metrics.register(factory.createMetricName("PendingTasks"), new Gauge<Integer>()
@@ -152,6 +158,9 @@ public class CompactionMetrics implements CompactionManager.CompactionExecutorSt
         compactionsReduced = Metrics.counter(factory.createMetricName("CompactionsReduced"));
         sstablesDropppedFromCompactions = Metrics.counter(factory.createMetricName("SSTablesDroppedFromCompaction"));
         compactionsAborted = Metrics.counter(factory.createMetricName("CompactionsAborted"));
+
+        tombstoneCompactionsExpectedPurgedBytes = Metrics.counter(factory.createMetricName("TombstoneCompactionsExpectedPurgedBytes"));
+        tombstoneCompactionsPurgedBytes = Metrics.counter(factory.createMetricName("TombstoneCompactionsPurgedBytes"));
     }
 
     public void beginCompaction(CompactionInfo.Holder ci)
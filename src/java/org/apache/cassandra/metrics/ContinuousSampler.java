@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.MinMaxPriorityQueue;
+
+import com.clearspring.analytics.stream.StreamSummary;
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.Sampler.Sample;
+import org.apache.cassandra.utils.Clock;
+import org.apache.cassandra.utils.FBUtilities;
+
+/**
+ * Keeps track of the top items of a table, such as its most frequently read partitions or its slowest queries, for as
+ * long as continuous sampling is enabled, unlike the {@link Sampler}s that are only active for the duration of a
+ * {@code nodetool toppartitions} run.
+ *
+ * The samples are recorded in windows of {@code continuous_sampling_window_in_ms}, and the top items are computed
+ * over the current and the previous windows, so that items that stop being sampled age out after two windows.
+ *
+ * As every read and write is sampled, the request threads only append their samples to one of several buffers, picked
+ * by thread so that they rarely contend, without locking or allocating. The buffers are drained into the windows by a
+ * single thread, once they are half full, and before the top items are computed. Samples are dropped if a buffer is
+ * full, so that sampling doesn't slow down the requests.
+ */
+public abstract class ContinuousSampler<T>
+{
+    /** The number of items kept per window, the top items returned being more accurate the fewer they are */
+    static final int CAPACITY = 256;
+
+    /** The number of samples each buffer holds until it is drained, a power of two */
+    @VisibleForTesting
+    static final int BUFFER_SIZE = 64;
+
+    // twice the processors, rounded up to a power of two
+    private static final int BUFFER_COUNT = Integer.highestOneBit(FBUtilities.getAvailableProcessors() * 2 - 1) << 1;
+
+    // at most one drain is queued per sampler, so the queue is bounded by the number of samplers
+    private static final ThreadPoolExecutor samplerExecutor = new JMXEnabledThreadPoolExecutor(1, 1,
+                                                                                               TimeUnit.SECONDS,
+                                                                                               new LinkedBlockingQueue<>(),
+                                                                                               new NamedThreadFactory("ContinuousSampler"),
+                                                                                               "internal");
+
+    @VisibleForTesting
+    Clock clock = Clock.instance;
+
+    // created on first use, as most tables are never sampled
+    private final AtomicReferenceArray<Buffer<T>> buffers = new AtomicReferenceArray<>(BUFFER_COUNT);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    private Window<T> current;
+    private Window<T> previous;
+    private long windowStartMillis = -1;
+
+    public static boolean isEnabled()
+    {
+        return DatabaseDescriptor.isContinuousSamplingEnabled();
+    }
+
+    public void addSample(T item, long value)
+    {
+        if (!isEnabled() || value <= 0)
+            return;
+
+        int index = (int) Thread.currentThread().getId() & (BUFFER_COUNT - 1);
+        Buffer<T> buffer = buffers.get(index);
+        if (buffer == null)
+        {
+            buffers.compareAndSet(index, null, new Buffer<>());
+            buffer = buffers.get(index);
+        }
+
+        if (buffer.offer(item, value) >= BUFFER_SIZE / 2 && drainScheduled.compareAndSet(false, true))
+            samplerExecutor.execute(drainTask);
+    }
+
+    /**
+     * Inserts the samples of all the buffers into the current window.
+     */
+    @VisibleForTesting
+    synchronized void drain()
+    {
+        // samples added from now on schedule another drain
+        drainScheduled.set(false);
+        for (int i = 0; i < BUFFER_COUNT; i++)
+        {
+            Buffer<T> buffer = buffers.get(i);
+            if (buffer != null)
+                buffer.drainTo(this);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void insert(T item, long value)
+    {
+        maybeRotate();
+        current.offer(item, value);
+    }
+
+    private void maybeRotate()
+    {
+        long now = clock.currentTimeMillis();
+        long windowMillis = DatabaseDescriptor.getContinuousSamplingWindow();
+        if (windowStartMillis == -1 || now - windowStartMillis >= 2 * windowMillis)
+        {
+            // nothing was sampled in the previous window
+            previous = null;
+            current = newWindow();
+            windowStartMillis = now;
+        }
+        else if (now - windowStartMillis >= windowMillis)
+        {
+            previous = current;
+            current = newWindow();
+            windowStartMillis += windowMillis;
+        }
+    }
+
+    /**
+     * @return the top {@code count} items of the current and previous windows, in decreasing order
+     */
+    public synchronized List<Sample<T>> top(int count)
+    {
+        drain();
+        if (windowStartMillis == -1)
+            return Collections.emptyList();
+
+        maybeRotate();
+        Map<T, Sample<T>> merged = new HashMap<>();
+        for (Window<T> window : new Window[]{ previous, current })
+        {
+            if (window == null)
+                continue;
+            for (Sample<T> sample : window.samples())
+                merged.merge(sample.value, sample, this::combine);
+        }
+
+        return merged.values()
+                     .stream()
+                     .sorted(Collections.reverseOrder(Comparator.comparingLong(s -> s.count)))
+                     .limit(count)
+                     .collect(Collectors.toList());
+    }
+
+    protected abstract Window<T> newWindow();
+
+    /**
+     * Combines the samples of an item from the previous and the current windows.
+     */
+    protected abstract Sample<T> combine(Sample<T> previous, Sample<T> current);
+
+    public abstract String toString(T value);
+
+    protected interface Window<T>
+    {
+        void offer(T item, long value);
+
+        Iterable<Sample<T>> samples();
+    }
+
+    /**
+     * A ring of samples, appended to by any thread and drained by a single one.
+     */
+    private static final class Buffer<T>
+    {
+        private final AtomicReferenceArray<T> items = new AtomicReferenceArray<>(BUFFER_SIZE);
+        // published by the store of the item
+        private final long[] values = new long[BUFFER_SIZE];
+        private final AtomicLong writes = new AtomicLong();
+        // only updated by the draining thread
+        private volatile long reads;
+
+        /**
+         * @return the number of samples in the buffer, that doesn't include the offered one if the buffer was full
+         */
+        long offer(T item, long value)
+        {
+            while (true)
+            {
+                long head = reads;
+                long tail = writes.get();
+                long size = tail - head;
+                if (size >= BUFFER_SIZE)
+                    return size;
+
+                if (writes.compareAndSet(tail, tail + 1))
+                {
+                    int index = (int) tail & (BUFFER_SIZE - 1);
+                    values[index] = value;
+                    items.lazySet(index, item);
+                    return size + 1;
+                }
+            }
+        }
+
+        void drainTo(ContinuousSampler<T> sampler)
+        {
+            long head = reads;
+            long tail = writes.get();
+            for (; head < tail; head++)
+            {
+                int index = (int) head & (BUFFER_SIZE - 1);
+                T item = items.get(index);
+                // not stored yet, it will be drained next time
+                if (item == null)
+                    break;
+
+                long value = values[index];
+                items.lazySet(index, null);
+                sampler.insert(item, value);
+            }
+            reads = head;
+        }
+    }
+
+    /**
+     * Tracks the items with the largest sum of values, such as the most frequently read partitions.
+     */
+    public static abstract class FrequencySampler<T> extends ContinuousSampler<T>
+    {
+        protected Window<T> newWindow()
+        {
+            StreamSummary<T> summary = new StreamSummary<>(CAPACITY);
+            return new Window<T>()
+            {
+                public void offer(T item, long value)
+                {
+                    summary.offer(item, (int) Math.min(value, Integer.MAX_VALUE));
+                }
+
+                public Iterable<Sample<T>> samples()
+                {
+                    return summary.topK(CAPACITY)
+                                  .stream()
+                                  .map(c -> new Sample<>(c.getItem(), c.getCount(), c.getError()))
+                                  .collect(Collectors.toList());
+                }
+            };
+        }
+
+        protected Sample<T> combine(Sample<T> previous, Sample<T> current)
+        {
+            return new Sample<>(current.value, previous.count + current.count, previous.error + current.error);
+        }
+    }
+
+    /**
+     * Tracks the items with the largest single values, such as the slowest queries. Only the largest value of each item
+     * is kept, so that an item sampled repeatedly doesn't push out the others.
+     */
+    public static abstract class MaxSampler<T> extends ContinuousSampler<T>
+    {
+        protected Window<T> newWindow()
+        {
+            MinMaxPriorityQueue<Sample<T>> queue = MinMaxPriorityQueue.orderedBy(Collections.reverseOrder(Comparator.<Sample<T>>comparingLong(s -> s.count)))
+                                                                      .create();
+            Map<T, Sample<T>> samples = new HashMap<>();
+            return new Window<T>()
+            {
+                public void offer(T item, long value)
+                {
+                    Sample<T> previous = samples.get(item);
+                    if (previous != null)
+                    {
+                        if (previous.count >= value)
+                            return;
+                        queue.remove(previous);
+                    }
+                    else if (queue.size() >= CAPACITY)
+                    {
+                        if (queue.peekLast().count >= value)
+                            return;
+                        samples.remove(queue.removeLast().value);
+                    }
+
+                    Sample<T> sample = new Sample<>(item, value, 0);
+                    queue.add(sample);
+                    samples.put(item, sample);
+                }
+
+                public Iterable<Sample<T>> samples()
+                {
+                    return new ArrayList<>(queue);
+                }
+            };
+        }
+
+        protected Sample<T> combine(Sample<T> previous, Sample<T> current)
+        {
+            return previous.count >= current.count ? previous : current;
+        }
+    }
+}
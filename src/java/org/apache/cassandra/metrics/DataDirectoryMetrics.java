@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import java.util.function.IntSupplier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+/**
+ * Metrics for the I/O of flushes and compactions on a data directory.
+ */
+public class DataDirectoryMetrics
+{
+    public static final String TYPE_NAME = "DataDirectory";
+
+    /** Bytes written by flushes to the directory */
+    public final Meter flushedBytes;
+    /** Number of flushes currently writing to the directory */
+    public final Gauge<Integer> activeFlushes;
+    /** Bytes read by compactions from the directory */
+    public final Meter compactionBytes;
+    /** Time compactions waited for the throughput budget of the directory */
+    public final Timer compactionThrottled;
+    /** Time compactions were paused to let flushes to the directory through */
+    public final Timer compactionPausedForFlush;
+
+    public DataDirectoryMetrics(String path, IntSupplier activeFlushes)
+    {
+        MetricNameFactory factory = new DefaultNameFactory(TYPE_NAME, scope(path));
+        flushedBytes = Metrics.meter(factory.createMetricName("FlushedBytes"));
+        this.activeFlushes = Metrics.register(factory.createMetricName("ActiveFlushes"), activeFlushes::getAsInt);
+        compactionBytes = Metrics.meter(factory.createMetricName("CompactionBytes"));
+        compactionThrottled = Metrics.timer(factory.createMetricName("CompactionThrottled"));
+        compactionPausedForFlush = Metrics.timer(factory.createMetricName("CompactionPausedForFlush"));
+    }
+
+    // the characters that can't be used as is in an MBean name
+    private static String scope(String path)
+    {
+        return path.replaceAll("[:,=*?\"]", "_");
+    }
+}
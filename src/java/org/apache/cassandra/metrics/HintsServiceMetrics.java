@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import org.apache.cassandra.locator.InetAddressAndPort;
@@ -42,6 +43,13 @@ public final class HintsServiceMetrics
     public static final Meter hintsFailed    = Metrics.meter(factory.createMetricName("HintsFailed"));
     public static final Meter hintsTimedOut  = Metrics.meter(factory.createMetricName("HintsTimedOut"));
 
+    /** Time taken to append a hint to the hints buffer, including waiting for a free buffer */
+    public static final Timer hintsAppendLatency = Metrics.timer(factory.createMetricName("HintsAppendLatency"));
+    /** Time taken to flush a hints buffer to the hints files */
+    public static final Timer hintsFlushLatency  = Metrics.timer(factory.createMetricName("HintsFlushLatency"));
+    /** Time taken by the target node to respond to a dispatched hint, or batch of hints */
+    public static final Timer hintsDispatchLatency = Metrics.timer(factory.createMetricName("HintsDispatchLatency"));
+
     /** Histogram of all hint delivery delays */
     private static final Histogram globalDelayHistogram = Metrics.histogram(factory.createMetricName("Hint_delays"), false);
 
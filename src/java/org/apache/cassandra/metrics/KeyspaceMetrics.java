@@ -115,6 +115,8 @@ public class KeyspaceMetrics
     public final Timer repairPrepareTime;
     /** Time spent anticompacting */
     public final Timer anticompactionTime;
+    /** Time spent writing each of the sstables memtables are flushed to */
+    public final Timer flushShardTime;
     /** total time spent creating merkle trees */
     public final Timer validationTime;
     /** total time spent syncing data after repair */
@@ -298,6 +300,7 @@ public class KeyspaceMetrics
         repairTime = Metrics.timer(factory.createMetricName("RepairTime"));
         repairPrepareTime = Metrics.timer(factory.createMetricName("RepairPrepareTime"));
         anticompactionTime = Metrics.timer(factory.createMetricName("AntiCompactionTime"));
+        flushShardTime = Metrics.timer(factory.createMetricName("FlushShardTime"));
         validationTime = Metrics.timer(factory.createMetricName("ValidationTime"));
         repairSyncTime = Metrics.timer(factory.createMetricName("RepairSyncTime"));
         partitionsValidated = Metrics.histogram(factory.createMetricName("PartitionsValidated"), false);
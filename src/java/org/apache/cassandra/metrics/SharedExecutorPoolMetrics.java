@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+/**
+ * Metrics for the workers of a {@link org.apache.cassandra.concurrent.SharedExecutorPool}, which are shared by all of
+ * its executors. The metrics of each executor are in its {@link ThreadPoolMetrics}.
+ */
+public class SharedExecutorPoolMetrics
+{
+    /** Number of workers currently spinning, waiting for tasks */
+    public final Gauge<Integer> spinningWorkers;
+
+    /** Number of times a worker slept for a short interval while spinning, before looking for tasks again */
+    public final Counter spins;
+
+    /** Total time spent sleeping by the spinning workers, in microseconds */
+    public final Counter spinTime;
+
+    /** Number of times a worker was descheduled and parked, because too many workers were spinning */
+    public final Counter parks;
+
+    /** Number of times a parked worker was unparked, to run tasks or to spin */
+    public final Counter unparks;
+
+    /** Number of worker threads started */
+    public final Counter workersStarted;
+
+    /** Number of times a worker was assigned the work of an executor of another group than its own */
+    public final Counter crossGroupAssignments;
+
+    public SharedExecutorPoolMetrics(String poolName, AtomicInteger spinningCount)
+    {
+        MetricNameFactory factory = new DefaultNameFactory("SharedExecutorPool", poolName);
+
+        spinningWorkers = Metrics.register(factory.createMetricName("SpinningWorkers"), (Gauge<Integer>) spinningCount::get);
+        spins = Metrics.counter(factory.createMetricName("Spins"));
+        spinTime = Metrics.counter(factory.createMetricName("SpinTime"));
+        parks = Metrics.counter(factory.createMetricName("Parks"));
+        unparks = Metrics.counter(factory.createMetricName("Unparks"));
+        workersStarted = Metrics.counter(factory.createMetricName("WorkersStarted"));
+        crossGroupAssignments = Metrics.counter(factory.createMetricName("CrossGroupAssignments"));
+    }
+}
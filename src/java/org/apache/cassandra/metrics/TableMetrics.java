@@ -99,6 +99,8 @@ public class TableMetrics
     public final Counter pendingFlushes;
     /** Total number of bytes flushed since server [re]start */
     public final Counter bytesFlushed;
+    /** Time spent writing each of the sstables a memtable is flushed to, one per data directory and flush shard */
+    public final TableTimer flushShardTime;
     /** Total number of bytes written by compaction since server [re]start */
     public final Counter compactionBytesWritten;
     /** Estimate of number of pending compactios for this table */
@@ -204,6 +206,11 @@ public class TableMetrics
     /** Dropped Mutations Count */
     public final Counter droppedMutations;
 
+    /** CPU time used by the client requests on the table, in microseconds, when request resource accounting is enabled */
+    public final Counter requestCpuTime;
+    /** Bytes allocated by the client requests on the table, when request resource accounting is enabled */
+    public final Counter requestAllocatedBytes;
+
     private final MetricNameFactory factory;
     private final MetricNameFactory aliasFactory;
     private static final MetricNameFactory globalFactory = new AllTableMetricNameFactory("Table");
@@ -245,6 +252,17 @@ public class TableMetrics
     /** When sampler activated, will track the slowest local reads **/
     public final Sampler<String> topLocalReadQueryTime;
 
+    /** When continuous sampling enabled, tracks the most frequently read partitions **/
+    public final ContinuousSampler<ByteBuffer> hotReadPartitions;
+    /** When continuous sampling enabled, tracks the most frequently written to partitions **/
+    public final ContinuousSampler<ByteBuffer> hotWritePartitions;
+    /** When continuous sampling enabled, tracks the partitions with the largest mutations **/
+    public final ContinuousSampler<ByteBuffer> largestWritePartitions;
+    /** When continuous sampling enabled, tracks the partitions with the most tombstones scanned by reads **/
+    public final ContinuousSampler<ByteBuffer> tombstonePartitions;
+    /** When continuous sampling enabled, tracks the local reads slower than the slow query timeout **/
+    public final ContinuousSampler<String> slowestQueries;
+
     private static Pair<Long, Long> totalNonSystemTablesSize(Predicate<SSTableReader> predicate)
     {
         long total = 0;
@@ -416,6 +434,42 @@ public class TableMetrics
             }
         };
 
+        hotReadPartitions = new ContinuousSampler.FrequencySampler<ByteBuffer>()
+        {
+            public String toString(ByteBuffer value)
+            {
+                return cfs.metadata().partitionKeyType.getString(value);
+            }
+        };
+        hotWritePartitions = new ContinuousSampler.FrequencySampler<ByteBuffer>()
+        {
+            public String toString(ByteBuffer value)
+            {
+                return cfs.metadata().partitionKeyType.getString(value);
+            }
+        };
+        largestWritePartitions = new ContinuousSampler.MaxSampler<ByteBuffer>()
+        {
+            public String toString(ByteBuffer value)
+            {
+                return cfs.metadata().partitionKeyType.getString(value);
+            }
+        };
+        tombstonePartitions = new ContinuousSampler.FrequencySampler<ByteBuffer>()
+        {
+            public String toString(ByteBuffer value)
+            {
+                return cfs.metadata().partitionKeyType.getString(value);
+            }
+        };
+        slowestQueries = new ContinuousSampler.MaxSampler<String>()
+        {
+            public String toString(String value)
+            {
+                return value;
+            }
+        };
+
         samplers.put(SamplerType.READS, topReadPartitionFrequency);
         samplers.put(SamplerType.WRITES, topWritePartitionFrequency);
         samplers.put(SamplerType.WRITE_SIZE, topWritePartitionSize);
@@ -601,6 +655,7 @@ public class TableMetrics
         rangeLatency = new LatencyMetrics(factory, "Range", cfs.keyspace.metric.rangeLatency, globalRangeLatency);
         pendingFlushes = createTableCounter("PendingFlushes");
         bytesFlushed = createTableCounter("BytesFlushed");
+        flushShardTime = createTableTimer("FlushShardTime", cfs.keyspace.metric.flushShardTime);
 
         compactionBytesWritten = createTableCounter("CompactionBytesWritten");
         pendingCompactions = createTableGauge("PendingCompactions", new Gauge<Integer>()
@@ -909,6 +964,9 @@ public class TableMetrics
 
         droppedMutations = createTableCounter("DroppedMutations");
 
+        requestCpuTime = createTableCounter("RequestCpuTime");
+        requestAllocatedBytes = createTableCounter("RequestAllocatedBytes");
+
         casPrepare = new LatencyMetrics(factory, "CasPrepare", cfs.keyspace.metric.casPrepare);
         casPropose = new LatencyMetrics(factory, "CasPropose", cfs.keyspace.metric.casPropose);
         casCommit = new LatencyMetrics(factory, "CasCommit", cfs.keyspace.metric.casCommit);
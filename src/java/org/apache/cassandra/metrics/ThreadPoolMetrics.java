@@ -21,6 +21,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
 import org.apache.cassandra.concurrent.LocalAwareExecutorService;
 import org.apache.cassandra.metrics.CassandraMetricsRegistry.MetricName;
 
@@ -40,6 +41,8 @@ public class ThreadPoolMetrics
     public static final String TOTAL_BLOCKED_TASKS = "TotalBlockedTasks";
     public static final String MAX_POOL_SIZE = "MaxPoolSize";
     public static final String MAX_TASKS_QUEUED = "MaxTasksQueued";
+    public static final String QUEUE_WAIT_LATENCY = "QueueWaitLatency";
+    public static final String TASK_RUN_LATENCY = "TaskRunLatency";
 
     /** Number of active tasks. */
     public final Gauge<Integer> activeTasks;
@@ -65,6 +68,18 @@ public class ThreadPoolMetrics
     /** Maximum number of tasks queued before a task get blocked */
     public final Gauge<Integer> maxTasksQueued;
 
+    /**
+     * Time spent by tasks in the queue of the executor, before a thread starts running them.
+     * Only recorded by the executors of a {@link org.apache.cassandra.concurrent.SharedExecutorPool}.
+     */
+    public final Timer queueWaitLatency;
+
+    /**
+     * Time spent running tasks, once they are taken from the queue.
+     * Only recorded by the executors of a {@link org.apache.cassandra.concurrent.SharedExecutorPool}.
+     */
+    public final Timer taskRunLatency;
+
     public final String path;
     public final String poolName;
 
@@ -87,6 +102,8 @@ public class ThreadPoolMetrics
         completedTasks = executor::getCompletedTaskCount;
         maxPoolSize = executor::getMaximumPoolSize;
         maxTasksQueued = executor::getMaxTasksQueued;
+        queueWaitLatency = new Timer(new DecayingEstimatedHistogramReservoir());
+        taskRunLatency = new Timer(new DecayingEstimatedHistogramReservoir());
     }
 
     public ThreadPoolMetrics register()
@@ -98,6 +115,8 @@ public class ThreadPoolMetrics
         Metrics.register(makeMetricName(path, poolName, TOTAL_BLOCKED_TASKS), totalBlocked);
         Metrics.register(makeMetricName(path, poolName, MAX_POOL_SIZE), maxPoolSize);
         Metrics.register(makeMetricName(path, poolName, MAX_TASKS_QUEUED), maxTasksQueued);
+        Metrics.register(makeMetricName(path, poolName, QUEUE_WAIT_LATENCY), queueWaitLatency);
+        Metrics.register(makeMetricName(path, poolName, TASK_RUN_LATENCY), taskRunLatency);
         return Metrics.register(this);
     }
 
@@ -110,6 +129,8 @@ public class ThreadPoolMetrics
         Metrics.remove(makeMetricName(path, poolName, TOTAL_BLOCKED_TASKS));
         Metrics.remove(makeMetricName(path, poolName, MAX_POOL_SIZE));
         Metrics.remove(makeMetricName(path, poolName, MAX_TASKS_QUEUED));
+        Metrics.remove(makeMetricName(path, poolName, QUEUE_WAIT_LATENCY));
+        Metrics.remove(makeMetricName(path, poolName, TASK_RUN_LATENCY));
         Metrics.remove(this);
     }
 
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterators;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * Per-partition digests of the data a replica holds for a set of ranges that were found out of sync
+ * by merkle tree comparison. Comparing the digests of two replicas narrows the mismatch down to the
+ * individual partitions that actually differ (see {@link RowLevelSyncTask}).
+ *
+ * Digests are computed the same way the merkle tree leaves are, so a partition that has been entirely
+ * purged on one replica is treated the same as a partition that does not exist there.
+ */
+public class PartitionDigests
+{
+    public static final IVersionedSerializer<PartitionDigests> serializer = new PartitionDigestsSerializer();
+
+    // partition key -> digest, in token order
+    private final Map<ByteBuffer, ByteBuffer> digests;
+    // partition key -> number of bytes digested, which is close to the size of the partition
+    private final Map<ByteBuffer, Long> sizes;
+    /** true if computation stopped early because the configured partition limit was reached */
+    public final boolean truncated;
+
+    @VisibleForTesting
+    PartitionDigests(Map<ByteBuffer, ByteBuffer> digests, Map<ByteBuffer, Long> sizes, boolean truncated)
+    {
+        this.digests = digests;
+        this.sizes = sizes;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Computes the digests of the partitions {@code cfs} holds for the given ranges, reading the same data
+     * a validation for {@code desc} would read.
+     *
+     * @param maxPartitions maximum number of partition digests to compute; if the ranges hold more partitions than
+     *                      that, the result is {@link #truncated} and must not be used to drive a row level sync.
+     */
+    public static PartitionDigests compute(ColumnFamilyStore cfs, RepairJobDesc desc, Collection<Range<Token>> ranges, int nowInSec, int maxPartitions) throws IOException
+    {
+        Map<ByteBuffer, ByteBuffer> digests = new LinkedHashMap<>();
+        Map<ByteBuffer, Long> sizes = new HashMap<>();
+        try (ValidationPartitionIterator vi = cfs.getRepairManager().getValidationIterator(ranges, desc.parentSessionId, desc.sessionId, false, nowInSec))
+        {
+            while (vi.hasNext())
+            {
+                if (digests.size() >= maxPartitions)
+                    return new PartitionDigests(digests, sizes, true);
+
+                try (UnfilteredRowIterator partition = vi.next())
+                {
+                    Validator.CountingHasher hasher = new Validator.CountingHasher();
+                    UnfilteredRowIterators.digest(partition, hasher, MessagingService.current_version);
+                    // same as the merkle tree, skip partitions that have nothing left to digest (CASSANDRA-8979)
+                    if (hasher.getCount() > 0)
+                    {
+                        ByteBuffer key = partition.partitionKey().getKey();
+                        digests.put(key, ByteBuffer.wrap(hasher.hash().asBytes()));
+                        sizes.put(key, hasher.getCount());
+                    }
+                }
+            }
+        }
+        return new PartitionDigests(digests, sizes, false);
+    }
+
+    public boolean contains(ByteBuffer key)
+    {
+        return digests.containsKey(key);
+    }
+
+    /**
+     * Returns the approximate size of the given partition, in bytes, or 0 if this replica doesn't have it.
+     */
+    public long partitionSize(ByteBuffer key)
+    {
+        Long size = sizes.get(key);
+        return size == null ? 0 : size;
+    }
+
+    public int size()
+    {
+        return digests.size();
+    }
+
+    /**
+     * Returns the keys of the partitions whose content differs between this replica and {@code other}, including
+     * the partitions only one of the two replicas has.
+     */
+    public Set<ByteBuffer> difference(PartitionDigests other)
+    {
+        Set<ByteBuffer> differences = new LinkedHashSet<>();
+        for (Map.Entry<ByteBuffer, ByteBuffer> entry : digests.entrySet())
+        {
+            if (!entry.getValue().equals(other.digests.get(entry.getKey())))
+                differences.add(entry.getKey());
+        }
+        for (ByteBuffer key : other.digests.keySet())
+        {
+            if (!digests.containsKey(key))
+                differences.add(key);
+        }
+        return differences;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof PartitionDigests))
+            return false;
+        PartitionDigests other = (PartitionDigests) o;
+        return truncated == other.truncated && digests.equals(other.digests) && sizes.equals(other.sizes);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(truncated, digests, sizes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PartitionDigests{" +
+               "partitions=" + digests.size() +
+               ", truncated=" + truncated +
+               '}';
+    }
+
+    private static class PartitionDigestsSerializer implements IVersionedSerializer<PartitionDigests>
+    {
+        public void serialize(PartitionDigests digests, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeBoolean(digests.truncated);
+            out.writeInt(digests.digests.size());
+            for (Map.Entry<ByteBuffer, ByteBuffer> entry : digests.digests.entrySet())
+            {
+                ByteBufferUtil.writeWithShortLength(entry.getKey(), out);
+                ByteBufferUtil.writeWithShortLength(entry.getValue(), out);
+                out.writeUnsignedVInt(digests.partitionSize(entry.getKey()));
+            }
+        }
+
+        public PartitionDigests deserialize(DataInputPlus in, int version) throws IOException
+        {
+            boolean truncated = in.readBoolean();
+            int size = in.readInt();
+            Map<ByteBuffer, ByteBuffer> digests = new LinkedHashMap<>(size);
+            Map<ByteBuffer, Long> sizes = new HashMap<>(size);
+            for (int i = 0; i < size; i++)
+            {
+                ByteBuffer key = ByteBufferUtil.readWithShortLength(in);
+                digests.put(key, ByteBufferUtil.readWithShortLength(in));
+                sizes.put(key, in.readUnsignedVInt());
+            }
+            return new PartitionDigests(digests, sizes, truncated);
+        }
+
+        public long serializedSize(PartitionDigests digests, int version)
+        {
+            long size = TypeSizes.sizeof(digests.truncated);
+            size += TypeSizes.sizeof(digests.digests.size());
+            for (Map.Entry<ByteBuffer, ByteBuffer> entry : digests.digests.entrySet())
+            {
+                size += ByteBufferUtil.serializedSizeWithShortLength(entry.getKey());
+                size += ByteBufferUtil.serializedSizeWithShortLength(entry.getValue());
+                size += TypeSizes.sizeofUnsignedVInt(digests.partitionSize(entry.getKey()));
+            }
+            return size;
+        }
+    }
+}
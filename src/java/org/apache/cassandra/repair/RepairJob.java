@@ -168,6 +168,19 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
         return session.commonRange.transEndpoints.contains(ep);
     }
 
+    /**
+     * Row level sync applies the differences as regular writes, so it can't be used when the synced data has to be
+     * isolated in a pending repair (incremental repair), nor when nothing is to be synced (preview repair). It also
+     * requires the peer to support it, which may not be the case during upgrades.
+     */
+    private boolean useRowLevelSync(InetAddressAndPort peer)
+    {
+        return DatabaseDescriptor.getRepairRowLevelSyncMaxPartitions() > 0
+               && !isIncremental
+               && !previewKind.isPreview()
+               && RowLevelSyncTask.isSupportedBy(peer);
+    }
+
     private ListenableFuture<List<SyncStat>> standardSyncing(List<TreeResponse> trees)
     {
         InetAddressAndPort local = FBUtilities.getLocalAddressAndPort();
@@ -200,8 +213,16 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
                     if (!requestRanges && !transferRanges)
                         continue;
 
-                    task = new LocalSyncTask(desc, self, remote, isIncremental ? desc.parentSessionId : null,
-                                             requestRanges, transferRanges, session.previewKind);
+                    if (useRowLevelSync(remote.endpoint))
+                    {
+                        task = new RowLevelSyncTask(desc, self, remote, requestRanges, transferRanges, session.previewKind, taskExecutor);
+                        session.waitForPartitionDigests(Pair.create(desc, remote.endpoint), (RowLevelSyncTask) task);
+                    }
+                    else
+                    {
+                        task = new LocalSyncTask(desc, self, remote, isIncremental ? desc.parentSessionId : null,
+                                                 requestRanges, transferRanges, session.previewKind);
+                    }
                 }
                 else if (isTransient(r1.endpoint) || isTransient(r2.endpoint))
                 {
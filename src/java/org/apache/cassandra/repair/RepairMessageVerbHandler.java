@@ -130,6 +130,36 @@ public class RepairMessageVerbHandler implements IVerbHandler<RepairMessage>
                     ValidationManager.instance.submitValidation(store, validator);
                     break;
 
+                case PARTITION_DIGESTS_REQUEST:
+                    PartitionDigestsRequest digestsRequest = (PartitionDigestsRequest) message.payload;
+                    logger.debug("Computing partition digests {}", digestsRequest);
+                    ColumnFamilyStore digestStore = ColumnFamilyStore.getIfExists(desc.keyspace, desc.columnFamily);
+                    if (digestStore == null)
+                    {
+                        logger.error("Table {}.{} was dropped during sync phase of repair", desc.keyspace, desc.columnFamily);
+                        MessagingService.instance().sendOneWay(new PartitionDigestsResponse(desc).createMessage(), message.from);
+                        return;
+                    }
+
+                    // reads the same data as a validation does, so run it alongside them
+                    digestStore.getRepairManager().submitValidation(() -> {
+                        PartitionDigests digests;
+                        try
+                        {
+                            digests = PartitionDigests.compute(digestStore, desc, digestsRequest.ranges,
+                                                               digestsRequest.nowInSec, digestsRequest.maxPartitions);
+                        }
+                        catch (Throwable t)
+                        {
+                            // we need to inform the coordinator of our failure, otherwise it will hang on repair forever
+                            MessagingService.instance().sendOneWay(new PartitionDigestsResponse(desc).createMessage(), message.from);
+                            throw t;
+                        }
+                        MessagingService.instance().sendOneWay(new PartitionDigestsResponse(desc, digests).createMessage(), message.from);
+                        return digests;
+                    });
+                    break;
+
                 case SYNC_REQUEST:
                     // forwarded sync request
                     SyncRequest request = (SyncRequest) message.payload;
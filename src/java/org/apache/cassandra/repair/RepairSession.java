@@ -103,6 +103,8 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
     private final ConcurrentMap<Pair<RepairJobDesc, InetAddressAndPort>, ValidationTask> validating = new ConcurrentHashMap<>();
     // Remote syncing jobs wait response in syncingTasks map
     private final ConcurrentMap<Pair<RepairJobDesc, SyncNodePair>, CompletableRemoteSyncTask> syncingTasks = new ConcurrentHashMap<>();
+    // Row level syncing jobs wait for the partition digests of their peer in digesting map
+    private final ConcurrentMap<Pair<RepairJobDesc, InetAddressAndPort>, RowLevelSyncTask> digesting = new ConcurrentHashMap<>();
 
     // Tasks(snapshot, validate request, differencing, ...) are run on taskExecutor
     public final ListeningExecutorService taskExecutor = MoreExecutors.listeningDecorator(DebuggableThreadPoolExecutor.createCachedThreadpoolWithMaxSize("RepairJobTask"));
@@ -199,6 +201,11 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
         syncingTasks.put(key, task);
     }
 
+    public void waitForPartitionDigests(Pair<RepairJobDesc, InetAddressAndPort> key, RowLevelSyncTask task)
+    {
+        digesting.put(key, task);
+    }
+
     /**
      * Receive merkle tree response or failed response from {@code endpoint} for current repair job.
      *
@@ -242,6 +249,27 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
         task.syncComplete(success, summaries);
     }
 
+    /**
+     * Receive partition digests or failed response from {@code endpoint} for current repair job.
+     *
+     * @param desc repair job description
+     * @param endpoint endpoint that sent the partition digests
+     * @param digests computed partition digests, or null if their computation failed
+     */
+    public void partitionDigestsComplete(RepairJobDesc desc, InetAddressAndPort endpoint, PartitionDigests digests)
+    {
+        RowLevelSyncTask task = digesting.remove(Pair.create(desc, endpoint));
+        if (task == null)
+        {
+            assert terminated;
+            return;
+        }
+
+        if (logger.isDebugEnabled())
+            logger.debug("{} Received {} from {} for {}", previewKind.logPrefix(getId()), digests, endpoint, desc.columnFamily);
+        task.digestsReceived(digests);
+    }
+
     private String repairedNodes()
     {
         StringBuilder sb = new StringBuilder();
@@ -339,6 +367,7 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
         terminated = true;
         validating.clear();
         syncingTasks.clear();
+        digesting.clear();
     }
 
     /**
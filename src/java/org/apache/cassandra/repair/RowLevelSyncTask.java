@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.ReadExecutionController;
+import org.apache.cassandra.db.ReadResponse;
+import org.apache.cassandra.db.SinglePartitionReadCommand;
+import org.apache.cassandra.db.WriteResponse;
+import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
+import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.RepairException;
+import org.apache.cassandra.gms.Feature;
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.net.AsyncOneResponse;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.repair.messages.PartitionDigestsRequest;
+import org.apache.cassandra.streaming.PreviewKind;
+import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.MerkleTrees;
+
+/**
+ * RowLevelSyncTask syncs the local (coordinator) node with a remote replica partition by partition instead of
+ * streaming the whole token ranges found out of sync by merkle tree comparison.
+ *
+ * It first asks the remote replica for the digests of its partitions in those ranges ({@link PartitionDigests}),
+ * compares them with the local ones, and only exchanges the partitions that actually differ: local partitions
+ * are sent to the remote replica as mutations, the same way read repair does, and remote partitions are read
+ * and applied locally. If either replica holds more partitions in the mismatching ranges than
+ * {@code repair_row_level_sync_max_partitions}, it falls back to a streaming {@link LocalSyncTask}. Partitions
+ * too large to be exchanged as a single mutation are also synced by streaming the ranges they belong to.
+ *
+ * The peer must understand the partition digests messages, see {@link #isSupportedBy(InetAddressAndPort)}.
+ */
+public class RowLevelSyncTask extends SyncTask
+{
+    private static final Logger logger = LoggerFactory.getLogger(RowLevelSyncTask.class);
+
+    // maximum number of reads or mutations waiting for a response at any given time
+    private static final int MAX_IN_FLIGHT = 128;
+
+    private final boolean requestRanges;
+    private final boolean transferRanges;
+    private final Executor executor;
+    private final int nowInSec;
+    private final int maxPartitions;
+    // the digested size of a partition is a bit smaller than its serialized size, hence the margin
+    @VisibleForTesting
+    long maxPartitionSize = DatabaseDescriptor.getMaxMutationSize() / 2;
+
+    public RowLevelSyncTask(RepairJobDesc desc, TreeResponse local, TreeResponse remote,
+                            boolean requestRanges, boolean transferRanges, PreviewKind previewKind, Executor executor)
+    {
+        this(desc, local.endpoint, remote.endpoint, MerkleTrees.difference(local.trees, remote.trees),
+             requestRanges, transferRanges, previewKind, executor);
+    }
+
+    public RowLevelSyncTask(RepairJobDesc desc, InetAddressAndPort local, InetAddressAndPort remote,
+                            List<Range<Token>> diff, boolean requestRanges, boolean transferRanges,
+                            PreviewKind previewKind, Executor executor)
+    {
+        super(desc, local, remote, diff, previewKind);
+        Preconditions.checkArgument(requestRanges || transferRanges, "Nothing to do in a sync job");
+        Preconditions.checkArgument(local.equals(FBUtilities.getBroadcastAddressAndPort()));
+
+        this.requestRanges = requestRanges;
+        this.transferRanges = transferRanges;
+        this.executor = executor;
+        this.nowInSec = FBUtilities.nowInSeconds();
+        this.maxPartitions = DatabaseDescriptor.getRepairRowLevelSyncMaxPartitions();
+    }
+
+    /**
+     * Whether the given peer can take part in a row level sync. Nodes on the current messaging version may not know
+     * the partition digests messages, so the peer must have published {@link Feature#ROW_LEVEL_REPAIR_SYNC}.
+     */
+    public static boolean isSupportedBy(InetAddressAndPort peer)
+    {
+        return Feature.ROW_LEVEL_REPAIR_SYNC.isSupportedBy(peer);
+    }
+
+    /**
+     * Sends the partition digests request to the remote replica, the sync continues once
+     * {@link #digestsReceived(PartitionDigests)} is called with its response.
+     */
+    @Override
+    protected void startSync()
+    {
+        String message = String.format("Requesting partition digests of %d ranges from %s", rangesToSync.size(), nodePair.peer);
+        logger.info("{} {}", previewKind.logPrefix(desc.sessionId), message);
+        Tracing.traceRepair(message);
+
+        PartitionDigestsRequest request = new PartitionDigestsRequest(desc, rangesToSync, nowInSec, maxPartitions);
+        MessagingService.instance().sendOneWay(request.createMessage(), nodePair.peer);
+    }
+
+    /**
+     * Receive the partition digests of the remote replica.
+     *
+     * @param remoteDigests digests sent by the remote replica, null if their computation failed.
+     */
+    public void digestsReceived(PartitionDigests remoteDigests)
+    {
+        if (remoteDigests == null)
+        {
+            setException(new RepairException(desc, previewKind, "Partition digest computation failed in " + nodePair.peer));
+            finished();
+            return;
+        }
+        // don't hold up the ANTI_ENTROPY stage while reading and exchanging partitions
+        executor.execute(() -> sync(remoteDigests));
+    }
+
+    private void sync(PartitionDigests remoteDigests)
+    {
+        try
+        {
+            ColumnFamilyStore cfs = ColumnFamilyStore.getIfExists(desc.keyspace, desc.columnFamily);
+            if (cfs == null)
+                throw new RepairException(desc, previewKind, String.format("Table %s.%s was dropped during sync phase of repair", desc.keyspace, desc.columnFamily));
+
+            PartitionDigests localDigests = remoteDigests.truncated
+                                          ? null
+                                          : PartitionDigests.compute(cfs, desc, rangesToSync, nowInSec, maxPartitions);
+            if (localDigests == null || localDigests.truncated)
+            {
+                logger.info("{} Too many partitions in the {} ranges out of sync between {} and {} on {}, falling back to streaming",
+                            previewKind.logPrefix(desc.sessionId), rangesToSync.size(), nodePair.coordinator, nodePair.peer, desc.columnFamily);
+                completeWithStreaming(rangesToSync);
+                return;
+            }
+
+            Set<ByteBuffer> differences = localDigests.difference(remoteDigests);
+            List<Range<Token>> rangesToStream = rangesOfLargePartitions(cfs, differences, localDigests, remoteDigests);
+            String message = String.format("Performing row level repair of %d partitions with %s", differences.size(), nodePair.peer);
+            if (!rangesToStream.isEmpty())
+                message += String.format(", streaming the %d ranges holding partitions larger than %d bytes", rangesToStream.size(), maxPartitionSize);
+            logger.info("{} {}", previewKind.logPrefix(desc.sessionId), message);
+            Tracing.traceRepair(message);
+
+            List<AsyncOneResponse<WriteResponse>> mutations = new ArrayList<>();
+            List<Runnable> reads = new ArrayList<>();
+            for (ByteBuffer key : differences)
+            {
+                // the streamed ranges are synced as a whole
+                if (!rangesToStream.isEmpty() && Range.isInRanges(cfs.decorateKey(key).getToken(), rangesToStream))
+                    continue;
+
+                if (transferRanges && localDigests.contains(key))
+                {
+                    AsyncOneResponse<WriteResponse> mutation = sendPartition(cfs, key);
+                    if (mutation != null)
+                        mutations.add(mutation);
+                }
+                if (requestRanges && remoteDigests.contains(key))
+                    reads.add(requestPartition(cfs, key));
+
+                if (mutations.size() + reads.size() >= MAX_IN_FLIGHT)
+                    awaitInFlight(mutations, reads);
+            }
+            awaitInFlight(mutations, reads);
+
+            if (!rangesToStream.isEmpty())
+            {
+                completeWithStreaming(rangesToStream);
+                return;
+            }
+
+            message = String.format("Sync complete using row level repair between %s and %s on %s", nodePair.coordinator, nodePair.peer, desc.columnFamily);
+            logger.info("{} {}", previewKind.logPrefix(desc.sessionId), message);
+            Tracing.traceRepair(message);
+            set(stat);
+        }
+        catch (Throwable t)
+        {
+            setException(t);
+        }
+        finished();
+    }
+
+    /**
+     * Returns the ranges to sync holding partitions that differ and are too large, on either replica, to be sent as a
+     * single mutation.
+     */
+    private List<Range<Token>> rangesOfLargePartitions(ColumnFamilyStore cfs, Set<ByteBuffer> differences,
+                                                       PartitionDigests localDigests, PartitionDigests remoteDigests)
+    {
+        List<Range<Token>> ranges = new ArrayList<>();
+        for (ByteBuffer key : differences)
+        {
+            if (Math.max(localDigests.partitionSize(key), remoteDigests.partitionSize(key)) <= maxPartitionSize)
+                continue;
+
+            Token token = cfs.decorateKey(key).getToken();
+            for (Range<Token> range : rangesToSync)
+            {
+                if (range.contains(token) && !ranges.contains(range))
+                    ranges.add(range);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Reads the local version of the given partition and sends it to the remote replica as a mutation.
+     *
+     * @return the response to the mutation, or null if there is nothing to send.
+     */
+    private AsyncOneResponse<WriteResponse> sendPartition(ColumnFamilyStore cfs, ByteBuffer key)
+    {
+        SinglePartitionReadCommand command = SinglePartitionReadCommand.fullPartitionRead(cfs.metadata(), nowInSec, cfs.decorateKey(key));
+        AsyncOneResponse<WriteResponse> response = new AsyncOneResponse<>();
+        try (ReadExecutionController controller = command.executionController();
+             UnfilteredPartitionIterator partitions = command.executeLocally(controller))
+        {
+            if (!partitions.hasNext())
+                return null;
+
+            try (UnfilteredRowIterator partition = partitions.next())
+            {
+                Mutation mutation = new Mutation(PartitionUpdate.fromIterator(partition, command.columnFilter()));
+                MessagingService.instance().sendRR(mutation.createMessage(MessagingService.Verb.READ_REPAIR), nodePair.peer, response);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Requests the remote version of the given partition, returning the task applying it locally once received.
+     */
+    private Runnable requestPartition(ColumnFamilyStore cfs, ByteBuffer key)
+    {
+        SinglePartitionReadCommand command = SinglePartitionReadCommand.fullPartitionRead(cfs.metadata(), nowInSec, cfs.decorateKey(key));
+        AsyncOneResponse<ReadResponse> response = new AsyncOneResponse<>();
+        MessagingService.instance().sendRR(command.createMessage(), nodePair.peer, response);
+        return () ->
+        {
+            try (UnfilteredPartitionIterator partitions = await(response, DatabaseDescriptor.getReadRpcTimeout()).makeIterator(command))
+            {
+                while (partitions.hasNext())
+                {
+                    try (UnfilteredRowIterator partition = partitions.next())
+                    {
+                        new Mutation(PartitionUpdate.fromIterator(partition, command.columnFilter())).apply();
+                    }
+                }
+            }
+        };
+    }
+
+    private void awaitInFlight(List<AsyncOneResponse<WriteResponse>> mutations, List<Runnable> reads)
+    {
+        for (AsyncOneResponse<WriteResponse> mutation : mutations)
+            await(mutation, DatabaseDescriptor.getWriteRpcTimeout());
+        for (Runnable read : reads)
+            read.run();
+        mutations.clear();
+        reads.clear();
+    }
+
+    private <T> T await(AsyncOneResponse<T> response, long timeoutMillis)
+    {
+        try
+        {
+            return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            throw new RuntimeException(String.format("Timed out waiting for %s during row level repair", nodePair.peer), e);
+        }
+    }
+
+    /**
+     * Completes the sync once the given ranges have been streamed.
+     */
+    private void completeWithStreaming(List<Range<Token>> ranges)
+    {
+        Futures.addCallback(streamRanges(ranges), new FutureCallback<SyncStat>()
+        {
+            public void onSuccess(SyncStat result)
+            {
+                set(stat.withSummaries(result.summaries));
+            }
+
+            public void onFailure(Throwable t)
+            {
+                setException(t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    @VisibleForTesting
+    ListenableFuture<SyncStat> streamRanges(List<Range<Token>> ranges)
+    {
+        LocalSyncTask streamingTask = new LocalSyncTask(desc, nodePair.coordinator, nodePair.peer, ranges, null,
+                                                        requestRanges, transferRanges, previewKind);
+        streamingTask.run();
+        return streamingTask;
+    }
+}
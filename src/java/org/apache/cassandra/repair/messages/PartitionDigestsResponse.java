@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair.messages;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.util.DataInputPlus;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.repair.PartitionDigests;
+import org.apache.cassandra.repair.RepairJobDesc;
+
+/**
+ * PartitionDigestsResponse is sent back once a replica has computed the digests asked for by a
+ * {@link PartitionDigestsRequest}.
+ *
+ * @since 4.0
+ */
+public class PartitionDigestsResponse extends RepairMessage
+{
+    public static final MessageSerializer serializer = new PartitionDigestsResponseSerializer();
+
+    /** Partition digests. Null if the computation failed. */
+    public final PartitionDigests digests;
+
+    public PartitionDigestsResponse(RepairJobDesc desc)
+    {
+        super(Type.PARTITION_DIGESTS_RESPONSE, desc);
+        this.digests = null;
+    }
+
+    public PartitionDigestsResponse(RepairJobDesc desc, PartitionDigests digests)
+    {
+        super(Type.PARTITION_DIGESTS_RESPONSE, desc);
+        assert digests != null;
+        this.digests = digests;
+    }
+
+    public boolean success()
+    {
+        return digests != null;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof PartitionDigestsResponse))
+            return false;
+        PartitionDigestsResponse other = (PartitionDigestsResponse) o;
+        return messageType == other.messageType &&
+               desc.equals(other.desc) &&
+               Objects.equals(digests, other.digests);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(messageType, desc, digests);
+    }
+
+    private static class PartitionDigestsResponseSerializer implements MessageSerializer<PartitionDigestsResponse>
+    {
+        public void serialize(PartitionDigestsResponse message, DataOutputPlus out, int version) throws IOException
+        {
+            RepairJobDesc.serializer.serialize(message.desc, out, version);
+            out.writeBoolean(message.success());
+            if (message.digests != null)
+                PartitionDigests.serializer.serialize(message.digests, out, version);
+        }
+
+        public PartitionDigestsResponse deserialize(DataInputPlus in, int version) throws IOException
+        {
+            RepairJobDesc desc = RepairJobDesc.serializer.deserialize(in, version);
+            if (in.readBoolean())
+                return new PartitionDigestsResponse(desc, PartitionDigests.serializer.deserialize(in, version));
+            return new PartitionDigestsResponse(desc);
+        }
+
+        public long serializedSize(PartitionDigestsResponse message, int version)
+        {
+            long size = RepairJobDesc.serializer.serializedSize(message.desc, version);
+            size += TypeSizes.sizeof(message.success());
+            if (message.digests != null)
+                size += PartitionDigests.serializer.serializedSize(message.digests, version);
+            return size;
+        }
+    }
+}
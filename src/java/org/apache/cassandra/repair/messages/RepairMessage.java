@@ -61,7 +61,9 @@ public abstract class RepairMessage
         FAILED_SESSION(13, FailSession.serializer),
         STATUS_REQUEST(14, StatusRequest.serializer),
         STATUS_RESPONSE(15, StatusResponse.serializer),
-        ASYMMETRIC_SYNC_REQUEST(16, AsymmetricSyncRequest.serializer);
+        ASYMMETRIC_SYNC_REQUEST(16, AsymmetricSyncRequest.serializer),
+        PARTITION_DIGESTS_REQUEST(17, PartitionDigestsRequest.serializer),
+        PARTITION_DIGESTS_RESPONSE(18, PartitionDigestsResponse.serializer);
 
         private final byte type;
         private final MessageSerializer<RepairMessage> serializer;
@@ -140,6 +140,7 @@ public final class SchemaKeyspace
               + "speculative_write_threshold text,"
               + "cdc boolean,"
               + "read_repair text,"
+              + "filter_type text,"
               + "PRIMARY KEY ((keyspace_name), table_name))");
 
     private static final TableMetadata Columns =
@@ -207,6 +208,7 @@ public final class SchemaKeyspace
               + "speculative_write_threshold text,"
               + "cdc boolean,"
               + "read_repair text,"
+              + "filter_type text,"
               + "PRIMARY KEY ((keyspace_name), view_name))");
 
     private static final TableMetadata Indexes =
@@ -573,15 +575,31 @@ public final class SchemaKeyspace
                .add("read_repair", params.readRepair.toString())
                .add("extensions", params.extensions);
 
+        // Only add the filter type to schema if it's set on the table, so that tables using the node's default filter
+        // type have the same schema, and the same schema digest, as on nodes that don't know the filter_type column.
+        if (params.filterType != null)
+            builder.add("filter_type", params.filterType.toString());
+
         // Only add CDC-enabled flag to schema if it's enabled on the node. This is to work around RTE's post-8099 if a 3.8+
         // node sends table schema to a < 3.8 versioned node with an unknown column.
         if (DatabaseDescriptor.isCDCEnabled())
             builder.add("cdc", params.cdc);
     }
 
+    /**
+     * The filter type is only written when it's set, so going back to the node's default on alter must delete the
+     * previously written one, that would otherwise still be read back from the schema tables.
+     */
+    private static void addFilterTypeDeletion(TableParams before, TableParams after, Row.SimpleBuilder rowBuilder)
+    {
+        if (before.filterType != null && after.filterType == null)
+            rowBuilder.delete("filter_type");
+    }
+
     private static void addAlterTableToSchemaMutation(TableMetadata oldTable, TableMetadata newTable, Mutation.SimpleBuilder builder)
     {
         addTableToSchemaMutation(newTable, false, builder);
+        addFilterTypeDeletion(oldTable.params, newTable.params, builder.update(Tables).row(newTable.name));
 
         MapDifference<ByteBuffer, ColumnMetadata> columnDiff = Maps.difference(oldTable.columns, newTable.columns);
 
@@ -773,6 +791,7 @@ public final class SchemaKeyspace
     private static void addAlterViewToSchemaMutation(ViewMetadata before, ViewMetadata after, Mutation.SimpleBuilder builder)
     {
         addViewToSchemaMutation(after, false, builder);
+        addFilterTypeDeletion(before.metadata.params, after.metadata.params, builder.update(Views).row(after.name()));
 
         MapDifference<ByteBuffer, ColumnMetadata> columnDiff = Maps.difference(before.metadata.columns, after.metadata.columns);
 
@@ -860,7 +879,8 @@ public final class SchemaKeyspace
      * Fetching schema
      */
 
-    static Keyspaces fetchNonSystemKeyspaces()
+    @VisibleForTesting
+    public static Keyspaces fetchNonSystemKeyspaces()
     {
         return fetchKeyspacesWithout(SchemaConstants.LOCAL_SYSTEM_KEYSPACE_NAMES);
     }
@@ -997,6 +1017,7 @@ public final class SchemaKeyspace
                           .speculativeWriteThreshold(SpeculativeRetryPolicy.fromString(row.getString("speculative_write_threshold")))
                           .cdc(row.has("cdc") && row.getBoolean("cdc"))
                           .readRepair(getReadRepairStrategy(row))
+                          .filterType(row.has("filter_type") ? TableParams.parseFilterType(row.getString("filter_type")) : null)
                           .build();
     }
 
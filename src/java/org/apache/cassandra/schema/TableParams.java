@@ -18,12 +18,14 @@
 package org.apache.cassandra.schema;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Map;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.cql3.Attributes;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.service.reads.PercentileSpeculativeRetryPolicy;
@@ -54,7 +56,8 @@ public final class TableParams
         SPECULATIVE_WRITE_THRESHOLD,
         CRC_CHECK_CHANCE,
         CDC,
-        READ_REPAIR;
+        READ_REPAIR,
+        FILTER_TYPE;
 
         @Override
         public String toString()
@@ -79,6 +82,8 @@ public final class TableParams
     public final ImmutableMap<String, ByteBuffer> extensions;
     public final boolean cdc;
     public final ReadRepairStrategy readRepair;
+    // the type of the partition key filters of the sstables, null for the node's sstable_filter_type
+    public final Config.SSTableFilterType filterType;
 
     private TableParams(Builder builder)
     {
@@ -100,6 +105,7 @@ public final class TableParams
         extensions = builder.extensions;
         cdc = builder.cdc;
         readRepair = builder.readRepair;
+        filterType = builder.filterType;
     }
 
     public static Builder builder()
@@ -124,7 +130,8 @@ public final class TableParams
                             .speculativeWriteThreshold(params.speculativeWriteThreshold)
                             .extensions(params.extensions)
                             .cdc(params.cdc)
-                            .readRepair(params.readRepair);
+                            .readRepair(params.readRepair)
+                            .filterType(params.filterType);
     }
 
     public Builder unbuild()
@@ -178,6 +185,27 @@ public final class TableParams
             fail("%s must be greater than or equal to 0 (got %s)", Option.MEMTABLE_FLUSH_PERIOD_IN_MS, memtableFlushPeriodInMs);
     }
 
+    /**
+     * @return the filter type of the given name, or null for the node's default if the name is empty
+     */
+    public static Config.SSTableFilterType parseFilterType(String name)
+    {
+        if (name == null || name.isEmpty())
+            return null;
+
+        try
+        {
+            return Config.SSTableFilterType.valueOf(name.toLowerCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ConfigurationException(format("Unknown %s '%s', must be one of %s or empty for the node's default",
+                                                    Option.FILTER_TYPE,
+                                                    name,
+                                                    Arrays.toString(Config.SSTableFilterType.values())));
+        }
+    }
+
     private static void fail(String format, Object... args)
     {
         throw new ConfigurationException(format(format, args));
@@ -208,7 +236,8 @@ public final class TableParams
             && compression.equals(p.compression)
             && extensions.equals(p.extensions)
             && cdc == p.cdc
-            && readRepair == p.readRepair;
+            && readRepair == p.readRepair
+            && filterType == p.filterType;
     }
 
     @Override
@@ -228,7 +257,8 @@ public final class TableParams
                                 compression,
                                 extensions,
                                 cdc,
-                                readRepair);
+                                readRepair,
+                                filterType);
     }
 
     @Override
@@ -250,6 +280,7 @@ public final class TableParams
                           .add(Option.EXTENSIONS.toString(), extensions)
                           .add(Option.CDC.toString(), cdc)
                           .add(Option.READ_REPAIR.toString(), readRepair)
+                          .add(Option.FILTER_TYPE.toString(), filterType)
                           .toString();
     }
 
@@ -271,6 +302,7 @@ public final class TableParams
         private ImmutableMap<String, ByteBuffer> extensions = ImmutableMap.of();
         private boolean cdc;
         private ReadRepairStrategy readRepair = ReadRepairStrategy.BLOCKING;
+        private Config.SSTableFilterType filterType;
 
         public Builder()
         {
@@ -371,6 +403,12 @@ public final class TableParams
             return this;
         }
 
+        public Builder filterType(Config.SSTableFilterType val)
+        {
+            filterType = val;
+            return this;
+        }
+
         public Builder extensions(Map<String, ByteBuffer> val)
         {
             extensions = ImmutableMap.copyOf(val);
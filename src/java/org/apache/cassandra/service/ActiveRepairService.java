@@ -531,6 +531,10 @@ public class ActiveRepairService implements IEndpointStateChangeSubscriber, IFai
                 SyncComplete sync = (SyncComplete) message;
                 session.syncComplete(desc, sync.nodes, sync.success, sync.summaries);
                 break;
+            case PARTITION_DIGESTS_RESPONSE:
+                PartitionDigestsResponse digests = (PartitionDigestsResponse) message;
+                session.partitionDigestsComplete(desc, endpoint, digests.digests);
+                break;
             default:
                 break;
         }
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import org.apache.cassandra.audit.AuditLogContext;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.concurrent.ExecutorLocal;
+import org.apache.cassandra.cql3.CQLStatement;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.schema.Schema;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.tracing.Tracing;
+import org.apache.cassandra.utils.MD5Digest;
+
+/**
+ * Accounts for the CPU time used, and the bytes allocated, by the threads that process a client request.
+ *
+ * The usage of the thread that executes the request is measured from the start to the end of its execution, and the
+ * usage of the tasks it submits to the stages in between, such as local reads and writes, is measured around their
+ * execution, as the accounting state is carried to them with the other {@link ExecutorLocal}s. The work done by the
+ * other replicas isn't accounted for.
+ *
+ * At the end of the request, its usage is traced, added to the metrics of the table it accessed, and aggregated per
+ * statement in {@link #statements()}. The usage of at most {@link #MAX_STATEMENTS} statements is kept, the statements
+ * that are executed the least often being evicted first, so that one-off non-prepared statements don't push out the
+ * statements of the application.
+ */
+public class ResourceAccounting implements ExecutorLocal<ResourceAccounting.State>
+{
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean allocationMXBean = threadMXBean instanceof com.sun.management.ThreadMXBean
+                                                                            ? (com.sun.management.ThreadMXBean) threadMXBean
+                                                                            : null;
+
+    /** The maximum number of statements whose usage is aggregated, so that non-prepared statements can't exhaust the heap */
+    public static final int MAX_STATEMENTS = 1000;
+
+    private static final FastThreadLocal<State> stateLocal = new FastThreadLocal<>();
+    public static final ResourceAccounting instance = new ResourceAccounting();
+
+    private final Cache<MD5Digest, StatementUsage> statements = Caffeine.newBuilder()
+                                                                        .executor(MoreExecutors.directExecutor())
+                                                                        .maximumSize(MAX_STATEMENTS)
+                                                                        .build();
+
+    private ResourceAccounting()
+    {
+    }
+
+    public State get()
+    {
+        return stateLocal.get();
+    }
+
+    public void set(State value)
+    {
+        stateLocal.set(value);
+    }
+
+    /**
+     * Starts accounting for the request executed by the current thread, if enabled.
+     *
+     * @return the state of the request, to pass to {@link #stop(State)} once it has been executed, or null if disabled
+     */
+    public State start()
+    {
+        if (!DatabaseDescriptor.isRequestResourceAccountingEnabled())
+            return null;
+
+        State state = new State();
+        stateLocal.set(state);
+        return state;
+    }
+
+    /**
+     * Records the statement executed by the current request, if it is accounted for. Only the first statement is
+     * recorded, so that the internal queries the request may do are not mistaken for it.
+     */
+    public void setStatement(String queryString, CQLStatement statement)
+    {
+        State state = stateLocal.get();
+        if (state == null || state.queryString != null)
+            return;
+
+        state.queryString = queryString;
+        AuditLogContext context = statement.getAuditLogContext();
+        state.keyspace = context.keyspace;
+        state.table = context.scope;
+    }
+
+    /**
+     * Stops accounting for the request executed by the current thread, traces its usage if it is traced, and
+     * aggregates it.
+     */
+    public void stop(State state)
+    {
+        state.addUsageSince(state.startCpuTime, state.startAllocatedBytes);
+        stateLocal.remove();
+
+        long cpuMicros = TimeUnit.NANOSECONDS.toMicros(state.cpuTime.sum());
+        long allocatedBytes = state.allocatedBytes.sum();
+        Tracing.trace("Request used {} microseconds of CPU and allocated {} bytes on this node", cpuMicros, allocatedBytes);
+
+        // this runs for every request, so the table is looked up without opening its keyspace, and virtual tables,
+        // that have no metrics, are skipped
+        TableMetadata metadata = state.keyspace == null || state.table == null
+                                 ? null
+                                 : Schema.instance.getTableMetadata(state.keyspace, state.table);
+        ColumnFamilyStore cfs = metadata == null || metadata.isVirtual()
+                                ? null
+                                : Schema.instance.getColumnFamilyStoreInstance(metadata.id);
+        if (cfs != null)
+        {
+            cfs.metric.requestCpuTime.inc(cpuMicros);
+            cfs.metric.requestAllocatedBytes.inc(allocatedBytes);
+        }
+
+        if (state.queryString == null || state.queryString.isEmpty())
+            return;
+
+        MD5Digest digest = MD5Digest.compute(state.queryString);
+        StatementUsage usage = statements.get(digest, d -> new StatementUsage(d, state.queryString, state.keyspace, state.table));
+        usage.requests.increment();
+        usage.cpuMicros.add(cpuMicros);
+        usage.allocatedBytes.add(allocatedBytes);
+    }
+
+    /**
+     * @return the usage of the statements executed since they were last evicted, if ever
+     */
+    public Collection<StatementUsage> statements()
+    {
+        return Collections.unmodifiableCollection(statements.asMap().values());
+    }
+
+    @VisibleForTesting
+    void clearStatements()
+    {
+        statements.invalidateAll();
+    }
+
+    private static long currentThreadCpuTime()
+    {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long currentThreadAllocatedBytes()
+    {
+        return allocationMXBean != null && allocationMXBean.isThreadAllocatedMemorySupported()
+               ? allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+               : 0;
+    }
+
+    public static class State
+    {
+        // the thread executing the request, whose usage is measured as a whole
+        private final Thread thread = Thread.currentThread();
+        // several tasks of the request may run concurrently
+        private final LongAdder cpuTime = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final long startCpuTime = currentThreadCpuTime();
+        private final long startAllocatedBytes = currentThreadAllocatedBytes();
+
+        private volatile String queryString;
+        private volatile String keyspace;
+        private volatile String table;
+
+        private State()
+        {
+        }
+
+        /**
+         * Runs a task of the request on the current thread, accounting for its usage.
+         */
+        public void run(Runnable task)
+        {
+            // the tasks run directly by the thread executing the request are already accounted for
+            if (Thread.currentThread() == thread)
+            {
+                task.run();
+                return;
+            }
+
+            long cpuTime = currentThreadCpuTime();
+            long allocatedBytes = currentThreadAllocatedBytes();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                addUsageSince(cpuTime, allocatedBytes);
+            }
+        }
+
+        private void addUsageSince(long cpuTime, long allocatedBytes)
+        {
+            this.cpuTime.add(currentThreadCpuTime() - cpuTime);
+            this.allocatedBytes.add(currentThreadAllocatedBytes() - allocatedBytes);
+        }
+    }
+
+    /**
+     * The aggregated usage of the executions of a statement.
+     */
+    public static class StatementUsage
+    {
+        public final MD5Digest digest;
+        public final String queryString;
+        public final String keyspace;
+        public final String table;
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder cpuMicros = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        private StatementUsage(MD5Digest digest, String queryString, String keyspace, String table)
+        {
+            this.digest = digest;
+            this.queryString = queryString;
+            this.keyspace = keyspace;
+            this.table = table;
+        }
+
+        public long requests()
+        {
+            return requests.sum();
+        }
+
+        public long cpuMicros()
+        {
+            return cpuMicros.sum();
+        }
+
+        public long allocatedBytes()
+        {
+            return allocatedBytes.sum();
+        }
+    }
+}
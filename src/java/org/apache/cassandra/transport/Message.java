@@ -43,6 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.service.ClientWarn;
+import org.apache.cassandra.service.ResourceAccounting;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.transport.messages.*;
@@ -241,12 +242,16 @@ public abstract class Message
             }
 
             Response response;
+            ResourceAccounting.State accounting = isTraceable() ? ResourceAccounting.instance.start() : null;
             try
             {
                 response = execute(queryState, queryStartNanoTime, shouldTrace);
             }
             finally
             {
+                // stopped before the tracing session, to which the usage of the request is added
+                if (accounting != null)
+                    ResourceAccounting.instance.stop(accounting);
                 if (shouldTrace)
                     Tracing.instance.stopSession();
             }
@@ -30,6 +30,7 @@ import org.apache.cassandra.cql3.ResultSet;
 import org.apache.cassandra.exceptions.PreparedQueryNotFoundException;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.ResourceAccounting;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.transport.CBUtil;
 import org.apache.cassandra.transport.Message;
@@ -123,6 +124,7 @@ public class ExecuteMessage extends Message.Request
                 throw new PreparedQueryNotFoundException(statementId);
 
             CQLStatement statement = prepared.statement;
+            ResourceAccounting.instance.setStatement(prepared.rawCQLStatement, statement);
             options.prepare(statement.getBindVariables());
 
             if (options.getPageSize() == 0)
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import org.apache.cassandra.utils.concurrent.Ref;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+import org.apache.cassandra.utils.obs.IBitSet;
+
+/**
+ * A Bloom filter whose bits are split into blocks the size of a cache line, all the bits of a key being set in a
+ * single block (see "Cache-, Hash- and Space-Efficient Bloom Filters", Putze et al.).
+ *
+ * A lookup touches a single 64 bytes block instead of {@code hashCount} random locations of the whole bitset, so it
+ * costs one cache miss (two at most, when the block straddles two cache lines) whatever the number of hashes. The
+ * price is a somewhat higher false positive rate for the same number of bits per key, which {@link FilterFactory}
+ * makes up for with a few more bits per key, see {@link BloomCalculations#computeBlockedBloomSpec}.
+ *
+ * The first half of the murmur3 hash of the key picks the block, and the second half the bits within the block,
+ * through double hashing with an odd increment so that the positions of a key are all distinct.
+ */
+public class BlockedBloomFilter extends WrappedSharedCloseable implements IFilter
+{
+    static final int BLOCK_BITS = 512;
+    private static final int BLOCK_MASK = BLOCK_BITS - 1;
+
+    private final static FastThreadLocal<long[]> reusableHash = new FastThreadLocal<long[]>()
+    {
+        protected long[] initialValue()
+        {
+            return new long[2];
+        }
+    };
+
+    public final IBitSet bitset;
+    public final int hashCount;
+    private final long blockCount;
+
+    BlockedBloomFilter(int hashCount, IBitSet bitset)
+    {
+        super(bitset);
+        assert bitset.capacity() % BLOCK_BITS == 0 : "Capacity " + bitset.capacity() + " is not a multiple of the block size";
+        this.hashCount = hashCount;
+        this.bitset = bitset;
+        this.blockCount = bitset.capacity() / BLOCK_BITS;
+    }
+
+    private BlockedBloomFilter(BlockedBloomFilter copy)
+    {
+        super(copy);
+        this.hashCount = copy.hashCount;
+        this.bitset = copy.bitset;
+        this.blockCount = copy.blockCount;
+    }
+
+    /**
+     * @return the number of bits needed by a blocked filter of at least {@code numBits} bits
+     */
+    static long roundToBlocks(long numBits)
+    {
+        return ((numBits + BLOCK_MASK) / BLOCK_BITS) * BLOCK_BITS;
+    }
+
+    public long serializedSize()
+    {
+        return BloomFilterSerializer.serializedSize(this);
+    }
+
+    public void add(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+
+        long blockStart = FBUtilities.abs(hash[0] % blockCount) * BLOCK_BITS;
+        int base = (int) hash[1];
+        int inc = (int) (hash[1] >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++)
+        {
+            bitset.set(blockStart + (base & BLOCK_MASK));
+            base += inc;
+        }
+    }
+
+    public final boolean isPresent(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+
+        long blockStart = FBUtilities.abs(hash[0] % blockCount) * BLOCK_BITS;
+        int base = (int) hash[1];
+        int inc = (int) (hash[1] >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++)
+        {
+            if (!bitset.get(blockStart + (base & BLOCK_MASK)))
+                return false;
+            base += inc;
+        }
+        return true;
+    }
+
+    public void clear()
+    {
+        bitset.clear();
+    }
+
+    public IFilter sharedCopy()
+    {
+        return new BlockedBloomFilter(this);
+    }
+
+    @Override
+    public long offHeapSize()
+    {
+        return bitset.offHeapSize();
+    }
+
+    public String toString()
+    {
+        return "BlockedBloomFilter[hashCount=" + hashCount + ";capacity=" + bitset.capacity() + ']';
+    }
+
+    public void addTo(Ref.IdentityCollection identities)
+    {
+        super.addTo(identities);
+        bitset.addTo(identities);
+    }
+}
@@ -172,6 +172,52 @@ public class BloomCalculations
         return new BloomSpecification(K, bucketsPerElement);
     }
 
+    /**
+     * Given a maximum tolerable false positive probability, compute the specification of a blocked Bloom filter
+     * (see {@link BlockedBloomFilter}) which will give less than the specified false positive rate. This starts
+     * from the specification of a standard filter, and adds buckets per element until the estimated false positive
+     * rate of the blocked filter is low enough, or the maximum number of buckets per element is reached.
+     *
+     * @param maxBucketsPerElement The maximum number of buckets available for the filter.
+     * @param maxFalsePosProb The maximum tolerable false positive rate.
+     * @param blockBits The number of bits of a block.
+     * @return A Bloom Specification which would result in a false positive rate
+     * less than specified by the function call, if possible
+     */
+    public static BloomSpecification computeBlockedBloomSpec(int maxBucketsPerElement, double maxFalsePosProb, int blockBits)
+    {
+        BloomSpecification spec = computeBloomSpec(maxBucketsPerElement, maxFalsePosProb);
+        int bucketsPerElement = spec.bucketsPerElement;
+        int K = spec.K;
+        while (bucketsPerElement < maxBucketsPerElement && blockedFalsePositiveRate(bucketsPerElement, K, blockBits) > maxFalsePosProb)
+        {
+            bucketsPerElement++;
+            K = optKPerBuckets[bucketsPerElement];
+        }
+        return new BloomSpecification(K, bucketsPerElement);
+    }
+
+    /**
+     * Estimates the false positive rate of a blocked Bloom filter: the number of elements of a block follows
+     * a Poisson distribution, and a lookup suffers from the false positive rate of a standard filter the size
+     * of a block holding that many elements.
+     */
+    static double blockedFalsePositiveRate(int bucketsPerElement, int k, int blockBits)
+    {
+        double elementsPerBlock = (double) blockBits / bucketsPerElement;
+        double bitUnsetProbability = 1.0 - 1.0 / blockBits;
+        double poisson = Math.exp(-elementsPerBlock);
+        double rate = 0;
+        int maxElements = (int) (elementsPerBlock * 4) + 32;
+        for (int i = 0; i <= maxElements; i++)
+        {
+            if (i > 0)
+                poisson *= elementsPerBlock / i;
+            rate += poisson * Math.pow(1 - Math.pow(bitUnsetProbability, (double) k * i), k);
+        }
+        return rate;
+    }
+
     /**
      * Calculates the maximum number of buckets per element that this implementation
      * can support.  Crucially, it will lower the bucket count if necessary to meet
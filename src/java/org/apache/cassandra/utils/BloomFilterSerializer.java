@@ -25,25 +25,68 @@ import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.utils.obs.IBitSet;
 import org.apache.cassandra.utils.obs.OffHeapBitSet;
 
+/**
+ * Serializes the filters of the sstables (the Filter.db component).
+ *
+ * The original format starts with the hash count of a standard {@link BloomFilter}, which is always positive.
+ * Later formats start with a negative serialization version instead, followed by the filter itself.
+ */
 public final class BloomFilterSerializer
 {
+    /** A {@link BlockedBloomFilter}: hash count and bitset, the same way as a standard filter. */
+    static final int BLOCKED_BLOOM_VERSION = -1;
+    /** An {@link XorFilter}: fingerprint size, seed and size of each shard, and the fingerprints. */
+    static final int XOR_VERSION = -2;
+
     private BloomFilterSerializer()
     {
     }
 
-    public static void serialize(BloomFilter bf, DataOutputPlus out) throws IOException
+    public static void serialize(IFilter filter, DataOutputPlus out) throws IOException
     {
-        out.writeInt(bf.hashCount);
-        bf.bitset.serialize(out);
+        if (filter instanceof BlockedBloomFilter)
+        {
+            BlockedBloomFilter bf = (BlockedBloomFilter) filter;
+            out.writeInt(BLOCKED_BLOOM_VERSION);
+            out.writeInt(bf.hashCount);
+            bf.bitset.serialize(out);
+        }
+        else if (filter instanceof XorFilter)
+        {
+            out.writeInt(XOR_VERSION);
+            ((XorFilter) filter).serialize(out);
+        }
+        else
+        {
+            BloomFilter bf = (BloomFilter) filter;
+            out.writeInt(bf.hashCount);
+            bf.bitset.serialize(out);
+        }
     }
 
     @SuppressWarnings("resource")
-    public static BloomFilter deserialize(DataInputStream in, boolean oldBfFormat) throws IOException
+    public static IFilter deserialize(DataInputStream in, boolean oldBfFormat) throws IOException
     {
-        int hashes = in.readInt();
-        IBitSet bs = OffHeapBitSet.deserialize(in, oldBfFormat);
+        int hashesOrVersion = in.readInt();
+        if (hashesOrVersion >= 0)
+        {
+            IBitSet bs = OffHeapBitSet.deserialize(in, oldBfFormat);
+            return new BloomFilter(hashesOrVersion, bs);
+        }
 
-        return new BloomFilter(hashes, bs);
+        switch (hashesOrVersion)
+        {
+            case BLOCKED_BLOOM_VERSION:
+            {
+                int hashes = in.readInt();
+                IBitSet bs = OffHeapBitSet.deserialize(in, false);
+                return new BlockedBloomFilter(hashes, bs);
+            }
+            case XOR_VERSION:
+                return XorFilter.deserialize(in);
+            default:
+                throw new IOException("Unknown filter serialization version " + hashesOrVersion);
+        }
     }
 
     /**
@@ -59,4 +102,29 @@ public final class BloomFilterSerializer
         size += bf.bitset.serializedSize();
         return size;
     }
+
+    /**
+     * Calculates a serialized size of the given blocked Bloom Filter
+     * @param bf blocked Bloom filter to calculate serialized size
+     *
+     * @return serialized size of the given filter
+     */
+    public static long serializedSize(BlockedBloomFilter bf)
+    {
+        int size = TypeSizes.sizeof(BLOCKED_BLOOM_VERSION); // version
+        size += TypeSizes.sizeof(bf.hashCount); // hash count
+        size += bf.bitset.serializedSize();
+        return size;
+    }
+
+    /**
+     * Calculates a serialized size of the given xor filter
+     * @param filter xor filter to calculate serialized size
+     *
+     * @return serialized size of the given filter
+     */
+    public static long serializedSize(XorFilter filter)
+    {
+        return TypeSizes.sizeof(XOR_VERSION) + filter.serializedSizeWithoutVersion();
+    }
 }
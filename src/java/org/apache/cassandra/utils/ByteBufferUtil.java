@@ -403,6 +403,25 @@ public class ByteBufferUtil
         return ByteBuffer.wrap(buff);
     }
 
+    /**
+     * Reads {@code length} bytes into {@code reusable} if it is a heap buffer large enough to hold them, or into a
+     * newly allocated buffer otherwise. The content of {@code reusable} is overwritten.
+     *
+     * @return the buffer holding the read bytes, which the caller should pass as {@code reusable} for the next read
+     */
+    public static ByteBuffer read(DataInput in, int length, ByteBuffer reusable) throws IOException
+    {
+        if (length == 0)
+            return EMPTY_BYTE_BUFFER;
+
+        ByteBuffer buffer = reusable != null && reusable != EMPTY_BYTE_BUFFER && reusable.hasArray() && reusable.capacity() >= length
+                          ? reusable
+                          : ByteBuffer.allocate(length);
+        in.readFully(buffer.array(), buffer.arrayOffset(), length);
+        buffer.clear().limit(length);
+        return buffer;
+    }
+
     public static byte[] readBytes(DataInput in, int length) throws IOException
     {
         assert length > 0 : "length is not > 0: " + length;
@@ -20,6 +20,7 @@ package org.apache.cassandra.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.utils.obs.IBitSet;
 import org.apache.cassandra.utils.obs.OffHeapBitSet;
 
@@ -54,13 +55,56 @@ public class FilterFactory
      *         filter.
      */
     public static IFilter getFilter(long numElements, double maxFalsePosProbability)
+    {
+        return getFilter(numElements, maxFalsePosProbability, Config.SSTableFilterType.bloom);
+    }
+
+    /**
+     * @return The smallest filter of the given type that can provide the given false
+     *         positive probability rate for the given number of elements.
+     */
+    public static IFilter getFilter(long numElements, double maxFalsePosProbability, Config.SSTableFilterType type)
     {
         assert maxFalsePosProbability <= 1.0 : "Invalid probability";
         if (maxFalsePosProbability == 1.0)
             return new AlwaysPresentFilter();
         int bucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
-        BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement, maxFalsePosProbability);
-        return createFilter(spec.K, numElements, spec.bucketsPerElement);
+        switch (type)
+        {
+            case bloom:
+            {
+                BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement, maxFalsePosProbability);
+                return createFilter(spec.K, numElements, spec.bucketsPerElement);
+            }
+            case blocked_bloom:
+            {
+                BloomCalculations.BloomSpecification spec = BloomCalculations.computeBlockedBloomSpec(bucketsPerElement, maxFalsePosProbability, BlockedBloomFilter.BLOCK_BITS);
+                return createBlockedFilter(spec.K, numElements, spec.bucketsPerElement);
+            }
+            case xor:
+                return new XorFilter.Builder(numElements, XorFilter.fingerprintBits(maxFalsePosProbability));
+            default:
+                throw new AssertionError(type);
+        }
+    }
+
+    /**
+     * Completes a filter once all its keys have been added: filters that can only be built once all the keys are
+     * known, like xor filters, are built and the given filter is released; other filters are returned as is.
+     */
+    public static IFilter complete(IFilter filter)
+    {
+        if (!(filter instanceof XorFilter.Builder))
+            return filter;
+
+        try
+        {
+            return ((XorFilter.Builder) filter).build();
+        }
+        finally
+        {
+            filter.close();
+        }
     }
 
     @SuppressWarnings("resource")
@@ -70,4 +114,12 @@ public class FilterFactory
         IBitSet bitset = new OffHeapBitSet(numBits);
         return new BloomFilter(hash, bitset);
     }
+
+    @SuppressWarnings("resource")
+    private static IFilter createBlockedFilter(int hash, long numElements, int bucketsPer)
+    {
+        long numBits = BlockedBloomFilter.roundToBlocks((numElements * bucketsPer) + BITSET_EXCESS);
+        IBitSet bitset = new OffHeapBitSet(numBits);
+        return new BlockedBloomFilter(hash, bitset);
+    }
 }
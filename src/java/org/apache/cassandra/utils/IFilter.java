@@ -27,12 +27,25 @@ public interface IFilter extends SharedCloseable
         void filterHash(long[] dest);
     }
 
+    /**
+     * Adds a key to the filter. Filters built from all their keys at once, like {@link XorFilter}, are immutable and
+     * throw {@link UnsupportedOperationException}: their keys are added to the builder returned by
+     * {@link FilterFactory#getFilter}, which {@link FilterFactory#complete} turns into the filter.
+     */
     void add(FilterKey key);
 
     boolean isPresent(FilterKey key);
 
+    /**
+     * Removes all the keys of the filter. Immutable filters, like {@link XorFilter}, throw
+     * {@link UnsupportedOperationException}.
+     */
     void clear();
 
+    /**
+     * @return the size of the filter once serialized, or 0 for filters that don't get serialized, like
+     * {@link AlwaysPresentFilter} or the builders of filters not built yet
+     */
     long serializedSize();
 
     void close();
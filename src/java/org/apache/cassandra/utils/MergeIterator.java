@@ -19,9 +19,16 @@ package org.apache.cassandra.utils;
 
 import java.util.*;
 
+import com.google.common.annotations.VisibleForTesting;
+
 /** Merges sorted input iterators which individually contain unique items. */
 public abstract class MergeIterator<In,Out> extends AbstractIterator<Out> implements IMergeIterator<In, Out>
 {
+    /**
+     * The number of sources from which {@link #get} merges with a {@link LoserTree} rather than a {@link ManyToOne}.
+     */
+    static final int LOSER_TREE_MIN_SOURCES = Integer.getInteger("cassandra.merge_iterator_loser_tree_min_sources", 32);
+
     protected final Reducer<In,Out> reducer;
     protected final List<? extends Iterator<In>> iterators;
 
@@ -42,9 +49,33 @@ public abstract class MergeIterator<In,Out> extends AbstractIterator<Out> implem
                  ? new TrivialOneToOne<>(sources, reducer)
                  : new OneToOne<>(sources, reducer);
         }
+        if (sources.size() >= LOSER_TREE_MIN_SOURCES)
+            return new LoserTree<>(sources, comparator, reducer);
         return new ManyToOne<>(sources, comparator, reducer);
     }
 
+    /**
+     * Returns a {@link ManyToOne} heap merging the given sources, whatever their number.
+     */
+    @VisibleForTesting
+    public static <In, Out> MergeIterator<In, Out> getManyToOne(List<? extends Iterator<In>> sources,
+                                                                Comparator<? super In> comparator,
+                                                                Reducer<In, Out> reducer)
+    {
+        return new ManyToOne<>(sources, comparator, reducer);
+    }
+
+    /**
+     * Returns a {@link LoserTree} merging the given sources, whatever their number.
+     */
+    @VisibleForTesting
+    public static <In, Out> MergeIterator<In, Out> getLoserTree(List<? extends Iterator<In>> sources,
+                                                                Comparator<? super In> comparator,
+                                                                Reducer<In, Out> reducer)
+    {
+        return new LoserTree<>(sources, comparator, reducer);
+    }
+
     public Iterable<? extends Iterator<In>> iterators()
     {
         return iterators;
@@ -345,6 +376,203 @@ public abstract class MergeIterator<In,Out> extends AbstractIterator<Out> implem
         }
     }
 
+    /**
+     * A MergeIterator that consumes multiple input values per output value, using a tournament tree of losers (see
+     * Knuth, TAOCP vol. 3, 5.4.1).
+     *
+     * The leaves of the tree are the candidates, and each internal node holds the candidate that lost the match
+     * between the winners of its two subtrees, the overall winner being kept apart. Once a candidate has been
+     * advanced, replaying its matches only needs one comparison per level, against the losers on the path from its
+     * leaf to the root, whereas sinking it in the heap of {@link ManyToOne} takes two. This makes up for the sorted
+     * section of {@link ManyToOne} no longer helping when merging many overlapping iterators, as in compactions of
+     * many sstables or reads touching many of them, so {@link MergeIterator#get} picks this for
+     * {@link #LOSER_TREE_MIN_SOURCES} sources or more.
+     *
+     * The tree is laid out as an implicit binary tree: with n candidates, the internal nodes are at positions 1 to
+     * n - 1, the leaf of candidate i at position n + i, and the children of the node at position p at 2p and 2p + 1.
+     *
+     * As in {@link ManyToOne}, the iterators are not advanced before an output is requested, and equal items are found
+     * without any extra comparison: each node also records whether its loser is equal to its winner. The items equal
+     * to the overall winner are then the losers recorded as equal on its path, and recursively those recorded as equal
+     * on the paths of these losers, below the node where they lost. Consumed candidates that are yet to be advanced
+     * sort before all the others, which their consumed items did, so that the tree stays valid while they are advanced
+     * and replayed one at a time. Exhausted candidates sort after all the others.
+     *
+     * A plain tournament tree would take log(size) comparisons per item even for non-overlapping iterators, where the
+     * heap only needs one. So once a candidate wins twice in a row, we also look for the smallest of the losers on its
+     * path, the runner-up: as long as the winner's next items are smaller than it, the tree doesn't change and a single
+     * comparison is enough to tell.
+     */
+    static final class LoserTree<In,Out> extends MergeIterator<In,Out>
+    {
+        /** The candidates, null once exhausted. */
+        private final Candidate<In>[] candidates;
+
+        /** The overall winner at position 0, then the loser of each internal node. */
+        private final int[] tree;
+
+        /** Whether the loser of each internal node is equal to the winner of the node. */
+        private final boolean[] equalWinner;
+
+        /** The candidates consumed by the last output, that need advancing. */
+        private final int[] consumed;
+        private int consumedCount;
+
+        /** The smallest loser on the path of the winner, or -1 if unknown. */
+        private int runnerUp = -1;
+
+        private boolean initialized;
+
+        public LoserTree(List<? extends Iterator<In>> iters, Comparator<? super In> comp, Reducer<In, Out> reducer)
+        {
+            super(iters, reducer);
+
+            @SuppressWarnings("unchecked")
+            Candidate<In>[] candidates = new Candidate[iters.size()];
+            this.candidates = candidates;
+            for (int i = 0; i < iters.size(); i++)
+                candidates[i] = new Candidate<>(i, iters.get(i), comp);
+
+            tree = new int[Math.max(1, candidates.length)];
+            equalWinner = new boolean[tree.length];
+            consumed = new int[candidates.length];
+        }
+
+        protected final Out computeNext()
+        {
+            advance();
+            return consume();
+        }
+
+        private void advance()
+        {
+            if (!initialized)
+            {
+                for (int i = 0; i < candidates.length; i++)
+                    candidates[i] = candidates[i].advance();
+                build();
+                initialized = true;
+                return;
+            }
+
+            if (consumedCount == 1)
+            {
+                // only the winner was consumed: no loser is equal to it, and unless it's now past the runner-up,
+                // the tree stays as it is
+                int idx = consumed[0];
+                consumedCount = 0;
+                candidates[idx] = candidates[idx].advance();
+                if (runnerUp >= 0 && compare(idx, runnerUp) < 0)
+                    return;
+
+                replay(idx);
+                if (tree[0] == idx)
+                    runnerUp = findRunnerUp(idx);
+                return;
+            }
+
+            for (int i = 0; i < consumedCount; i++)
+            {
+                int idx = consumed[i];
+                candidates[idx] = candidates[idx].advance();
+                replay(idx);
+            }
+            consumedCount = 0;
+        }
+
+        private int findRunnerUp(int winner)
+        {
+            int runnerUp = -1;
+            for (int node = (winner + candidates.length) >> 1; node > 0; node >>= 1)
+            {
+                if (runnerUp < 0 || compare(tree[node], runnerUp) < 0)
+                    runnerUp = tree[node];
+            }
+            return runnerUp;
+        }
+
+        /**
+         * Plays all the matches, from the bottom of the tree up, which takes one comparison per internal node.
+         */
+        private void build()
+        {
+            int n = candidates.length;
+            int[] winners = new int[n];
+            for (int node = n - 1; node > 0; node--)
+            {
+                int left = winner(2 * node, winners);
+                int right = winner(2 * node + 1, winners);
+                int cmp = compare(left, right);
+                winners[node] = cmp <= 0 ? left : right;
+                tree[node] = cmp <= 0 ? right : left;
+                equalWinner[node] = cmp == 0 && candidates[left] != null;
+            }
+            tree[0] = n > 1 ? winners[1] : 0;
+        }
+
+        private int winner(int position, int[] winners)
+        {
+            return position >= candidates.length ? position - candidates.length : winners[position];
+        }
+
+        /**
+         * Replays the matches of the given candidate after it has been advanced, from its leaf up to the root.
+         */
+        private void replay(int idx)
+        {
+            runnerUp = -1;
+            int winner = idx;
+            for (int node = (idx + candidates.length) >> 1; node > 0; node >>= 1)
+            {
+                int loser = tree[node];
+                int cmp = compare(winner, loser);
+                if (cmp > 0)
+                {
+                    tree[node] = winner;
+                    winner = loser;
+                }
+                equalWinner[node] = cmp == 0 && candidates[winner] != null && !candidates[winner].needsAdvance();
+            }
+            tree[0] = winner;
+        }
+
+        private int compare(int a, int b)
+        {
+            Candidate<In> ca = candidates[a];
+            Candidate<In> cb = candidates[b];
+            if (ca == null || cb == null)
+                return ca == null ? (cb == null ? 0 : 1) : -1;
+            if (ca.needsAdvance() || cb.needsAdvance())
+                return ca.needsAdvance() ? (cb.needsAdvance() ? 0 : -1) : 1;
+            return ca.compareTo(cb);
+        }
+
+        private Out consume()
+        {
+            int winner = tree[0];
+            if (candidates.length == 0 || candidates[winner] == null)
+                return endOfData();
+
+            reducer.onKeyChange();
+            consumeEqual(winner, 0);
+            return reducer.getReduced();
+        }
+
+        /**
+         * Consumes the given candidate and the ones equal to it that lost against it below the given node.
+         */
+        private void consumeEqual(int idx, int top)
+        {
+            candidates[idx].consume(reducer);
+            consumed[consumedCount++] = idx;
+            for (int node = (idx + candidates.length) >> 1; node > top; node >>= 1)
+            {
+                if (equalWinner[node])
+                    consumeEqual(tree[node], node);
+            }
+        }
+    }
+
     // Holds and is comparable by the head item of an iterator it owns
     protected static final class Candidate<In> implements Comparable<Candidate<In>>
     {
@@ -0,0 +1,589 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.Memory;
+import org.apache.cassandra.io.util.MemoryOutputStream;
+import org.apache.cassandra.utils.concurrent.Ref;
+import org.apache.cassandra.utils.concurrent.WrappedSharedCloseable;
+
+/**
+ * An immutable xor filter (see "Xor Filters: Faster and Smaller Than Bloom and Cuckoo Filters", Graf and Lemire).
+ *
+ * Every key is mapped to three slots, one in each third of the filter, and the filter stores a fingerprint per slot
+ * such that the xor of the three slots of a key is the fingerprint of the key. With {@code f} bits fingerprints the
+ * false positive rate is {@code 2^-f} for about {@code 1.23 * f} bits per key, where a Bloom filter needs about
+ * {@code 1.44 * f}, and a lookup always reads exactly three fingerprints.
+ *
+ * Unlike Bloom filters, xor filters can only be built once all the keys are known: keys are collected by a
+ * {@link Builder}, which lets all keys through until {@link Builder#build()} is called.
+ *
+ * The builder keeps the 8 bytes hash of every key off-heap until the filter gets built, so building the filter of
+ * a billion keys needs about 8GB of memory on top of the filter itself. To bound the on-heap memory needed while
+ * building, large filters are split into shards of about {@link #SHARD_KEYS} keys, picked by the top bits of the
+ * hash of the key, each of them being an independent xor filter.
+ */
+public class XorFilter extends WrappedSharedCloseable implements IFilter
+{
+    @VisibleForTesting
+    static final int SHARD_KEYS = 1 << 20;
+    static final int MAX_FINGERPRINT_BITS = 16;
+
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder().equals(ByteOrder.BIG_ENDIAN);
+    // bytes read past the last fingerprint by getFingerprint
+    private static final int PADDING = 4;
+
+    private final static FastThreadLocal<long[]> reusableHash = new FastThreadLocal<long[]>()
+    {
+        protected long[] initialValue()
+        {
+            return new long[2];
+        }
+    };
+
+    final int fingerprintBits;
+    final long[] seeds;
+    final int[] blockLengths;
+    private final int fingerprintMask;
+    private final int shardBits;
+    // the index of the first slot of each shard
+    private final long[] shardOffsets;
+    private final Memory fingerprints;
+
+    private XorFilter(int fingerprintBits, long[] seeds, int[] blockLengths, Memory fingerprints)
+    {
+        super(fingerprints);
+        this.fingerprintBits = fingerprintBits;
+        this.fingerprintMask = (1 << fingerprintBits) - 1;
+        this.seeds = seeds;
+        this.blockLengths = blockLengths;
+        this.shardBits = Integer.numberOfTrailingZeros(seeds.length);
+        this.shardOffsets = new long[seeds.length];
+        for (int i = 1; i < seeds.length; i++)
+            shardOffsets[i] = shardOffsets[i - 1] + 3L * blockLengths[i - 1];
+        this.fingerprints = fingerprints;
+    }
+
+    private XorFilter(XorFilter copy)
+    {
+        super(copy);
+        this.fingerprintBits = copy.fingerprintBits;
+        this.fingerprintMask = copy.fingerprintMask;
+        this.seeds = copy.seeds;
+        this.blockLengths = copy.blockLengths;
+        this.shardBits = copy.shardBits;
+        this.shardOffsets = copy.shardOffsets;
+        this.fingerprints = copy.fingerprints;
+    }
+
+    /**
+     * @return the number of bits of the fingerprints needed for the given false positive rate
+     */
+    static int fingerprintBits(double maxFalsePosProbability)
+    {
+        int bits = (int) Math.ceil(-Math.log(maxFalsePosProbability) / Math.log(2));
+        return Math.max(1, Math.min(MAX_FINGERPRINT_BITS, bits));
+    }
+
+    public void add(FilterKey key)
+    {
+        throw new UnsupportedOperationException("Xor filters are immutable");
+    }
+
+    public boolean isPresent(FilterKey key)
+    {
+        long[] hash = reusableHash.get();
+        key.filterHash(hash);
+        long keyHash = hash[1];
+
+        int shard = shardOf(keyHash, shardBits);
+        long x = mix(keyHash + seeds[shard]);
+        int blockLength = blockLengths[shard];
+        long offset = shardOffsets[shard];
+        int expected = fingerprint(x) & fingerprintMask;
+        int actual = getFingerprint(offset + slot(x, 0, blockLength))
+                     ^ getFingerprint(offset + slot(x, 1, blockLength))
+                     ^ getFingerprint(offset + slot(x, 2, blockLength));
+        return expected == actual;
+    }
+
+    private int getFingerprint(long slot)
+    {
+        return getFingerprint(fingerprints, slot, fingerprintBits) & fingerprintMask;
+    }
+
+    // fingerprints are packed little-endian, whatever the native byte order, so that they can be written as is
+    private static int getFingerprint(Memory memory, long slot, int fingerprintBits)
+    {
+        long bit = slot * fingerprintBits;
+        int word = memory.getInt(bit >>> 3);
+        if (BIG_ENDIAN)
+            word = Integer.reverseBytes(word);
+        return word >>> (bit & 7);
+    }
+
+    private static void setFingerprint(Memory memory, long slot, int fingerprintBits, int fingerprint)
+    {
+        long bit = slot * fingerprintBits;
+        int word = memory.getInt(bit >>> 3);
+        if (BIG_ENDIAN)
+            word = Integer.reverseBytes(word);
+        word |= fingerprint << (bit & 7);
+        memory.setInt(bit >>> 3, BIG_ENDIAN ? Integer.reverseBytes(word) : word);
+    }
+
+    private static int shardOf(long keyHash, int shardBits)
+    {
+        return shardBits == 0 ? 0 : (int) (keyHash >>> (64 - shardBits));
+    }
+
+    private static int slot(long x, int index, int blockLength)
+    {
+        int hash = (int) Long.rotateLeft(x, 21 * index);
+        return (int) (((hash & 0xffffffffL) * blockLength) >>> 32) + index * blockLength;
+    }
+
+    private static int fingerprint(long x)
+    {
+        return (int) (x ^ (x >>> 32));
+    }
+
+    // the finalizer of murmur3
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void clear()
+    {
+        throw new UnsupportedOperationException("Xor filters are immutable");
+    }
+
+    public long serializedSize()
+    {
+        return BloomFilterSerializer.serializedSize(this);
+    }
+
+    void serialize(DataOutputPlus out) throws IOException
+    {
+        out.writeByte(fingerprintBits);
+        out.writeInt(seeds.length);
+        for (int i = 0; i < seeds.length; i++)
+        {
+            out.writeLong(seeds[i]);
+            out.writeInt(blockLengths[i]);
+        }
+        out.writeLong(fingerprints.size());
+        out.write(fingerprints, 0, fingerprints.size());
+    }
+
+    long serializedSizeWithoutVersion()
+    {
+        return 1 + TypeSizes.sizeof(seeds.length)
+               + seeds.length * (long) (TypeSizes.sizeof(0L) + TypeSizes.sizeof(0))
+               + TypeSizes.sizeof(fingerprints.size())
+               + fingerprints.size();
+    }
+
+    @SuppressWarnings("resource")
+    static XorFilter deserialize(DataInputStream in) throws IOException
+    {
+        int fingerprintBits = in.readByte();
+        int shards = in.readInt();
+        long[] seeds = new long[shards];
+        int[] blockLengths = new int[shards];
+        for (int i = 0; i < shards; i++)
+        {
+            seeds[i] = in.readLong();
+            blockLengths[i] = in.readInt();
+        }
+        long size = in.readLong();
+        Memory fingerprints = Memory.allocate(size);
+        FBUtilities.copy(in, new MemoryOutputStream(fingerprints), size);
+        return new XorFilter(fingerprintBits, seeds, blockLengths, fingerprints);
+    }
+
+    public IFilter sharedCopy()
+    {
+        return new XorFilter(this);
+    }
+
+    @Override
+    public long offHeapSize()
+    {
+        return fingerprints.size();
+    }
+
+    public String toString()
+    {
+        return "XorFilter[fingerprintBits=" + fingerprintBits + ";shards=" + seeds.length + ";size=" + fingerprints.size() + ']';
+    }
+
+    public void addTo(Ref.IdentityCollection identities)
+    {
+        super.addTo(identities);
+        identities.add(fingerprints);
+    }
+
+    /**
+     * Collects the hashes of the keys of a future {@link XorFilter}, off-heap, until it gets built. It is the only
+     * way of adding keys to an xor filter.
+     *
+     * Until then, it lets all the keys through, so that it can be used by sstables opened early, and has nothing to
+     * serialize.
+     */
+    public static class Builder extends WrappedSharedCloseable implements IFilter
+    {
+        private final int fingerprintBits;
+        private final KeyHashes keyHashes;
+
+        Builder(long expectedKeys, int fingerprintBits)
+        {
+            this(new KeyHashes(expectedKeys), fingerprintBits);
+        }
+
+        private Builder(KeyHashes keyHashes, int fingerprintBits)
+        {
+            super(keyHashes);
+            this.keyHashes = keyHashes;
+            this.fingerprintBits = fingerprintBits;
+        }
+
+        private Builder(Builder copy)
+        {
+            super(copy);
+            this.keyHashes = copy.keyHashes;
+            this.fingerprintBits = copy.fingerprintBits;
+        }
+
+        public void add(FilterKey key)
+        {
+            long[] hash = reusableHash.get();
+            key.filterHash(hash);
+            keyHashes.add(hash[1]);
+        }
+
+        public boolean isPresent(FilterKey key)
+        {
+            return true;
+        }
+
+        public void clear()
+        {
+            keyHashes.count = 0;
+        }
+
+        public long serializedSize()
+        {
+            return 0;
+        }
+
+        public IFilter sharedCopy()
+        {
+            return new Builder(this);
+        }
+
+        public long offHeapSize()
+        {
+            return keyHashes.memory.size();
+        }
+
+        public void addTo(Ref.IdentityCollection identities)
+        {
+            super.addTo(identities);
+            identities.add(keyHashes.memory);
+        }
+
+        /**
+         * Builds the filter of all the keys added so far. The key hashes get grouped by shard in place, so no keys
+         * must be added afterwards.
+         */
+        @SuppressWarnings("resource")
+        public XorFilter build()
+        {
+            long count = keyHashes.count;
+            int shards = 1;
+            while ((long) shards * SHARD_KEYS < count)
+                shards <<= 1;
+            int shardBits = Integer.numberOfTrailingZeros(shards);
+            long[] shardEnds = keyHashes.groupByShard(shards, shardBits);
+
+            long[] seeds = new long[shards];
+            int[] blockLengths = new int[shards];
+            long slots = 0;
+            for (int shard = 0; shard < shards; shard++)
+            {
+                long shardKeys = shardEnds[shard] - (shard == 0 ? 0 : shardEnds[shard - 1]);
+                blockLengths[shard] = blockLength(shardKeys);
+                slots += 3L * blockLengths[shard];
+            }
+
+            Memory fingerprints = Memory.allocate(((slots * fingerprintBits + 7) >>> 3) + PADDING);
+            try
+            {
+                fingerprints.setMemory(0, fingerprints.size(), (byte) 0);
+                ShardBuilder shardBuilder = new ShardBuilder();
+                long offset = 0;
+                for (int shard = 0; shard < shards; shard++)
+                {
+                    long start = shard == 0 ? 0 : shardEnds[shard - 1];
+                    seeds[shard] = shardBuilder.build(keyHashes, start, shardEnds[shard], blockLengths[shard], fingerprints, offset, fingerprintBits);
+                    offset += 3L * blockLengths[shard];
+                }
+                return new XorFilter(fingerprintBits, seeds, blockLengths, fingerprints);
+            }
+            catch (Throwable t)
+            {
+                fingerprints.free();
+                throw t;
+            }
+        }
+
+        private static int blockLength(long keys)
+        {
+            long capacity = 32 + (long) Math.ceil(1.23 * keys);
+            return (int) ((capacity + 2) / 3);
+        }
+    }
+
+    /**
+     * A growable off-heap array of the hashes of the keys.
+     */
+    private static final class KeyHashes implements AutoCloseable
+    {
+        private Memory memory;
+        private long count;
+
+        KeyHashes(long expectedKeys)
+        {
+            memory = Memory.allocate(Math.max(1, expectedKeys) * 8);
+        }
+
+        void add(long hash)
+        {
+            if ((count + 1) * 8 > memory.size())
+            {
+                Memory grown = memory.copy(memory.size() * 2);
+                memory.free();
+                memory = grown;
+            }
+            memory.setLong(count++ * 8, hash);
+        }
+
+        long get(long index)
+        {
+            return memory.getLong(index * 8);
+        }
+
+        void set(long index, long hash)
+        {
+            memory.setLong(index * 8, hash);
+        }
+
+        /**
+         * Reorders the hashes in place so that the ones of each shard are contiguous (American flag sort).
+         *
+         * @return the (exclusive) end of the hashes of each shard
+         */
+        long[] groupByShard(int shards, int shardBits)
+        {
+            long[] ends = new long[shards];
+            if (shards == 1)
+            {
+                ends[0] = count;
+                return ends;
+            }
+
+            for (long i = 0; i < count; i++)
+                ends[shardOf(get(i), shardBits)]++;
+            long[] next = new long[shards];
+            for (int shard = 1; shard < shards; shard++)
+            {
+                ends[shard] += ends[shard - 1];
+                next[shard] = ends[shard - 1];
+            }
+
+            for (int shard = 0; shard < shards; shard++)
+            {
+                while (next[shard] < ends[shard])
+                {
+                    long hash = get(next[shard]);
+                    int target = shardOf(hash, shardBits);
+                    while (target != shard)
+                    {
+                        long displaced = get(next[target]);
+                        set(next[target]++, hash);
+                        hash = displaced;
+                        target = shardOf(hash, shardBits);
+                    }
+                    set(next[shard]++, hash);
+                }
+            }
+            return ends;
+        }
+
+        public void close()
+        {
+            memory.free();
+        }
+    }
+
+    /**
+     * Builds the shards of a filter, reusing its (on-heap) working arrays from one shard to the next.
+     */
+    private static final class ShardBuilder
+    {
+        private static final int MAX_ATTEMPTS = 100;
+        // once that many attempts have failed, duplicate key hashes are the likely culprit
+        private static final int DEDUPLICATE_AFTER = 8;
+
+        private long[] keys = new long[0];
+        private long[] slotHashes = new long[0];
+        private int[] slotCounts = new int[0];
+        private int[] alone = new int[0];
+        private long[] stackHashes = new long[0];
+        private byte[] stackIndexes = new byte[0];
+
+        /**
+         * @return the seed of the shard
+         */
+        long build(KeyHashes keyHashes, long start, long end, int blockLength, Memory fingerprints, long offset, int fingerprintBits)
+        {
+            int size = (int) (end - start);
+            int capacity = 3 * blockLength;
+            if (keys.length < size)
+            {
+                keys = new long[size];
+                stackHashes = new long[size];
+                stackIndexes = new byte[size];
+            }
+            if (slotHashes.length < capacity)
+            {
+                slotHashes = new long[capacity];
+                slotCounts = new int[capacity];
+                alone = new int[capacity];
+            }
+            for (int i = 0; i < size; i++)
+                keys[i] = keyHashes.get(start + i);
+
+            for (int attempt = 0; ; attempt++)
+            {
+                if (attempt == MAX_ATTEMPTS)
+                    throw new IllegalStateException("Unable to build an xor filter of " + size + " keys");
+                if (attempt == DEDUPLICATE_AFTER)
+                    size = deduplicate(size);
+
+                // seeds are deterministic, so that rebuilding a filter gives the same filter
+                long seed = mix(0x9e3779b97f4a7c15L * (attempt + 1));
+                int stackSize = peel(size, capacity, blockLength, seed);
+                if (stackSize < size)
+                    continue;
+
+                // assign the fingerprints in the reverse order of the peeling: the slot of each key is then the
+                // last of its three slots to be set
+                for (int i = stackSize - 1; i >= 0; i--)
+                {
+                    long x = stackHashes[i];
+                    int fingerprint = fingerprint(x)
+                                      ^ getFingerprint(fingerprints, offset + slot(x, 0, blockLength), fingerprintBits)
+                                      ^ getFingerprint(fingerprints, offset + slot(x, 1, blockLength), fingerprintBits)
+                                      ^ getFingerprint(fingerprints, offset + slot(x, 2, blockLength), fingerprintBits);
+                    setFingerprint(fingerprints, offset + slot(x, stackIndexes[i], blockLength), fingerprintBits, fingerprint & ((1 << fingerprintBits) - 1));
+                }
+                return seed;
+            }
+        }
+
+        /**
+         * Repeatedly removes the keys that are the only ones mapped to one of their slots.
+         *
+         * @return the number of keys removed, which is the number of keys of the shard on success
+         */
+        private int peel(int size, int capacity, int blockLength, long seed)
+        {
+            Arrays.fill(slotHashes, 0, capacity, 0L);
+            Arrays.fill(slotCounts, 0, capacity, 0);
+            for (int i = 0; i < size; i++)
+            {
+                long x = mix(keys[i] + seed);
+                for (int index = 0; index < 3; index++)
+                {
+                    int slot = slot(x, index, blockLength);
+                    slotHashes[slot] ^= x;
+                    slotCounts[slot]++;
+                }
+            }
+
+            int aloneSize = 0;
+            for (int slot = 0; slot < capacity; slot++)
+            {
+                if (slotCounts[slot] == 1)
+                    alone[aloneSize++] = slot;
+            }
+
+            int stackSize = 0;
+            while (aloneSize > 0)
+            {
+                int slot = alone[--aloneSize];
+                if (slotCounts[slot] != 1)
+                    continue;
+
+                // the slot only has a single key left, whose hash is the xor of the slot
+                long x = slotHashes[slot];
+                stackHashes[stackSize] = x;
+                stackIndexes[stackSize] = (byte) (slot / blockLength);
+                stackSize++;
+                for (int index = 0; index < 3; index++)
+                {
+                    int other = slot(x, index, blockLength);
+                    slotHashes[other] ^= x;
+                    if (--slotCounts[other] == 1)
+                        alone[aloneSize++] = other;
+                }
+            }
+            return stackSize;
+        }
+
+        private int deduplicate(int size)
+        {
+            Arrays.sort(keys, 0, size);
+            int unique = size == 0 ? 0 : 1;
+            for (int i = 1; i < size; i++)
+            {
+                if (keys[i] != keys[unique - 1])
+                    keys[unique++] = keys[i];
+            }
+            return unique;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.lang.ref.ReferenceQueue;
 import java.nio.ByteBuffer;
 import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
@@ -42,6 +43,10 @@ import org.apache.cassandra.utils.concurrent.Ref;
 
 /**
  * A pool of ByteBuffers that can be recycled.
+ *
+ * Buffers of up to {@link #CHUNK_SIZE} are sliced from chunks, see {@link Chunk}, and larger buffers of up to
+ * {@link GlobalPool#MACRO_CHUNK_SIZE} are pooled whole in size classes, see {@link SizeClass}. Even larger buffers are
+ * allocated directly.
  */
 public class BufferPool
 {
@@ -132,10 +137,14 @@ public class BufferPool
 
         if (size > CHUNK_SIZE)
         {
+            SizeClass sizeClass = SizeClass.forSize(size);
+            if (sizeClass != null)
+                return localPool.get().get(sizeClass, size);
+
             if (logger.isTraceEnabled())
                 logger.trace("Requested buffer size {} is bigger than {}, allocating directly",
                              FBUtilities.prettyPrintMemory(size),
-                             FBUtilities.prettyPrintMemory(CHUNK_SIZE));
+                             FBUtilities.prettyPrintMemory(GlobalPool.MACRO_CHUNK_SIZE));
 
             return localPool.get().allocate(size, allocateOnHeapWhenExhausted);
         }
@@ -145,7 +154,13 @@ public class BufferPool
 
     public static void put(ByteBuffer buffer)
     {
-        if (!(DISABLED || buffer.hasArray()))
+        if (DISABLED || buffer.hasArray())
+            return;
+
+        PooledBuffer pooled = PooledBuffer.detach(buffer);
+        if (pooled != null)
+            localPool.get().put(pooled);
+        else
             localPool.get().put(buffer);
     }
 
@@ -154,6 +169,8 @@ public class BufferPool
     static void reset()
     {
         localPool.get().reset();
+        for (SizeClass sizeClass : SizeClass.sizeClasses)
+            sizeClass.reset();
         globalPool.reset();
     }
 
@@ -237,6 +254,8 @@ public class BufferPool
         // TODO (future): it would be preferable to use a CLStack to improve cache occupancy; it would also be preferable to use "CoreLocal" storage
         private final Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
         private final AtomicLong memoryUsage = new AtomicLong();
+        // the part of memoryUsage that is used by the buffers of the size classes
+        private final AtomicLong sizeClassesMemoryUsage = new AtomicLong();
 
         /** Return a chunk, the caller will take owership of the parent chunk. */
         public Chunk get()
@@ -259,18 +278,8 @@ public class BufferPool
          */
         private boolean allocateMoreChunks()
         {
-            while (true)
-            {
-                long cur = memoryUsage.get();
-                if (cur + MACRO_CHUNK_SIZE > MEMORY_USAGE_THRESHOLD)
-                {
-                    noSpamLogger.info("Maximum memory usage reached ({}), cannot allocate chunk of {}",
-                                      MEMORY_USAGE_THRESHOLD, MACRO_CHUNK_SIZE);
-                    return false;
-                }
-                if (memoryUsage.compareAndSet(cur, cur + MACRO_CHUNK_SIZE))
-                    break;
-            }
+            if (!reserve(MACRO_CHUNK_SIZE))
+                return false;
 
             // allocate a large chunk
             Chunk chunk;
@@ -300,6 +309,50 @@ public class BufferPool
             return true;
         }
 
+        private boolean reserve(long size)
+        {
+            while (true)
+            {
+                long cur = memoryUsage.get();
+                if (cur + size > MEMORY_USAGE_THRESHOLD)
+                {
+                    noSpamLogger.info("Maximum memory usage reached ({}), cannot allocate chunk of {}",
+                                      MEMORY_USAGE_THRESHOLD, size);
+                    return false;
+                }
+                if (memoryUsage.compareAndSet(cur, cur + size))
+                    return true;
+            }
+        }
+
+        /**
+         * Reserves memory for a buffer of a size class. The size classes can't use more than half of the memory of the
+         * pool, since the macro-chunks are never released and would otherwise be starved by large buffers.
+         */
+        boolean reserveForSizeClass(int size)
+        {
+            while (true)
+            {
+                long cur = sizeClassesMemoryUsage.get();
+                if (cur + size > MEMORY_USAGE_THRESHOLD / 2)
+                    return false;
+                if (sizeClassesMemoryUsage.compareAndSet(cur, cur + size))
+                    break;
+            }
+
+            if (reserve(size))
+                return true;
+
+            sizeClassesMemoryUsage.addAndGet(-size);
+            return false;
+        }
+
+        void releaseForSizeClass(int size)
+        {
+            sizeClassesMemoryUsage.addAndGet(-size);
+            memoryUsage.addAndGet(-size);
+        }
+
         public void recycle(Chunk chunk)
         {
             chunks.add(chunk);
@@ -321,6 +374,7 @@ public class BufferPool
                 macroChunks.poll().reset();
 
             memoryUsage.set(0);
+            sizeClassesMemoryUsage.set(0);
         }
     }
 
@@ -340,6 +394,8 @@ public class BufferPool
         // WARNING: if we ever change the size of this, we must update removeFromLocalQueue, and addChunk
         private final Chunk[] chunks = new Chunk[3];
         private byte chunkCount = 0;
+        // a single cached buffer per size class
+        private final PooledBuffer[] pooledBuffers = new PooledBuffer[SizeClass.sizeClasses.length];
 
         public LocalPool()
         {
@@ -398,6 +454,32 @@ public class BufferPool
            return null;
         }
 
+        public ByteBuffer get(SizeClass sizeClass, int size)
+        {
+            PooledBuffer pooled = pooledBuffers[sizeClass.index];
+            if (pooled != null)
+            {
+                pooledBuffers[sizeClass.index] = null;
+                sizeClass.metrics.hits.mark();
+            }
+            else
+            {
+                pooled = sizeClass.take();
+                if (pooled == null)
+                    return null;
+            }
+            return pooled.slice(size);
+        }
+
+        public void put(PooledBuffer pooled)
+        {
+            int index = pooled.sizeClass.index;
+            if (pooledBuffers[index] == null)
+                pooledBuffers[index] = pooled;
+            else
+                pooled.sizeClass.recycle(pooled);
+        }
+
         private ByteBuffer allocate(int size, boolean onHeap)
         {
             metrics.misses.mark();
@@ -465,16 +547,27 @@ public class BufferPool
                     chunks[i] = null;
                 }
             }
+
+            for (int i = 0; i < pooledBuffers.length; i++)
+            {
+                if (pooledBuffers[i] != null)
+                {
+                    pooledBuffers[i].sizeClass.release(pooledBuffers[i]);
+                    pooledBuffers[i] = null;
+                }
+            }
         }
     }
 
     private static final class LocalPoolRef extends  PhantomReference<LocalPool>
     {
         private final Chunk[] chunks;
+        private final PooledBuffer[] pooledBuffers;
         public LocalPoolRef(LocalPool localPool, ReferenceQueue<? super LocalPool> q)
         {
             super(localPool, q);
             chunks = localPool.chunks;
+            pooledBuffers = localPool.pooledBuffers;
         }
 
         public void release()
@@ -487,6 +580,15 @@ public class BufferPool
                     chunks[i] = null;
                 }
             }
+
+            for (int i = 0 ; i < pooledBuffers.length ; i++)
+            {
+                if (pooledBuffers[i] != null)
+                {
+                    pooledBuffers[i].sizeClass.recycle(pooledBuffers[i]);
+                    pooledBuffers[i] = null;
+                }
+            }
         }
     }
 
@@ -652,7 +754,10 @@ public class BufferPool
                 return (Chunk) attachment;
 
             if (attachment instanceof Ref)
-                return ((Ref<Chunk>) attachment).get();
+            {
+                Object referent = ((Ref<?>) attachment).get();
+                return referent instanceof Chunk ? (Chunk) referent : null;
+            }
 
             return null;
         }
@@ -861,6 +966,169 @@ public class BufferPool
         }
     }
 
+    /**
+     * A size class of buffers larger than a chunk, that can't be sliced from chunks and are pooled whole instead.
+     *
+     * The size classes are the powers of 2 above {@link #CHUNK_SIZE}, up to {@link GlobalPool#MACRO_CHUNK_SIZE}, and a
+     * buffer is served by the smallest size class that fits it. Each thread local pool caches one buffer per size class
+     * and the other free buffers are kept in a global free list per size class, bounded to
+     * {@link #MAX_FREE_BUFFERS} buffers, beyond which they are released.
+     */
+    static final class SizeClass
+    {
+        static final int MAX_FREE_BUFFERS = 16;
+        static final SizeClass[] sizeClasses;
+
+        static
+        {
+            int count = Integer.numberOfTrailingZeros(GlobalPool.MACRO_CHUNK_SIZE) - Integer.numberOfTrailingZeros(CHUNK_SIZE);
+            sizeClasses = new SizeClass[count];
+            for (int i = 0; i < count; i++)
+                sizeClasses[i] = new SizeClass(i, CHUNK_SIZE << (i + 1));
+        }
+
+        final int index;
+        final int size;
+        final BufferPoolMetrics.SizeClassMetrics metrics;
+
+        private final Queue<PooledBuffer> free = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger freeCount = new AtomicInteger();
+        // the number of buffers of this size class, either free or in use
+        private final AtomicInteger allocated = new AtomicInteger();
+
+        private SizeClass(int index, int size)
+        {
+            this.index = index;
+            this.size = size;
+            this.metrics = new BufferPoolMetrics.SizeClassMetrics((size >> 10) + "KiB", () -> (long) allocated.get() * size);
+        }
+
+        /**
+         * @return the smallest size class fitting buffers of the given size, or null if they are too small or too large
+         * for any
+         */
+        static SizeClass forSize(int size)
+        {
+            if (size <= CHUNK_SIZE || size > GlobalPool.MACRO_CHUNK_SIZE)
+                return null;
+
+            // i.e. ceil(log2(size)) - log2(CHUNK_SIZE) - 1
+            return sizeClasses[32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(CHUNK_SIZE) - 1];
+        }
+
+        /**
+         * @return a free buffer of this size class, or a new one if there are none, or null if the pool is exhausted
+         */
+        PooledBuffer take()
+        {
+            PooledBuffer pooled = free.poll();
+            if (pooled != null)
+            {
+                freeCount.decrementAndGet();
+                metrics.hits.mark();
+                return pooled;
+            }
+
+            metrics.misses.mark();
+            if (!globalPool.reserveForSizeClass(size))
+                return null;
+
+            try
+            {
+                pooled = new PooledBuffer(this, allocateDirectAligned(size));
+            }
+            catch (OutOfMemoryError oom)
+            {
+                globalPool.releaseForSizeClass(size);
+                noSpamLogger.error("Buffer pool failed to allocate buffer of {}, current size {} ({}).",
+                                   size, sizeInBytes(), oom.toString());
+                return null;
+            }
+            allocated.incrementAndGet();
+            return pooled;
+        }
+
+        void recycle(PooledBuffer pooled)
+        {
+            if (freeCount.incrementAndGet() <= MAX_FREE_BUFFERS)
+            {
+                free.add(pooled);
+                return;
+            }
+
+            freeCount.decrementAndGet();
+            release(pooled);
+        }
+
+        void release(PooledBuffer pooled)
+        {
+            // the aligned buffer is a slice of the buffer to clean
+            FileUtils.clean((ByteBuffer) MemoryUtil.getAttachment(pooled.buffer));
+            allocated.decrementAndGet();
+            globalPool.releaseForSizeClass(size);
+        }
+
+        /** This is not thread safe and should only be used for unit testing. */
+        @VisibleForTesting
+        void reset()
+        {
+            PooledBuffer pooled;
+            while ((pooled = free.poll()) != null)
+                release(pooled);
+            freeCount.set(0);
+        }
+    }
+
+    /**
+     * A buffer of a size class, which is lent as a slice referencing it in its attachment, like the slices of a
+     * {@link Chunk} reference it.
+     */
+    static final class PooledBuffer
+    {
+        final SizeClass sizeClass;
+        final ByteBuffer buffer;
+
+        PooledBuffer(SizeClass sizeClass, ByteBuffer buffer)
+        {
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+        }
+
+        ByteBuffer slice(int size)
+        {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(size);
+            slice = slice.slice();
+            if (Ref.DEBUG_ENABLED)
+                MemoryUtil.setAttachment(slice, new Ref<>(this, null));
+            else
+                MemoryUtil.setAttachment(slice, this);
+            return slice;
+        }
+
+        /**
+         * @return the pooled buffer the given buffer is a slice of, if any, after unlinking them, so that the
+         * buffer can't be returned to the pool twice
+         */
+        static PooledBuffer detach(ByteBuffer buffer)
+        {
+            Object attachment = MemoryUtil.getAttachment(buffer);
+            if (attachment instanceof Ref)
+            {
+                Ref<?> ref = (Ref<?>) attachment;
+                attachment = ref.get();
+                if (attachment instanceof PooledBuffer)
+                    ref.release();
+            }
+
+            if (!(attachment instanceof PooledBuffer))
+                return null;
+
+            MemoryUtil.setAttachment(buffer, null);
+            return (PooledBuffer) attachment;
+        }
+    }
+
     @VisibleForTesting
     public static int roundUpNormal(int size)
     {
@@ -19,6 +19,7 @@ package org.apache.cassandra.utils.memory;
 
 import java.nio.ByteBuffer;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.rows.*;
 import org.apache.cassandra.utils.concurrent.OpOrder;
@@ -32,6 +33,8 @@ public abstract class MemtableBufferAllocator extends MemtableAllocator
 
     public Row.Builder rowBuilder(OpOrder.Group writeOp)
     {
+        if (DatabaseDescriptor.getMemtablePackDenseRows())
+            return new PackedRow.Builder(allocator(writeOp));
         return allocator(writeOp).cloningBTreeRowBuilder();
     }
 
@@ -56,10 +56,13 @@ public class NativeAllocator extends MemtableAllocator
     private final AtomicReference<Region> currentRegion = new AtomicReference<>();
     private final ConcurrentLinkedQueue<Region> regions = new ConcurrentLinkedQueue<>();
     private final EnsureOnHeap.CloneToHeap cloneToHeap = new EnsureOnHeap.CloneToHeap();
+    // not null if the structure of the rows, and not only their values, is stored off-heap
+    private final NativeRow.ColumnRegistry columnRegistry;
 
     protected NativeAllocator(NativePool pool)
     {
         super(pool.onHeap.newAllocator(), pool.offHeap.newAllocator());
+        this.columnRegistry = pool.offHeapRows ? new NativeRow.ColumnRegistry() : null;
     }
 
     private static class CloningBTreeRowBuilder extends BTreeRow.Builder
@@ -88,8 +91,28 @@ public class NativeAllocator extends MemtableAllocator
         }
     }
 
+    private static class NativeRowBuilder extends BTreeRow.Builder
+    {
+        final OpOrder.Group writeOp;
+        final NativeAllocator allocator;
+        private NativeRowBuilder(OpOrder.Group writeOp, NativeAllocator allocator)
+        {
+            super(true);
+            this.writeOp = writeOp;
+            this.allocator = allocator;
+        }
+
+        @Override
+        public Row build()
+        {
+            return NativeRow.create(allocator, writeOp, allocator.columnRegistry, (BTreeRow) super.build());
+        }
+    }
+
     public Row.Builder rowBuilder(OpOrder.Group opGroup)
     {
+        if (columnRegistry != null)
+            return new NativeRowBuilder(opGroup, this);
         return new CloningBTreeRowBuilder(opGroup, this);
     }
 
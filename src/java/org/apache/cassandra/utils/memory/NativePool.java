@@ -20,9 +20,21 @@ package org.apache.cassandra.utils.memory;
 
 public class NativePool extends MemtablePool
 {
+    final boolean offHeapRows;
+
     public NativePool(long maxOnHeapMemory, long maxOffHeapMemory, float cleanThreshold, Runnable cleaner)
+    {
+        this(maxOnHeapMemory, maxOffHeapMemory, cleanThreshold, cleaner, false);
+    }
+
+    /**
+     * @param offHeapRows whether the structure of the rows, and not only their values, is stored off-heap,
+     * see {@link org.apache.cassandra.db.rows.NativeRow}
+     */
+    public NativePool(long maxOnHeapMemory, long maxOffHeapMemory, float cleanThreshold, Runnable cleaner, boolean offHeapRows)
     {
         super(maxOnHeapMemory, maxOffHeapMemory, cleanThreshold, cleaner);
+        this.offHeapRows = offHeapRows;
     }
 
     @Override
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.db.BufferDecoratedKey;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.utils.FilterFactory;
+import org.apache.cassandra.utils.IFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks keys against the filters of many sstables, the way a read on a table with many sstables does, comparing
+ * standard Bloom, blocked Bloom and xor filters. The filters are large enough not to fit in the CPU caches, so that the cost
+ * is dominated by cache misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 4, time = 4, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512M")
+@State(Scope.Benchmark)
+public class BloomFilterProbeBench
+{
+    private static final int KEYS = 1024;
+
+    @Param({"bloom", "blocked_bloom", "xor"})
+    private Config.SSTableFilterType filterType;
+
+    @Param({"1", "20"})
+    private int sstables;
+
+    @Param({"1000000"})
+    private int keysPerSSTable;
+
+    @Param({"0.01"})
+    private double fpChance;
+
+    private IFilter[] filters;
+    private IFilter.FilterKey[] presentKeys;
+    private IFilter.FilterKey[] absentKeys;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random random = new Random(42);
+        filters = new IFilter[sstables];
+        presentKeys = new IFilter.FilterKey[KEYS];
+        for (int i = 0; i < sstables; i++)
+        {
+            filters[i] = FilterFactory.getFilter(keysPerSSTable, fpChance, filterType);
+            for (int k = 0; k < keysPerSSTable; k++)
+            {
+                IFilter.FilterKey key = key(random.nextLong());
+                filters[i].add(key);
+                if (i == sstables - 1 && k < KEYS)
+                    presentKeys[k] = key;
+            }
+            filters[i] = FilterFactory.complete(filters[i]);
+        }
+
+        absentKeys = new IFilter.FilterKey[KEYS];
+        for (int k = 0; k < KEYS; k++)
+            absentKeys[k] = key(random.nextLong());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown()
+    {
+        for (IFilter filter : filters)
+            filter.close();
+    }
+
+    private static IFilter.FilterKey key(long value)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, value);
+        return new BufferDecoratedKey(new Murmur3Partitioner.LongToken(value), buffer);
+    }
+
+    /**
+     * A key that is only present in the most recent sstable: all the filters are checked.
+     */
+    @Benchmark
+    public int presentInOne()
+    {
+        return probe(presentKeys[index++ & (KEYS - 1)]);
+    }
+
+    /**
+     * A key that is not present at all: only false positives get past the filters.
+     */
+    @Benchmark
+    public int absent()
+    {
+        return probe(absentKeys[index++ & (KEYS - 1)]);
+    }
+
+    private int probe(IFilter.FilterKey key)
+    {
+        int present = 0;
+        for (IFilter filter : filters)
+        {
+            if (filter.isPresent(key))
+                present++;
+        }
+        return present;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.io.sstable.IndexSummary;
+import org.apache.cassandra.io.sstable.IndexSummaryBuilder;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.apache.cassandra.io.sstable.Downsampling.BASE_SAMPLING_LEVEL;
+
+/**
+ * Looks up random partitions in index summaries, the way a point read does to find where to start scanning the
+ * partition index, comparing the plain binary search with the eytzinger layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 4, time = 4, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1G")
+@State(Scope.Benchmark)
+public class IndexSummarySearchBench
+{
+    private static final int KEYS = 4096;
+
+    @Param({"binary_search", "eytzinger"})
+    private Config.IndexSummaryLayout layout;
+
+    // number of summary entries, i.e. partitions / min_index_interval
+    @Param({"1000", "100000", "4000000"})
+    private int entries;
+
+    private IndexSummary summary;
+    private DecoratedKey[] keys;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        DatabaseDescriptor.daemonInitialization();
+        DatabaseDescriptor.setIndexSummaryLayout(layout);
+
+        Random random = new Random(42);
+        DecoratedKey[] summaryKeys = new DecoratedKey[entries];
+        for (int i = 0; i < entries; i++)
+            summaryKeys[i] = Murmur3Partitioner.instance.decorateKey(ByteBufferUtil.bytes(random.nextLong()));
+        Arrays.sort(summaryKeys);
+
+        try (IndexSummaryBuilder builder = new IndexSummaryBuilder(entries, 1, BASE_SAMPLING_LEVEL))
+        {
+            for (int i = 0; i < entries; i++)
+                builder.maybeAddEntry(summaryKeys[i], i);
+            summary = builder.build(Murmur3Partitioner.instance);
+        }
+
+        // partitions in between the summary entries, as most of the looked up partitions are
+        keys = new DecoratedKey[KEYS];
+        for (int i = 0; i < KEYS; i++)
+            keys[i] = Murmur3Partitioner.instance.decorateKey(ByteBufferUtil.bytes(random.nextLong()));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown()
+    {
+        summary.close();
+    }
+
+    @Benchmark
+    public int search()
+    {
+        return summary.binarySearch(keys[index++ & (KEYS - 1)]);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.test.microbench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.utils.MergeIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merges sorted sources the way compactions and reads over many sstables do, comparing the heap of
+ * {@link MergeIterator#getManyToOne} with the tournament tree of {@link MergeIterator#getLoserTree}. The comparator is
+ * deliberately not trivial, as comparing clusterings or partition keys isn't either.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class MergeIteratorBench
+{
+    private static final int ITEMS = 1 << 16;
+
+    private static final Comparator<Long> COMPARATOR = (a, b) -> Long.compareUnsigned(Long.reverse(a), Long.reverse(b));
+
+    @Param({"heap", "loser_tree"})
+    private String implementation;
+
+    @Param({"4", "32", "128"})
+    private int sources;
+
+    // fraction of the items of a source that are also in the others, 0 being like sstables of disjoint token ranges
+    @Param({"0", "0.1", "1"})
+    private double overlap;
+
+    private Long[][] data;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Random random = new Random(42);
+        Long[] shared = new Long[(int) (ITEMS / sources * overlap)];
+        for (int i = 0; i < shared.length; i++)
+            shared[i] = random.nextLong();
+
+        data = new Long[sources][];
+        for (int s = 0; s < sources; s++)
+        {
+            Long[] items = new Long[ITEMS / sources];
+            System.arraycopy(shared, 0, items, 0, shared.length);
+            for (int i = shared.length; i < items.length; i++)
+                items[i] = random.nextLong();
+            Arrays.sort(items, COMPARATOR);
+            data[s] = items;
+        }
+
+        if (overlap == 0)
+        {
+            // disjoint sources: sort everything and split it in consecutive runs
+            Long[] all = new Long[ITEMS / sources * sources];
+            for (int s = 0; s < sources; s++)
+                System.arraycopy(data[s], 0, all, s * data[s].length, data[s].length);
+            Arrays.sort(all, COMPARATOR);
+            for (int s = 0; s < sources; s++)
+                data[s] = Arrays.copyOfRange(all, s * data[s].length, (s + 1) * data[s].length);
+        }
+    }
+
+    @Benchmark
+    public long merge()
+    {
+        List<Iterator<Long>> iterators = new ArrayList<>(sources);
+        for (Long[] items : data)
+            iterators.add(Arrays.asList(items).iterator());
+
+        MergeIterator<Long, Long> merged = implementation.equals("heap")
+                                         ? MergeIterator.getManyToOne(iterators, COMPARATOR, new Reducer())
+                                         : MergeIterator.getLoserTree(iterators, COMPARATOR, new Reducer());
+        long sum = 0;
+        while (merged.hasNext())
+            sum += merged.next();
+        return sum;
+    }
+
+    private static class Reducer extends MergeIterator.Reducer<Long, Long>
+    {
+        private long reduced;
+
+        public void reduce(int idx, Long current)
+        {
+            reduced = current;
+        }
+
+        protected Long getReduced()
+        {
+            return reduced;
+        }
+    }
+}
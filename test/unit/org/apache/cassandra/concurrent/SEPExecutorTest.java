@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.ThreadPoolMetrics;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
+public class SEPExecutorTest
+{
+    @BeforeClass
+    public static void setupDD()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    @Test
+    public void testTaskLatencyMetrics() throws Exception
+    {
+        SharedExecutorPool pool = new SharedExecutorPool("SEPExecutorTest");
+        LocalAwareExecutorService executor = pool.newExecutor(1, 16, "internal", "SEP_EXECUTOR_TEST");
+        try
+        {
+            // with a single worker, the tasks queue up behind each other
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+                futures.add(executor.submit(() -> Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS)));
+            for (Future<?> future : futures)
+                future.get();
+
+            ThreadPoolMetrics metrics = Metrics.getThreadPoolMetrics("SEP_EXECUTOR_TEST").get();
+            // the run time is recorded right after the futures are completed
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (metrics.taskRunLatency.getCount() < 5 && System.nanoTime() < deadline)
+                Thread.yield();
+            Assert.assertEquals(5, metrics.queueWaitLatency.getCount());
+            Assert.assertEquals(5, metrics.taskRunLatency.getCount());
+            // the histograms are approximate, hence the margins
+            Assert.assertTrue(metrics.taskRunLatency.getSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+            Assert.assertTrue(metrics.queueWaitLatency.getSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+            Assert.assertTrue(pool.metrics.workersStarted.getCount() > 0);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkerGroups() throws Exception
+    {
+        SharedExecutorPool pool = new SharedExecutorPool("SEPExecutorGroupsTest", 2);
+        List<LocalAwareExecutorService> executors = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            executors.add(pool.newExecutor(2, 64, "internal", "SEP_EXECUTOR_GROUPS_TEST_" + i));
+        try
+        {
+            // the executors are spread over the groups
+            Assert.assertNotSame(((SEPExecutor) executors.get(0)).group, ((SEPExecutor) executors.get(1)).group);
+            Assert.assertSame(((SEPExecutor) executors.get(0)).group, ((SEPExecutor) executors.get(2)).group);
+
+            AtomicInteger ran = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++)
+                futures.add(executors.get(i % executors.size()).submit(ran::incrementAndGet));
+            for (Future<?> future : futures)
+                future.get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(200, ran.get());
+        }
+        finally
+        {
+            for (LocalAwareExecutorService executor : executors)
+                executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkerGroupLocality() throws Exception
+    {
+        SharedExecutorPool pool = new SharedExecutorPool("SEPExecutorLocalityTest", 2);
+        List<SEPExecutor> executors = new ArrayList<>();
+        for (int i = 0; i < 2; i++)
+            executors.add((SEPExecutor) pool.newExecutor(2, 64, "internal", "SEP_EXECUTOR_LOCALITY_TEST_" + i));
+        try
+        {
+            // the groups are never saturated, so the tasks are run by the workers of the group of their executor, bar
+            // the few races between a task being queued and a worker of its group being woken up for it
+            int tasks = 200;
+            int local = 0;
+            for (int i = 0; i < tasks; i++)
+            {
+                SEPExecutor executor = executors.get(i % executors.size());
+                String worker = executor.submit(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+                if (worker.startsWith("SEPExecutorLocalityTest-Group" + executor.group.id + "-Worker-"))
+                    local++;
+            }
+            Assert.assertTrue(local >= tasks * 0.9);
+            Assert.assertTrue(pool.metrics.crossGroupAssignments.getCount() <= tasks * 0.1);
+        }
+        finally
+        {
+            for (SEPExecutor executor : executors)
+                executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkerGroups()
+    {
+        new SharedExecutorPool("SEPExecutorInvalidGroupsTest", 0);
+    }
+}
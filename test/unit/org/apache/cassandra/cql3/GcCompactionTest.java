@@ -30,10 +30,14 @@ import com.google.common.collect.Iterables;
 import org.junit.Test;
 
 import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.compaction.CompactionController;
+import org.apache.cassandra.db.compaction.CompactionIterator;
 import org.apache.cassandra.db.compaction.CompactionManager;
+import org.apache.cassandra.db.compaction.OperationType;
 import org.apache.cassandra.db.rows.*;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.schema.CompactionParams.TombstoneOption;
 import org.apache.cassandra.utils.FBUtilities;
 
 public class GcCompactionTest extends CQLTester
@@ -148,6 +152,56 @@ public class GcCompactionTest extends CQLTester
         assertTrue(rowCount > countRows(table3));
     }
 
+    @Test
+    public void testGarbageCollectedRows() throws Throwable
+    {
+        createTable("CREATE TABLE %s(" +
+                    "  key int," +
+                    "  column int," +
+                    "  data int," +
+                    "  extra text," +
+                    "  PRIMARY KEY(key, column)" +
+                    ");"
+                    );
+
+        for (int i = 0; i < KEY_COUNT; ++i)
+            for (int j = 0; j < CLUSTERING_COUNT; ++j)
+                execute("INSERT INTO %s (key, column, data, extra) VALUES (?, ?, ?, ?)", i, j, i+j, "" + i + ":" + j);
+
+        Set<SSTableReader> readers = new HashSet<>();
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+
+        flush();
+        SSTableReader table0 = getNewTable(readers);
+        int rowCount = countRows(table0);
+
+        // deletes 4 rows of each partition
+        deleteWithSomeInserts(1, 5, 0);
+        flush();
+        getNewTable(readers);
+
+        int nowInSec = FBUtilities.nowInSeconds();
+        try (CompactionController controller = new CompactionController(cfs, Collections.singleton(table0), cfs.gcBefore(nowInSec), null, TombstoneOption.ROW);
+             ISSTableScanner scanner = table0.getScanner();
+             CompactionIterator ci = new CompactionIterator(OperationType.COMPACTION, Collections.singletonList(scanner), controller, nowInSec, null))
+        {
+            int remaining = 0;
+            while (ci.hasNext())
+            {
+                try (UnfilteredRowIterator partition = ci.next())
+                {
+                    while (partition.hasNext())
+                    {
+                        if (partition.next().isRow())
+                            remaining++;
+                    }
+                }
+            }
+            assertEquals(KEY_COUNT * 4, ci.getGarbageCollectedRows());
+            assertEquals(rowCount - KEY_COUNT * 4, remaining);
+        }
+    }
+
     @Test
     public void testGcCompactionCells() throws Throwable
     {
@@ -431,9 +431,12 @@ public class SSTablesIteratedTest extends CQLTester
         executeAndCheck("SELECT * FROM %s WHERE id=1 LIMIT 2", 3, row(1, 1001, "1001"), row(1, 1002, "1002"));
 
         executeAndCheck("SELECT * FROM %s WHERE id=1", 3, allRows);
-        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1000 LIMIT 1", 2, row(1, 1001, "1001"));
+        // the row deletions make a partition large enough to be indexed, whose row index shows it doesn't
+        // intersect the slice, unlike the single range tombstone
+        int tombstoneSSTables = deleteWithRange ? 1 : 0;
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1000 LIMIT 1", 1 + tombstoneSSTables, row(1, 1001, "1001"));
         executeAndCheck("SELECT * FROM %s WHERE id=1 AND col <= 2000 LIMIT 1", 3, row(1, 1001, "1001"));
-        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1000", 2, allRows);
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1000", 1 + tombstoneSSTables, allRows);
         executeAndCheck("SELECT * FROM %s WHERE id=1 AND col <= 2000", 3, allRows);
     }
 
@@ -521,6 +524,44 @@ public class SSTablesIteratedTest extends CQLTester
         executeAndCheck("SELECT * FROM %s WHERE id=1 AND col <= 500 LIMIT 1", 2, row(1, 1, "1", "1"));
     }
 
+    @Test
+    public void testSliceOnIndexedPartitions() throws Throwable
+    {
+        // reduce the column index size so that columns get indexed during flush
+        DatabaseDescriptor.setColumnIndexSize(1);
+
+        createTable("CREATE TABLE %s (id int, col int, val text, PRIMARY KEY (id, col))");
+
+        // the clusterings of the first sstable span both slices, but not those of its first partition
+        for (int i = 1; i <= 1000; i++)
+        {
+            execute("INSERT INTO %s (id, col, val) VALUES (?, ?, ?)", 1, i, Integer.toString(i));
+            execute("INSERT INTO %s (id, col, val) VALUES (?, ?, ?)", 2, 1000 + i, Integer.toString(1000 + i));
+        }
+        flush();
+
+        for (int i = 1001; i <= 2000; i++)
+            execute("INSERT INTO %s (id, col, val) VALUES (?, ?, ?)", 1, i, Integer.toString(i));
+        flush();
+
+        // the index entries of the partition are only known once it has been read
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1998", 2, row(1, 1999, "1999"), row(1, 2000, "2000"));
+
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1998", 1, row(1, 1999, "1999"), row(1, 2000, "2000"));
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1998 ORDER BY col DESC", 1, row(1, 2000, "2000"), row(1, 1999, "1999"));
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col <= 2", 1, row(1, 1, "1"), row(1, 2, "2"));
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col >= 1000 AND col <= 1001", 2, row(1, 1000, "1000"), row(1, 1001, "1001"));
+        executeAndCheck("SELECT * FROM %s WHERE id=2 AND col > 1998", 1, row(2, 1999, "1999"), row(2, 2000, "2000"));
+
+        // a partition deletion isn't covered by the row index, so the partition can't be skipped
+        execute("DELETE FROM %s USING TIMESTAMP 1 WHERE id=1");
+        for (int i = 1; i <= 1000; i++)
+            execute("INSERT INTO %s (id, col, val) VALUES (?, ?, ?)", 1, i, Integer.toString(i));
+        flush();
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1998", 2, row(1, 1999, "1999"), row(1, 2000, "2000"));
+        executeAndCheck("SELECT * FROM %s WHERE id=1 AND col > 1998", 2, row(1, 1999, "1999"), row(1, 2000, "2000"));
+    }
+
     @Test
     public void testMultiplePartitionsDESC() throws Throwable
     {
@@ -21,15 +21,20 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.cassandra.schema.SchemaConstants;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.cql3.CQLTester;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.exceptions.SyntaxException;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.schema.SchemaKeyspace;
+import org.apache.cassandra.utils.XorFilter;
 
 import static java.lang.String.format;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class AlterTest extends CQLTester
 {
@@ -191,6 +196,39 @@ public class AlterTest extends CQLTester
         assertEquals(512, cfs.metadata().params.maxIndexInterval);
     }
 
+    @Test
+    public void testAlterFilterType() throws Throwable
+    {
+        String tableName = createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(tableName);
+        assertNull(cfs.metadata().params.filterType);
+
+        alterTable("ALTER TABLE %s WITH filter_type = 'xor'");
+        assertEquals(Config.SSTableFilterType.xor, cfs.metadata().params.filterType);
+        assertEquals(Config.SSTableFilterType.xor, reloadedFilterType(tableName));
+
+        for (int i = 0; i < 100; i++)
+            execute("INSERT INTO %s (k, v) VALUES (?, ?)", i, i);
+        flush();
+        SSTableReader sstable = cfs.getLiveSSTables().iterator().next();
+        assertTrue(sstable.getBloomFilter() instanceof XorFilter);
+        for (int i = 0; i < 100; i++)
+            assertRows(execute("SELECT v FROM %s WHERE k = ?", i), row(i));
+
+        // an empty type goes back to the node's default
+        alterTable("ALTER TABLE %s WITH filter_type = ''");
+        assertNull(cfs.metadata().params.filterType);
+        // as other nodes, and this one once restarted, read it from the schema tables
+        assertNull(reloadedFilterType(tableName));
+
+        assertInvalidThrow(ConfigurationException.class, "ALTER TABLE %s WITH filter_type = 'cuckoo'");
+    }
+
+    private static Config.SSTableFilterType reloadedFilterType(String tableName)
+    {
+        return SchemaKeyspace.fetchNonSystemKeyspaces().getNullable(KEYSPACE).tables.getNullable(tableName).params.filterType;
+    }
+
     /**
      * Migrated from cql_tests.py:TestCQL.create_alter_options_test()
      */
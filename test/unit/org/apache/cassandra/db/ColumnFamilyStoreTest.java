@@ -34,6 +34,7 @@ import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Iterators;
 import org.apache.cassandra.*;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.Operator;
 import org.apache.cassandra.db.lifecycle.SSTableSet;
 import org.apache.cassandra.db.rows.*;
@@ -42,6 +43,7 @@ import org.apache.cassandra.db.marshal.*;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.ISSTableScanner;
 import org.apache.cassandra.io.sstable.format.SSTableFormat;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.metrics.ClearableHistogram;
@@ -273,6 +275,90 @@ public class ColumnFamilyStoreTest
         }
     }
 
+    @Test
+    public void testShardedFlush() throws Throwable
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD1);
+        int flushShards = DatabaseDescriptor.getFlushShards();
+        DatabaseDescriptor.setFlushShards(4);
+        try
+        {
+            for (int i = 0; i < 100; i++)
+                new RowUpdateBuilder(cfs.metadata(), 0, ByteBufferUtil.bytes("key" + i)).clustering("Column1").add("val", "asdf").build().applyUnsafe();
+            long shardsFlushed = cfs.metric.flushShardTime.cf.getCount();
+            cfs.forceBlockingFlush();
+
+            // each shard is flushed to its own sstable, holding a quarter of the partitions
+            assertEquals(4, cfs.getLiveSSTables().size());
+            assertEquals(4, cfs.metric.flushShardTime.cf.getCount() - shardsFlushed);
+            List<SSTableReader> sstables = new ArrayList<>(cfs.getLiveSSTables());
+            sstables.sort(SSTableReader.sstableComparator);
+            for (int i = 0; i < sstables.size(); i++)
+            {
+                try (ISSTableScanner scanner = sstables.get(i).getScanner())
+                {
+                    assertEquals(25, Iterators.size(scanner));
+                }
+                if (i > 0)
+                    assertTrue(sstables.get(i - 1).last.compareTo(sstables.get(i).first) < 0);
+            }
+            assertEquals(100, Util.getAll(Util.cmd(cfs).build()).size());
+        }
+        finally
+        {
+            DatabaseDescriptor.setFlushShards(flushShards);
+        }
+    }
+
+    @Test
+    public void testFlushWeight()
+    {
+        // larger memtables are worth flushing first...
+        assertTrue(ColumnFamilyStore.flushWeight(0.2f, 0, 0, 0) > ColumnFamilyStore.flushWeight(0.1f, 0, 0, 0));
+        // ...as are the ones keeping more commit log segments from being recycled...
+        assertTrue(ColumnFamilyStore.flushWeight(0.1f, 0.5f, 0, 0) > ColumnFamilyStore.flushWeight(0.1f, 0, 0, 0));
+        // ...while the ones of heavily written tables, or of tables behind on compactions, are worth less
+        assertTrue(ColumnFamilyStore.flushWeight(0.1f, 0, 0, 0.9f) < ColumnFamilyStore.flushWeight(0.1f, 0, 0, 0.1f));
+        assertTrue(ColumnFamilyStore.flushWeight(0.1f, 0, 20, 0) < ColumnFamilyStore.flushWeight(0.1f, 0, 0, 0));
+        // but not so much that a tiny memtable is flushed before a large one
+        assertTrue(ColumnFamilyStore.flushWeight(0.01f, 1, 0, 0) < ColumnFamilyStore.flushWeight(0.3f, 0, 5, 0.9f));
+        // and a memtable twice as large is always worth more
+        assertTrue(ColumnFamilyStore.flushWeight(0.1f, 1, 0, 0) < ColumnFamilyStore.flushWeight(0.2f, 0, 100, 1));
+    }
+
+    @Test
+    public void testFlushWeightedColumnFamilies()
+    {
+        ColumnFamilyStore cold = Keyspace.open(KEYSPACE2).getColumnFamilyStore(CF_STANDARD1);
+        ColumnFamilyStore small = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD2);
+        ColumnFamilyStore large = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD1);
+        for (ColumnFamilyStore cfs : ColumnFamilyStore.all())
+            cfs.forceBlockingFlush();
+
+        // the large memtable gets almost all the writes, but still holds the most memory
+        fill(cold, 10);
+        fill(small, 50);
+        fill(large, 1000);
+        Memtable coldMemtable = cold.getTracker().getView().getCurrentMemtable();
+        Memtable smallMemtable = small.getTracker().getView().getCurrentMemtable();
+        Memtable largeMemtable = large.getTracker().getView().getCurrentMemtable();
+
+        // the memtables are far below the cleanup threshold, so only the one worth the most is flushed
+        new ColumnFamilyStore.FlushWeightedColumnFamilies().run();
+        assertTrue(largeMemtable != large.getTracker().getView().getCurrentMemtable());
+        assertTrue(smallMemtable == small.getTracker().getView().getCurrentMemtable());
+        assertTrue(coldMemtable == cold.getTracker().getView().getCurrentMemtable());
+
+        large.forceBlockingFlush();
+        assertEquals(1, large.getLiveSSTables().size());
+    }
+
+    private static void fill(ColumnFamilyStore cfs, int partitions)
+    {
+        for (int i = 0; i < partitions; i++)
+            new RowUpdateBuilder(cfs.metadata(), 0, "key" + i).clustering("Column1").add("val", ByteBuffer.allocate(1000)).build().applyUnsafe();
+    }
+
     // TODO: Fix once we have working supercolumns in 8099
 //    // CASSANDRA-3467.  the key here is that supercolumn and subcolumn comparators are different
 //    @Test
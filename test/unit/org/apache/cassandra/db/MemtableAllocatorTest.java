@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.db.partitions.Partition;
+import org.apache.cassandra.db.rows.NativeRow;
+import org.apache.cassandra.db.rows.PackedRow;
+import org.apache.cassandra.db.rows.Row;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.memory.MemtableAllocator;
+import org.apache.cassandra.utils.memory.NativePool;
+import org.apache.cassandra.utils.memory.SlabPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the memtable allocators that aren't the configured one, through writes, reads and flushes.
+ */
+public class MemtableAllocatorTest extends CQLTester
+{
+    @Test
+    public void testOffHeapRows() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, w int, s set<int>, PRIMARY KEY (k, c))");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        switchMemtable(cfs, new NativePool(1 << 20, 1 << 20, 1f, null, true).newAllocator());
+
+        execute("INSERT INTO %s (k, c, v, s) VALUES (0, 0, 'a', {1, 2})");
+        execute("INSERT INTO %s (k, c, v) VALUES (0, 1, 'b')");
+        // merged into the existing rows
+        execute("UPDATE %s SET s = s + {3}, w = 1 WHERE k = 0 AND c = 0");
+        execute("UPDATE %s SET s = s - {1} WHERE k = 0 AND c = 0");
+        execute("UPDATE %s SET v = 'c' WHERE k = 0 AND c = 1");
+        execute("DELETE s FROM %s WHERE k = 0 AND c = 1");
+
+        Partition partition = cfs.getTracker().getView().getCurrentMemtable().getPartition(cfs.decorateKey(ByteBufferUtil.bytes(0)));
+        for (int c = 0; c < 2; c++)
+        {
+            Row row = partition.getRow(Clustering.make(ByteBufferUtil.bytes(c)));
+            assertTrue(row instanceof NativeRow);
+            // both the overwrite of s by the insert and its deletion are complex deletions
+            assertTrue(row.hasComplex());
+            assertTrue(row.hasComplexDeletion());
+            assertEquals(c == 0 ? "a" : "c", UTF8Type.instance.compose(row.getCell(cfs.metadata().getColumn(ByteBufferUtil.bytes("v"))).value()));
+        }
+
+        assertRows(execute("SELECT c, v, w, s FROM %s WHERE k = 0"),
+                   row(0, "a", 1, set(2, 3)),
+                   row(1, "c", null, null));
+
+        flush();
+        assertEquals(1, cfs.getLiveSSTables().size());
+        assertRows(execute("SELECT c, v, w, s FROM %s WHERE k = 0"),
+                   row(0, "a", 1, set(2, 3)),
+                   row(1, "c", null, null));
+    }
+
+    @Test
+    public void testPackedRows() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, w int, s set<int>, PRIMARY KEY (k, c))");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        boolean packDenseRows = DatabaseDescriptor.getMemtablePackDenseRows();
+        DatabaseDescriptor.setMemtablePackDenseRows(true);
+        try
+        {
+            switchMemtable(cfs, new SlabPool(1 << 20, 0, 1f, null).newAllocator());
+
+            execute("INSERT INTO %s (k, c, v, w) VALUES (0, 0, 'a', 1)");
+            execute("INSERT INTO %s (k, c, v, w) VALUES (0, 1, 'b', 2)");
+            execute("INSERT INTO %s (k, c, v, w) VALUES (0, 2, 'c', 3)");
+            // merged into existing rows, that are only dense if all their cells are written at once
+            execute("UPDATE %s SET v = 'd', w = 4 WHERE k = 0 AND c = 1");
+            execute("UPDATE %s SET w = 5 WHERE k = 0 AND c = 2");
+            execute("INSERT INTO %s (k, c, v, s) VALUES (0, 3, 'e', {1})");
+
+            Partition partition = cfs.getTracker().getView().getCurrentMemtable().getPartition(cfs.decorateKey(ByteBufferUtil.bytes(0)));
+            boolean[] dense = { true, true, false, false };
+            for (int c = 0; c < dense.length; c++)
+                assertEquals(dense[c], partition.getRow(Clustering.make(ByteBufferUtil.bytes(c))) instanceof PackedRow);
+
+            Object[][] rows = { row(0, "a", 1, null),
+                                row(1, "d", 4, null),
+                                row(2, "c", 5, null),
+                                row(3, "e", null, set(1)) };
+            assertRows(execute("SELECT c, v, w, s FROM %s WHERE k = 0"), rows);
+            flush();
+            assertEquals(1, cfs.getLiveSSTables().size());
+            assertRows(execute("SELECT c, v, w, s FROM %s WHERE k = 0"), rows);
+        }
+        finally
+        {
+            DatabaseDescriptor.setMemtablePackDenseRows(packDenseRows);
+        }
+    }
+
+    /**
+     * Replaces the current memtable of the table by an empty one using the given allocator, that is used until the
+     * table is next flushed.
+     */
+    private static void switchMemtable(ColumnFamilyStore cfs, MemtableAllocator allocator)
+    {
+        cfs.forceBlockingFlush();
+        Memtable memtable = new Memtable(new AtomicReference<>(CommitLog.instance.getCurrentPosition()), cfs, allocator);
+        Memtable previous = cfs.getTracker().switchMemtable(false, memtable);
+        assertTrue(previous.isClean());
+        cfs.getTracker().markFlushing(previous);
+        cfs.getTracker().replaceFlushed(previous, Collections.emptyList());
+    }
+}
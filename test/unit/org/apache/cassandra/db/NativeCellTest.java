@@ -19,9 +19,11 @@ package org.apache.cassandra.db;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Random;
 import java.util.UUID;
 
+import com.google.common.collect.Lists;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -45,6 +47,7 @@ public class NativeCellTest
 
     private static final Logger logger = LoggerFactory.getLogger(NativeCellTest.class);
     private static final NativeAllocator nativeAllocator = new NativePool(Integer.MAX_VALUE, Integer.MAX_VALUE, 1f, null).newAllocator();
+    private static final NativeAllocator nativeRowAllocator = new NativePool(Integer.MAX_VALUE, Integer.MAX_VALUE, 1f, null, true).newAllocator();
     private static final OpOrder.Group group = new OpOrder().start();
     private static Random rand;
 
@@ -149,9 +152,28 @@ public class NativeCellTest
     {
         Row nrow = clone(row, nativeAllocator.rowBuilder(group));
         Row brow = clone(row, HeapAllocator.instance.cloningBTreeRowBuilder());
+        Row rrow = clone(row, nativeRowAllocator.rowBuilder(group));
+        Assert.assertTrue(rrow instanceof NativeRow);
         Assert.assertEquals(row, nrow);
         Assert.assertEquals(row, brow);
         Assert.assertEquals(nrow, brow);
+        Assert.assertEquals(row, rrow);
+        Assert.assertEquals(row.primaryKeyLivenessInfo(), rrow.primaryKeyLivenessInfo());
+        Assert.assertEquals(row.deletion(), rrow.deletion());
+        Assert.assertEquals(row.dataSize(), rrow.dataSize());
+        Assert.assertEquals(row.size(), rrow.size());
+        Assert.assertEquals(row.clustering(), rrow.clustering());
+        Assert.assertEquals(row.hasComplex(), rrow.hasComplex());
+        Assert.assertEquals(row.hasComplexDeletion(), rrow.hasComplexDeletion());
+        Assert.assertEquals(new ArrayList<>(row.columns()), new ArrayList<>(rrow.columns()));
+        Assert.assertEquals(Lists.newArrayList(row.cells()), Lists.newArrayList(rrow.cells()));
+        for (ColumnData cd : row)
+        {
+            if (cd.column().isSimple())
+                Assert.assertEquals(cd, rrow.getCell(cd.column()));
+            else
+                Assert.assertEquals(cd, rrow.getComplexColumnData(cd.column()));
+        }
 
         Assert.assertEquals(row.clustering(), nrow.clustering());
         Assert.assertEquals(row.clustering(), brow.clustering());
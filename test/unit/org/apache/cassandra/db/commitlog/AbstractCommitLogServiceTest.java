@@ -145,6 +145,54 @@ public class AbstractCommitLogServiceTest
         Assert.assertEquals(2, commitLog.syncCount.get());
     }
 
+    @Test
+    public void testSyncMetrics()
+    {
+        FakeCommitLogService commitLogService = new FakeCommitLogService(AbstractCommitLogService.DEFAULT_MARKER_INTERVAL_MILLIS);
+        SyncRunnable syncRunnable = commitLogService.new SyncRunnable(new FreeRunningClock());
+        long syncs = commitLogService.commitLog.metrics.syncTime.getCount();
+
+        Assert.assertTrue(syncRunnable.sync());
+        Assert.assertEquals(syncs + 1, commitLogService.commitLog.metrics.syncTime.getCount());
+        Assert.assertEquals(0, commitLogService.getUnsyncedBytes());
+    }
+
+    @Test
+    public void testGroupAdaptiveWindow()
+    {
+        long windowMillis = 1000;
+        double previousWindowMillis = DatabaseDescriptor.getCommitLogSyncGroupWindow();
+        boolean previousAdaptiveWindow = DatabaseDescriptor.getCommitLogSyncGroupAdaptiveWindow();
+        try
+        {
+            DatabaseDescriptor.setCommitLogSyncGroupWindow(windowMillis);
+            DatabaseDescriptor.setCommitLogSyncGroupAdaptiveWindow(true);
+
+            GroupCommitLogService commitLogService = new GroupCommitLogService(new FakeCommitLog());
+
+            // nothing waiting for a sync, no need to sync before the end of the window
+            Assert.assertEquals(toNanos(windowMillis), commitLogService.nextSyncIntervalNanos());
+
+            // writes waiting, sync about as often as syncs take
+            commitLogService.pending.incrementAndGet();
+            for (int i = 0; i < 100; i++)
+                commitLogService.syncCompleted(toNanos(5), 0);
+            long interval = commitLogService.nextSyncIntervalNanos();
+            Assert.assertTrue(interval > toNanos(4));
+            Assert.assertTrue(interval <= toNanos(5));
+
+            // but never wait for longer than the window
+            for (int i = 0; i < 100; i++)
+                commitLogService.syncCompleted(toNanos(windowMillis * 10), 0);
+            Assert.assertEquals(toNanos(windowMillis), commitLogService.nextSyncIntervalNanos());
+        }
+        finally
+        {
+            DatabaseDescriptor.setCommitLogSyncGroupWindow(previousWindowMillis);
+            DatabaseDescriptor.setCommitLogSyncGroupAdaptiveWindow(previousAdaptiveWindow);
+        }
+    }
+
     private static class FakeCommitLog extends CommitLog
     {
         private final AtomicInteger markCount = new AtomicInteger();
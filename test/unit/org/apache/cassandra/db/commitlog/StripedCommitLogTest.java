@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.commitlog;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.schema.KeyspaceParams;
+
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StripedCommitLogTest
+{
+    private static final String KEYSPACE1 = "StripedCommitLogTest1";
+    private static final String KEYSPACE2 = "StripedCommitLogTest2";
+    private static final String STANDARD1 = "Standard1";
+
+    @BeforeClass
+    public static void beforeClass()
+    {
+        // keep system mutations out of the commit log, see CommitLogTest
+        KeyspaceParams.DEFAULT_LOCAL_DURABLE_WRITES = false;
+
+        DatabaseDescriptor.daemonInitialization();
+        DatabaseDescriptor.setCommitLogStripes(2);
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE1, KeyspaceParams.simple(1), SchemaLoader.standardCFMD(KEYSPACE1, STANDARD1));
+        SchemaLoader.createKeyspace(KEYSPACE2, KeyspaceParams.simple(1), SchemaLoader.standardCFMD(KEYSPACE2, STANDARD1));
+    }
+
+    @Before
+    public void beforeTest() throws IOException
+    {
+        CommitLog.instance.resetUnsafe(true);
+    }
+
+    @Test
+    public void testKeyspacesBoundToStripes()
+    {
+        CommitLog commitLog = CommitLog.instance;
+        assertEquals(2, commitLog.segmentManagers.size());
+
+        // keyspaces are spread round-robin over the stripes, and stay bound to them
+        AbstractCommitLogSegmentManager stripe1 = commitLog.segmentManagerFor(KEYSPACE1);
+        AbstractCommitLogSegmentManager stripe2 = commitLog.segmentManagerFor(KEYSPACE2);
+        assertNotEquals(stripe1, stripe2);
+        assertSame(stripe1, commitLog.segmentManagerFor(KEYSPACE1));
+
+        CommitLogPosition position1 = commitLog.add(mutation(KEYSPACE1, "k1"));
+        CommitLogPosition position2 = commitLog.add(mutation(KEYSPACE2, "k2"));
+        assertEquals(stripe1.allocatingFrom().id, position1.segmentId);
+        assertEquals(stripe2.allocatingFrom().id, position2.segmentId);
+
+        // positions of a keyspace only ever increase within its stripe
+        assertTrue(commitLog.getCurrentPosition(KEYSPACE1).compareTo(position1) >= 0);
+        CommitLogPosition next = commitLog.add(mutation(KEYSPACE1, "k3"));
+        assertTrue(next.compareTo(position1) > 0);
+        assertTrue(commitLog.getActiveSegmentNames().size() >= 2);
+    }
+
+    @Test
+    public void testReplayAllStripes() throws IOException
+    {
+        int mutations = 10;
+        for (int i = 0; i < mutations; i++)
+        {
+            CommitLog.instance.add(mutation(KEYSPACE1, "k" + i));
+            CommitLog.instance.add(mutation(KEYSPACE2, "k" + i));
+        }
+        CommitLog.instance.sync(true);
+        assertTrue(CommitLog.instance.getActiveOnDiskSize() > 0);
+
+        assertEquals(2 * mutations, CommitLog.instance.resetUnsafe(false));
+    }
+
+    private static Mutation mutation(String keyspace, String key)
+    {
+        ColumnFamilyStore cfs = Keyspace.open(keyspace).getColumnFamilyStore(STANDARD1);
+        return new RowUpdateBuilder(cfs.metadata(), 0, key)
+               .clustering("bytes")
+               .add("val", bytes("this is a string"))
+               .build();
+    }
+}
@@ -18,11 +18,14 @@
 package org.apache.cassandra.db.compaction;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.junit.After;
@@ -40,15 +43,19 @@ import org.apache.cassandra.db.RangeTombstone;
 import org.apache.cassandra.db.RowUpdateBuilder;
 import org.apache.cassandra.db.Slice;
 import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
+import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
 import org.apache.cassandra.db.rows.Cell;
 import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.Unfiltered;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.io.sstable.CopyablePartition;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.serializers.MarshalException;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.UUIDGen;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -418,6 +425,254 @@ public class CompactionsCQLTest extends CQLTester
         act.execute(null);
     }
 
+    @Test
+    public void testCopyPartitions() throws Throwable
+    {
+        boolean copyEnabled = DatabaseDescriptor.isCompactionPartitionCopyEnabled();
+        int columnIndexSize = DatabaseDescriptor.getColumnIndexSize();
+        DatabaseDescriptor.setCompactionPartitionCopyEnabled(true);
+        // so that the big partition has a row index
+        DatabaseDescriptor.setColumnIndexSize(1);
+        try
+        {
+            createTable("CREATE TABLE %s (id int, id2 int, b text, primary key (id, id2))");
+            ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+            cfs.disableAutoCompaction();
+            String value = StringUtils.repeat("ABCDEFG", 10);
+            // partitions 0 to 9 in the first sstable, 5 to 14 in the second one
+            for (int i = 0; i < 10; i++)
+            {
+                for (int j = 0; j < (i == 0 ? 100 : 2); j++)
+                    execute("INSERT INTO %s (id, id2, b) VALUES (?, ?, ?)", i, j, value);
+            }
+            flush();
+            for (int i = 5; i < 15; i++)
+            {
+                if (i < 10)
+                    execute("INSERT INTO %s (id, id2, b) VALUES (?, ?, ?)", i, 0, "updated");
+                else
+                    for (int j = 0; j < 2; j++)
+                        execute("INSERT INTO %s (id, id2, b) VALUES (?, ?, ?)", i, j, value);
+            }
+            flush();
+
+            // only the partitions that are in a single sstable can be copied
+            Set<SSTableReader> sstables = cfs.getLiveSSTables();
+            int nowInSec = FBUtilities.nowInSeconds();
+            try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategyManager().getScanners(sstables);
+                 CompactionController controller = new CompactionController(cfs, sstables, cfs.gcBefore(nowInSec));
+                 CompactionIterator ci = new CompactionIterator(OperationType.COMPACTION, scanners.scanners, controller, nowInSec, UUIDGen.getTimeUUID()))
+            {
+                while (ci.hasNext())
+                {
+                    try (UnfilteredRowIterator partition = ci.next())
+                    {
+                        int id = Int32Type.instance.compose(partition.partitionKey().getKey());
+                        assertEquals(id < 5 || id >= 10, partition instanceof CopyablePartition);
+                    }
+                }
+                assertEquals(10, ci.getCopyablePartitions());
+                // nothing was written
+                assertEquals(0, ci.getCopiedPartitions());
+            }
+
+            // the headers of the flushed sstables differ by their stats, so the writer may not be able to copy
+            assertTrue(compactAndCountCopiedPartitions(cfs) <= 10);
+            validateCopiedPartitions(value);
+
+            // the header of the new sstable is based on the one of the compacted sstable, whose partitions are then all
+            // copied by the writer, unlike the one of the flushed sstable
+            execute("INSERT INTO %s (id, id2, b) VALUES (?, ?, ?)", 20, 0, value);
+            flush();
+            assertEquals(15, compactAndCountCopiedPartitions(cfs));
+            assertEquals(1, cfs.getLiveSSTables().size());
+            validateCopiedPartitions(value);
+            assertRows(execute("SELECT b FROM %s WHERE id = 20"), row(value));
+        }
+        finally
+        {
+            DatabaseDescriptor.setCompactionPartitionCopyEnabled(copyEnabled);
+            DatabaseDescriptor.setColumnIndexSize(columnIndexSize);
+        }
+    }
+
+    /**
+     * Runs a major compaction and returns the number of partitions that the writer copied as is.
+     */
+    private static long compactAndCountCopiedPartitions(ColumnFamilyStore cfs)
+    {
+        AtomicLong copied = new AtomicLong();
+        CompactionManager.CompactionExecutorStatsCollector collector = new CompactionManager.CompactionExecutorStatsCollector()
+        {
+            public void beginCompaction(CompactionInfo.Holder ci)
+            {
+            }
+
+            public void finishCompaction(CompactionInfo.Holder ci)
+            {
+                copied.addAndGet(((CompactionIterator) ci).getCopiedPartitions());
+            }
+        };
+        Collection<AbstractCompactionTask> tasks = cfs.getCompactionStrategyManager().getMaximalTasks(cfs.gcBefore(FBUtilities.nowInSeconds()), false);
+        assertNotNull(tasks);
+        for (AbstractCompactionTask task : tasks)
+            task.execute(collector);
+        return copied.get();
+    }
+
+    private void validateCopiedPartitions(String value) throws Throwable
+    {
+        assertEquals(100, execute("SELECT * FROM %s WHERE id = 0").size());
+        // goes through the row index
+        assertRows(execute("SELECT id2, b FROM %s WHERE id = 0 AND id2 = 77"), row(77, value));
+        for (int i = 1; i < 15; i++)
+        {
+            assertRows(execute("SELECT b FROM %s WHERE id = ? AND id2 = 0", i), row(i >= 5 && i < 10 ? "updated" : value));
+            assertRows(execute("SELECT b FROM %s WHERE id = ? AND id2 = 1", i), row(value));
+        }
+    }
+
+    @Test
+    public void testCursorMergePartitions() throws Throwable
+    {
+        boolean cursorMergeEnabled = DatabaseDescriptor.isCompactionCursorMergeEnabled();
+        DatabaseDescriptor.setCompactionCursorMergeEnabled(true);
+        try
+        {
+            createTable("CREATE TABLE %s (id int, id2 int, st int static, b text, s set<int>, primary key (id, id2)) WITH gc_grace_seconds = 10000");
+            ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+            cfs.disableAutoCompaction();
+            for (int i = 0; i < 10; i++)
+            {
+                execute("INSERT INTO %s (id, st) VALUES (?, ?)", i, 0);
+                for (int j = 0; j < 5; j++)
+                    execute("INSERT INTO %s (id, id2, b, s) VALUES (?, ?, ?, ?)", i, j, "first", set(j));
+            }
+            flush();
+            for (int i = 0; i < 10; i++)
+            {
+                execute("UPDATE %s SET st = ? WHERE id = ?", 1, i);
+                execute("UPDATE %s SET b = ?, s = s + ? WHERE id = ? AND id2 = ?", "second", set(10), i, 0);
+                execute("UPDATE %s USING TTL 10000 SET b = ? WHERE id = ? AND id2 = ?", "expiring", i, 1);
+                execute("DELETE FROM %s WHERE id = ? AND id2 = ?", i, 2);
+                execute("DELETE s FROM %s WHERE id = ? AND id2 = ?", i, 4);
+            }
+            flush();
+            for (int i = 0; i < 10; i++)
+            {
+                execute("DELETE FROM %s WHERE id = ? AND id2 >= ? AND id2 < ?", i, 3, 4);
+                execute("INSERT INTO %s (id, id2, b) VALUES (?, ?, ?)", i, 5, "third");
+            }
+            execute("DELETE FROM %s WHERE id = ?", 9);
+            flush();
+
+            Set<SSTableReader> sstables = cfs.getLiveSSTables();
+            int nowInSec = FBUtilities.nowInSeconds();
+            try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategyManager().getScanners(sstables);
+                 CompactionController controller = new CompactionController(cfs, sstables, cfs.gcBefore(nowInSec));
+                 CompactionIterator ci = new CompactionIterator(OperationType.COMPACTION, scanners.scanners, controller, nowInSec, UUIDGen.getTimeUUID()))
+            {
+                while (ci.hasNext())
+                {
+                    try (UnfilteredRowIterator partition = ci.next())
+                    {
+                        while (partition.hasNext())
+                            partition.next();
+                    }
+                }
+                assertEquals(10, ci.getCursorMergedPartitions());
+            }
+
+            cfs.forceMajorCompaction();
+            assertEquals(1, cfs.getLiveSSTables().size());
+            for (int i = 0; i < 9; i++)
+            {
+                assertRows(execute("SELECT id2, st, b, s FROM %s WHERE id = ?", i),
+                           row(0, 1, "second", set(0, 10)),
+                           row(1, 1, "expiring", set(1)),
+                           row(4, 1, "first", null),
+                           row(5, 1, "third", null));
+            }
+            assertEmpty(execute("SELECT * FROM %s WHERE id = ?", 9));
+        }
+        finally
+        {
+            DatabaseDescriptor.setCompactionCursorMergeEnabled(cursorMergeEnabled);
+        }
+    }
+
+    @Test
+    public void testCursorMergeMatchesRowMerge() throws Throwable
+    {
+        createTable("CREATE TABLE %s (id int, id2 int, b text, s set<int>, m map<int, text>, primary key (id, id2))");
+        ColumnFamilyStore cfs = getCurrentColumnFamilyStore();
+        cfs.disableAutoCompaction();
+        for (int i = 0; i < 5; i++)
+        {
+            execute("INSERT INTO %s (id, id2, b, s, m) VALUES (?, 0, 'first', {1, 2}, {1 : 'a'}) USING TIMESTAMP 100", i);
+            execute("UPDATE %s USING TIMESTAMP 100 SET s = s + {3}, m = m + {2 : 'b'} WHERE id = ? AND id2 = 1", i);
+            execute("UPDATE %s USING TIMESTAMP 100 SET b = 'tie' WHERE id = ? AND id2 = 2", i);
+        }
+        flush();
+        for (int i = 0; i < 5; i++)
+        {
+            // the complex deletions tie with the cells of the first sstable, which they delete
+            execute("DELETE s FROM %s USING TIMESTAMP 100 WHERE id = ? AND id2 = 1", i);
+            execute("UPDATE %s USING TIMESTAMP 101 SET m = {3 : 'c'} WHERE id = ? AND id2 = 1", i);
+            execute("UPDATE %s USING TIMESTAMP 100 SET s = s + {4} WHERE id = ? AND id2 = 0", i);
+            execute("UPDATE %s USING TIMESTAMP 200 SET s = {5} WHERE id = ? AND id2 = 0", i);
+            execute("UPDATE %s USING TIMESTAMP 100 SET b = 'tie too' WHERE id = ? AND id2 = 2", i);
+        }
+        flush();
+
+        boolean cursorMergeEnabled = DatabaseDescriptor.isCompactionCursorMergeEnabled();
+        try
+        {
+            DatabaseDescriptor.setCompactionCursorMergeEnabled(false);
+            List<String> rowMerged = compactionOutput(cfs, 0);
+            DatabaseDescriptor.setCompactionCursorMergeEnabled(true);
+            assertEquals(rowMerged, compactionOutput(cfs, 5));
+        }
+        finally
+        {
+            DatabaseDescriptor.setCompactionCursorMergeEnabled(cursorMergeEnabled);
+        }
+
+        for (int i = 0; i < 5; i++)
+        {
+            assertRows(execute("SELECT id2, b, s, m FROM %s WHERE id = ?", i),
+                       row(0, "first", set(5), map(1, "a")),
+                       row(1, null, null, map(3, "c")),
+                       row(2, "tie too", null, null));
+        }
+    }
+
+    /**
+     * @return the partitions compacted from all the live sstables, with their full details
+     */
+    private static List<String> compactionOutput(ColumnFamilyStore cfs, int expectedCursorMerged)
+    {
+        List<String> output = new ArrayList<>();
+        Set<SSTableReader> sstables = cfs.getLiveSSTables();
+        int nowInSec = FBUtilities.nowInSeconds();
+        try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategyManager().getScanners(sstables);
+             CompactionController controller = new CompactionController(cfs, sstables, cfs.gcBefore(nowInSec));
+             CompactionIterator ci = new CompactionIterator(OperationType.COMPACTION, scanners.scanners, controller, nowInSec, UUIDGen.getTimeUUID()))
+        {
+            while (ci.hasNext())
+            {
+                try (UnfilteredRowIterator partition = ci.next())
+                {
+                    output.add(partition.partitionKey() + " " + partition.partitionLevelDeletion() + " " + partition.staticRow().toString(cfs.metadata(), true));
+                    while (partition.hasNext())
+                        output.add(partition.next().toString(cfs.metadata(), true));
+                }
+            }
+            assertEquals(expectedCursorMerged, ci.getCursorMergedPartitions());
+        }
+        return output;
+    }
+
     @Test
     public void testSTCSinL0() throws Throwable
     {
@@ -293,6 +293,51 @@ public class CompactionsTest
         assertMaxTimestamp(store, timestamp2);
     }
 
+    @Test
+    public void testOverlappingTombstoneSizeTieredCompaction() throws Exception
+    {
+        Map<String, String> compactionOptions = new HashMap<>();
+        compactionOptions.put("tombstone_compaction_interval", "1");
+        compactionOptions.put("overlapping_tombstone_compaction", "true");
+
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore store = keyspace.getColumnFamilyStore(CF_STANDARD1);
+        store.clearUnsafe();
+
+        MigrationManager.announceTableUpdate(store.metadata().unbuild().gcGraceSeconds(1).compaction(CompactionParams.stcs(compactionOptions)).build(), true);
+
+        // disable compaction while flushing
+        store.disableAutoCompaction();
+
+        //Populate sstable1 with with keys [0..9] and sstable2 with keys [10..19], which overlap in token range
+        populate(KEYSPACE1, CF_STANDARD1, 0, 9, 3); //ttl=3s
+        store.forceBlockingFlush();
+        populate(KEYSPACE1, CF_STANDARD1, 10, 19, 3); //ttl=3s
+        store.forceBlockingFlush();
+
+        assertEquals(2, store.getLiveSSTables().size());
+
+        long expectedBefore = CompactionManager.instance.getMetrics().tombstoneCompactionsExpectedPurgedBytes.getCount();
+        long purgedBefore = CompactionManager.instance.getMetrics().tombstoneCompactionsPurgedBytes.getCount();
+
+        // wait enough for all the data to be purgeable
+        TimeUnit.SECONDS.sleep(5);
+
+        // enable compaction, submit background and wait for it to complete
+        store.enableAutoCompaction();
+        FBUtilities.waitOnFutures(CompactionManager.instance.submitBackground(store));
+        do
+        {
+            TimeUnit.SECONDS.sleep(1);
+        } while (CompactionManager.instance.getPendingTasks() > 0 || CompactionManager.instance.getActiveCompactions() > 0);
+
+        // the single sstable tombstone compaction can't purge anything because of the overlap, but the sstables
+        // compacted together purge everything
+        assertEquals(0, store.getLiveSSTables().size());
+        assertTrue(CompactionManager.instance.getMetrics().tombstoneCompactionsExpectedPurgedBytes.getCount() > expectedBefore);
+        assertTrue(CompactionManager.instance.getMetrics().tombstoneCompactionsPurgedBytes.getCount() > purgedBefore);
+    }
+
     public static void assertMaxTimestamp(ColumnFamilyStore cfs, long maxTimestampExpected)
     {
         long maxTimestampObserved = Long.MIN_VALUE;
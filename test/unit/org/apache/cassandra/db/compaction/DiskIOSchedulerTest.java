@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.db.compaction;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.Directories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiskIOSchedulerTest
+{
+    @BeforeClass
+    public static void setup()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    @After
+    public void reset()
+    {
+        DatabaseDescriptor.setCompactionPauseForFlush(0);
+    }
+
+    @Test
+    public void testActiveFlushes()
+    {
+        Directories.DataDirectory directory = new Directories.DataDirectory(Files.createTempDir());
+        DiskIOScheduler scheduler = new DiskIOScheduler(new Directories.DataDirectory[]{ directory });
+
+        scheduler.flushStarted(directory);
+        scheduler.flushStarted(directory);
+        assertEquals(2, scheduler.activeFlushes(directory));
+        scheduler.flushFinished(directory, 10);
+        scheduler.flushFinished(directory, 10);
+        assertEquals(0, scheduler.activeFlushes(directory));
+
+        // directories that aren't scheduled are ignored
+        Directories.DataDirectory other = new Directories.DataDirectory(Files.createTempDir());
+        scheduler.flushStarted(other);
+        assertEquals(0, scheduler.activeFlushes(other));
+        scheduler.acquireForCompaction(other, 10);
+        scheduler.acquireForCompaction(null, 10);
+    }
+
+    @Test
+    public void testCompactionPausedUntilFlushFinishes() throws InterruptedException
+    {
+        Directories.DataDirectory directory = new Directories.DataDirectory(Files.createTempDir());
+        DiskIOScheduler scheduler = new DiskIOScheduler(new Directories.DataDirectory[]{ directory });
+        DatabaseDescriptor.setCompactionPauseForFlush((int) TimeUnit.MINUTES.toMillis(1));
+
+        scheduler.flushStarted(directory);
+        Thread compaction = new Thread(() -> scheduler.acquireForCompaction(directory, 10));
+        compaction.start();
+        Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+        assertTrue(compaction.isAlive());
+
+        scheduler.flushFinished(directory, 10);
+        compaction.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(compaction.isAlive());
+    }
+
+    @Test
+    public void testCompactionPauseTimesOut()
+    {
+        Directories.DataDirectory directory = new Directories.DataDirectory(Files.createTempDir());
+        DiskIOScheduler scheduler = new DiskIOScheduler(new Directories.DataDirectory[]{ directory });
+        DatabaseDescriptor.setCompactionPauseForFlush(100);
+
+        // the pause is counted from the start of the flush
+        long start = System.nanoTime();
+        scheduler.flushStarted(directory);
+        scheduler.acquireForCompaction(directory, 10);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 100 && elapsed < TimeUnit.SECONDS.toMillis(10));
+        scheduler.flushFinished(directory, 10);
+    }
+
+    @Test
+    public void testCompactionPausedOncePerFlush()
+    {
+        Directories.DataDirectory directory = new Directories.DataDirectory(Files.createTempDir());
+        DiskIOScheduler scheduler = new DiskIOScheduler(new Directories.DataDirectory[]{ directory });
+        DatabaseDescriptor.setCompactionPauseForFlush(100);
+
+        scheduler.flushStarted(directory);
+        scheduler.acquireForCompaction(directory, 10);
+
+        // neither further acquisitions nor flushes overlapping with the running one pause again
+        scheduler.flushStarted(directory);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++)
+            scheduler.acquireForCompaction(directory, 10);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+        scheduler.flushFinished(directory, 10);
+        scheduler.flushFinished(directory, 10);
+
+        // but a new flush does
+        start = System.nanoTime();
+        scheduler.flushStarted(directory);
+        scheduler.acquireForCompaction(directory, 10);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        scheduler.flushFinished(directory, 10);
+    }
+}
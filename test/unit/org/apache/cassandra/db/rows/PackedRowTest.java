@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.rows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.LivenessInfo;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.SetType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.memory.HeapAllocator;
+
+public class PackedRowTest
+{
+    private static final TableMetadata metadata;
+    private static final ColumnMetadata a;
+    private static final ColumnMetadata b;
+    private static final ColumnMetadata c;
+    private static final ColumnMetadata s;
+    private static final Clustering clustering;
+
+    static
+    {
+        DatabaseDescriptor.daemonInitialization();
+        metadata = TableMetadata.builder("packed_row_test", "t")
+                                .addPartitionKeyColumn("k", Int32Type.instance)
+                                .addClusteringColumn("ck", Int32Type.instance)
+                                .addRegularColumn("a", Int32Type.instance)
+                                .addRegularColumn("b", UTF8Type.instance)
+                                .addRegularColumn("c", Int32Type.instance)
+                                .addRegularColumn("s", SetType.getInstance(Int32Type.instance, true))
+                                .build();
+        a = metadata.getColumn(new ColumnIdentifier("a", false));
+        b = metadata.getColumn(new ColumnIdentifier("b", false));
+        c = metadata.getColumn(new ColumnIdentifier("c", false));
+        s = metadata.getColumn(new ColumnIdentifier("s", false));
+        clustering = metadata.comparator.make(1);
+    }
+
+    private static Row denseRow(long timestamp, int ttl)
+    {
+        int nowInSec = FBUtilities.nowInSeconds();
+        Row.Builder builder = BTreeRow.sortedBuilder();
+        builder.newRow(clustering);
+        builder.addPrimaryKeyLivenessInfo(LivenessInfo.create(timestamp, ttl, nowInSec));
+        builder.addCell(BufferCell.expiring(a, timestamp, ttl, nowInSec, ByteBufferUtil.bytes(1)));
+        builder.addCell(BufferCell.expiring(b, timestamp, ttl, nowInSec, ByteBufferUtil.bytes("")));
+        builder.addCell(BufferCell.expiring(c, timestamp, ttl, nowInSec, ByteBufferUtil.bytes(3)));
+        return builder.build();
+    }
+
+    @Test
+    public void testPackDenseRow()
+    {
+        for (int ttl : new int[]{ LivenessInfo.NO_TTL, 100 })
+        {
+            Row row = denseRow(42, ttl);
+            Row packed = PackedRow.tryPack(row, HeapAllocator.instance);
+            Assert.assertNotNull(packed);
+
+            Assert.assertEquals(row, packed);
+            Assert.assertEquals(row.clustering(), packed.clustering());
+            Assert.assertEquals(row.primaryKeyLivenessInfo(), packed.primaryKeyLivenessInfo());
+            Assert.assertEquals(row.size(), packed.size());
+            Assert.assertEquals(row.dataSize(), packed.dataSize());
+            Assert.assertEquals(row.hasDeletion(Integer.MAX_VALUE), packed.hasDeletion(Integer.MAX_VALUE));
+            Assert.assertEquals(row.getCell(a), packed.getCell(a));
+            Assert.assertEquals(row.getCell(b), packed.getCell(b));
+            Assert.assertEquals(row.getCell(c), packed.getCell(c));
+            Assert.assertNull(packed.getCell(s, null));
+            Assert.assertEquals(row.hashCode(), packed.hashCode());
+
+            List<ColumnData> applied = new ArrayList<>();
+            packed.apply(applied::add, true);
+            Assert.assertEquals(3, applied.size());
+            Assert.assertEquals(c, applied.get(0).column());
+            Assert.assertEquals(row.getCell(a), applied.get(2));
+        }
+    }
+
+    @Test
+    public void testDontPackSparseRows()
+    {
+        int nowInSec = FBUtilities.nowInSeconds();
+
+        // a single cell
+        Row.Builder builder = BTreeRow.sortedBuilder();
+        builder.newRow(clustering);
+        builder.addCell(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)));
+        Assert.assertNull(PackedRow.tryPack(builder.build(), HeapAllocator.instance));
+
+        // cells with different timestamps
+        builder.newRow(clustering);
+        builder.addCell(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)));
+        builder.addCell(BufferCell.live(c, 2, ByteBufferUtil.bytes(3)));
+        Assert.assertNull(PackedRow.tryPack(builder.build(), HeapAllocator.instance));
+
+        // a tombstone
+        builder.newRow(clustering);
+        builder.addCell(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)));
+        builder.addCell(BufferCell.tombstone(c, 1, nowInSec));
+        Assert.assertNull(PackedRow.tryPack(builder.build(), HeapAllocator.instance));
+
+        // a collection
+        builder.newRow(clustering);
+        builder.addCell(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)));
+        builder.addCell(BufferCell.live(s, 1, ByteBufferUtil.EMPTY_BYTE_BUFFER, CellPath.create(ByteBufferUtil.bytes(1))));
+        Assert.assertNull(PackedRow.tryPack(builder.build(), HeapAllocator.instance));
+    }
+
+    @Test
+    public void testBuilder()
+    {
+        Row.Builder builder = new PackedRow.Builder(HeapAllocator.instance);
+        Row row = denseRow(42, LivenessInfo.NO_TTL);
+        Row packed = Rows.copy(row, builder).build();
+        Assert.assertTrue(packed instanceof PackedRow);
+        Assert.assertEquals(row, packed);
+
+        // the builder is reused for sparse rows, that are built as soon as a cell can't be packed
+        int nowInSec = FBUtilities.nowInSeconds();
+        Row.Builder expected = BTreeRow.sortedBuilder();
+        for (Row.Builder rowBuilder : new Row.Builder[]{ expected, builder })
+        {
+            rowBuilder.newRow(clustering);
+            rowBuilder.addPrimaryKeyLivenessInfo(LivenessInfo.create(1, nowInSec));
+            rowBuilder.addCell(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)));
+            rowBuilder.addCell(BufferCell.live(b, 1, ByteBufferUtil.bytes("b")));
+            rowBuilder.addCell(BufferCell.tombstone(c, 1, nowInSec));
+        }
+        Row sparse = builder.build();
+        Assert.assertFalse(sparse instanceof PackedRow);
+        Assert.assertEquals(expected.build(), sparse);
+
+        // as are rows with a deletion, or too few cells
+        builder.newRow(clustering);
+        builder.addRowDeletion(Row.Deletion.regular(new DeletionTime(1, nowInSec)));
+        Assert.assertEquals(new DeletionTime(1, nowInSec), builder.build().deletion().time());
+        builder.newRow(clustering);
+        builder.addCell(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)));
+        Assert.assertEquals(BufferCell.live(a, 1, ByteBufferUtil.bytes(1)), builder.build().getCell(a));
+
+        Assert.assertTrue(Rows.copy(row, builder).build() instanceof PackedRow);
+    }
+}
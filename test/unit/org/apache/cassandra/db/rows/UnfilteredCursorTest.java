@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.rows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.hash.Hasher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.Clustering;
+import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.LivenessInfo;
+import org.apache.cassandra.db.SerializationHeader;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.SetType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.HashingUtils;
+
+public class UnfilteredCursorTest
+{
+    private static final TableMetadata metadata;
+    private static final ColumnMetadata st;
+    private static final ColumnMetadata a;
+    private static final ColumnMetadata b;
+    private static final ColumnMetadata s;
+
+    static
+    {
+        DatabaseDescriptor.daemonInitialization();
+        metadata = TableMetadata.builder("unfiltered_cursor_test", "t")
+                                .addPartitionKeyColumn("k", Int32Type.instance)
+                                .addClusteringColumn("ck", Int32Type.instance)
+                                .addStaticColumn("st", Int32Type.instance)
+                                .addRegularColumn("a", Int32Type.instance)
+                                .addRegularColumn("b", UTF8Type.instance)
+                                .addRegularColumn("s", SetType.getInstance(Int32Type.instance, true))
+                                .build();
+        st = metadata.getColumn(new ColumnIdentifier("st", false));
+        a = metadata.getColumn(new ColumnIdentifier("a", false));
+        b = metadata.getColumn(new ColumnIdentifier("b", false));
+        s = metadata.getColumn(new ColumnIdentifier("s", false));
+    }
+
+    private static List<Unfiltered> unfiltereds()
+    {
+        int nowInSec = FBUtilities.nowInSeconds();
+        List<Unfiltered> unfiltereds = new ArrayList<>();
+        Row.Builder builder = BTreeRow.sortedBuilder();
+
+        builder.newRow(Clustering.STATIC_CLUSTERING);
+        builder.addCell(BufferCell.live(st, 1, ByteBufferUtil.bytes(0)));
+        unfiltereds.add(builder.build());
+
+        builder.newRow(metadata.comparator.make(1));
+        builder.addPrimaryKeyLivenessInfo(LivenessInfo.create(10, 100, nowInSec));
+        builder.addCell(BufferCell.expiring(a, 10, 100, nowInSec, ByteBufferUtil.bytes(1)));
+        builder.addCell(BufferCell.live(b, 5, ByteBufferUtil.bytes("a much longer value than the next one")));
+        builder.addComplexDeletion(s, new DeletionTime(4, nowInSec));
+        builder.addCell(BufferCell.live(s, 5, ByteBufferUtil.EMPTY_BYTE_BUFFER, CellPath.create(ByteBufferUtil.bytes(1))));
+        builder.addCell(BufferCell.live(s, 5, ByteBufferUtil.EMPTY_BYTE_BUFFER, CellPath.create(ByteBufferUtil.bytes(2))));
+        unfiltereds.add(builder.build());
+
+        builder.newRow(metadata.comparator.make(2));
+        builder.addCell(BufferCell.live(b, 6, ByteBufferUtil.bytes("short")));
+        builder.addCell(BufferCell.tombstone(a, 6, nowInSec));
+        unfiltereds.add(builder.build());
+
+        DeletionTime deletion = new DeletionTime(7, nowInSec);
+        unfiltereds.add(RangeTombstoneBoundMarker.inclusiveOpen(false, new ByteBuffer[]{ ByteBufferUtil.bytes(3) }, deletion));
+        unfiltereds.add(RangeTombstoneBoundMarker.exclusiveClose(false, new ByteBuffer[]{ ByteBufferUtil.bytes(5) }, deletion));
+
+        builder.newRow(metadata.comparator.make(6));
+        builder.addRowDeletion(Row.Deletion.regular(new DeletionTime(8, nowInSec)));
+        unfiltereds.add(builder.build());
+        return unfiltereds;
+    }
+
+    private static DataOutputBuffer serialize(SerializationHeader header, List<Unfiltered> unfiltereds) throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        for (Unfiltered unfiltered : unfiltereds)
+            UnfilteredSerializer.serializer.serialize(unfiltered, header, out, 0, MessagingService.current_version);
+        UnfilteredSerializer.serializer.writeEndOfPartition(out);
+        return out;
+    }
+
+    @Test
+    public void testDigest() throws IOException
+    {
+        SerializationHeader header = SerializationHeader.makeWithoutStats(metadata);
+        SerializationHelper helper = new SerializationHelper(metadata, MessagingService.current_version, SerializationHelper.Flag.LOCAL);
+        List<Unfiltered> unfiltereds = unfiltereds();
+        DataOutputBuffer out = serialize(header, unfiltereds);
+
+        UnfilteredCursor cursor = new UnfilteredCursor(header, helper);
+        // read the partition twice with the same cursor, so that its buffers are reused
+        for (int i = 0; i < 2; i++)
+        {
+            cursor.reset(new DataInputBuffer(out.buffer(), false));
+            for (Unfiltered unfiltered : unfiltereds)
+            {
+                Assert.assertEquals(unfiltered.kind(), cursor.advance());
+                Hasher expected = HashingUtils.CURRENT_HASH_FUNCTION.newHasher();
+                unfiltered.digest(expected);
+                Hasher actual = HashingUtils.CURRENT_HASH_FUNCTION.newHasher();
+                cursor.digest(actual);
+                Assert.assertEquals(expected.hash(), actual.hash());
+            }
+            Assert.assertNull(cursor.advance());
+        }
+    }
+
+    @Test
+    public void testCells() throws IOException
+    {
+        SerializationHeader header = SerializationHeader.makeWithoutStats(metadata);
+        SerializationHelper helper = new SerializationHelper(metadata, MessagingService.current_version, SerializationHelper.Flag.LOCAL);
+        List<Unfiltered> unfiltereds = unfiltereds();
+        DataOutputBuffer out = serialize(header, unfiltereds);
+
+        UnfilteredCursor cursor = new UnfilteredCursor(header, helper);
+        cursor.reset(new DataInputBuffer(out.buffer(), false));
+
+        // the static row isn't consumed, and is skipped
+        Assert.assertEquals(Unfiltered.Kind.ROW, cursor.advance());
+        Assert.assertTrue(cursor.isStatic());
+        Assert.assertEquals(0, cursor.clusteringSize());
+
+        Row row = (Row) unfiltereds.get(1);
+        Assert.assertEquals(Unfiltered.Kind.ROW, cursor.advance());
+        Assert.assertFalse(cursor.isStatic());
+        Assert.assertEquals(row.clustering().get(0), cursor.clusteringValue(0));
+        Assert.assertEquals(row.primaryKeyLivenessInfo().timestamp(), cursor.rowTimestamp());
+        Assert.assertEquals(row.primaryKeyLivenessInfo().ttl(), cursor.rowTTL());
+        Assert.assertEquals(row.primaryKeyLivenessInfo().localExpirationTime(), cursor.rowLocalExpirationTime());
+        Assert.assertEquals(DeletionTime.LIVE.markedForDeleteAt(), cursor.rowMarkedForDeleteAt());
+
+        List<Cell> cells = new ArrayList<>();
+        while (cursor.advanceColumn())
+        {
+            if (cursor.column().isComplex())
+                Assert.assertEquals(row.getComplexColumnData(s).complexDeletion().markedForDeleteAt(), cursor.complexMarkedForDeleteAt());
+
+            while (cursor.advanceCell())
+            {
+                CellPath path = cursor.path() == null ? null : CellPath.create(ByteBufferUtil.clone(cursor.path()));
+                cells.add(new BufferCell(cursor.column(), cursor.timestamp(), cursor.ttl(), cursor.localDeletionTime(), ByteBufferUtil.clone(cursor.value()), path));
+            }
+        }
+        List<Cell> expected = new ArrayList<>();
+        row.cells().forEach(expected::add);
+        Assert.assertEquals(expected, cells);
+
+        // only consume the first cell of the next row, the rest is skipped
+        row = (Row) unfiltereds.get(2);
+        Assert.assertEquals(Unfiltered.Kind.ROW, cursor.advance());
+        Assert.assertTrue(cursor.advanceColumn());
+        Assert.assertTrue(cursor.advanceCell());
+        Assert.assertTrue(cursor.isTombstone());
+        Assert.assertEquals(row.getCell(a).timestamp(), cursor.timestamp());
+
+        Assert.assertEquals(Unfiltered.Kind.RANGE_TOMBSTONE_MARKER, cursor.advance());
+        Assert.assertEquals(unfiltereds.get(3), cursor.marker());
+        Assert.assertEquals(Unfiltered.Kind.RANGE_TOMBSTONE_MARKER, cursor.advance());
+        Assert.assertEquals(unfiltereds.get(4), cursor.marker());
+
+        Assert.assertEquals(Unfiltered.Kind.ROW, cursor.advance());
+        Assert.assertEquals(8, cursor.rowMarkedForDeleteAt());
+        Assert.assertFalse(cursor.advanceColumn());
+        Assert.assertNull(cursor.advance());
+    }
+}
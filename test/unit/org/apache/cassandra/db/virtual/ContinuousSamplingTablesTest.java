@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.virtual;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.UntypedResultSet;
+
+public class ContinuousSamplingTablesTest extends CQLTester
+{
+    private long slowQueryTimeout;
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+        CQLTester.setUpClass();
+        VirtualKeyspaceRegistry.instance.register(SystemViewsKeyspace.instance);
+    }
+
+    @Before
+    public void enableSampling()
+    {
+        slowQueryTimeout = DatabaseDescriptor.getSlowQueryTimeout();
+        // every read is slow
+        DatabaseDescriptor.setSlowQueryTimeout(0);
+        DatabaseDescriptor.setContinuousSamplingEnabled(true);
+    }
+
+    @After
+    public void disableSampling()
+    {
+        DatabaseDescriptor.setContinuousSamplingEnabled(false);
+        DatabaseDescriptor.setSlowQueryTimeout(slowQueryTimeout);
+    }
+
+    @Test
+    public void testTopPartitions() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, PRIMARY KEY (k, c))");
+        for (int c = 0; c < 10; c++)
+            execute("INSERT INTO %s (k, c, v) VALUES (1, ?, 'value')", c);
+        execute("INSERT INTO %s (k, c, v) VALUES (2, 0, ?)", new String(new char[1000]).replace('\0', 'v'));
+        for (int c = 0; c < 5; c++)
+            execute("DELETE v FROM %s WHERE k = 1 AND c = ?", c);
+
+        for (int i = 0; i < 3; i++)
+            execute("SELECT * FROM %s WHERE k = 1");
+        flush();
+        execute("SELECT * FROM %s WHERE k = 2");
+
+        assertRows(execute("SELECT sampler, rank, partition_key, value FROM system_views.top_partitions " +
+                           "WHERE keyspace_name = ? AND table_name = ? AND sampler IN ('reads', 'tombstones', 'writes')",
+                           KEYSPACE, currentTable()),
+                   row("reads", 1, "1", 3L),
+                   row("reads", 2, "2", 1L),
+                   // the five deleted cells of each of the three reads of the first partition
+                   row("tombstones", 1, "1", 15L),
+                   row("writes", 1, "1", 15L),
+                   row("writes", 2, "2", 1L));
+
+        UntypedResultSet sizes = execute("SELECT rank, partition_key, value FROM system_views.top_partitions " +
+                                         "WHERE keyspace_name = ? AND table_name = ? AND sampler = 'write_size'",
+                                         KEYSPACE, currentTable());
+        Assert.assertEquals(2, sizes.size());
+        UntypedResultSet.Row largest = sizes.iterator().next();
+        Assert.assertEquals(1, largest.getInt("rank"));
+        Assert.assertEquals("2", largest.getString("partition_key"));
+        Assert.assertTrue(largest.getLong("value") > 1000);
+    }
+
+    @Test
+    public void testSlowQueries() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v text, PRIMARY KEY (k, c))");
+        execute("INSERT INTO %s (k, c, v) VALUES (1, 0, 'value')");
+        execute("INSERT INTO %s (k, c, v) VALUES (2, 0, 'value')");
+        for (int i = 0; i < 3; i++)
+            execute("SELECT * FROM %s WHERE k = 1");
+        execute("SELECT * FROM %s WHERE k = 2");
+
+        // the repeated query is only listed once
+        UntypedResultSet queries = execute("SELECT rank, query, time_micros FROM system_views.slow_queries " +
+                                           "WHERE keyspace_name = ? AND table_name = ?",
+                                           KEYSPACE, currentTable());
+        Assert.assertEquals(2, queries.size());
+        int rank = 1;
+        long previousTime = Long.MAX_VALUE;
+        boolean[] found = new boolean[2];
+        for (UntypedResultSet.Row row : queries)
+        {
+            Assert.assertEquals(rank++, row.getInt("rank"));
+            long time = row.getLong("time_micros");
+            Assert.assertTrue(time > 0 && time <= previousTime);
+            previousTime = time;
+
+            String query = row.getString("query");
+            Assert.assertTrue(query, query.contains(KEYSPACE + '.' + currentTable()));
+            for (int k = 0; k < found.length; k++)
+                found[k] |= query.contains("k = " + (k + 1));
+        }
+        Assert.assertTrue(found[0] && found[1]);
+
+        // nothing is sampled once disabled
+        DatabaseDescriptor.setContinuousSamplingEnabled(false);
+        execute("SELECT * FROM %s WHERE k = 3");
+        Assert.assertEquals(2, execute("SELECT query FROM system_views.slow_queries WHERE keyspace_name = ? AND table_name = ?",
+                                       KEYSPACE, currentTable()).size());
+    }
+}
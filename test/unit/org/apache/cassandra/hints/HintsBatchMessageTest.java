@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.schema.Schema;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import static org.apache.cassandra.hints.HintsTestUtil.assertHintsEqual;
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+
+public class HintsBatchMessageTest
+{
+    private static final String KEYSPACE = "hints_batch_message_test";
+    private static final String TABLE = "table";
+
+    private static final int HINTS = 10;
+
+    @BeforeClass
+    public static void defineSchema()
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE, KeyspaceParams.simple(1), SchemaLoader.standardCFMD(KEYSPACE, TABLE));
+    }
+
+    @Test
+    public void testSerializer() throws IOException
+    {
+        UUID hostId = UUID.randomUUID();
+        List<Hint> hints = createHints();
+        HintsBatchMessage message = new HintsBatchMessage(hostId, hints);
+
+        HintsBatchMessage deserialized = roundTrip(message, HintsBatchMessage.serializer);
+
+        assertEquals(hostId, deserialized.hostId);
+        assertEquals(HINTS, deserialized.hints.size());
+        assertTrue(deserialized.unknownTableIDs.isEmpty());
+        for (int i = 0; i < HINTS; i++)
+            assertHintsEqual(hints.get(i), deserialized.hints.get(i));
+    }
+
+    @Test
+    public void testEncodedSerializer() throws IOException
+    {
+        UUID hostId = UUID.randomUUID();
+        List<Hint> hints = createHints();
+        List<ByteBuffer> buffers = new ArrayList<>(HINTS);
+        for (Hint hint : hints)
+        {
+            try (DataOutputBuffer out = new DataOutputBuffer())
+            {
+                Hint.serializer.serialize(hint, out, MessagingService.current_version);
+                buffers.add(out.buffer());
+            }
+        }
+        EncodedHintsBatchMessage message = new EncodedHintsBatchMessage(hostId, buffers, MessagingService.current_version);
+
+        // encoded batches are always deserialized as vanilla batches
+        DataOutputBuffer out = serialize(message, message.createMessageOut().serializer);
+        HintsBatchMessage deserialized = HintsBatchMessage.serializer.deserialize(new DataInputBuffer(out.buffer(), true),
+                                                                                  MessagingService.current_version);
+
+        assertEquals(hostId, deserialized.hostId);
+        assertEquals(HINTS, deserialized.hints.size());
+        long[] creationTimes = message.getHintCreationTimes();
+        for (int i = 0; i < HINTS; i++)
+        {
+            assertHintsEqual(hints.get(i), deserialized.hints.get(i));
+            assertEquals(hints.get(i).creationTime, creationTimes[i]);
+        }
+    }
+
+    private static <T> T roundTrip(T message, IVersionedSerializer<T> serializer) throws IOException
+    {
+        DataOutputBuffer out = serialize(message, serializer);
+        return serializer.deserialize(new DataInputBuffer(out.buffer(), true), MessagingService.current_version);
+    }
+
+    private static <T> DataOutputBuffer serialize(T message, IVersionedSerializer<T> serializer) throws IOException
+    {
+        int serializedSize = (int) serializer.serializedSize(message, MessagingService.current_version);
+        DataOutputBuffer out = new DataOutputBuffer();
+        serializer.serialize(message, out, MessagingService.current_version);
+        assertEquals(serializedSize, out.getLength());
+        return out;
+    }
+
+    private static List<Hint> createHints()
+    {
+        TableMetadata table = Schema.instance.getTableMetadata(KEYSPACE, TABLE);
+        long now = FBUtilities.timestampMicros();
+        List<Hint> hints = new ArrayList<>(HINTS);
+        for (int i = 0; i < HINTS; i++)
+        {
+            Mutation mutation = new RowUpdateBuilder(table, now + i, bytes(i))
+                                .clustering("column")
+                                .add("val", "val" + i)
+                                .build();
+            hints.add(Hint.create(mutation, now / 1000 + i));
+        }
+        return hints;
+    }
+}
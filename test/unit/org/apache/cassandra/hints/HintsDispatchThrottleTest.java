@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HintsDispatchThrottleTest
+{
+    private static final double MAX_RATE = 1024 * 1024;
+    private static final long PAGE_SIZE = 512 * 1024;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long ELAPSED = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testNonAdaptive()
+    {
+        HintsDispatchThrottle throttle = new HintsDispatchThrottle(MAX_RATE, false);
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, FAST);
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, SLOW);
+        throttle.pageTimedOut();
+        assertEquals(MAX_RATE, throttle.rate(), 0.1);
+    }
+
+    @Test
+    public void testBackOffAndRecover()
+    {
+        HintsDispatchThrottle throttle = new HintsDispatchThrottle(MAX_RATE, true);
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, FAST);
+        assertEquals(MAX_RATE, throttle.rate(), 0.1);
+
+        // the target falls behind
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, SLOW);
+        assertEquals(MAX_RATE * HintsDispatchThrottle.DECREASE_FACTOR, throttle.rate(), 0.1);
+
+        // and catches up again
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, FAST);
+        assertEquals(MAX_RATE * HintsDispatchThrottle.DECREASE_FACTOR * HintsDispatchThrottle.INCREASE_FACTOR, throttle.rate(), 0.1);
+
+        for (int i = 0; i < 10; i++)
+            throttle.pageDispatched(PAGE_SIZE, ELAPSED, FAST);
+        assertEquals(MAX_RATE, throttle.rate(), 0.1);
+    }
+
+    @Test
+    public void testMinimumRate()
+    {
+        HintsDispatchThrottle throttle = new HintsDispatchThrottle(MAX_RATE, true);
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, FAST);
+
+        throttle.pageTimedOut();
+        double minRate = throttle.rate();
+        assertTrue(minRate < MAX_RATE);
+        assertTrue(minRate > 0);
+
+        for (int i = 0; i < 5; i++)
+            throttle.pageDispatched(PAGE_SIZE, ELAPSED, SLOW * 10);
+        assertEquals(minRate, throttle.rate(), 0.1);
+    }
+
+    @Test
+    public void testUnthrottled()
+    {
+        HintsDispatchThrottle throttle = new HintsDispatchThrottle(Double.MAX_VALUE, true);
+        throttle.pageDispatched(PAGE_SIZE, ELAPSED, FAST);
+        assertEquals(Double.MAX_VALUE, throttle.rate(), 0.1);
+
+        // backs off from the throughput achieved by the page
+        throttle.pageDispatched(4 * PAGE_SIZE, ELAPSED, SLOW);
+        assertEquals(4 * PAGE_SIZE * HintsDispatchThrottle.DECREASE_FACTOR, throttle.rate(), 0.1);
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.cassandra.hints;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +39,9 @@ import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.schema.Schema;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.gms.ApplicationState;
+import org.apache.cassandra.gms.Feature;
+import org.apache.cassandra.gms.Gossiper;
 import org.apache.cassandra.gms.IFailureDetectionEventListener;
 import org.apache.cassandra.gms.IFailureDetector;
 import org.apache.cassandra.metrics.StorageMetrics;
@@ -111,6 +115,22 @@ public class HintsServiceTest
         spy.interceptNoMsg(500, TimeUnit.MILLISECONDS).get();
     }
 
+    @Test
+    public void testBatchSize() throws Exception
+    {
+        assertEquals(10, HintsDispatcher.batchSize(FBUtilities.getBroadcastAddressAndPort(), 10));
+        assertEquals(1, HintsDispatcher.batchSize(FBUtilities.getBroadcastAddressAndPort(), 1));
+
+        // nodes are only sent batches once they advertise them
+        InetAddressAndPort peer = InetAddressAndPort.getByName("127.0.0.2");
+        assertEquals(1, HintsDispatcher.batchSize(peer, 10));
+        Gossiper.instance.initializeNodeUnsafe(peer, UUID.randomUUID(), 1);
+        assertEquals(1, HintsDispatcher.batchSize(peer, 10));
+        Gossiper.instance.injectApplicationState(peer, ApplicationState.FEATURES,
+                                                 StorageService.instance.valueFactory.features(EnumSet.of(Feature.HINT_BATCHES)));
+        assertEquals(10, HintsDispatcher.batchSize(peer, 10));
+    }
+
     @Test
     public void testPauseAndResume() throws InterruptedException, ExecutionException
     {
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.schema.Schema;
+import org.apache.cassandra.schema.TableMetadata;
+
+import static junit.framework.Assert.*;
+
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+
+public class HintsWriteExecutorTest
+{
+    private static final String KEYSPACE = "hints_write_executor_test";
+    private static final String TABLE = "table";
+
+    private static final int HOST_ID_COUNT = 8;
+    private static final int HINTS_PER_HOST = 1000;
+
+    @BeforeClass
+    public static void defineSchema()
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE, KeyspaceParams.simple(1), SchemaLoader.standardCFMD(KEYSPACE, TABLE));
+    }
+
+    @Test
+    public void testSingleThreadedFlush() throws Exception
+    {
+        testFlush(1);
+    }
+
+    @Test
+    public void testParallelFlush() throws Exception
+    {
+        testFlush(4);
+    }
+
+    private void testFlush(int flushThreads) throws Exception
+    {
+        File directory = Files.createTempDirectory(null).toFile();
+        directory.deleteOnExit();
+
+        List<UUID> hostIds = new ArrayList<>(HOST_ID_COUNT);
+        for (int i = 0; i < HOST_ID_COUNT; i++)
+            hostIds.add(UUID.randomUUID());
+
+        HintsCatalog catalog = HintsCatalog.load(directory, ImmutableMap.of());
+        catalog.maybeLoadStores(hostIds);
+
+        long now = System.currentTimeMillis();
+        int hintSize = (int) Hint.serializer.serializedSize(createHint(0, now), MessagingService.current_version);
+        HintsBuffer buffer = HintsBuffer.create((hintSize + HintsBuffer.ENTRY_OVERHEAD_SIZE) * HINTS_PER_HOST * HOST_ID_COUNT);
+        for (int i = 0; i < HINTS_PER_HOST; i++)
+        {
+            for (UUID hostId : hostIds)
+            {
+                try (HintsBuffer.Allocation allocation = buffer.allocate(hintSize))
+                {
+                    allocation.write(Collections.singleton(hostId), createHint(i, now));
+                }
+            }
+        }
+
+        HintsWriteExecutor executor = new HintsWriteExecutor(catalog, flushThreads);
+        try
+        {
+            HintsBufferPool pool = new HintsBufferPool(buffer.capacity(), (b, p) -> {});
+            executor.flushBuffer(buffer, pool).get();
+            executor.closeAllWriters().get();
+        }
+        finally
+        {
+            executor.shutdownBlocking();
+        }
+
+        for (UUID hostId : hostIds)
+        {
+            HintsStore store = catalog.get(hostId);
+            HintsDescriptor descriptor = store.poll();
+            assertNotNull(descriptor);
+            assertNull(store.poll());
+            assertEquals(HINTS_PER_HOST, countHints(new File(directory, descriptor.fileName())));
+        }
+    }
+
+    private static int countHints(File file)
+    {
+        int count = 0;
+        try (HintsReader reader = HintsReader.open(file))
+        {
+            for (HintsReader.Page page : reader)
+            {
+                Iterator<Hint> hints = page.hintsIterator();
+                while (hints.hasNext())
+                {
+                    hints.next();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Hint createHint(int idx, long baseTimestamp)
+    {
+        long timestamp = baseTimestamp + idx;
+        TableMetadata table = Schema.instance.getTableMetadata(KEYSPACE, TABLE);
+        Mutation mutation = new RowUpdateBuilder(table, TimeUnit.MILLISECONDS.toMicros(timestamp), bytes(idx))
+                            .clustering(bytes(idx))
+                            .add("val", bytes(idx))
+                            .build();
+        return Hint.create(mutation, timestamp);
+    }
+}
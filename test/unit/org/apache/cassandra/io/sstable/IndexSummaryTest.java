@@ -29,9 +29,11 @@ import org.junit.Test;
 import org.junit.Assume;
 
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
 import org.apache.cassandra.dht.RandomPartitioner;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.DataOutputBuffer;
@@ -204,6 +206,91 @@ public class IndexSummaryTest
         random.right.close();
     }
 
+    @Test
+    public void testEytzingerLayout() throws IOException
+    {
+        IPartitioner murmur = Murmur3Partitioner.instance;
+        for (int size : new int[]{ 1, 2, 3, 7, 8, 100, 1000, 1025 })
+        {
+            List<DecoratedKey> keys = Lists.newArrayList();
+            for (int i = 0; i < size; i++)
+                keys.add(murmur.decorateKey(ByteBufferUtil.bytes(random.nextLong())));
+            Collections.sort(keys);
+
+            List<PartitionPosition> positions = Lists.newArrayList();
+            for (DecoratedKey key : keys)
+            {
+                positions.add(key);
+                positions.add(key.getToken().minKeyBound());
+                positions.add(key.getToken().maxKeyBound());
+                positions.add(murmur.decorateKey(ByteBufferUtil.bytes(random.nextLong())));
+            }
+            positions.add(murmur.getMinimumToken().minKeyBound());
+
+            try (IndexSummary expected = buildSummary(murmur, keys, Config.IndexSummaryLayout.binary_search);
+                 IndexSummary summary = buildSummary(murmur, keys, Config.IndexSummaryLayout.eytzinger))
+            {
+                assertFalse(expected.hasTokenIndex());
+                assertTrue(summary.hasTokenIndex());
+                assertEquals(expected.getOffHeapSize() + EytzingerTokenIndex.sizeFor(size), summary.getOffHeapSize());
+                for (PartitionPosition position : positions)
+                    assertEquals(position.toString(), expected.binarySearch(position), summary.binarySearch(position));
+            }
+        }
+    }
+
+    private static IndexSummary buildSummary(IPartitioner partitioner, List<DecoratedKey> keys, Config.IndexSummaryLayout layout) throws IOException
+    {
+        Config.IndexSummaryLayout previous = DatabaseDescriptor.getIndexSummaryLayout();
+        DatabaseDescriptor.setIndexSummaryLayout(layout);
+        try (IndexSummaryBuilder builder = new IndexSummaryBuilder(keys.size(), 1, BASE_SAMPLING_LEVEL))
+        {
+            for (int i = 0; i < keys.size(); i++)
+                builder.maybeAddEntry(keys.get(i), i);
+            return builder.build(partitioner);
+        }
+        finally
+        {
+            DatabaseDescriptor.setIndexSummaryLayout(previous);
+        }
+    }
+
+    @Test
+    public void testEytzingerLayoutDownsample() throws IOException
+    {
+        IPartitioner murmur = Murmur3Partitioner.instance;
+        List<DecoratedKey> keys = Lists.newArrayList();
+        for (int i = 0; i < 512; i++)
+            keys.add(murmur.decorateKey(ByteBufferUtil.bytes(random.nextLong())));
+        Collections.sort(keys);
+
+        Config.IndexSummaryLayout previous = DatabaseDescriptor.getIndexSummaryLayout();
+        DatabaseDescriptor.setIndexSummaryLayout(Config.IndexSummaryLayout.eytzinger);
+        try (IndexSummary original = buildSummary(murmur, keys, Config.IndexSummaryLayout.eytzinger);
+             IndexSummary downsampled = downsample(original, BASE_SAMPLING_LEVEL / 2, 1, murmur))
+        {
+            // the downsampled summary gets its own index over the remaining entries
+            assertTrue(downsampled.hasTokenIndex());
+            for (int i = 0; i < downsampled.size(); i++)
+            {
+                DecoratedKey key = murmur.decorateKey(ByteBuffer.wrap(downsampled.getKey(i)));
+                assertEquals(i, downsampled.binarySearch(key));
+            }
+            for (DecoratedKey key : keys)
+            {
+                int index = downsampled.binarySearch(key);
+                if (index < 0)
+                    index = -index - 2;
+                assertTrue(index < 0 || murmur.decorateKey(ByteBuffer.wrap(downsampled.getKey(index))).compareTo(key) <= 0);
+                assertTrue(index + 1 >= downsampled.size() || murmur.decorateKey(ByteBuffer.wrap(downsampled.getKey(index + 1))).compareTo(key) > 0);
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setIndexSummaryLayout(previous);
+        }
+    }
+
     @Test
     public void testGetPosition()
     {
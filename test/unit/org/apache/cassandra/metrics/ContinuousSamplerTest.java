@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.Sampler.Sample;
+import org.apache.cassandra.utils.FreeRunningClock;
+
+public class ContinuousSamplerTest
+{
+    @BeforeClass
+    public static void setupDD()
+    {
+        DatabaseDescriptor.daemonInitialization();
+    }
+
+    @After
+    public void disableSampling()
+    {
+        DatabaseDescriptor.setContinuousSamplingEnabled(false);
+    }
+
+    private static <T extends ContinuousSampler<String>> T withClock(T sampler, FreeRunningClock clock)
+    {
+        sampler.clock = clock;
+        return sampler;
+    }
+
+    private static ContinuousSampler<String> frequencySampler(FreeRunningClock clock)
+    {
+        return withClock(new ContinuousSampler.FrequencySampler<String>()
+        {
+            public String toString(String value)
+            {
+                return value;
+            }
+        }, clock);
+    }
+
+    private static ContinuousSampler<String> maxSampler(FreeRunningClock clock)
+    {
+        return withClock(new ContinuousSampler.MaxSampler<String>()
+        {
+            public String toString(String value)
+            {
+                return value;
+            }
+        }, clock);
+    }
+
+    @Test
+    public void testFrequencyAcrossWindows()
+    {
+        FreeRunningClock clock = new FreeRunningClock();
+        ContinuousSampler<String> sampler = frequencySampler(clock);
+        long window = DatabaseDescriptor.getContinuousSamplingWindow();
+
+        for (int i = 0; i < 5; i++)
+            sampler.insert("a", 1);
+        sampler.insert("b", 3);
+
+        // the samples of the previous window are added to those of the current one
+        clock.advance(window, TimeUnit.MILLISECONDS);
+        sampler.insert("b", 3);
+
+        List<Sample<String>> top = sampler.top(10);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("b", top.get(0).value);
+        Assert.assertEquals(6, top.get(0).count);
+        Assert.assertEquals("a", top.get(1).value);
+        Assert.assertEquals(5, top.get(1).count);
+
+        Assert.assertEquals(1, sampler.top(1).size());
+
+        // the samples of "a" age out after two windows
+        clock.advance(window, TimeUnit.MILLISECONDS);
+        sampler.insert("c", 1);
+        top = sampler.top(10);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("b", top.get(0).value);
+        Assert.assertEquals(3, top.get(0).count);
+
+        // and everything ages out if nothing is sampled
+        clock.advance(2 * window, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(sampler.top(10).isEmpty());
+    }
+
+    @Test
+    public void testMaxAcrossWindows()
+    {
+        FreeRunningClock clock = new FreeRunningClock();
+        ContinuousSampler<String> sampler = maxSampler(clock);
+        long window = DatabaseDescriptor.getContinuousSamplingWindow();
+
+        sampler.insert("a", 10);
+        sampler.insert("b", 30);
+        clock.advance(window, TimeUnit.MILLISECONDS);
+        sampler.insert("a", 20);
+        sampler.insert("b", 5);
+
+        List<Sample<String>> top = sampler.top(10);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("b", top.get(0).value);
+        Assert.assertEquals(30, top.get(0).count);
+        Assert.assertEquals("a", top.get(1).value);
+        Assert.assertEquals(20, top.get(1).count);
+    }
+
+    @Test
+    public void testMaxCapacity()
+    {
+        ContinuousSampler<String> sampler = maxSampler(new FreeRunningClock());
+        for (int i = 0; i < ContinuousSampler.CAPACITY * 2; i++)
+            sampler.insert("q" + i, i);
+
+        List<Sample<String>> top = sampler.top(ContinuousSampler.CAPACITY * 2);
+        Assert.assertEquals(ContinuousSampler.CAPACITY, top.size());
+        Assert.assertEquals(ContinuousSampler.CAPACITY * 2 - 1, top.get(0).count);
+        Assert.assertEquals(ContinuousSampler.CAPACITY, top.get(top.size() - 1).count);
+    }
+
+    @Test
+    public void testMaxPerItem()
+    {
+        ContinuousSampler<String> sampler = maxSampler(new FreeRunningClock());
+        for (int i = 0; i < ContinuousSampler.CAPACITY * 2; i++)
+            sampler.insert("a", i + 100);
+        sampler.insert("b", 10);
+        sampler.insert("a", 50);
+
+        // the repeated item only takes one slot, with its largest value
+        List<Sample<String>> top = sampler.top(10);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("a", top.get(0).value);
+        Assert.assertEquals(ContinuousSampler.CAPACITY * 2 + 99, top.get(0).count);
+        Assert.assertEquals("b", top.get(1).value);
+        Assert.assertEquals(10, top.get(1).count);
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        ContinuousSampler<String> sampler = frequencySampler(new FreeRunningClock());
+        sampler.addSample("a", 1);
+
+        DatabaseDescriptor.setContinuousSamplingEnabled(true);
+        sampler.addSample("b", 1);
+
+        // the buffered samples are drained before computing the top items
+        List<Sample<String>> top = sampler.top(10);
+        Assert.assertEquals(1, top.size());
+        Assert.assertEquals("b", top.get(0).value);
+    }
+
+    @Test
+    public void testBufferedSamples() throws Exception
+    {
+        ContinuousSampler<String> sampler = frequencySampler(new FreeRunningClock());
+        DatabaseDescriptor.setContinuousSamplingEnabled(true);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++)
+                    sampler.addSample("k" + (i % 3), 1);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        // samples are dropped when the buffers are full, but never more than were added
+        List<Sample<String>> top = sampler.top(10);
+        Assert.assertEquals(3, top.size());
+        long count = 0;
+        for (Sample<String> sample : top)
+            count += sample.count;
+        Assert.assertTrue(count >= ContinuousSampler.BUFFER_SIZE / 2);
+        Assert.assertTrue(count <= threads.length * 1000);
+
+        // and a single thread doesn't drop samples while they are drained fast enough
+        sampler.drain();
+        for (int i = 0; i < ContinuousSampler.BUFFER_SIZE; i++)
+            sampler.addSample("single", 1);
+        Assert.assertEquals(ContinuousSampler.BUFFER_SIZE, sampler.top(10).stream().filter(s -> s.value.equals("single")).findFirst().get().count);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+public class PartitionDigestsTest
+{
+    private static ByteBuffer bytes(String s)
+    {
+        return ByteBufferUtil.bytes(s);
+    }
+
+    private static PartitionDigests digests(String... keysAndDigests)
+    {
+        Map<ByteBuffer, ByteBuffer> digests = new LinkedHashMap<>();
+        Map<ByteBuffer, Long> sizes = new HashMap<>();
+        for (int i = 0; i < keysAndDigests.length; i += 2)
+        {
+            digests.put(bytes(keysAndDigests[i]), bytes(keysAndDigests[i + 1]));
+            sizes.put(bytes(keysAndDigests[i]), (long) i * 1000);
+        }
+        return new PartitionDigests(digests, sizes, false);
+    }
+
+    @Test
+    public void identical()
+    {
+        PartitionDigests local = digests("a", "1", "b", "2");
+        PartitionDigests remote = digests("a", "1", "b", "2");
+        Assert.assertTrue(local.difference(remote).isEmpty());
+        Assert.assertTrue(remote.difference(local).isEmpty());
+    }
+
+    @Test
+    public void differences()
+    {
+        PartitionDigests local = digests("a", "1", "b", "2", "c", "3");
+        PartitionDigests remote = digests("a", "1", "b", "x", "d", "4");
+        Assert.assertEquals(Sets.newHashSet(bytes("b"), bytes("c"), bytes("d")), local.difference(remote));
+        Assert.assertEquals(Sets.newHashSet(bytes("b"), bytes("c"), bytes("d")), remote.difference(local));
+    }
+
+    @Test
+    public void serialization() throws IOException
+    {
+        PartitionDigests expected = digests("a", "1", "b", "2");
+        int version = MessagingService.current_version;
+        try (DataOutputBuffer out = new DataOutputBuffer())
+        {
+            PartitionDigests.serializer.serialize(expected, out, version);
+            Assert.assertEquals(PartitionDigests.serializer.serializedSize(expected, version), out.buffer().limit());
+            try (DataInputBuffer in = new DataInputBuffer(out.buffer(), false))
+            {
+                Assert.assertEquals(expected, PartitionDigests.serializer.deserialize(in, version));
+            }
+        }
+    }
+}
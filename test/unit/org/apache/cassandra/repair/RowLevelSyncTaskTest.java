@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.repair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.EmptyIterators;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.ReadResponse;
+import org.apache.cassandra.db.RowUpdateBuilder;
+import org.apache.cassandra.db.SinglePartitionReadCommand;
+import org.apache.cassandra.db.WriteResponse;
+import org.apache.cassandra.db.partitions.SingletonUnfilteredPartitionIterator;
+import org.apache.cassandra.db.partitions.UnfilteredPartitionIterator;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.gms.ApplicationState;
+import org.apache.cassandra.gms.Feature;
+import org.apache.cassandra.gms.Gossiper;
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.net.MockMessagingService;
+import org.apache.cassandra.repair.messages.PartitionDigestsRequest;
+import org.apache.cassandra.repair.messages.RepairMessage;
+import org.apache.cassandra.schema.KeyspaceParams;
+import org.apache.cassandra.schema.TableMetadata;
+import org.apache.cassandra.service.ActiveRepairService;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.streaming.PreviewKind;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.UUIDGen;
+
+import static org.apache.cassandra.net.MockMessagingService.payload;
+import static org.apache.cassandra.net.MockMessagingService.verb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowLevelSyncTaskTest extends AbstractRepairTest
+{
+    private static final String KEYSPACE = "RowLevelSyncTaskTest";
+    private static final String TABLE = "Standard1";
+    // holds the data of the simulated remote replica, and has the same schema as TABLE
+    private static final String REMOTE_TABLE = "Remote";
+    private static final long TIMESTAMP = 1000;
+
+    private static ColumnFamilyStore cfs;
+    private static ColumnFamilyStore remoteCfs;
+
+    private final Map<String, String> remoteValues = new ConcurrentHashMap<>();
+    private final Set<String> sentKeys = ConcurrentHashMap.newKeySet();
+    private final Set<String> requestedKeys = ConcurrentHashMap.newKeySet();
+    private final List<Range<Token>> streamedRanges = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeClass
+    public static void defineSchema()
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    KeyspaceParams.simple(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, TABLE),
+                                    SchemaLoader.standardCFMD(KEYSPACE, REMOTE_TABLE));
+        cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(TABLE);
+        remoteCfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(REMOTE_TABLE);
+        DatabaseDescriptor.setRepairRowLevelSyncMaxPartitions(1000);
+    }
+
+    @After
+    public void cleanup()
+    {
+        MockMessagingService.cleanup();
+        cfs.truncateBlocking();
+        remoteCfs.truncateBlocking();
+    }
+
+    private static Mutation update(TableMetadata metadata, String key, String value)
+    {
+        return new RowUpdateBuilder(metadata, TIMESTAMP, key).clustering("c").add("val", value).build();
+    }
+
+    private static String key(ByteBuffer key)
+    {
+        return cfs.metadata().partitionKeyType.getString(key);
+    }
+
+    private static Token token(String key)
+    {
+        return cfs.getPartitioner().getToken(ByteBufferUtil.bytes(key));
+    }
+
+    private void writeLocal(String key, String value)
+    {
+        update(cfs.metadata(), key, value).applyUnsafe();
+    }
+
+    private void writeRemote(String key, String value)
+    {
+        update(remoteCfs.metadata(), key, value).applyUnsafe();
+        remoteValues.put(key, value);
+    }
+
+    /**
+     * Syncs the local table with the simulated remote replica, intercepting the messages sent to it.
+     */
+    private SyncStat sync(List<Range<Token>> ranges, long maxPartitionSize) throws Exception
+    {
+        // digests are computed from the sstables, as repair flushes before validating
+        cfs.forceBlockingFlush();
+        remoteCfs.forceBlockingFlush();
+
+        UUID parentSession = UUIDGen.getTimeUUID();
+        ActiveRepairService.instance.registerParentRepairSession(parentSession, COORDINATOR, Lists.newArrayList(cfs, remoteCfs),
+                                                                 ranges, false, ActiveRepairService.UNREPAIRED_SSTABLE,
+                                                                 true, PreviewKind.NONE);
+        RepairJobDesc desc = new RepairJobDesc(parentSession, UUIDGen.getTimeUUID(), KEYSPACE, TABLE, ranges);
+        RepairJobDesc remoteDesc = new RepairJobDesc(parentSession, desc.sessionId, KEYSPACE, REMOTE_TABLE, ranges);
+
+        RowLevelSyncTask task = new RowLevelSyncTask(desc, FBUtilities.getBroadcastAddressAndPort(), PARTICIPANT2, ranges,
+                                                     true, true, PreviewKind.NONE, MoreExecutors.directExecutor())
+        {
+            @Override
+            ListenableFuture<SyncStat> streamRanges(List<Range<Token>> ranges)
+            {
+                streamedRanges.addAll(ranges);
+                return Futures.immediateFuture(stat);
+            }
+        };
+        task.maxPartitionSize = maxPartitionSize;
+
+        // the peer answers with the digests of the remote table
+        MockMessagingService.when(payload(p -> p instanceof PartitionDigestsRequest))
+                            .respond((MessageOut<RepairMessage> message, InetAddressAndPort to) -> {
+                                try
+                                {
+                                    task.digestsReceived(PartitionDigests.compute(remoteCfs, remoteDesc, ranges, FBUtilities.nowInSeconds(), 1000));
+                                }
+                                catch (IOException e)
+                                {
+                                    throw new RuntimeException(e);
+                                }
+                                return null;
+                            });
+
+        // and applies the mutations it is sent
+        MockMessagingService.when(verb(MessagingService.Verb.READ_REPAIR))
+                            .respond((MessageOut<Mutation> message, InetAddressAndPort to) -> {
+                                sentKeys.add(key(message.payload.key().getKey()));
+                                return MessageIn.create(to, WriteResponse.createMessage().payload, Collections.emptyMap(),
+                                                        MessagingService.Verb.REQUEST_RESPONSE, MessagingService.current_version);
+                            });
+
+        // and returns the remote version of the partitions it is asked for
+        MockMessagingService.when(verb(MessagingService.Verb.READ))
+                            .respond((MessageOut<SinglePartitionReadCommand> message, InetAddressAndPort to) -> {
+                                SinglePartitionReadCommand command = message.payload;
+                                String key = key(command.partitionKey().getKey());
+                                requestedKeys.add(key);
+                                String value = remoteValues.get(key);
+                                UnfilteredPartitionIterator data = value == null
+                                                                   ? EmptyIterators.unfilteredPartition(cfs.metadata())
+                                                                   : new SingletonUnfilteredPartitionIterator(update(cfs.metadata(), key, value).getPartitionUpdates().iterator().next().unfilteredIterator());
+                                return MessageIn.create(to, ReadResponse.createDataResponse(data, command), Collections.emptyMap(),
+                                                        MessagingService.Verb.REQUEST_RESPONSE, MessagingService.current_version);
+                            });
+
+        task.run();
+        return task.get(30, TimeUnit.SECONDS);
+    }
+
+    private static String localValue(String key) throws CharacterCodingException
+    {
+        Cell cell = Util.getOnlyRow(Util.cmd(cfs, key).build()).getCell(cfs.metadata().getColumn(ByteBufferUtil.bytes("val")));
+        return ByteBufferUtil.string(cell.value(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testSyncMismatchingPartitions() throws Exception
+    {
+        writeLocal("same", "v");
+        writeRemote("same", "v");
+        writeLocal("differs", "a");
+        writeRemote("differs", "b");
+        writeLocal("local", "v");
+        writeRemote("remote", "v");
+
+        IPartitioner partitioner = cfs.getPartitioner();
+        Range<Token> ring = new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken());
+        SyncStat stat = sync(Arrays.asList(ring), 1024 * 1024);
+
+        assertEquals(1, stat.numberOfDifferences);
+        // only the partitions that differ are exchanged
+        assertEquals(Sets.newHashSet("differs", "local"), sentKeys);
+        assertEquals(Sets.newHashSet("differs", "remote"), requestedKeys);
+        assertTrue(streamedRanges.isEmpty());
+
+        // and the remote versions are applied locally
+        assertEquals("v", localValue("remote"));
+        assertEquals("b", localValue("differs"));
+    }
+
+    @Test
+    public void testStreamLargePartitions() throws Exception
+    {
+        // a partition too large to be sent as a mutation, in the first range
+        char[] large = new char[2000];
+        Arrays.fill(large, 'x');
+        writeLocal("large", new String(large));
+
+        // and a small one in the second range
+        IPartitioner partitioner = cfs.getPartitioner();
+        Range<Token> first = new Range<>(partitioner.getMinimumToken(), token("large"));
+        Range<Token> second = new Range<>(token("large"), partitioner.getMinimumToken());
+        String small = null;
+        for (int i = 0; small == null; i++)
+        {
+            if (second.contains(token("small" + i)))
+                small = "small" + i;
+        }
+        writeLocal(small, "v");
+
+        sync(Arrays.asList(first, second), 1000);
+
+        // the range of the large partition is streamed, the rest is synced row by row
+        assertEquals(Collections.singletonList(first), streamedRanges);
+        assertEquals(Collections.singleton(small), sentKeys);
+        assertTrue(requestedKeys.isEmpty());
+    }
+
+    @Test
+    public void testPeerFeatures()
+    {
+        // peers that haven't published their features, such as nodes not upgraded yet, may not support row level sync
+        assertFalse(RowLevelSyncTask.isSupportedBy(PARTICIPANT3));
+        Gossiper.instance.initializeNodeUnsafe(PARTICIPANT3, UUID.randomUUID(), 1);
+        assertFalse(RowLevelSyncTask.isSupportedBy(PARTICIPANT3));
+
+        Gossiper.instance.injectApplicationState(PARTICIPANT3, ApplicationState.FEATURES, StorageService.instance.valueFactory.features(EnumSet.noneOf(Feature.class)));
+        assertFalse(RowLevelSyncTask.isSupportedBy(PARTICIPANT3));
+
+        Gossiper.instance.injectApplicationState(PARTICIPANT3, ApplicationState.FEATURES, StorageService.instance.valueFactory.features(Feature.local()));
+        assertTrue(RowLevelSyncTask.isSupportedBy(PARTICIPANT3));
+    }
+}
@@ -190,4 +190,19 @@ public class RepairMessageSerializationsTest
         CleanupMessage msg = new CleanupMessage(UUID.randomUUID());
         serializeRoundTrip(msg, CleanupMessage.serializer);
     }
+
+    @Test
+    public void partitionDigestsRequestMessage() throws IOException
+    {
+        PartitionDigestsRequest msg = new PartitionDigestsRequest(buildRepairJobDesc(), buildTokenRanges(), 1000, 10000);
+        serializeRoundTrip(msg, PartitionDigestsRequest.serializer);
+    }
+
+    @Test
+    public void partitionDigestsResponseMessage_Failed() throws IOException
+    {
+        PartitionDigestsResponse msg = new PartitionDigestsResponse(buildRepairJobDesc());
+        PartitionDigestsResponse deserialized = serializeRoundTrip(msg, PartitionDigestsResponse.serializer);
+        Assert.assertNull(deserialized.digests);
+    }
 }
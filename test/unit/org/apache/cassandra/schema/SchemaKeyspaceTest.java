@@ -31,6 +31,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.cql3.UntypedResultSet;
 import org.apache.cassandra.cql3.statements.schema.CreateTableStatement;
@@ -38,9 +39,11 @@ import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.db.Mutation;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.UnfilteredRowIterators;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.service.reads.repair.ReadRepairStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
 
 import static org.apache.cassandra.cql3.QueryProcessor.executeOnceInternal;
@@ -107,6 +110,33 @@ public class SchemaKeyspaceTest
 
     }
 
+    @Test
+    public void testFilterType() throws Exception
+    {
+        TableMetadata metadata = Schema.instance.getTableMetadata(KEYSPACE1, CF_STANDARD1);
+        Assert.assertNull(metadata.params.filterType);
+        Assert.assertNull(tableRow(metadata).getCell(filterTypeColumn()));
+
+        // the column is only written if the filter type is set, see addTableParamsToRowBuilder
+        TableMetadata withXor = metadata.unbuild().params(metadata.params.unbuild().filterType(Config.SSTableFilterType.xor).build()).build();
+        Assert.assertNotNull(tableRow(withXor).getCell(filterTypeColumn()));
+        checkInverses(withXor);
+    }
+
+    private static ColumnMetadata filterTypeColumn()
+    {
+        TableMetadata tables = Schema.instance.getTableMetadata(SchemaConstants.SCHEMA_KEYSPACE_NAME, SchemaKeyspace.TABLES);
+        return tables.getColumn(ByteBufferUtil.bytes("filter_type"));
+    }
+
+    private static Row tableRow(TableMetadata metadata)
+    {
+        KeyspaceMetadata keyspace = Schema.instance.getKeyspaceMetadata(metadata.keyspace);
+        Mutation rm = SchemaKeyspace.makeCreateTableMutation(keyspace, metadata, FBUtilities.timestampMicros()).build();
+        PartitionUpdate update = rm.getPartitionUpdate(Schema.instance.getTableMetadata(SchemaConstants.SCHEMA_KEYSPACE_NAME, SchemaKeyspace.TABLES));
+        return update.iterator().next();
+    }
+
     private static void updateTable(String keyspace, TableMetadata oldTable, TableMetadata newTable)
     {
         KeyspaceMetadata ksm = Schema.instance.getKeyspaceInstance(keyspace).getMetadata();
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.service;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.virtual.SystemViewsKeyspace;
+import org.apache.cassandra.db.virtual.VirtualKeyspaceRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceAccountingTest extends CQLTester
+{
+    @BeforeClass
+    public static void setUp() throws Exception
+    {
+        DatabaseDescriptor.setRequestResourceAccountingEnabled(true);
+        VirtualKeyspaceRegistry.instance.register(SystemViewsKeyspace.instance);
+        requireNetwork();
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        DatabaseDescriptor.setRequestResourceAccountingEnabled(false);
+    }
+
+    @Test
+    public void testStatementUsage() throws Throwable
+    {
+        createTable("CREATE TABLE %s (id int primary key, v text)");
+        String insert = "INSERT INTO " + KEYSPACE + '.' + currentTable() + " (id, v) VALUES (?, ?)";
+        String select = "SELECT v FROM " + KEYSPACE + '.' + currentTable() + " WHERE id = ?";
+        Session session = sessionNet();
+        PreparedStatement prepared = session.prepare(select);
+        for (int i = 0; i < 10; i++)
+        {
+            session.execute(insert, i, "value" + i);
+            session.execute(prepared.bind(i));
+        }
+
+        // the driver also runs its own queries, on the system tables
+        int statements = 0;
+        for (ResourceAccounting.StatementUsage usage : ResourceAccounting.instance.statements())
+        {
+            if (!currentTable().equals(usage.table))
+                continue;
+
+            statements++;
+            assertTrue(usage.queryString, usage.queryString.equals(insert) || usage.queryString.equals(select));
+            assertEquals(KEYSPACE, usage.keyspace);
+            assertEquals(10, usage.requests());
+            assertTrue(usage.allocatedBytes() > 0);
+        }
+        assertEquals(2, statements);
+        assertTrue(getCurrentColumnFamilyStore().metric.requestAllocatedBytes.getCount() > 0);
+    }
+
+    @Test
+    public void testVirtualTableUsage() throws Throwable
+    {
+        createTable("CREATE TABLE %s (id int primary key, v text)");
+        for (int i = 0; i < 5; i++)
+            executeNet("INSERT INTO %s (id, v) VALUES (?, ?)", i, "value" + i);
+
+        // the usage of the queries of virtual tables is aggregated too, though not added to any table metrics
+        String select = "SELECT statement, keyspace_name, table_name, request_count, allocated_bytes FROM system_views.statement_resource_usage";
+        executeNet(select);
+        ResultSet result = executeNet(select);
+
+        Row insertUsage = null;
+        Row selectUsage = null;
+        for (Row row : result)
+        {
+            if (row.getString("statement").equals(formatQuery("INSERT INTO %s (id, v) VALUES (?, ?)")))
+                insertUsage = row;
+            else if (row.getString("statement").equals(select))
+                selectUsage = row;
+        }
+
+        assertNotNull(insertUsage);
+        assertEquals(KEYSPACE, insertUsage.getString("keyspace_name"));
+        assertEquals(currentTable(), insertUsage.getString("table_name"));
+        assertEquals(5, insertUsage.getLong("request_count"));
+        assertTrue(insertUsage.getLong("allocated_bytes") > 0);
+
+        // the second query is only aggregated once it has completed
+        assertNotNull(selectUsage);
+        assertEquals("system_views", selectUsage.getString("keyspace_name"));
+        assertEquals("statement_resource_usage", selectUsage.getString("table_name"));
+        assertEquals(1, selectUsage.getLong("request_count"));
+    }
+
+    @Test
+    public void testStatementEviction() throws Throwable
+    {
+        createTable("CREATE TABLE %s (id int primary key, v text)");
+        ResourceAccounting.instance.clearStatements();
+        Session session = sessionNet();
+        PreparedStatement prepared = session.prepare("SELECT v FROM " + KEYSPACE + '.' + currentTable() + " WHERE id = ?");
+        for (int i = 0; i < 10; i++)
+            session.execute(prepared.bind(i));
+
+        // more one-off statements than can be kept, that must not prevent new statements from being recorded
+        for (int i = 0; i < ResourceAccounting.MAX_STATEMENTS + 100; i++)
+            executeNet("SELECT v FROM %s WHERE id = " + i);
+
+        String insert = formatQuery("INSERT INTO %s (id, v) VALUES (?, ?)");
+        for (int i = 0; i < 10; i++)
+            session.execute(insert, i, "value" + i);
+
+        boolean preparedFound = false;
+        boolean insertFound = false;
+        for (ResourceAccounting.StatementUsage usage : ResourceAccounting.instance.statements())
+        {
+            preparedFound |= usage.queryString.equals(prepared.getQueryString());
+            insertFound |= usage.queryString.equals(insert);
+        }
+        assertTrue(preparedFound);
+        assertTrue(insertFound);
+    }
+}
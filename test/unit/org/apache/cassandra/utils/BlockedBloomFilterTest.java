@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlockedBloomFilterTest
+{
+    private static final double FP_CHANCE = 0.01;
+
+    private IFilter filter;
+
+    @Before
+    public void setup()
+    {
+        filter = FilterFactory.getFilter(FilterTestHelper.ELEMENTS, FP_CHANCE, Config.SSTableFilterType.blocked_bloom);
+    }
+
+    @After
+    public void destroy()
+    {
+        filter.close();
+    }
+
+    @Test
+    public void testOne()
+    {
+        assertTrue(filter instanceof BlockedBloomFilter);
+        filter.add(FilterTestHelper.bytes("a"));
+        assertTrue(filter.isPresent(FilterTestHelper.bytes("a")));
+        assertFalse(filter.isPresent(FilterTestHelper.bytes("b")));
+    }
+
+    @Test
+    public void testCapacity()
+    {
+        BlockedBloomFilter bf = (BlockedBloomFilter) filter;
+        assertEquals(0, bf.bitset.capacity() % BlockedBloomFilter.BLOCK_BITS);
+        assertTrue(bf.bitset.capacity() >= FilterTestHelper.ELEMENTS * 10L);
+    }
+
+    @Test
+    public void testFalsePositivesRandom()
+    {
+        testFalsePositives(FilterTestHelper.randomKeys(), FilterTestHelper.randomKeys2());
+    }
+
+    @Test
+    public void testFalsePositivesInt()
+    {
+        testFalsePositives(FilterTestHelper.intKeys(), FilterTestHelper.randomKeys2());
+    }
+
+    private void testFalsePositives(ResetableIterator<ByteBuffer> keys, ResetableIterator<ByteBuffer> otherKeys)
+    {
+        while (keys.hasNext())
+            filter.add(FilterTestHelper.wrap(keys.next()));
+
+        keys.reset();
+        while (keys.hasNext())
+            assertTrue(filter.isPresent(FilterTestHelper.wrap(keys.next())));
+
+        int fp = 0;
+        while (otherKeys.hasNext())
+        {
+            if (filter.isPresent(FilterTestHelper.wrap(otherKeys.next())))
+                fp++;
+        }
+        // leave some room for the randomness of the keys
+        assertTrue("False positive rate " + (double) fp / otherKeys.size(), fp < otherKeys.size() * FP_CHANCE * 1.5);
+    }
+
+    @Test
+    public void testBlockedSpec()
+    {
+        for (double fpChance : new double[]{ 0.1, 0.01, 0.001 })
+        {
+            BloomCalculations.BloomSpecification standard = BloomCalculations.computeBloomSpec(20, fpChance);
+            BloomCalculations.BloomSpecification blocked = BloomCalculations.computeBlockedBloomSpec(20, fpChance, BlockedBloomFilter.BLOCK_BITS);
+            assertTrue(blocked.bucketsPerElement >= standard.bucketsPerElement);
+            assertTrue(BloomCalculations.blockedFalsePositiveRate(blocked.bucketsPerElement, blocked.K, BlockedBloomFilter.BLOCK_BITS) <= fpChance);
+        }
+    }
+
+    @Test
+    public void testSerialize() throws IOException
+    {
+        filter.add(FilterTestHelper.bytes("a"));
+        DataOutputBuffer out = new DataOutputBuffer();
+        BloomFilterSerializer.serialize(filter, out);
+        assertEquals(filter.serializedSize(), out.getLength());
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.getData(), 0, out.getLength());
+        try (IFilter filter2 = BloomFilterSerializer.deserialize(new DataInputStream(in), false))
+        {
+            assertTrue(filter2 instanceof BlockedBloomFilter);
+            assertEquals(((BlockedBloomFilter) filter).hashCount, ((BlockedBloomFilter) filter2).hashCount);
+            BloomFilterTest.compare(((BlockedBloomFilter) filter).bitset, ((BlockedBloomFilter) filter2).bitset);
+            assertTrue(filter2.isPresent(FilterTestHelper.bytes("a")));
+            assertFalse(filter2.isPresent(FilterTestHelper.bytes("b")));
+        }
+    }
+}
@@ -55,7 +55,7 @@ public class BloomFilterTest
         }
         else
         {
-            BloomFilterSerializer.serialize((BloomFilter) f, out);
+            BloomFilterSerializer.serialize(f, out);
         }
 
         ByteArrayInputStream in = new ByteArrayInputStream(out.getData(), 0, out.getLength());
@@ -216,7 +216,7 @@ public class BloomFilterTest
         filter.close();
 
         DataInputStream in = new DataInputStream(new FileInputStream(file));
-        BloomFilter filter2 = BloomFilterSerializer.deserialize(in, false);
+        BloomFilter filter2 = (BloomFilter) BloomFilterSerializer.deserialize(in, false);
         Assert.assertTrue(filter2.isPresent(FilterTestHelper.wrap(test)));
         FileUtils.closeQuietly(in);
         filter2.close();
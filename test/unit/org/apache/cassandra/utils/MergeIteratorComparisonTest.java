@@ -78,6 +78,67 @@ public class MergeIteratorComparisonTest
         testMergeIterator(reducer, lists);
     }
     
+    @Test
+    public void testRandomIntsManySources()
+    {
+        System.out.println("testRandomIntsManySources");
+        final Random r = new Random();
+        Reducer<Integer, Counted<Integer>> reducer = new Counter<Integer>();
+
+        for (int count : new int[]{ 1, 2, 3, MergeIterator.LOSER_TREE_MIN_SOURCES - 1, MergeIterator.LOSER_TREE_MIN_SOURCES, 100 })
+        {
+            List<List<Integer>> lists = new NaturalListGenerator<Integer>(count, LIST_LENGTH / 10) {
+                @Override
+                public Integer next()
+                {
+                    return r.nextInt(LIST_LENGTH);
+                }
+            }.result;
+            lists.add(Collections.emptyList());
+            testMergeIterator(reducer, lists);
+        }
+    }
+
+    @Test
+    public void testLowerBounds()
+    {
+        final Random r = new Random();
+        // consuming only lower bounds outputs null
+        Reducer<Integer, Counted<Integer>> reducer = new Counter<Integer>()
+        {
+            @Override
+            protected Counted<Integer> getReduced()
+            {
+                read = true;
+                return current;
+            }
+        };
+        List<List<Integer>> lists = new NaturalListGenerator<Integer>(64, 100) {
+            @Override
+            public Integer next()
+            {
+                return r.nextInt(1000);
+            }
+        }.result;
+
+        List<Integer> lowerBounds = new ArrayList<>();
+        for (List<Integer> list : lists)
+            lowerBounds.add(list.isEmpty() ? null : list.get(0) - r.nextInt(3));
+
+        // lower bounds are only meaningful to the merge iterators, which skip them
+        Object[] heap = Iterators.toArray(MergeIterator.getManyToOne(lowerBoundIterators(lists, lowerBounds), Ordering.natural(), reducer), Object.class);
+        Object[] loserTree = Iterators.toArray(MergeIterator.getLoserTree(lowerBoundIterators(lists, lowerBounds), Ordering.natural(), reducer), Object.class);
+        Assert.assertArrayEquals(heap, loserTree);
+    }
+
+    private static List<CloseableIterator<Integer>> lowerBoundIterators(List<List<Integer>> lists, List<Integer> lowerBounds)
+    {
+        List<CloseableIterator<Integer>> iterators = new ArrayList<>();
+        for (int i = 0; i < lists.size(); i++)
+            iterators.add(new LowerBoundCLI<>(lists.get(i).iterator(), lowerBounds.get(i)));
+        return iterators;
+    }
+
     @Test
     public void testNonOverlapInts()
     {
@@ -471,6 +532,9 @@ public class MergeIteratorComparisonTest
             // If test fails, try the version below for improved reporting:
             Object[] basearr = Iterators.toArray(base, Object.class);
             Assert.assertArrayEquals(basearr, Iterators.toArray(tested, Object.class));
+            // whatever the number of sources, as get() only uses it for many of them
+            IMergeIterator<T,?> loserTree = MergeIterator.getLoserTree(closeableIterators(lists), comparator, reducer);
+            Assert.assertArrayEquals(basearr, Iterators.toArray(loserTree, Object.class));
             //Assert.assertTrue(Iterators.elementsEqual(base, tested));
             if (!BENCHMARK)
                 return;
@@ -642,6 +706,22 @@ public class MergeIteratorComparisonTest
         }
     }
 
+    static class LowerBoundCLI<E> extends CLI<E> implements IteratorWithLowerBound<E>
+    {
+        final E lowerBound;
+
+        LowerBoundCLI(Iterator<E> items, E lowerBound)
+        {
+            super(items);
+            this.lowerBound = lowerBound;
+        }
+
+        public E lowerBound()
+        {
+            return lowerBound;
+        }
+    }
+
     // Old MergeIterator implementation for comparison.
     public class MergeIteratorPQ<In,Out> extends MergeIterator<In,Out> implements IMergeIterator<In, Out>
     {
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class XorFilterTest
+{
+    private static final double FP_CHANCE = 0.01;
+    // for the tests checking that a given key is absent
+    private static final double LOW_FP_CHANCE = 0.0001;
+
+    private static IFilter newFilter(long keys)
+    {
+        return newFilter(keys, FP_CHANCE);
+    }
+
+    private static IFilter newFilter(long keys, double fpChance)
+    {
+        return FilterFactory.getFilter(keys, fpChance, Config.SSTableFilterType.xor);
+    }
+
+    @Test
+    public void testOne()
+    {
+        IFilter filter = newFilter(FilterTestHelper.ELEMENTS, LOW_FP_CHANCE);
+        filter.add(FilterTestHelper.bytes("a"));
+        // keys are let through until the filter is built
+        assertTrue(filter instanceof XorFilter.Builder);
+        assertTrue(filter.isPresent(FilterTestHelper.bytes("b")));
+        assertEquals(0, filter.serializedSize());
+
+        try (IFilter xor = FilterFactory.complete(filter))
+        {
+            assertTrue(xor instanceof XorFilter);
+            assertTrue(xor.isPresent(FilterTestHelper.bytes("a")));
+            assertFalse(xor.isPresent(FilterTestHelper.bytes("b")));
+            assertSame(xor, FilterFactory.complete(xor));
+            assertTrue(xor.serializedSize() > 0);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddBuilt()
+    {
+        try (IFilter xor = FilterFactory.complete(newFilter(FilterTestHelper.ELEMENTS)))
+        {
+            xor.add(FilterTestHelper.bytes("a"));
+        }
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        try (IFilter filter = FilterFactory.complete(newFilter(0, LOW_FP_CHANCE)))
+        {
+            assertFalse(filter.isPresent(FilterTestHelper.bytes("a")));
+        }
+    }
+
+    @Test
+    public void testFingerprintBits()
+    {
+        assertEquals(7, XorFilter.fingerprintBits(0.01));
+        assertEquals(10, XorFilter.fingerprintBits(0.001));
+        assertEquals(1, XorFilter.fingerprintBits(0.9));
+        assertEquals(XorFilter.MAX_FINGERPRINT_BITS, XorFilter.fingerprintBits(1e-9));
+    }
+
+    @Test
+    public void testFalsePositivesRandom()
+    {
+        testFalsePositives(FilterTestHelper.randomKeys(), FilterTestHelper.randomKeys2());
+    }
+
+    @Test
+    public void testFalsePositivesInt()
+    {
+        testFalsePositives(FilterTestHelper.intKeys(), FilterTestHelper.randomKeys2());
+    }
+
+    private void testFalsePositives(ResetableIterator<ByteBuffer> keys, ResetableIterator<ByteBuffer> otherKeys)
+    {
+        IFilter builder = newFilter(keys.size());
+        while (keys.hasNext())
+            builder.add(FilterTestHelper.wrap(keys.next()));
+
+        try (IFilter filter = FilterFactory.complete(builder))
+        {
+            keys.reset();
+            while (keys.hasNext())
+                assertTrue(filter.isPresent(FilterTestHelper.wrap(keys.next())));
+
+            int fp = 0;
+            while (otherKeys.hasNext())
+            {
+                if (filter.isPresent(FilterTestHelper.wrap(otherKeys.next())))
+                    fp++;
+            }
+            // leave some room for the randomness of the keys
+            assertTrue("False positive rate " + (double) fp / otherKeys.size(), fp < otherKeys.size() * FP_CHANCE * 1.5);
+        }
+    }
+
+    @Test
+    public void testDuplicateKeys()
+    {
+        IFilter builder = newFilter(100);
+        for (int i = 0; i < 100; i++)
+            builder.add(FilterTestHelper.bytes("k" + (i % 10)));
+
+        try (IFilter filter = FilterFactory.complete(builder))
+        {
+            for (int i = 0; i < 10; i++)
+                assertTrue(filter.isPresent(FilterTestHelper.bytes("k" + i)));
+        }
+    }
+
+    @Test
+    public void testShards()
+    {
+        int keys = 2 * XorFilter.SHARD_KEYS + 1000;
+        Random random = new Random(42);
+        IFilter builder = newFilter(keys / 4);
+        for (int i = 0; i < keys; i++)
+            builder.add(key(random.nextLong()));
+
+        try (XorFilter filter = (XorFilter) FilterFactory.complete(builder))
+        {
+            assertEquals(4, filter.seeds.length);
+
+            random = new Random(42);
+            for (int i = 0; i < keys; i++)
+                assertTrue(filter.isPresent(key(random.nextLong())));
+
+            int fp = 0;
+            int others = 100000;
+            for (int i = 0; i < others; i++)
+            {
+                if (filter.isPresent(key(random.nextLong())))
+                    fp++;
+            }
+            assertTrue("False positive rate " + (double) fp / others, fp < others * FP_CHANCE * 1.5);
+        }
+    }
+
+    @Test
+    public void testSerialize() throws IOException
+    {
+        IFilter builder = newFilter(FilterTestHelper.ELEMENTS, LOW_FP_CHANCE);
+        for (int i = 0; i < 1000; i++)
+            builder.add(FilterTestHelper.bytes("k" + i));
+
+        try (IFilter filter = FilterFactory.complete(builder))
+        {
+            DataOutputBuffer out = new DataOutputBuffer();
+            BloomFilterSerializer.serialize(filter, out);
+            assertEquals(filter.serializedSize(), out.getLength());
+
+            ByteArrayInputStream in = new ByteArrayInputStream(out.getData(), 0, out.getLength());
+            try (IFilter filter2 = BloomFilterSerializer.deserialize(new DataInputStream(in), false))
+            {
+                assertTrue(filter2 instanceof XorFilter);
+                assertEquals(filter.offHeapSize(), filter2.offHeapSize());
+                for (int i = 0; i < 1000; i++)
+                    assertTrue(filter2.isPresent(FilterTestHelper.bytes("k" + i)));
+                assertFalse(filter2.isPresent(FilterTestHelper.bytes("b")));
+            }
+        }
+    }
+
+    private static IFilter.FilterKey key(long hash)
+    {
+        return dest -> {
+            dest[0] = hash;
+            dest[1] = hash;
+        };
+    }
+}
@@ -206,6 +206,69 @@ public class BufferPoolTest
         BufferPool.put(buffer);
     }
 
+    @Test
+    public void testSizeClasses()
+    {
+        assertNull(BufferPool.SizeClass.forSize(BufferPool.CHUNK_SIZE));
+        assertEquals(BufferPool.CHUNK_SIZE * 2, BufferPool.SizeClass.forSize(BufferPool.CHUNK_SIZE + 1).size);
+        assertEquals(BufferPool.CHUNK_SIZE * 2, BufferPool.SizeClass.forSize(BufferPool.CHUNK_SIZE * 2).size);
+        assertEquals(BufferPool.CHUNK_SIZE * 4, BufferPool.SizeClass.forSize(BufferPool.CHUNK_SIZE * 2 + 1).size);
+        assertEquals(BufferPool.GlobalPool.MACRO_CHUNK_SIZE, BufferPool.SizeClass.forSize(BufferPool.GlobalPool.MACRO_CHUNK_SIZE).size);
+        assertNull(BufferPool.SizeClass.forSize(BufferPool.GlobalPool.MACRO_CHUNK_SIZE + 1));
+    }
+
+    @Test
+    public void testSizeClassRecycling()
+    {
+        final int size = BufferPool.CHUNK_SIZE + 1;
+
+        ByteBuffer buffer = BufferPool.get(size);
+        assertEquals(size, buffer.capacity());
+        assertTrue(buffer.isDirect());
+        assertEquals(0, BufferPool.numChunks());
+        assertEquals(BufferPool.CHUNK_SIZE * 2, BufferPool.sizeInBytes());
+        long address = MemoryUtil.getAddress(buffer);
+        BufferPool.put(buffer);
+
+        // the buffer is cached by the thread, and reused for any size of its size class
+        buffer = BufferPool.get(BufferPool.CHUNK_SIZE * 2);
+        assertEquals(BufferPool.CHUNK_SIZE * 2, buffer.capacity());
+        assertEquals(address, MemoryUtil.getAddress(buffer));
+        assertEquals(BufferPool.CHUNK_SIZE * 2, BufferPool.sizeInBytes());
+
+        // returning it twice doesn't make it available twice
+        BufferPool.put(buffer);
+        BufferPool.put(buffer);
+        ByteBuffer buffer1 = BufferPool.get(size);
+        ByteBuffer buffer2 = BufferPool.get(size);
+        assertFalse(MemoryUtil.getAddress(buffer1) == MemoryUtil.getAddress(buffer2));
+        BufferPool.put(buffer1);
+        BufferPool.put(buffer2);
+    }
+
+    @Test
+    public void testSizeClassesExhausted()
+    {
+        // the size classes can use up to half of the pool
+        final int size = BufferPool.GlobalPool.MACRO_CHUNK_SIZE;
+        final int numBuffers = (int) (BufferPool.MEMORY_USAGE_THRESHOLD / 2 / size);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < numBuffers; i++)
+            buffers.add(BufferPool.get(size));
+        assertEquals(numBuffers * size, BufferPool.sizeInBytes());
+
+        assertNull(BufferPool.tryGet(size));
+        ByteBuffer buffer = BufferPool.get(size);
+        assertEquals(size, buffer.capacity());
+        assertEquals(numBuffers * size, BufferPool.sizeInBytes());
+        BufferPool.put(buffer);
+
+        for (ByteBuffer b : buffers)
+            BufferPool.put(b);
+        assertEquals(numBuffers * size, BufferPool.sizeInBytes());
+    }
+
     @Test
     public void testFillUpChunks()
     {